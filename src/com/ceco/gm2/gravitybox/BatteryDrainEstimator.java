@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+/**
+ * Estimates battery drain and charge rates from level changes and predicts
+ * time to empty and time to full.
+ *
+ * Rates are exponentially weighted moving averages of time spent per level step,
+ * tracked separately for charging and discharging. Only level changes count; the first
+ * step after plugging or unplugging is skipped as it started somewhere within a level.
+ * Steps against the plug state (a drop while charging under load, a rise while discharging
+ * due to recalibration) aren't learned from and restart step timing.
+ * Recent level changes are kept in a fixed-size ring buffer. Constant memory and O(1)
+ * per sample; fed from battery broadcasts only, so it never wakes the device.
+ * Plain Java so it can be fed with recorded traces outside of Android.
+ */
+public class BatteryDrainEstimator {
+    public static final int HISTORY_SIZE = 64;
+    public static final long UNKNOWN = -1;
+
+    // weight of the newest step
+    private static final float ALPHA = 0.3f;
+
+    private final long[] mTimes = new long[HISTORY_SIZE];
+    private final int[] mLevels = new int[HISTORY_SIZE];
+    private int mHead;
+    private int mSize;
+
+    private int mLevel = -1;
+    private boolean mCharging;
+    private long mStepStartTime = -1;
+    // ms per level step; 0 while unknown
+    private float mDrainRate;
+    private float mChargeRate;
+
+    /**
+     * @param time elapsed realtime in ms, including deep sleep
+     */
+    public void addSample(long time, int level, boolean charging) {
+        if (mLevel < 0 || charging != mCharging) {
+            mLevel = level;
+            mCharging = charging;
+            mStepStartTime = -1;
+            return;
+        }
+        if (level == mLevel) return;
+
+        final boolean expectedDirection = charging ? level > mLevel : level < mLevel;
+        if (expectedDirection && mStepStartTime >= 0 && time > mStepStartTime) {
+            final int steps = Math.abs(level - mLevel);
+            final float rate = (float) (time - mStepStartTime) / steps;
+            if (charging) {
+                mChargeRate = mChargeRate == 0 ? rate : ALPHA * rate + (1 - ALPHA) * mChargeRate;
+            } else {
+                mDrainRate = mDrainRate == 0 ? rate : ALPHA * rate + (1 - ALPHA) * mDrainRate;
+            }
+        }
+
+        mTimes[mHead] = time;
+        mLevels[mHead] = level;
+        mHead = (mHead + 1) % HISTORY_SIZE;
+        if (mSize < HISTORY_SIZE) {
+            mSize++;
+        }
+
+        mLevel = level;
+        mStepStartTime = expectedDirection ? time : -1;
+    }
+
+    /**
+     * Predicted time in ms until battery is empty or {@link #UNKNOWN}.
+     */
+    public long getTimeToEmpty() {
+        if (mCharging || mDrainRate == 0 || mLevel < 0) return UNKNOWN;
+        return (long) (mLevel * mDrainRate);
+    }
+
+    /**
+     * Predicted time in ms until battery is full or {@link #UNKNOWN}.
+     */
+    public long getTimeToFull() {
+        if (!mCharging || mChargeRate == 0 || mLevel < 0) return UNKNOWN;
+        return (long) ((100 - mLevel) * mChargeRate);
+    }
+
+    /**
+     * Average time in ms per percent of discharge or 0 if not known yet.
+     */
+    public float getDrainRate() {
+        return mDrainRate;
+    }
+
+    /**
+     * Average time in ms per percent of charge or 0 if not known yet.
+     */
+    public float getChargeRate() {
+        return mChargeRate;
+    }
+
+    public int getHistorySize() {
+        return mSize;
+    }
+
+    /**
+     * Level change of given age, 0 being the most recent one.
+     */
+    public int getHistoryLevel(int age) {
+        return mLevels[(mHead - 1 - age + HISTORY_SIZE) % HISTORY_SIZE];
+    }
+
+    public long getHistoryTime(int age) {
+        return mTimes[(mHead - 1 - age + HISTORY_SIZE) % HISTORY_SIZE];
+    }
+}
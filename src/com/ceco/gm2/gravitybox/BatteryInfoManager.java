@@ -17,11 +17,11 @@ package com.ceco.gm2.gravitybox;
 
 import java.util.ArrayList;
 
-import de.robv.android.xposed.XposedBridge;
 import android.content.Context;
 import android.content.Intent;
-import android.media.MediaPlayer;
+import android.media.AudioManager;
 import android.os.BatteryManager;
+import android.os.SystemClock;
 
 public class BatteryInfoManager {
     private BatteryData mBatteryData;
@@ -29,26 +29,36 @@ public class BatteryInfoManager {
     private Context mGbContext;
     private boolean mChargedSoundEnabled;
     private boolean mPluggedSoundEnabled;
+    private BatteryDrainEstimator mEstimator;
+    private SoundCuePlayer mSoundCues;
 
     class BatteryData {
         boolean charging;
         int level;
         int powerSource;
+        // predictions in ms or BatteryDrainEstimator.UNKNOWN
+        long timeToEmpty;
+        long timeToFull;
     }
 
     public interface BatteryStatusListener {
         void onBatteryStatusChanged(BatteryData batteryData);
     }
 
-    public BatteryInfoManager(Context gbContext) {
+    public BatteryInfoManager(Context context, Context gbContext) {
         mGbContext = gbContext;
         mBatteryData = new BatteryData();
         mBatteryData.charging = false;
         mBatteryData.level = 0;
         mBatteryData.powerSource = 0;
+        mBatteryData.timeToEmpty = BatteryDrainEstimator.UNKNOWN;
+        mBatteryData.timeToFull = BatteryDrainEstimator.UNKNOWN;
+        mEstimator = new BatteryDrainEstimator();
         mListeners = new ArrayList<BatteryStatusListener>();
         mChargedSoundEnabled = false;
         mPluggedSoundEnabled = false;
+        // same stream MediaPlayer used to play cues on
+        mSoundCues = new SoundCuePlayer(context, mGbContext, AudioManager.STREAM_MUSIC);
     }
 
     public void registerListener(BatteryStatusListener listener) {
@@ -69,6 +79,7 @@ public class BatteryInfoManager {
                 / intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100));
         int newPowerSource = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0);
         boolean newCharging = newPowerSource != 0;
+        mEstimator.addSample(SystemClock.elapsedRealtime(), newLevel, newCharging);
 
         if (mBatteryData.level != newLevel || mBatteryData.charging != newCharging ||
                 mBatteryData.powerSource != newPowerSource) {
@@ -87,24 +98,36 @@ public class BatteryInfoManager {
             mBatteryData.level = newLevel;
             mBatteryData.charging = newCharging;
             mBatteryData.powerSource = newPowerSource;
+            mBatteryData.timeToEmpty = mEstimator.getTimeToEmpty();
+            mBatteryData.timeToFull = mEstimator.getTimeToFull();
             notifyListeners();
         }
     }
 
     public void setChargedSoundEnabled(boolean enabled) {
         mChargedSoundEnabled = enabled;
+        updateSoundCues();
     }
 
     public void setPluggedSoundEnabled(boolean enabled) {
         mPluggedSoundEnabled = enabled;
+        updateSoundCues();
     }
 
-    private void playSound(int soundResId) {
-        try {
-            MediaPlayer mp = MediaPlayer.create(mGbContext, soundResId);
-            mp.start();
-        } catch (Throwable t) {
-            XposedBridge.log(t);
+    private void updateSoundCues() {
+        if (!mChargedSoundEnabled && !mPluggedSoundEnabled) {
+            mSoundCues.release();
+            return;
+        }
+        if (mChargedSoundEnabled) {
+            mSoundCues.preload(R.raw.battery_charged);
+        }
+        if (mPluggedSoundEnabled) {
+            mSoundCues.preload(R.raw.charger_plugged, R.raw.charger_unplugged);
         }
     }
+
+    private void playSound(int soundResId) {
+        mSoundCues.play(soundResId);
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
+
+/**
+ * Collects preference change broadcasts over a short window and sends
+ * one intent per action carrying extras of all changes queued in that window.
+ *
+ * Intents of the same action are merged when they carry disjoint extras (changes
+ * of different preferences) or the very same single extra (repeated changes of one
+ * preference, e.g. dragging a seek bar) in which case the last value wins.
+ * Anything else (extras that only make sense together, action-only intents)
+ * is never merged; pending intent of that action is sent first to keep ordering.
+ */
+public class BroadcastBatcher {
+    private static final String TAG = "GB:BroadcastBatcher";
+    private static final boolean DEBUG = false;
+
+    private static final int BATCH_WINDOW = 150;
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final Map<String, Intent> mPending = new LinkedHashMap<String, Intent>();
+    private int mQueuedCount;
+
+    public BroadcastBatcher(Context context) {
+        mContext = context.getApplicationContext();
+        mHandler = new Handler();
+    }
+
+    private Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public void queue(Intent intent) {
+        final String action = intent.getAction();
+        final Bundle extras = intent.getExtras();
+        final Intent pending = mPending.get(action);
+        mQueuedCount++;
+
+        if (extras == null || extras.isEmpty()) {
+            if (pending != null) {
+                send(mPending.remove(action));
+            }
+            send(intent);
+            return;
+        }
+
+        if (pending != null) {
+            if (canMerge(pending.getExtras().keySet(), extras.keySet())) {
+                pending.putExtras(extras);
+            } else {
+                send(pending);
+                mPending.put(action, new Intent(intent));
+            }
+        } else {
+            mPending.put(action, new Intent(intent));
+        }
+
+        mHandler.removeCallbacks(mFlushRunnable);
+        mHandler.postDelayed(mFlushRunnable, BATCH_WINDOW);
+    }
+
+    private static boolean canMerge(Set<String> pendingKeys, Set<String> newKeys) {
+        if (pendingKeys.equals(newKeys)) {
+            return (newKeys.size() == 1);
+        }
+        for (String key : newKeys) {
+            if (pendingKeys.contains(key)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sends all pending intents immediately.
+     */
+    public void flush() {
+        mHandler.removeCallbacks(mFlushRunnable);
+        if (mPending.isEmpty()) return;
+
+        List<Intent> intents = new ArrayList<Intent>(mPending.values());
+        mPending.clear();
+        if (DEBUG) Log.d(TAG, mQueuedCount + " change(s) sent as " + intents.size() + " broadcast(s)");
+        mQueuedCount = 0;
+        for (Intent intent : intents) {
+            send(intent);
+        }
+    }
+
+    private void send(Intent intent) {
+        mContext.sendBroadcast(intent);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Single broadcast receiver per process that delivers intents only to sub-receivers
+ * that subscribed to given action.
+ *
+ * Sub-receivers are registered together with the list of actions they are interested in.
+ * Actions not yet covered by the underlying receiver are registered with the system
+ * on the fly. Delivery count and time spent in sub-receivers is tracked per action.
+ * Like with a system registration, a receiver subscribing to a sticky action gets
+ * the current sticky intent right away.
+ */
+public class BroadcastDispatcher {
+    private static final String TAG = "GB:BroadcastDispatcher";
+    private static final boolean DEBUG = false;
+
+    private static final BroadcastSubReceiver[] EMPTY = new BroadcastSubReceiver[0];
+
+    private static BroadcastDispatcher sInstance;
+
+    private final Context mContext;
+    // copy-on-write arrays so that dispatching needs no locking or iterator allocation
+    private final Map<String, BroadcastSubReceiver[]> mSubscribers =
+            new HashMap<String, BroadcastSubReceiver[]>();
+    private final Map<String, ActionStats> mStats = new HashMap<String, ActionStats>();
+
+    private static void log(String message) {
+        XposedBridge.log(TAG + ": " + message);
+    }
+
+    public static final class ActionStats {
+        private int mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+
+        private ActionStats() { }
+
+        private ActionStats(ActionStats s) {
+            mCount = s.mCount;
+            mTotalNanos = s.mTotalNanos;
+            mMaxNanos = s.mMaxNanos;
+        }
+
+        public int getCount() {
+            return mCount;
+        }
+
+        public long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + mCount + "; total=" + (mTotalNanos / 1000) + "us" +
+                    "; max=" + (mMaxNanos / 1000) + "us";
+        }
+    }
+
+    public static synchronized BroadcastDispatcher getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BroadcastDispatcher(context);
+        }
+        return sInstance;
+    }
+
+    private BroadcastDispatcher(Context context) {
+        mContext = context;
+    }
+
+    private BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final String action = intent.getAction();
+            if (action == null) return;
+
+            final BroadcastSubReceiver[] subscribers;
+            final ActionStats stats;
+            synchronized (BroadcastDispatcher.this) {
+                subscribers = mSubscribers.get(action);
+                stats = mStats.get(action);
+            }
+            if (subscribers == null || subscribers.length == 0) return;
+
+            final long start = System.nanoTime();
+            for (BroadcastSubReceiver bsr : subscribers) {
+                try {
+                    bsr.onBroadcastReceived(context, intent);
+                } catch (Throwable t) {
+                    XposedBridge.log(t);
+                }
+            }
+            final long elapsed = System.nanoTime() - start;
+
+            synchronized (BroadcastDispatcher.this) {
+                stats.mCount++;
+                stats.mTotalNanos += elapsed;
+                if (elapsed > stats.mMaxNanos) {
+                    stats.mMaxNanos = elapsed;
+                }
+            }
+            if (DEBUG) log(action + " delivered to " + subscribers.length +
+                    " receiver(s) in " + (elapsed / 1000) + "us");
+        }
+    };
+
+    /**
+     * Subscribes receiver to given actions. Receiver gets only intents with these actions.
+     * Registering the same receiver again adds the actions to its subscription.
+     */
+    public void register(BroadcastSubReceiver receiver, String... actions) {
+        List<Intent> stickyIntents = null;
+        synchronized (this) {
+            IntentFilter newActions = null;
+            for (String action : actions) {
+                BroadcastSubReceiver[] subscribers = mSubscribers.get(action);
+                if (subscribers == null) {
+                    subscribers = EMPTY;
+                    mStats.put(action, new ActionStats());
+                    if (newActions == null) {
+                        newActions = new IntentFilter();
+                    }
+                    newActions.addAction(action);
+                } else if (Arrays.asList(subscribers).contains(receiver)) {
+                    continue;
+                } else {
+                    // system delivers sticky intents only when action gets registered
+                    Intent sticky = mContext.registerReceiver(null, new IntentFilter(action));
+                    if (sticky != null) {
+                        if (stickyIntents == null) {
+                            stickyIntents = new ArrayList<Intent>();
+                        }
+                        stickyIntents.add(sticky);
+                    }
+                }
+                BroadcastSubReceiver[] updated = Arrays.copyOf(subscribers, subscribers.length + 1);
+                updated[subscribers.length] = receiver;
+                mSubscribers.put(action, updated);
+            }
+
+            // the same receiver object can be registered multiple times;
+            // filters just get added to it
+            if (newActions != null) {
+                mContext.registerReceiver(mReceiver, newActions);
+                if (DEBUG) log("Registered " + newActions.countActions() + " new action(s)");
+            }
+        }
+
+        if (stickyIntents != null) {
+            for (Intent intent : stickyIntents) {
+                try {
+                    receiver.onBroadcastReceived(mContext, intent);
+                } catch (Throwable t) {
+                    XposedBridge.log(t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes receiver from all actions it was subscribed to.
+     * Actions stay registered with the system even if no subscribers are left.
+     */
+    public synchronized void unregister(BroadcastSubReceiver receiver) {
+        for (Map.Entry<String, BroadcastSubReceiver[]> e : mSubscribers.entrySet()) {
+            List<BroadcastSubReceiver> list = new ArrayList<BroadcastSubReceiver>(
+                    Arrays.asList(e.getValue()));
+            if (list.remove(receiver)) {
+                e.setValue(list.toArray(EMPTY));
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of delivery statistics keyed by action.
+     */
+    public synchronized Map<String, ActionStats> getStats() {
+        Map<String, ActionStats> stats = new HashMap<String, ActionStats>();
+        for (Map.Entry<String, ActionStats> e : mStats.entrySet()) {
+            stats.put(e.getKey(), new ActionStats(e.getValue()));
+        }
+        return stats;
+    }
+
+    public void dumpStats() {
+        for (Map.Entry<String, ActionStats> e : getStats().entrySet()) {
+            log(e.getKey() + ": " + e.getValue());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.Arrays;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Drives charging animations of battery indicators from a single vsync-aligned frame callback.
+ *
+ * Each client animates at its own frame budget (minimum interval between frames) and gets
+ * time elapsed since its previous frame so animation speed doesn't depend on frame rate.
+ * Frames are requested from {@link Choreographer} only when some client is due, and not at all
+ * while the screen is off. Clients are expected to stop themselves when detached or hidden.
+ * Must be used from main thread.
+ */
+public class ChargeAnimationDriver implements BroadcastSubReceiver {
+    private static final String TAG = "GB:ChargeAnimationDriver";
+    private static final boolean DEBUG = false;
+
+    private static ChargeAnimationDriver sInstance;
+
+    public interface Client {
+        /**
+         * Called on each animation frame.
+         * @param elapsed time in ms since previous frame of this client; 0 on first frame
+         */
+        void onAnimationFrame(long elapsed);
+    }
+
+    private Client[] mClients = new Client[0];
+    private long[] mIntervals = new long[0];
+    private long[] mLastFrames = new long[0];
+    private boolean mScreenOn;
+    private boolean mFrameScheduled;
+
+    private static void log(String message) {
+        XposedBridge.log(TAG + ": " + message);
+    }
+
+    public static ChargeAnimationDriver getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ChargeAnimationDriver(context);
+        }
+        return sInstance;
+    }
+
+    private ChargeAnimationDriver(Context context) {
+        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        mScreenOn = pm.isScreenOn();
+        BroadcastDispatcher.getInstance(context).register(this,
+                Intent.ACTION_SCREEN_ON, Intent.ACTION_SCREEN_OFF);
+    }
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFrameScheduled = false;
+            if (!mScreenOn) return;
+
+            final long now = SystemClock.uptimeMillis();
+            // clients may stop themselves from within onAnimationFrame
+            final Client[] clients = mClients;
+            for (Client client : clients) {
+                final int i = indexOf(client);
+                if (i < 0) continue;
+                if (now - mLastFrames[i] >= mIntervals[i]) {
+                    final long elapsed = mLastFrames[i] == 0 ? 0 : now - mLastFrames[i];
+                    mLastFrames[i] = now;
+                    client.onAnimationFrame(elapsed);
+                }
+            }
+            scheduleFrame();
+        }
+    };
+
+    private void scheduleFrame() {
+        if (mFrameScheduled || !mScreenOn || mClients.length == 0) return;
+
+        final long now = SystemClock.uptimeMillis();
+        long delay = Long.MAX_VALUE;
+        for (int i = 0; i < mClients.length; i++) {
+            delay = Math.min(delay, Math.max(mLastFrames[i] + mIntervals[i] - now, 0));
+        }
+        mFrameScheduled = true;
+        Choreographer.getInstance().postFrameCallbackDelayed(mFrameCallback, delay);
+    }
+
+    private int indexOf(Client client) {
+        for (int i = 0; i < mClients.length; i++) {
+            if (mClients[i] == client) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Starts delivering frames to client at most once per given interval.
+     * Starting an already running client just updates its interval.
+     */
+    public void start(Client client, long frameInterval) {
+        int index = indexOf(client);
+        if (index < 0) {
+            index = mClients.length;
+            mClients = Arrays.copyOf(mClients, index + 1);
+            mIntervals = Arrays.copyOf(mIntervals, index + 1);
+            mLastFrames = Arrays.copyOf(mLastFrames, index + 1);
+            mClients[index] = client;
+            mLastFrames[index] = 0;
+            if (DEBUG) log("Animation started for " + client);
+        }
+        mIntervals[index] = frameInterval;
+        scheduleFrame();
+    }
+
+    public void stop(Client client) {
+        final int index = indexOf(client);
+        if (index < 0) return;
+
+        final int n = mClients.length - 1;
+        Client[] clients = new Client[n];
+        long[] intervals = new long[n];
+        long[] lastFrames = new long[n];
+        for (int i = 0, j = 0; i <= n; i++) {
+            if (i == index) continue;
+            clients[j] = mClients[i];
+            intervals[j] = mIntervals[i];
+            lastFrames[j] = mLastFrames[i];
+            j++;
+        }
+        mClients = clients;
+        mIntervals = intervals;
+        mLastFrames = lastFrames;
+        if (n == 0 && mFrameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mFrameScheduled = false;
+        }
+        if (DEBUG) log("Animation stopped for " + client);
+    }
+
+    public boolean isRunning(Client client) {
+        return indexOf(client) >= 0;
+    }
+
+    @Override
+    public void onBroadcastReceived(Context context, Intent intent) {
+        if (intent.getAction().equals(Intent.ACTION_SCREEN_OFF)) {
+            mScreenOn = false;
+            if (mFrameScheduled) {
+                Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+                mFrameScheduled = false;
+            }
+            if (DEBUG) log("Screen off; animations suspended");
+        } else if (intent.getAction().equals(Intent.ACTION_SCREEN_ON)) {
+            mScreenOn = true;
+            // don't let animations jump by the time screen was off
+            for (int i = 0; i < mLastFrames.length; i++) {
+                mLastFrames[i] = 0;
+            }
+            scheduleFrame();
+            if (DEBUG) log("Screen on; animations resumed");
+        }
+    }
+}
@@ -21,6 +21,8 @@ import com.ceco.gm2.gravitybox.BatteryInfoManager.BatteryStatusListener;
 import com.ceco.gm2.gravitybox.StatusBarIconManager.ColorInfo;
 import com.ceco.gm2.gravitybox.StatusBarIconManager.IconManagerListener;
 
+import java.util.Arrays;
+
 import de.robv.android.xposed.XposedBridge;
 import android.content.Context;
 import android.content.res.Resources;
@@ -30,26 +32,32 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
+import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.os.Handler;
 import android.util.AttributeSet;
 import android.util.TypedValue;
+import android.view.View;
 import android.view.ViewGroup.LayoutParams;
 import android.widget.ImageView;
 
-public class CmCircleBattery extends ImageView implements IconManagerListener, BatteryStatusListener {
+public class CmCircleBattery extends ImageView implements IconManagerListener, BatteryStatusListener,
+                                                          ChargeAnimationDriver.Client {
     private static final String TAG = "GB:CircleBattery";
     private static final String PACKAGE_NAME = "com.android.systemui";
     private static final boolean DEBUG = false;
 
-    private Handler mHandler;
+    private static final long ANIM_FRAME_INTERVAL = 50;
+    // 3 degrees per 50ms frame
+    private static final float ANIM_DEGREES_PER_SECOND = 60;
+
+    private ChargeAnimationDriver mAnimDriver;
 
     // state variables
     private boolean mAttached;      // whether or not attached to a window
     private boolean mIsCharging;    // whether or not device is currently charging
     private int     mLevel;         // current battery level
-    private int     mAnimOffset;    // current level of charging animation
+    private float   mAnimOffset;    // current level of charging animation
     private boolean mIsAnimating;   // stores charge-animation status to reliably remove callbacks
     private int     mDockLevel;     // current dock battery level
     private boolean mDockIsCharging;// whether or not dock battery is currently charging
@@ -64,6 +72,8 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
     private Float   mTextLeftX;     // precalculated x position for drawText() to appear centered
     private Float   mTextY;         // precalculated y position for drawText() to appear vertical-centered
     private Float   mTextRightX;    // precalculated x position for dock battery drawText()
+    private Path    mRingPath;      // thin ring, relative to mRectLeft
+    private final Path[] mArcPaths = new Path[101]; // arcs per padded level, built lazily for current size
 
     // quiet a lot of paint variables. helps to move cpu-usage from actual drawing to initialization
     private Paint   mPaintFont;
@@ -75,15 +85,6 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
         XposedBridge.log(TAG + ": " + message);
     }
 
-    // runnable to invalidate view via mHandler.postDelayed() call
-    private final Runnable mInvalidate = new Runnable() {
-        public void run() {
-            if(mAttached) {
-                invalidate();
-            }
-        }
-    };
-
     // keeps track of current battery level and charger-plugged-state
     @Override
     public void onBatteryStatusChanged(BatteryData batteryData) {
@@ -98,6 +99,7 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
 
             invalidate();
         }
+        updateChargeAnim();
     }
 
     /***
@@ -114,7 +116,7 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
     public CmCircleBattery(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
 
-        mHandler = new Handler();
+        mAnimDriver = ChargeAnimationDriver.getInstance(context);
 
         // initialize and setup all paint variables
         // stroke width is later set in initSizeBasedStuff()
@@ -154,7 +156,8 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
         super.onAttachedToWindow();
         if (!mAttached) {
             mAttached = true;
-            mHandler.postDelayed(mInvalidate, 250);
+            invalidate();
+            updateChargeAnim();
         }
     }
 
@@ -167,9 +170,22 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
                                 // recalculated on next attach
             mCircleSize = 0;    // makes sure, mCircleSize is reread from icons on
                                 // next attach
+            updateChargeAnim();
         }
     }
 
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateChargeAnim();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateChargeAnim();
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         if (mCircleSize == 0) {
@@ -180,7 +196,7 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
                 + (mIsDocked ? mCircleSize + getPaddingLeft() : 0), mCircleSize);
     }
 
-    private void drawCircle(Canvas canvas, int level, int animOffset, float textX, RectF drawRect) {
+    private void drawCircle(Canvas canvas, int level, float animOffset, float textX, RectF drawRect) {
         Paint usePaint = mPaintSystem;
         // turn red at 14% - same level android battery warning appears
         if (level <= 14) {
@@ -193,12 +209,32 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
         int padLevel = level;
         if (padLevel >= 97) {
             padLevel = 100;
+        } else if (padLevel < 0) {
+            padLevel = 0;
         }
 
+        // arcs are built once per size and level for left circle; shift and rotate canvas instead
+        if (mRingPath == null) {
+            mRingPath = new Path();
+            mRingPath.addOval(mRectLeft, Path.Direction.CW);
+        }
+        Path arcPath = mArcPaths[padLevel];
+        if (arcPath == null) {
+            arcPath = new Path();
+            arcPath.addArc(mRectLeft, 270, 3.6f * padLevel);
+            mArcPaths[padLevel] = arcPath;
+        }
+
+        canvas.save();
+        canvas.translate(drawRect.left - mRectLeft.left, 0);
         // draw thin gray ring first
-        canvas.drawArc(drawRect, 270, 360, false, mPaintGray);
+        canvas.drawPath(mRingPath, mPaintGray);
         // draw colored arc representing charge level
-        canvas.drawArc(drawRect, 270 + animOffset, 3.6f * padLevel, false, usePaint);
+        if (animOffset != 0) {
+            canvas.rotate(animOffset, mRectLeft.centerX(), mRectLeft.centerY());
+        }
+        canvas.drawPath(arcPath, usePaint);
+        canvas.restore();
         // if chosen by options, draw percentage text in the middle
         // always skip percentage when 100, so layout doesnt break
         if (level < 100 && mPercentage) {
@@ -214,8 +250,6 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
             initSizeBasedStuff();
         }
 
-        updateChargeAnim();
-
         if (mIsDocked) {
             drawCircle(canvas, mDockLevel, (mDockIsCharging ? mAnimOffset : 0), mTextLeftX, mRectLeft);
             drawCircle(canvas, mLevel, (mIsCharging ? mAnimOffset : 0), mTextRightX, mRectRight);
@@ -225,30 +259,29 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
     }
 
     /***
-     * updates the animation counter
-     * cares for timed callbacks to continue animation cycles
-     * uses mInvalidate for delayed invalidate() callbacks
+     * starts or stops charging animation depending on charging state and
+     * whether the view can be seen at all
      */
     private void updateChargeAnim() {
-        if (!(mIsCharging || mDockIsCharging) || (mLevel >= 97 && mDockLevel >= 97)) {
-            if (mIsAnimating) {
-                mIsAnimating = false;
-                mAnimOffset = 0;
-                mHandler.removeCallbacks(mInvalidate);
-            }
-            return;
-        }
-
-        mIsAnimating = true;
-
-        if (mAnimOffset > 360) {
+        final boolean animate = mAttached && getVisibility() == View.VISIBLE &&
+                getWindowVisibility() == View.VISIBLE &&
+                (mIsCharging || mDockIsCharging) && !(mLevel >= 97 && mDockLevel >= 97);
+
+        if (animate && !mIsAnimating) {
+            mIsAnimating = true;
+            mAnimDriver.start(this, ANIM_FRAME_INTERVAL);
+        } else if (!animate && mIsAnimating) {
+            mIsAnimating = false;
             mAnimOffset = 0;
-        } else {
-            mAnimOffset += 3;
+            mAnimDriver.stop(this);
+            invalidate();
         }
+    }
 
-        mHandler.removeCallbacks(mInvalidate);
-        mHandler.postDelayed(mInvalidate, 50);
+    @Override
+    public void onAnimationFrame(long elapsed) {
+        mAnimOffset = (mAnimOffset + elapsed * ANIM_DEGREES_PER_SECOND / 1000f) % 360;
+        invalidate();
     }
 
     /***
@@ -267,6 +300,8 @@ public class CmCircleBattery extends ImageView implements IconManagerListener, B
         mPaintRed.setStrokeWidth(strokeWidth);
         mPaintSystem.setStrokeWidth(strokeWidth);
         mPaintGray.setStrokeWidth(strokeWidth / 3.5f);
+        mRingPath = null;
+        Arrays.fill(mArcPaths, null);
 
         // calculate rectangle for drawArc calls
         int pLeft = getPaddingLeft();
@@ -88,7 +88,7 @@ public class ConnectivityServiceWrapper {
             final Class<?> connServiceClass = 
                     XposedHelpers.findClass(CLASS_CONNECTIVITY_SERVICE, null);
 
-            XposedBridge.hookAllConstructors(connServiceClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(connServiceClass, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     if (DEBUG) log("ConnectivityService constructed.");
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * Bounded drawable cache with primitive keys composed of resource id, color slot,
+ * icon style and icon mode (see {@link #key(int, int, int, int)}).
+ *
+ * Meant for a few dozen status bar icons: entries are kept in parallel arrays scanned
+ * linearly and the least recently used entry is evicted when full. Lookups don't allocate.
+ * Not thread-safe.
+ */
+public class DrawableCache {
+    private final long[] mKeys;
+    private final Drawable[] mValues;
+    private final long[] mLastUse;
+    private int mSize;
+    private long mClock;
+    private int mHitCount;
+    private int mMissCount;
+
+    public DrawableCache(int capacity) {
+        mKeys = new long[capacity];
+        mValues = new Drawable[capacity];
+        mLastUse = new long[capacity];
+    }
+
+    public static long key(int resId, int slot, int style, int mode) {
+        return ((long) resId << 32) | ((slot & 0xFF) << 16) | ((style & 0xFF) << 8) | (mode & 0xFF);
+    }
+
+    private int indexOf(long key) {
+        for (int i = 0; i < mSize; i++) {
+            if (mKeys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    public Drawable get(long key) {
+        final int index = indexOf(key);
+        if (index < 0) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        mLastUse[index] = ++mClock;
+        return mValues[index];
+    }
+
+    public void put(long key, Drawable d) {
+        int index = indexOf(key);
+        if (index < 0) {
+            if (mSize < mKeys.length) {
+                index = mSize++;
+            } else {
+                index = 0;
+                for (int i = 1; i < mSize; i++) {
+                    if (mLastUse[i] < mLastUse[index]) {
+                        index = i;
+                    }
+                }
+            }
+            mKeys[index] = key;
+        }
+        mValues[index] = d;
+        mLastUse[index] = ++mClock;
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mValues[i] = null;
+        }
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.robv.android.xposed.XSharedPreferences;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Ordered list of zygote-level modules together with preference keys that activate them.
+ *
+ * A module registered with activation keys is initialized only if at least one of them
+ * is active, so no hooks are installed for features that are turned off. Such keys
+ * have to be listed among reboot keys in {@link GravityBoxSettings}.
+ * A module registered without keys is always initialized.
+ * Time spent in each module's init is measured and logged as a single summary line.
+ */
+public class FeatureRegistry {
+    private static final String TAG = "GB:FeatureRegistry";
+
+    public interface ZygoteInit {
+        void initZygote(XSharedPreferences prefs) throws Throwable;
+    }
+
+    public static abstract class Key {
+        protected final String mKey;
+
+        private Key(String key) {
+            mKey = key;
+        }
+
+        abstract boolean isActive(XSharedPreferences prefs);
+
+        @Override
+        public String toString() {
+            return mKey;
+        }
+    }
+
+    /**
+     * Key of boolean preference that activates module when true.
+     */
+    public static Key bool(String key) {
+        return new Key(key) {
+            @Override
+            boolean isActive(XSharedPreferences prefs) {
+                return prefs.getBoolean(mKey, false);
+            }
+        };
+    }
+
+    /**
+     * Key of string preference that activates module when set to anything else than default.
+     */
+    public static Key notDefault(String key, final String defValue) {
+        return new Key(key) {
+            @Override
+            boolean isActive(XSharedPreferences prefs) {
+                return !defValue.equals(prefs.getString(mKey, defValue));
+            }
+        };
+    }
+
+    private static final class Feature {
+        final String name;
+        final ZygoteInit init;
+        final Key[] keys;
+
+        Feature(String name, ZygoteInit init, Key[] keys) {
+            this.name = name;
+            this.init = init;
+            this.keys = keys;
+        }
+
+        boolean isActive(XSharedPreferences prefs) {
+            if (keys.length == 0) return true;
+            for (Key key : keys) {
+                if (key.isActive(prefs)) return true;
+            }
+            return false;
+        }
+    }
+
+    private final List<Feature> mFeatures = new ArrayList<Feature>();
+
+    public void register(String name, ZygoteInit init) {
+        mFeatures.add(new Feature(name, init, new Key[0]));
+    }
+
+    public void register(String name, Key key, ZygoteInit init) {
+        mFeatures.add(new Feature(name, init, new Key[] { key }));
+    }
+
+    public void register(String name, Key[] keys, ZygoteInit init) {
+        mFeatures.add(new Feature(name, init, keys));
+    }
+
+    public void initZygote(XSharedPreferences prefs) {
+        StringBuilder initialized = new StringBuilder();
+        StringBuilder skipped = new StringBuilder();
+        long total = 0;
+
+        for (Feature f : mFeatures) {
+            if (!f.isActive(prefs)) {
+                skipped.append(' ').append(f.name);
+                continue;
+            }
+
+            final long start = System.nanoTime();
+            try {
+                f.init.initZygote(prefs);
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+            }
+            final long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            initialized.append(' ').append(f.name).append('=').append(elapsed / 1000).append("us");
+        }
+
+        XposedBridge.log(TAG + ": initZygote took " + (total / 1000) + "us;" + initialized +
+                (skipped.length() > 0 ? "; skipped:" + skipped : ""));
+    }
+}
@@ -47,7 +47,7 @@ public class FixCalendar {
             final Class<?> quickResponseActivityClass = XposedHelpers.findClass(CLASS_QUICK_RESPONSE_ACTIVITY, classLoader);
             final Class<?> alertServiceClass = XposedHelpers.findClass(CLASS_ALERT_SERVICE, classLoader);
 
-            XposedHelpers.findAndHookMethod(alertReceiverClass, "onReceive", Context.class, Intent.class,
+            HookProfiler.findAndHookMethod(alertReceiverClass, "onReceive", Context.class, Intent.class,
                     new XC_MethodReplacement() {
 
                 @Override
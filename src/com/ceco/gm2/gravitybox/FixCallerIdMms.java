@@ -36,7 +36,7 @@ public class FixCallerIdMms {
         try {
             final Class<?> contactsCacheClass = XposedHelpers.findClass(CLASS_CONTACTS_CACHE, classLoader);
 
-            XposedHelpers.findAndHookMethod(contactsCacheClass, "key", String.class, CharBuffer.class,
+            HookProfiler.findAndHookMethod(contactsCacheClass, "key", String.class, CharBuffer.class,
                     new XC_MethodReplacement() {
 
                         @Override
@@ -69,7 +69,7 @@ public class FixCallerIdMms {
                         }
             });
 
-            XposedHelpers.findAndHookMethod(contactsCacheClass, "getKey", String.class, boolean.class,
+            HookProfiler.findAndHookMethod(contactsCacheClass, "getKey", String.class, boolean.class,
                     new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -33,7 +33,7 @@ public class FixCallerIdPhone {
             final Class<?> numUtilsClass = XposedHelpers.findClass(CLASS_PHONE_NUMBER_UTILS, null);
 
             if (DEBUG) XposedBridge.log(TAG + ": replacing compareLoosely method");
-            XposedHelpers.findAndHookMethod(numUtilsClass, "compareLoosely", String.class, String.class, 
+            HookProfiler.findAndHookMethod(numUtilsClass, "compareLoosely", String.class, String.class, 
                     new XC_MethodReplacement() {
                 @Override
                 protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
@@ -47,7 +47,7 @@ public class FixCallerIdPhone {
             });
 
             if (DEBUG) XposedBridge.log(TAG + ": hooking internalGetStrippedReversed method");
-            XposedHelpers.findAndHookMethod(numUtilsClass, "internalGetStrippedReversed", String.class, int.class,
+            HookProfiler.findAndHookMethod(numUtilsClass, "internalGetStrippedReversed", String.class, int.class,
                     new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -35,7 +35,7 @@ public class FixDateTimeCrash {
         try {
             Class<?> dtSettingsClass = XposedHelpers.findClass(CLASS_DATETIME_SETTINGS, classLoader);
 
-            XposedHelpers.findAndHookMethod(dtSettingsClass, "getTimeZoneText", TimeZone.class,
+            HookProfiler.findAndHookMethod(dtSettingsClass, "getTimeZoneText", TimeZone.class,
                     new XC_MethodReplacement() {
 
                         @Override
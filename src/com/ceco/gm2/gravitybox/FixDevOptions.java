@@ -61,7 +61,7 @@ public class FixDevOptions {
             final Class<?> pfClass = XposedHelpers.findClass(CLASS_PREF_FRAGMENT, null);
 
             if (DEBUG) log("hooking PreferenceFragment.addPreferencesFromResource method");
-            XposedHelpers.findAndHookMethod(pfClass, "addPreferencesFromResource", int.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(pfClass, "addPreferencesFromResource", int.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     if (mResId == 0) return;
@@ -74,7 +74,7 @@ public class FixDevOptions {
             });
 
             if (DEBUG) log("hooking PreferenceGroup.removePreference method");
-            XposedHelpers.findAndHookMethod(pgClass, "removePreference", Preference.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(pgClass, "removePreference", Preference.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     PreferenceGroup pg = (PreferenceGroup) param.thisObject;
@@ -118,7 +118,7 @@ public class FixDevOptions {
             final Class<?> classDevSettings = XposedHelpers.findClass(CLASS_DEV_SETTINGS, classLoader);
 
             if (DEBUG) log("hooking DeveloperSettings.onCreate method");
-            XposedHelpers.findAndHookMethod(classDevSettings, "onCreate", Bundle.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classDevSettings, "onCreate", Bundle.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     PreferenceFragment pf = (PreferenceFragment) param.thisObject;
@@ -35,7 +35,7 @@ public class FixLocation {
         try {
             final Class<?> locationClass = XposedHelpers.findClass(CLASS_LOCATION, null);
 
-            XposedHelpers.findAndHookMethod(locationClass, "computeDistanceAndBearing",
+            HookProfiler.findAndHookMethod(locationClass, "computeDistanceAndBearing",
                     double.class, double.class, double.class, double.class, float[].class,
                     new XC_MethodHook() {
                 @Override
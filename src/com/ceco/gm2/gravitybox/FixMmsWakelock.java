@@ -50,14 +50,14 @@ public class FixMmsWakelock {
     public static void init(final XSharedPreferences prefs, final ClassLoader classLoader) {
         try {
             final Class<?> mmsReceiverClass = XposedHelpers.findClass(CLASS_MMS_RECEIVER, classLoader);
-            XposedHelpers.findAndHookMethod(mmsReceiverClass,
+            HookProfiler.findAndHookMethod(mmsReceiverClass,
                     "onReceive", Context.class, Intent.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     if (DEBUG) log("MmsReceiver onReceive ENTERED");
                     Context context = (Context) param.args[0];
                     PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-                    mMmsPmHook = XposedHelpers.findAndHookMethod(
+                    mMmsPmHook = HookProfiler.findAndHookMethod(
                             pm.getClass(), "newWakeLock", int.class, String.class, new XC_MethodHook() {
                                 @Override
                                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -81,14 +81,14 @@ public class FixMmsWakelock {
 
         try {
             final Class<?> smsReceiverClass = XposedHelpers.findClass(CLASS_SMS_RECEIVER, classLoader);
-            XposedHelpers.findAndHookMethod(smsReceiverClass,
+            HookProfiler.findAndHookMethod(smsReceiverClass,
                     "beginStartingService", Context.class, Intent.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     if (DEBUG) log("SmsReceiver beginStartingService ENTERED");
                     Context context = (Context) param.args[0];
                     PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-                    mSmsPmHook = XposedHelpers.findAndHookMethod(
+                    mSmsPmHook = HookProfiler.findAndHookMethod(
                             pm.getClass(), "newWakeLock", int.class, String.class, new XC_MethodHook() {
                                 @Override
                                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -112,7 +112,7 @@ public class FixMmsWakelock {
 
         try {
             final Class<?> cbMnotifClass = XposedHelpers.findClass(CLASS_CB_MNOTIF, classLoader);
-            XposedHelpers.findAndHookMethod(cbMnotifClass,
+            HookProfiler.findAndHookMethod(cbMnotifClass,
                     "updateNotification", Context.class, Intent.class, String.class, 
                     int.class, boolean.class, CharSequence.class, long.class, 
                     String.class, int.class, int.class, Uri.class, new XC_MethodHook() {
@@ -121,7 +121,7 @@ public class FixMmsWakelock {
                     if (DEBUG) log("CBMessagingNotification updateNotification ENTERED");
                     Context context = (Context) param.args[0];
                     PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-                    mCbPmHook = XposedHelpers.findAndHookMethod(
+                    mCbPmHook = HookProfiler.findAndHookMethod(
                             pm.getClass(), "newWakeLock", int.class, String.class, new XC_MethodHook() {
                                 @Override
                                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -145,14 +145,14 @@ public class FixMmsWakelock {
 
         try {
             final Class<?> mnotifClass = XposedHelpers.findClass(CLASS_MNOTIF, classLoader);
-            XposedHelpers.findAndHookMethod(mnotifClass,
+            HookProfiler.findAndHookMethod(mnotifClass,
                     "notifyClassZeroMessage", Context.class, String.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     if (DEBUG) log("MessagingNotification notifyClassZeroMessage ENTERED");
                     Context context = (Context) param.args[0];
                     PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-                    mMnotifPmHook1 = XposedHelpers.findAndHookMethod(
+                    mMnotifPmHook1 = HookProfiler.findAndHookMethod(
                             pm.getClass(), "newWakeLock", int.class, String.class, new XC_MethodHook() {
                                 @Override
                                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -171,14 +171,14 @@ public class FixMmsWakelock {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(mnotifClass,
+            HookProfiler.findAndHookMethod(mnotifClass,
                     "notifyFailed", Context.class, boolean.class, long.class, boolean.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     if (DEBUG) log("MessagingNotification notifyFailed ENTERED");
                     Context context = (Context) param.args[0];
                     PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-                    mMnotifPmHook2 = XposedHelpers.findAndHookMethod(
+                    mMnotifPmHook2 = HookProfiler.findAndHookMethod(
                             pm.getClass(), "newWakeLock", int.class, String.class, new XC_MethodHook() {
                                 @Override
                                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -197,7 +197,7 @@ public class FixMmsWakelock {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(mnotifClass,
+            HookProfiler.findAndHookMethod(mnotifClass,
                     "updateNotification", Context.class, boolean.class, int.class, long.class, 
                     CLASS_NOTIF_PROFILE, new XC_MethodHook() {
                 @Override
@@ -205,7 +205,7 @@ public class FixMmsWakelock {
                     if (DEBUG) log("MessagingNotification updateNotification ENTERED");
                     Context context = (Context) param.args[0];
                     PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-                    mMnotifPmHook3 = XposedHelpers.findAndHookMethod(
+                    mMnotifPmHook3 = HookProfiler.findAndHookMethod(
                             pm.getClass(), "newWakeLock", int.class, String.class, new XC_MethodHook() {
                                 @Override
                                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -30,7 +30,7 @@ public class FixTraceFlood {
         try {
             final Class<?> traceClass = XposedHelpers.findClass(CLASS_TRACE, null);
 
-            XposedHelpers.findAndHookMethod(traceClass, "cacheEnabledTags", new XC_MethodReplacement() {
+            HookProfiler.findAndHookMethod(traceClass, "cacheEnabledTags", new XC_MethodReplacement() {
 
                 @Override
                 protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
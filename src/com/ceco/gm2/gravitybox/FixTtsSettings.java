@@ -38,7 +38,7 @@ public class FixTtsSettings {
             final Class<?> classVoiceIoSettings = XposedHelpers.findClass(CLASS_VOICEIO_SETTINGS, classLoader);
 
             if (DEBUG) log("replacing populateOrRemovePreferences method");
-            XposedHelpers.findAndHookMethod(classVoiceIoSettings, "populateOrRemovePreferences", 
+            HookProfiler.findAndHookMethod(classVoiceIoSettings, "populateOrRemovePreferences", 
                     new XC_MethodReplacement() {
 
                         @Override
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import android.view.Choreographer;
+
+/**
+ * Collects change flags and delivers them OR-ed together at most once per frame.
+ *
+ * Frames are provided by a {@link FrameScheduler}; {@link ChoreographerScheduler}
+ * delivers on next vsync. Any other scheduler (e.g. one driven manually) can be plugged in
+ * so coalescing doesn't depend on Android framework. Must be used from a single thread.
+ */
+public class FrameCoalescer {
+
+    public interface Target {
+        void onFlags(int flags);
+    }
+
+    public interface FrameScheduler {
+        /**
+         * Arranges for callback to run once at the start of next frame.
+         */
+        void scheduleFrame(Runnable callback);
+
+        void cancelFrame(Runnable callback);
+    }
+
+    public static class ChoreographerScheduler implements FrameScheduler {
+        private Runnable mCallback;
+        private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                mCallback.run();
+            }
+        };
+
+        @Override
+        public void scheduleFrame(Runnable callback) {
+            mCallback = callback;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+
+        @Override
+        public void cancelFrame(Runnable callback) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+    }
+
+    private final Target mTarget;
+    private final FrameScheduler mScheduler;
+    private int mPendingFlags;
+    private boolean mScheduled;
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mScheduled = false;
+            deliver();
+        }
+    };
+
+    public FrameCoalescer(Target target, FrameScheduler scheduler) {
+        mTarget = target;
+        mScheduler = scheduler;
+    }
+
+    public FrameCoalescer(Target target) {
+        this(target, new ChoreographerScheduler());
+    }
+
+    /**
+     * Adds flags to be delivered with next frame.
+     */
+    public void post(int flags) {
+        mPendingFlags |= flags;
+        if (!mScheduled && mPendingFlags != 0) {
+            mScheduled = true;
+            mScheduler.scheduleFrame(mFrameRunnable);
+        }
+    }
+
+    /**
+     * Delivers given flags together with any pending ones right away.
+     */
+    public void postImmediate(int flags) {
+        mPendingFlags |= flags;
+        flush();
+    }
+
+    /**
+     * Delivers pending flags right away, if any.
+     */
+    public void flush() {
+        if (mScheduled) {
+            mScheduled = false;
+            mScheduler.cancelFrame(mFrameRunnable);
+        }
+        deliver();
+    }
+
+    public int getPendingFlags() {
+        return mPendingFlags;
+    }
+
+    private void deliver() {
+        if (mPendingFlags == 0) return;
+        final int flags = mPendingFlags;
+        mPendingFlags = 0;
+        mTarget.onFlags(flags);
+    }
+}
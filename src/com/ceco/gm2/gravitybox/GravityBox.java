@@ -15,6 +15,12 @@
 
 package com.ceco.gm2.gravitybox;
 
+import static com.ceco.gm2.gravitybox.FeatureRegistry.bool;
+import static com.ceco.gm2.gravitybox.FeatureRegistry.notDefault;
+
+import com.ceco.gm2.gravitybox.FeatureRegistry.Key;
+import com.ceco.gm2.gravitybox.FeatureRegistry.ZygoteInit;
+
 import android.os.Build;
 import de.robv.android.xposed.IXposedHookInitPackageResources;
 import de.robv.android.xposed.IXposedHookLoadPackage;
@@ -34,6 +40,7 @@ public class GravityBox implements IXposedHookZygoteInit, IXposedHookInitPackage
         MODULE_PATH = startupParam.modulePath;
         prefs = new XSharedPreferences(PACKAGE_NAME);
         prefs.makeWorldReadable();
+        HookProfiler.init(prefs);
 
         XposedBridge.log("GB:Hardware: " + Build.HARDWARE);
         XposedBridge.log("GB:Product: " + Build.PRODUCT);
@@ -54,59 +61,196 @@ public class GravityBox implements IXposedHookZygoteInit, IXposedHookInitPackage
         XposedBridge.log("GB:Android Release: " + Build.VERSION.RELEASE);
         XposedBridge.log("GB:ROM: " + Build.DISPLAY);
 
-        SystemWideResources.initResources(prefs);
+        FeatureRegistry features = new FeatureRegistry();
+        features.register("SystemWideResources", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                SystemWideResources.initResources(prefs);
+            }
+        });
 
         // MTK specific
         if (Utils.isMtkDevice()) {
             if (Utils.hasGeminiSupport()) {
-                ModSignalIconHide.initZygote(prefs);
-            }
-
-            if (prefs.getBoolean(GravityBoxSettings.PREF_KEY_FIX_CALLER_ID_PHONE, false)) {
-                FixCallerIdPhone.initZygote(prefs);
-            }
-
-            if (prefs.getBoolean(GravityBoxSettings.PREF_KEY_FIX_DEV_OPTS, false)) {
-                FixDevOptions.initZygote();
+                features.register("ModSignalIconHide", new ZygoteInit() {
+                    @Override
+                    public void initZygote(XSharedPreferences prefs) throws Throwable {
+                        ModSignalIconHide.initZygote(prefs);
+                    }
+                });
             }
 
-            if ((Build.VERSION.SDK_INT == Build.VERSION_CODES.JELLY_BEAN_MR1) &&
-                    prefs.getBoolean(GravityBoxSettings.PREF_KEY_FIX_LOCATION, false)) {
-                FixLocation.initZygote();
+            features.register("FixCallerIdPhone",
+                    bool(GravityBoxSettings.PREF_KEY_FIX_CALLER_ID_PHONE),
+                    new ZygoteInit() {
+                @Override
+                public void initZygote(XSharedPreferences prefs) throws Throwable {
+                    FixCallerIdPhone.initZygote(prefs);
+                }
+            });
+
+            features.register("FixDevOptions",
+                    bool(GravityBoxSettings.PREF_KEY_FIX_DEV_OPTS),
+                    new ZygoteInit() {
+                @Override
+                public void initZygote(XSharedPreferences prefs) throws Throwable {
+                    FixDevOptions.initZygote();
+                }
+            });
+
+            if (Build.VERSION.SDK_INT == Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                features.register("FixLocation",
+                        bool(GravityBoxSettings.PREF_KEY_FIX_LOCATION),
+                        new ZygoteInit() {
+                    @Override
+                    public void initZygote(XSharedPreferences prefs) throws Throwable {
+                        FixLocation.initZygote();
+                    }
+                });
             }
         }
 
         // 4.2+ only
         if (Build.VERSION.SDK_INT > 16) {
-            FixTraceFlood.initZygote();
-            ModElectronBeam.initZygote(prefs);
-            if (!Utils.hasLenovoVibeUI())
-                ModLockscreen.initZygote(prefs);
+            features.register("FixTraceFlood", new ZygoteInit() {
+                @Override
+                public void initZygote(XSharedPreferences prefs) throws Throwable {
+                    FixTraceFlood.initZygote();
+                }
+            });
+            features.register("ModElectronBeam", new ZygoteInit() {
+                @Override
+                public void initZygote(XSharedPreferences prefs) throws Throwable {
+                    ModElectronBeam.initZygote(prefs);
+                }
+            });
+            if (!Utils.hasLenovoVibeUI()) {
+                features.register("ModLockscreen", new ZygoteInit() {
+                    @Override
+                    public void initZygote(XSharedPreferences prefs) throws Throwable {
+                        ModLockscreen.initZygote(prefs);
+                    }
+                });
+            }
 
             // PermissionGranter init goes here because so far its only purpose
             // is to grant permissions needed by QuickSettings camera tile
-            PermissionGranter.initZygote();
+            features.register("PermissionGranter", new ZygoteInit() {
+                @Override
+                public void initZygote(XSharedPreferences prefs) throws Throwable {
+                    PermissionGranter.initZygote();
+                }
+            });
         }
 
         // Common
-        ModVolumeKeySkipTrack.init(prefs);
-        ModInputMethod.initZygote(prefs);
-        ModCallCard.initZygote();
-        ModStatusbarColor.initZygote(prefs);
-        PhoneWrapper.initZygote(prefs);
-        ModLowBatteryWarning.initZygote(prefs);
-        ModDisplay.initZygote(prefs);
-        ModAudio.initZygote(prefs);
-        ModHwKeys.initZygote(prefs);
-        PatchMasterKey.initZygote();
-        ModPhone.initZygote(prefs);
-        ModExpandedDesktop.initZygote(prefs);
-        ConnectivityServiceWrapper.initZygote();
-        ModViewConfig.initZygote(prefs);
-
-        if (prefs.getBoolean(GravityBoxSettings.PREF_KEY_NAVBAR_OVERRIDE, false)) {
-            ModNavigationBar.initZygote(prefs);
-        }
+        features.register("ModVolumeKeySkipTrack",
+                bool(GravityBoxSettings.PREF_KEY_VOL_MUSIC_CONTROLS),
+                new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModVolumeKeySkipTrack.init(prefs);
+            }
+        });
+        features.register("ModInputMethod", new Key[] {
+                notDefault(GravityBoxSettings.PREF_KEY_VOL_KEY_CURSOR_CONTROL, "0"),
+                bool(GravityBoxSettings.PREF_KEY_IME_FULLSCREEN_DISABLE) },
+                new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModInputMethod.initZygote(prefs);
+            }
+        });
+        features.register("ModCallCard", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModCallCard.initZygote();
+            }
+        });
+        features.register("ModStatusbarColor", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModStatusbarColor.initZygote(prefs);
+            }
+        });
+        features.register("PhoneWrapper", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                PhoneWrapper.initZygote(prefs);
+            }
+        });
+        features.register("ModLowBatteryWarning", new Key[] {
+                bool(GravityBoxSettings.PREF_KEY_FLASHING_LED_DISABLE),
+                bool(GravityBoxSettings.PREF_KEY_CHARGING_LED_DISABLE) },
+                new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModLowBatteryWarning.initZygote(prefs);
+            }
+        });
+        features.register("ModDisplay", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModDisplay.initZygote(prefs);
+            }
+        });
+        features.register("ModAudio", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModAudio.initZygote(prefs);
+            }
+        });
+        features.register("ModHwKeys", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModHwKeys.initZygote(prefs);
+            }
+        });
+        features.register("PatchMasterKey", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                PatchMasterKey.initZygote();
+            }
+        });
+        features.register("ModPhone",
+                bool(GravityBoxSettings.PREF_KEY_NATIONAL_ROAMING),
+                new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModPhone.initZygote(prefs);
+            }
+        });
+        features.register("ModExpandedDesktop", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModExpandedDesktop.initZygote(prefs);
+            }
+        });
+        features.register("ConnectivityServiceWrapper", new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ConnectivityServiceWrapper.initZygote();
+            }
+        });
+        features.register("ModViewConfig",
+                notDefault(GravityBoxSettings.PREF_KEY_FORCE_OVERFLOW_MENU_BUTTON, "default"),
+                new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModViewConfig.initZygote(prefs);
+            }
+        });
+
+        features.register("ModNavigationBar",
+                bool(GravityBoxSettings.PREF_KEY_NAVBAR_OVERRIDE),
+                new ZygoteInit() {
+            @Override
+            public void initZygote(XSharedPreferences prefs) throws Throwable {
+                ModNavigationBar.initZygote(prefs);
+            }
+        });
+
+        features.initZygote(prefs);
     }
 
     @Override
@@ -16,6 +16,7 @@
 package com.ceco.gm2.gravitybox;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -613,12 +614,15 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
     public static final int DT_POSITION_RIGHT = 2;
     public static final String PREF_KEY_DATA_TRAFFIC_SIZE = "pref_data_traffic_size";
     public static final String PREF_KEY_DATA_TRAFFIC_INACTIVITY_MODE = "pref_data_traffic_inactivity_mode";
+    public static final String PREF_KEY_DATA_TRAFFIC_DISPLAY_MODE = "pref_data_traffic_display_mode";
+    private static final String PREF_KEY_DATA_TRAFFIC_USAGE = "pref_data_traffic_usage";
     public static final String ACTION_PREF_DATA_TRAFFIC_CHANGED = 
             "gravitybox.intent.action.DATA_TRAFFIC_CHANGED";
     public static final String EXTRA_DT_ENABLE = "dtEnable";
     public static final String EXTRA_DT_POSITION = "dtPosition";
     public static final String EXTRA_DT_SIZE = "dtSize";
     public static final String EXTRA_DT_INACTIVITY_MODE = "dtInactivityMode";
+    public static final String EXTRA_DT_DISPLAY_MODE = "dtDisplayMode";
 
     public static final String PREF_CAT_KEY_APP_LAUNCHER = "pref_cat_app_launcher";
     public static final List<String> PREF_KEY_APP_LAUNCHER_SLOT = new ArrayList<String>(Arrays.asList(
@@ -672,6 +676,11 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
     private static final String PREF_KEY_SETTINGS_BACKUP = "pref_settings_backup";
     private static final String PREF_KEY_SETTINGS_RESTORE = "pref_settings_restore";
 
+    public static final String PREF_KEY_HOOK_PROFILER = "pref_hook_profiler";
+    private static final String PREF_KEY_HOOK_PROFILE_DUMP = "pref_hook_profile_dump";
+    private static final String FILE_HOOK_PROFILE = "hook_profile.txt";
+    private static final int HOOK_PROFILE_COLLECT_TIME = 2000;
+
     private static final String PREF_KEY_TRANS_VERIFICATION = "pref_trans_verification"; 
 
     private static final int REQ_LOCKSCREEN_BACKGROUND = 1024;
@@ -688,6 +697,7 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
             PREF_KEY_FIX_TTS_SETTINGS,
             PREF_KEY_FIX_DEV_OPTS,
             PREF_KEY_FIX_LOCATION,
+            PREF_KEY_HOOK_PROFILER,
             PREF_KEY_BRIGHTNESS_MIN,
             PREF_KEY_LOCKSCREEN_MENU_KEY,
             PREF_KEY_FIX_MMS_WAKELOCK,
@@ -707,7 +717,13 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
             PREF_KEY_NAVBAR_ALWAYS_ON_BOTTOM,
             PREF_KEY_SMART_RADIO_ENABLE,
             PREF_KEY_PULSE_NOTIFICATION_DELAY,
-            PREF_KEY_SCREEN_OFF_EFFECT
+            PREF_KEY_SCREEN_OFF_EFFECT,
+            PREF_KEY_VOL_MUSIC_CONTROLS,
+            PREF_KEY_VOL_KEY_CURSOR_CONTROL,
+            PREF_KEY_IME_FULLSCREEN_DISABLE,
+            PREF_KEY_FLASHING_LED_DISABLE,
+            PREF_KEY_CHARGING_LED_DISABLE,
+            PREF_KEY_NATIONAL_ROAMING
     ));
 
     private static final class SystemProperties {
@@ -774,6 +790,8 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
 
         super.onCreate(savedInstanceState);
 
+        PrefsSnapshot.attach(this);
+
         if (savedInstanceState == null || sSystemProperties == null) {
             mReceiver = new GravityBoxResultReceiver(new Handler());
             mReceiver.setReceiver(this);
@@ -963,12 +981,14 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
         private CheckBoxPreference mPrefUnplugTurnsOnScreen;
         private MultiSelectListPreference mPrefCallVibrations;
         private Preference mPrefQsTileOrder;
+        private Preference mPrefDataTrafficUsage;
         private ListPreference mPrefQsTileLabelStyle;
         private ListPreference mPrefSbClockDow;
         private ListPreference mPrefSbLockPolicy;
         private ListPreference mPrefDataTrafficPosition;
         private ListPreference mPrefDataTrafficSize;
         private ListPreference mPrefDataTrafficInactivityMode;
+        private ListPreference mPrefDataTrafficDisplayMode;
         private CheckBoxPreference mPrefLinkVolumes;
         private CheckBoxPreference mPrefVolumePanelExpandable;
         private CheckBoxPreference mPrefVolumePanelFullyExpandable;
@@ -1012,6 +1032,7 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
         private Preference mPrefBackup;
         private Preference mPrefRestore;
         private EditTextPreference mPrefTransVerification;
+        private BroadcastBatcher mBroadcastBatcher;
 
         @SuppressWarnings("deprecation")
         @Override
@@ -1024,6 +1045,7 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
             addPreferencesFromResource(R.xml.gravitybox);
 
             mPrefs = getPreferenceScreen().getSharedPreferences();
+            mBroadcastBatcher = new BroadcastBatcher(getActivity());
             AppPickerPreference.sPrefsFragment = this;
 
             mBatteryStyle = (ListPreference) findPreference(PREF_KEY_BATTERY_STYLE);
@@ -1234,6 +1256,8 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
             mPrefDataTrafficPosition = (ListPreference) findPreference(PREF_KEY_DATA_TRAFFIC_POSITION);
             mPrefDataTrafficSize = (ListPreference) findPreference(PREF_KEY_DATA_TRAFFIC_SIZE);
             mPrefDataTrafficInactivityMode = (ListPreference) findPreference(PREF_KEY_DATA_TRAFFIC_INACTIVITY_MODE);
+            mPrefDataTrafficDisplayMode = (ListPreference) findPreference(PREF_KEY_DATA_TRAFFIC_DISPLAY_MODE);
+            mPrefDataTrafficUsage = (Preference) findPreference(PREF_KEY_DATA_TRAFFIC_USAGE);
 
             mPrefCatAppLauncher = (PreferenceScreen) findPreference(PREF_CAT_KEY_APP_LAUNCHER);
             mPrefAppLauncherSlot = new AppPickerPreference[PREF_KEY_APP_LAUNCHER_SLOT.size()];
@@ -1554,6 +1578,7 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
         @Override
         public void onPause() {
             mPrefs.unregisterOnSharedPreferenceChangeListener(this);
+            mBroadcastBatcher.flush();
 
             if (mTransWebServiceClient != null) {
                 mTransWebServiceClient.abortTaskIfRunning();
@@ -1567,6 +1592,63 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
             super.onPause();
         }
 
+        private void dumpHookProfile() {
+            // each hooked process replies with its own statistics;
+            // collect whatever arrives within a short time window
+            final StringBuilder profile = new StringBuilder();
+            final Handler handler = new Handler();
+            GravityBoxResultReceiver receiver = new GravityBoxResultReceiver(handler);
+            receiver.setReceiver(new GravityBoxResultReceiver.Receiver() {
+                @Override
+                public void onReceiveResult(int resultCode, Bundle resultData) {
+                    if (resultCode != HookProfiler.RESULT_HOOK_PROFILE) return;
+                    profile.append("### ").append(resultData.getString(HookProfiler.EXTRA_PROCESS))
+                        .append("\n").append(resultData.getString(HookProfiler.EXTRA_PROFILE))
+                        .append("\n");
+                }
+            });
+            Intent intent = new Intent(HookProfiler.ACTION_DUMP_HOOK_PROFILE);
+            intent.putExtra(HookProfiler.EXTRA_RECEIVER, receiver);
+            getActivity().sendBroadcast(intent);
+            Toast.makeText(getActivity(), R.string.hook_profile_collecting, Toast.LENGTH_SHORT).show();
+
+            handler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    if (getActivity() == null) return;
+                    if (profile.length() == 0) {
+                        Toast.makeText(getActivity(), R.string.hook_profile_empty, Toast.LENGTH_LONG).show();
+                        return;
+                    }
+
+                    File file = new File(getActivity().getFilesDir(), FILE_HOOK_PROFILE);
+                    try {
+                        FileOutputStream out = new FileOutputStream(file);
+                        try {
+                            out.write(profile.toString().getBytes());
+                        } finally {
+                            out.close();
+                        }
+                    } catch (IOException e) {
+                        Log.e("GravityBox", "Error writing hook profile", e);
+                    }
+
+                    AlertDialog.Builder builder = new AlertDialog.Builder(getActivity())
+                    .setTitle(R.string.pref_hook_profile_dump_title)
+                    .setMessage(profile.toString())
+                    .setCancelable(true)
+                    .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+                        @Override
+                        public void onClick(DialogInterface dialog, int which) {
+                            dialog.dismiss();
+                        }
+                    });
+                    mDialog = builder.create();
+                    mDialog.show();
+                }
+            }, HOOK_PROFILE_COLLECT_TIME);
+        }
+
         private void setDefaultValues() {
             if (mPrefs.getStringSet(PREF_KEY_QUICK_SETTINGS, null) == null) {
                 Editor e = mPrefs.edit();
@@ -1885,6 +1967,10 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
                 mPrefDataTrafficInactivityMode.setSummary(mPrefDataTrafficInactivityMode.getEntry());
             }
 
+            if (key == null || key.equals(PREF_KEY_DATA_TRAFFIC_DISPLAY_MODE)) {
+                mPrefDataTrafficDisplayMode.setSummary(mPrefDataTrafficDisplayMode.getEntry());
+            }
+
             if (key == null || key.equals(PREF_KEY_NAVBAR_CUSTOM_KEY_SINGLETAP)) {
                 mPrefNavbarCustomKeySingletap.setSummary(mPrefNavbarCustomKeySingletap.getEntry());
             }
@@ -2517,6 +2603,10 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
                 intent.setAction(ACTION_PREF_DATA_TRAFFIC_CHANGED);
                 intent.putExtra(EXTRA_DT_INACTIVITY_MODE, Integer.valueOf(
                         prefs.getString(PREF_KEY_DATA_TRAFFIC_INACTIVITY_MODE, "0")));
+            } else if (key.equals(PREF_KEY_DATA_TRAFFIC_DISPLAY_MODE)) {
+                intent.setAction(ACTION_PREF_DATA_TRAFFIC_CHANGED);
+                intent.putExtra(EXTRA_DT_DISPLAY_MODE, Integer.valueOf(
+                        prefs.getString(PREF_KEY_DATA_TRAFFIC_DISPLAY_MODE, "0")));
             } else if (key.equals(PREF_KEY_SMART_RADIO_NORMAL_MODE)) {
                 intent.setAction(ACTION_PREF_SMART_RADIO_CHANGED);
                 intent.putExtra(EXTRA_SR_NORMAL_MODE,
@@ -2560,7 +2650,7 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
                 }
             }
             if (intent.getAction() != null) {
-                getActivity().sendBroadcast(intent);
+                mBroadcastBatcher.queue(intent);
             }
 
             if (key.equals(PREF_KEY_FIX_CALLER_ID_PHONE) ||
@@ -2641,6 +2731,8 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
                 getActivity().recreate();
             } else if (pref == mPrefQsTileOrder) {
                 intent = new Intent(getActivity(), TileOrderActivity.class);
+            } else if (pref == mPrefDataTrafficUsage) {
+                intent = new Intent(getActivity(), TrafficUsageActivity.class);
             } else if (pref == mPrefPieColorReset) {
                 final Resources res = getResources();
                 final int bgColor = res.getColor(R.color.pie_background_color);
@@ -2719,6 +2811,8 @@ public class GravityBoxSettings extends Activity implements GravityBoxResultRece
                 } else {
                     Toast.makeText(getActivity(), R.string.settings_restore_no_backup, Toast.LENGTH_SHORT).show();
                 }
+            } else if (PREF_KEY_HOOK_PROFILE_DUMP.equals(pref.getKey())) {
+                dumpHookProfile();
             }
 
             if (intent != null) {
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+import android.os.Process;
+import android.os.ResultReceiver;
+import de.robv.android.xposed.XC_MethodHook;
+import de.robv.android.xposed.XC_MethodHook.Unhook;
+import de.robv.android.xposed.XSharedPreferences;
+import de.robv.android.xposed.XposedBridge;
+import de.robv.android.xposed.XposedHelpers;
+
+/**
+ * Drop-in replacement for hooking methods of {@link XposedHelpers} and {@link XposedBridge}
+ * that optionally measures hook callbacks.
+ *
+ * When profiling is disabled in preferences (default), hooks are installed as they are.
+ * When enabled, each callback is wrapped and the number of calls together with
+ * before/after latencies is recorded per hooked method into log2 bucket histograms
+ * (bucket n counts calls that took [2^n, 2^(n+1)) ns). Counters are atomic so recording
+ * takes no locks. Statistics are collected per process and sent back to the settings
+ * on {@link #ACTION_DUMP_HOOK_PROFILE}, accepted only from senders holding
+ * signature-level {@link #PERMISSION_DUMP_HOOK_PROFILE}.
+ */
+public class HookProfiler {
+    private static final String TAG = "GB:HookProfiler";
+
+    public static final String ACTION_DUMP_HOOK_PROFILE = "gravitybox.intent.action.DUMP_HOOK_PROFILE";
+    public static final String PERMISSION_DUMP_HOOK_PROFILE = "gravitybox.permission.DUMP_HOOK_PROFILE";
+    public static final String EXTRA_RECEIVER = "receiver";
+    public static final String EXTRA_PROCESS = "process";
+    public static final String EXTRA_PROFILE = "profile";
+    public static final int RESULT_HOOK_PROFILE = 1026;
+
+    private static final int BUCKET_COUNT = 32;
+
+    private static boolean mEnabled;
+    private static boolean mReceiverRegistered;
+    private static final List<HookStats> mStats = new CopyOnWriteArrayList<HookStats>();
+    private static Method mBeforeMethod;
+    private static Method mAfterMethod;
+
+    private static void log(String message) {
+        XposedBridge.log(TAG + ": " + message);
+    }
+
+    public static void init(XSharedPreferences prefs) {
+        mEnabled = prefs.getBoolean(GravityBoxSettings.PREF_KEY_HOOK_PROFILER, false);
+        if (!mEnabled) return;
+
+        try {
+            mBeforeMethod = XC_MethodHook.class.getDeclaredMethod(
+                    "beforeHookedMethod", XC_MethodHook.MethodHookParam.class);
+            mBeforeMethod.setAccessible(true);
+            mAfterMethod = XC_MethodHook.class.getDeclaredMethod(
+                    "afterHookedMethod", XC_MethodHook.MethodHookParam.class);
+            mAfterMethod.setAccessible(true);
+
+            // every process gets an application, including system server
+            XposedHelpers.findAndHookMethod(Application.class, "onCreate", new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    if (mReceiverRegistered || mStats.isEmpty()) return;
+                    Context context = (Context) param.thisObject;
+                    // statistics reveal hooked internals; only GravityBox may ask for them
+                    context.registerReceiver(mDumpReceiver, new IntentFilter(ACTION_DUMP_HOOK_PROFILE),
+                            PERMISSION_DUMP_HOOK_PROFILE, null);
+                    mReceiverRegistered = true;
+                }
+            });
+            log("Hook profiling enabled");
+        } catch (Throwable t) {
+            XposedBridge.log(t);
+            mEnabled = false;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return mEnabled;
+    }
+
+    private static BroadcastReceiver mDumpReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            ResultReceiver receiver = intent.getParcelableExtra(EXTRA_RECEIVER);
+            if (receiver == null) return;
+
+            Bundle data = new Bundle();
+            data.putString(EXTRA_PROCESS, context.getApplicationInfo().processName +
+                    " (" + Process.myPid() + ")");
+            data.putString(EXTRA_PROFILE, dump());
+            receiver.send(RESULT_HOOK_PROFILE, data);
+        }
+    };
+
+    public static Unhook findAndHookMethod(Class<?> clazz, String methodName,
+            Object... parameterTypesAndCallback) {
+        if (!mEnabled) {
+            return XposedHelpers.findAndHookMethod(clazz, methodName, parameterTypesAndCallback);
+        }
+
+        if (parameterTypesAndCallback.length == 0 ||
+                !(parameterTypesAndCallback[parameterTypesAndCallback.length-1] instanceof XC_MethodHook))
+            throw new IllegalArgumentException("no callback defined");
+
+        XC_MethodHook callback =
+                (XC_MethodHook) parameterTypesAndCallback[parameterTypesAndCallback.length-1];
+        Method m = XposedHelpers.findMethodExact(clazz, methodName, parameterTypesAndCallback);
+        return hookMethod(m, callback);
+    }
+
+    public static Unhook findAndHookMethod(String className, ClassLoader classLoader,
+            String methodName, Object... parameterTypesAndCallback) {
+        return findAndHookMethod(XposedHelpers.findClass(className, classLoader),
+                methodName, parameterTypesAndCallback);
+    }
+
+    public static Unhook hookMethod(Member hookMethod, XC_MethodHook callback) {
+        if (!mEnabled) {
+            return XposedBridge.hookMethod(hookMethod, callback);
+        }
+        return XposedBridge.hookMethod(hookMethod, new ProfiledHook(hookMethod, callback));
+    }
+
+    public static Set<Unhook> hookAllMethods(Class<?> hookClass, String methodName,
+            XC_MethodHook callback) {
+        if (!mEnabled) {
+            return XposedBridge.hookAllMethods(hookClass, methodName, callback);
+        }
+
+        Set<Unhook> unhooks = new HashSet<Unhook>();
+        for (Member method : hookClass.getDeclaredMethods()) {
+            if (method.getName().equals(methodName)) {
+                unhooks.add(hookMethod(method, callback));
+            }
+        }
+        return unhooks;
+    }
+
+    public static Set<Unhook> hookAllConstructors(Class<?> hookClass, XC_MethodHook callback) {
+        if (!mEnabled) {
+            return XposedBridge.hookAllConstructors(hookClass, callback);
+        }
+
+        Set<Unhook> unhooks = new HashSet<Unhook>();
+        for (Member constructor : hookClass.getDeclaredConstructors()) {
+            unhooks.add(hookMethod(constructor, callback));
+        }
+        return unhooks;
+    }
+
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        List<HookStats> stats = new ArrayList<HookStats>(mStats);
+        for (HookStats s : stats) {
+            if (s.mCalls.get() == 0) continue;
+            sb.append(s.mName).append('\n');
+            sb.append("  calls=").append(s.mCalls.get()).append('\n');
+            s.mBefore.dump("  before", sb);
+            s.mAfter.dump("  after", sb);
+        }
+        return sb.toString();
+    }
+
+    private static final class Histogram {
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mTotalNanos = new AtomicLong();
+
+        void record(long nanos) {
+            int bucket = nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+            if (bucket >= BUCKET_COUNT) bucket = BUCKET_COUNT - 1;
+            mBuckets.incrementAndGet(bucket);
+            mCount.incrementAndGet();
+            mTotalNanos.addAndGet(nanos);
+        }
+
+        void dump(String label, StringBuilder sb) {
+            final long count = mCount.get();
+            if (count == 0) return;
+            sb.append(label).append(": avg=").append(mTotalNanos.get() / count / 1000).append("us");
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                final long n = mBuckets.get(i);
+                if (n == 0) continue;
+                sb.append(" <").append(formatNanos(1L << (i + 1))).append(':').append(n);
+            }
+            sb.append('\n');
+        }
+
+        private static String formatNanos(long nanos) {
+            if (nanos < 1000) return nanos + "ns";
+            if (nanos < 1000000) return (nanos / 1000) + "us";
+            return (nanos / 1000000) + "ms";
+        }
+    }
+
+    private static final class HookStats {
+        final String mName;
+        final AtomicLong mCalls = new AtomicLong();
+        final Histogram mBefore = new Histogram();
+        final Histogram mAfter = new Histogram();
+
+        HookStats(String name) {
+            mName = name;
+        }
+    }
+
+    private static final class ProfiledHook extends XC_MethodHook {
+        private final XC_MethodHook mCallback;
+        private final HookStats mStats;
+
+        ProfiledHook(Member member, XC_MethodHook callback) {
+            super(callback.priority);
+            mCallback = callback;
+            mStats = new HookStats(member.getDeclaringClass().getName() + "#" +
+                    member.getName() + " [" + callback.getClass().getName() + "]");
+            HookProfiler.mStats.add(mStats);
+        }
+
+        @Override
+        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            mStats.mCalls.incrementAndGet();
+            final long start = System.nanoTime();
+            try {
+                mBeforeMethod.invoke(mCallback, param);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                mStats.mBefore.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+            final long start = System.nanoTime();
+            try {
+                mAfterMethod.invoke(mCallback, param);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                mStats.mAfter.record(System.nanoTime() - start);
+            }
+        }
+    }
+}
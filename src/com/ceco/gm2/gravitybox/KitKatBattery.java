@@ -23,6 +23,7 @@ import com.ceco.gm2.gravitybox.StatusBarIconManager.ColorInfo;
 import com.ceco.gm2.gravitybox.StatusBarIconManager.IconManagerListener;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -35,6 +36,13 @@ import android.graphics.Typeface;
 import android.util.AttributeSet;
 import android.view.View;
 
+/**
+ * KitKat style battery indicator.
+ *
+ * Each battery state (level, charging) is rendered once into an offscreen bitmap, including
+ * the DST_ATOP frame composition, and further draws just blit it. Bitmaps of a few recently
+ * drawn states are kept; they're dropped whenever color, size or percentage visibility changes.
+ */
 public class KitKatBattery extends View implements IconManagerListener, BatteryStatusListener {
     public static final String TAG = "GB:KitKatBattery";
 
@@ -49,6 +57,8 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
 
     public static final float SUBPIXEL = 0.4f;  // inset rects for softer edges
 
+    private static final int RENDER_CACHE_SIZE = 4;
+
     private int[] mColors;
 
     private boolean mShowPercent = true;
@@ -70,6 +80,13 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
     private final RectF mClipFrame = new RectF();
     private final Rect mBoltFrame = new Rect();
 
+    private final Canvas mCacheCanvas = new Canvas();
+    private final int[] mCacheKeys = new int[RENDER_CACHE_SIZE];
+    private final Bitmap[] mCacheBitmaps = new Bitmap[RENDER_CACHE_SIZE];
+    private final long[] mCacheLastUse = new long[RENDER_CACHE_SIZE];
+    private int mCacheSize;
+    private long mCacheClock;
+
     @Override
     public void onBatteryStatusChanged(BatteryData batteryData) {
         mBatteryData = batteryData;
@@ -90,6 +107,7 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
         super.onDetachedFromWindow();
 
         mAttached = false;
+        clearRenderCache();
     }
 
     public KitKatBattery(Context context) {
@@ -129,7 +147,6 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
         mBoltPaint = new Paint();
         mBoltPaint.setAntiAlias(true);
         mBoltPoints = loadBoltPoints();
-        setLayerType(View.LAYER_TYPE_SOFTWARE, null);
 
         setColor(context.getResources().getColor(android.R.color.holo_blue_dark));
     }
@@ -150,11 +167,13 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
         mWarningTextPaint.setColor(COLORS[0]);
         mBoltPaint.setColor(BOLT_COLOR);
         mChargeColor = mainColor;
+        clearRenderCache();
         invalidate();
     }
 
     public void setShowPercent(boolean show) {
         mShowPercent = show;
+        clearRenderCache();
         invalidate();
     }
 
@@ -179,6 +198,13 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
         mWidth = w;
         mWarningTextPaint.setTextSize(h * 0.75f);
         mWarningTextHeight = -mWarningTextPaint.getFontMetrics().ascent;
+        clearRenderCache();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        clearRenderCache();
     }
 
     private int getColorForLevel(int percent) {
@@ -193,9 +219,52 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
 
     @Override
     public void draw(Canvas c) {
-        if (mBatteryData == null || mBatteryData.level < 0) return;
+        if (mBatteryData == null || mBatteryData.level < 0 ||
+                mWidth <= 0 || mHeight <= 0) return;
+
+        final int key = (mBatteryData.level << 1) | (mBatteryData.charging ? 1 : 0);
+        int index = -1;
+        for (int i = 0; i < mCacheSize; i++) {
+            if (mCacheKeys[i] == key) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            Bitmap bitmap;
+            if (mCacheSize < RENDER_CACHE_SIZE) {
+                index = mCacheSize++;
+                bitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            } else {
+                // reuse bitmap of least recently drawn state
+                index = 0;
+                for (int i = 1; i < mCacheSize; i++) {
+                    if (mCacheLastUse[i] < mCacheLastUse[index]) {
+                        index = i;
+                    }
+                }
+                bitmap = mCacheBitmaps[index];
+                bitmap.eraseColor(Color.TRANSPARENT);
+            }
+            mCacheCanvas.setBitmap(bitmap);
+            renderBattery(mCacheCanvas, mBatteryData.level, mBatteryData.charging);
+            mCacheCanvas.setBitmap(null);
+            mCacheKeys[index] = key;
+            mCacheBitmaps[index] = bitmap;
+        }
+        mCacheLastUse[index] = ++mCacheClock;
+        c.drawBitmap(mCacheBitmaps[index], 0, 0, null);
+    }
+
+    private void clearRenderCache() {
+        for (int i = 0; i < mCacheSize; i++) {
+            mCacheBitmaps[i] = null;
+        }
+        mCacheSize = 0;
+    }
 
-        float drawFrac = (float) mBatteryData.level / 100f;
+    private void renderBattery(Canvas c, int level, boolean charging) {
+        float drawFrac = (float) level / 100f;
         final int pt = getPaddingTop();
         final int pl = getPaddingLeft();
         final int pr = getPaddingRight();
@@ -228,13 +297,13 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
         c.drawRect(mFrame, mFramePaint);
 
         // fill 'er up
-        final int color = mBatteryData.charging ? 
-                mChargeColor : getColorForLevel(mBatteryData.level);
+        final int color = charging ? 
+                mChargeColor : getColorForLevel(level);
         mBatteryPaint.setColor(color);
 
-        if (mBatteryData.level >= FULL) {
+        if (level >= FULL) {
             drawFrac = 1f;
-        } else if (mBatteryData.level <= EMPTY) {
+        } else if (level <= EMPTY) {
             drawFrac = 0f;
         }
 
@@ -248,7 +317,7 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
         c.drawRect(mFrame, mBatteryPaint);
         c.restore();
 
-        if (mBatteryData.charging) {
+        if (charging) {
             // draw the bolt
             final int bl = (int)(mFrame.left + mFrame.width() / 4.5f);
             final int bt = (int)(mFrame.top + mFrame.height() / 6f);
@@ -271,18 +340,18 @@ public class KitKatBattery extends View implements IconManagerListener, BatteryS
                         mBoltFrame.top + mBoltPoints[1] * mBoltFrame.height());
             }
             c.drawPath(mBoltPath, mBoltPaint);
-        } else if (mBatteryData.level <= EMPTY) {
+        } else if (level <= EMPTY) {
             final float x = mWidth * 0.5f;
             final float y = (mHeight + mWarningTextHeight) * 0.48f;
             c.drawText(mWarningString, x, y, mWarningTextPaint);
-        } else if (mShowPercent && !(mBatteryData.level == 100 && !SHOW_100_PERCENT)) {
+        } else if (mShowPercent && !(level == 100 && !SHOW_100_PERCENT)) {
             mTextPaint.setTextSize(height *
                     (SINGLE_DIGIT_PERCENT ? 0.75f
-                            : (mBatteryData.level == 100 ? 0.38f : 0.5f)));
+                            : (level == 100 ? 0.38f : 0.5f)));
             mTextHeight = -mTextPaint.getFontMetrics().ascent;
 
             final String str = String.valueOf(SINGLE_DIGIT_PERCENT ? 
-                    (mBatteryData.level/10) : mBatteryData.level);
+                    (level/10) : level);
             final float x = mWidth * 0.5f;
             final float y = (mHeight + mTextHeight) * 0.47f;
             c.drawText(str,
@@ -16,6 +16,7 @@
 
 package com.ceco.gm2.gravitybox;
 
+import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.LinearGradient;
@@ -31,6 +32,7 @@ public class LinearColorBar extends LinearLayout {
     static final int LEFT_COLOR = 0xff0099cc;
     static final int MIDDLE_COLOR = 0xff0099cc;
     static final int RIGHT_COLOR = 0xff888888;
+    static final int ANIMATION_DURATION = 300;
 
     private float mRedRatio;
     private float mYellowRatio;
@@ -48,6 +50,7 @@ public class LinearColorBar extends LinearLayout {
     final Path mEdgePath = new Path();
     final Paint mColorGradientPaint = new Paint();
     final Paint mEdgeGradientPaint = new Paint();
+    private ValueAnimator mRatioAnimator;
 
     public LinearColorBar(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -63,12 +66,39 @@ public class LinearColorBar extends LinearLayout {
     }
 
     public void setRatios(float red, float yellow, float green) {
+        if (mRatioAnimator != null) {
+            mRatioAnimator.cancel();
+        }
         mRedRatio = red;
         mYellowRatio = yellow;
         mGreenRatio = green;
         invalidate();
     }
 
+    public void animateRatios(final float red, final float yellow, final float green) {
+        if (mRatioAnimator != null) {
+            mRatioAnimator.cancel();
+        }
+        if (red == mRedRatio && yellow == mYellowRatio && green == mGreenRatio) return;
+
+        final float fromRed = mRedRatio;
+        final float fromYellow = mYellowRatio;
+        final float fromGreen = mGreenRatio;
+        mRatioAnimator = ValueAnimator.ofFloat(0f, 1f);
+        mRatioAnimator.setDuration(ANIMATION_DURATION);
+        mRatioAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                final float f = animation.getAnimatedFraction();
+                mRedRatio = fromRed + (red - fromRed) * f;
+                mYellowRatio = fromYellow + (yellow - fromYellow) * f;
+                mGreenRatio = fromGreen + (green - fromGreen) * f;
+                invalidate();
+            }
+        });
+        mRatioAnimator.start();
+    }
+
     public void setShowingGreen(boolean showingGreen) {
         if (mShowingGreen != showingGreen) {
             mShowingGreen = showingGreen;
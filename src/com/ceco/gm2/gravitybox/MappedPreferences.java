@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import android.content.SharedPreferences;
+import android.os.Environment;
+import de.robv.android.xposed.XSharedPreferences;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Read-only preferences backed by memory-mapped snapshot written by {@link PrefsSnapshot}.
+ *
+ * Lookups are O(1) hash table probes directly in the mapped file. {@link #reload()} only
+ * compares generation counter (mapped as well) and remaps snapshot when it has changed,
+ * so the preferences XML is no longer parsed on every reload.
+ * While no valid snapshot is available, all calls are delegated to XSharedPreferences.
+ */
+public class MappedPreferences implements SharedPreferences {
+    private static final String TAG = "GB:MappedPreferences";
+    private static final boolean DEBUG = false;
+
+    private static MappedPreferences sInstance;
+
+    private final XSharedPreferences mFallback;
+    private final File mSnapshotFile;
+    private final File mGenerationFile;
+    private MappedByteBuffer mGeneration;
+    private long mLastGeneration = -1;
+    private volatile Snapshot mSnapshot;
+
+    private static void log(String message) {
+        XposedBridge.log(TAG + ": " + message);
+    }
+
+    public static synchronized MappedPreferences getInstance(XSharedPreferences fallback) {
+        if (sInstance == null) {
+            sInstance = new MappedPreferences(fallback);
+        }
+        return sInstance;
+    }
+
+    private MappedPreferences(XSharedPreferences fallback) {
+        mFallback = fallback;
+        File filesDir = new File(Environment.getDataDirectory(),
+                "data/" + GravityBox.PACKAGE_NAME + "/files");
+        mSnapshotFile = new File(filesDir, PrefsSnapshot.FILE_SNAPSHOT);
+        mGenerationFile = new File(filesDir, PrefsSnapshot.FILE_GENERATION);
+        reload();
+    }
+
+    private static final class Snapshot {
+        final ByteBuffer buf;
+        final long generation;
+        final int mask;
+        // decoded strings and sets are cached per slot so repeated reads don't allocate
+        final Object[] cache;
+
+        Snapshot(ByteBuffer buf) {
+            this.buf = buf;
+            this.generation = buf.getLong(8);
+            final int tableSize = buf.getInt(20);
+            this.mask = tableSize - 1;
+            this.cache = new Object[tableSize];
+        }
+
+        int find(String key) {
+            int slot = PrefsSnapshot.slotFor(key.hashCode(), mask);
+            while (true) {
+                final int slotPos = PrefsSnapshot.HEADER_SIZE + slot * PrefsSnapshot.SLOT_SIZE;
+                final int keyOffset = buf.getInt(slotPos + 4);
+                if (keyOffset == -1) return -1;
+                if (buf.getInt(slotPos) == key.hashCode() && keyEquals(keyOffset, key)) {
+                    return slotPos;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private boolean keyEquals(int offset, String key) {
+            final int length = buf.getInt(offset);
+            if (length != key.length()) return false;
+            offset += 4;
+            for (int i = 0; i < length; i++) {
+                if (buf.getChar(offset + i * 2) != key.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        int typeAt(int slotPos) {
+            return buf.getInt(slotPos + 8);
+        }
+
+        int valueAt(int slotPos) {
+            return buf.getInt(slotPos + 12);
+        }
+
+        String stringAt(int offset) {
+            final int length = buf.getInt(offset);
+            char[] chars = new char[length];
+            offset += 4;
+            for (int i = 0; i < length; i++) {
+                chars[i] = buf.getChar(offset + i * 2);
+            }
+            return new String(chars);
+        }
+
+        String getString(int slotPos) {
+            final int idx = (slotPos - PrefsSnapshot.HEADER_SIZE) / PrefsSnapshot.SLOT_SIZE;
+            String s = (String) cache[idx];
+            if (s == null) {
+                s = stringAt(valueAt(slotPos));
+                cache[idx] = s;
+            }
+            return s;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> getStringSet(int slotPos) {
+            final int idx = (slotPos - PrefsSnapshot.HEADER_SIZE) / PrefsSnapshot.SLOT_SIZE;
+            Set<String> set = (Set<String>) cache[idx];
+            if (set == null) {
+                int offset = valueAt(slotPos);
+                final int count = buf.getInt(offset);
+                offset += 4;
+                Set<String> s = new HashSet<String>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    String str = stringAt(offset);
+                    s.add(str);
+                    offset += 4 + str.length() * 2;
+                }
+                set = Collections.unmodifiableSet(s);
+                cache[idx] = set;
+            }
+            return set;
+        }
+
+        Object valueOf(int slotPos) {
+            switch (typeAt(slotPos)) {
+                case PrefsSnapshot.TYPE_BOOLEAN: return valueAt(slotPos) != 0;
+                case PrefsSnapshot.TYPE_INT: return valueAt(slotPos);
+                case PrefsSnapshot.TYPE_FLOAT: return Float.intBitsToFloat(valueAt(slotPos));
+                case PrefsSnapshot.TYPE_LONG: return buf.getLong(valueAt(slotPos));
+                case PrefsSnapshot.TYPE_STRING: return getString(slotPos);
+                case PrefsSnapshot.TYPE_STRING_SET: return getStringSet(slotPos);
+                default: return null;
+            }
+        }
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+    }
+
+    private Snapshot mapSnapshot() {
+        if (!mSnapshotFile.exists()) return null;
+
+        try {
+            MappedByteBuffer buf = map(mSnapshotFile);
+            if (buf.capacity() < PrefsSnapshot.HEADER_SIZE ||
+                    buf.getInt(0) != PrefsSnapshot.MAGIC ||
+                    buf.getInt(4) != PrefsSnapshot.VERSION) {
+                log("Snapshot has unknown format; ignoring");
+                return null;
+            }
+            return new Snapshot(buf);
+        } catch (IOException e) {
+            log("Error mapping snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Remaps snapshot if generation counter has changed since last time.
+     * XSharedPreferences is reloaded only in that case as well (or when there's no
+     * snapshot at all) so that code still reading it directly stays up to date.
+     */
+    public synchronized void reload() {
+        if (mGeneration == null && mGenerationFile.exists()) {
+            try {
+                mGeneration = map(mGenerationFile);
+            } catch (IOException e) {
+                log("Error mapping generation file: " + e.getMessage());
+            }
+        }
+
+        if (mGeneration == null || mGeneration.capacity() < 8) {
+            mSnapshot = null;
+            mFallback.reload();
+            return;
+        }
+
+        final long generation = mGeneration.getLong(0);
+        if (generation != mLastGeneration) {
+            mSnapshot = mapSnapshot();
+            mLastGeneration = generation;
+            if (DEBUG) log("Snapshot remapped; generation=" + generation +
+                    "; valid=" + (mSnapshot != null));
+            mFallback.reload();
+        } else if (mSnapshot == null) {
+            mFallback.reload();
+        }
+    }
+
+    @Override
+    public Map<String, ?> getAll() {
+        final Snapshot s = mSnapshot;
+        if (s == null) return mFallback.getAll();
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i <= s.mask; i++) {
+            final int slotPos = PrefsSnapshot.HEADER_SIZE + i * PrefsSnapshot.SLOT_SIZE;
+            final int keyOffset = s.buf.getInt(slotPos + 4);
+            if (keyOffset != -1) {
+                map.put(s.stringAt(keyOffset), s.valueOf(slotPos));
+            }
+        }
+        return map;
+    }
+
+    private static int checkType(Snapshot s, int slotPos, int type) {
+        if (s.typeAt(slotPos) != type) {
+            throw new ClassCastException("Preference type mismatch");
+        }
+        return slotPos;
+    }
+
+    @Override
+    public String getString(String key, String defValue) {
+        final Snapshot s = mSnapshot;
+        if (s == null) return mFallback.getString(key, defValue);
+
+        final int slotPos = s.find(key);
+        return slotPos < 0 ? defValue :
+            s.getString(checkType(s, slotPos, PrefsSnapshot.TYPE_STRING));
+    }
+
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        final Snapshot s = mSnapshot;
+        if (s == null) return mFallback.getStringSet(key, defValues);
+
+        final int slotPos = s.find(key);
+        return slotPos < 0 ? defValues :
+            s.getStringSet(checkType(s, slotPos, PrefsSnapshot.TYPE_STRING_SET));
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        final Snapshot s = mSnapshot;
+        if (s == null) return mFallback.getInt(key, defValue);
+
+        final int slotPos = s.find(key);
+        return slotPos < 0 ? defValue :
+            s.valueAt(checkType(s, slotPos, PrefsSnapshot.TYPE_INT));
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        final Snapshot s = mSnapshot;
+        if (s == null) return mFallback.getLong(key, defValue);
+
+        final int slotPos = s.find(key);
+        return slotPos < 0 ? defValue :
+            s.buf.getLong(s.valueAt(checkType(s, slotPos, PrefsSnapshot.TYPE_LONG)));
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        final Snapshot s = mSnapshot;
+        if (s == null) return mFallback.getFloat(key, defValue);
+
+        final int slotPos = s.find(key);
+        return slotPos < 0 ? defValue :
+            Float.intBitsToFloat(s.valueAt(checkType(s, slotPos, PrefsSnapshot.TYPE_FLOAT)));
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        final Snapshot s = mSnapshot;
+        if (s == null) return mFallback.getBoolean(key, defValue);
+
+        final int slotPos = s.find(key);
+        return slotPos < 0 ? defValue :
+            s.valueAt(checkType(s, slotPos, PrefsSnapshot.TYPE_BOOLEAN)) != 0;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        final Snapshot s = mSnapshot;
+        if (s == null) return mFallback.contains(key);
+
+        return s.find(key) >= 0;
+    }
+
+    @Override
+    public Editor edit() {
+        throw new UnsupportedOperationException("read-only implementation");
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        throw new UnsupportedOperationException("listeners are not supported in this implementation");
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        throw new UnsupportedOperationException("listeners are not supported in this implementation");
+    }
+}
@@ -16,45 +16,70 @@
 
 package com.ceco.gm2.gravitybox;
 
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 import android.os.StrictMode;
 
+/**
+ * Reader of /proc/meminfo.
+ *
+ * Whole file is read into a retained buffer that grows as needed and parsed in one pass.
+ * Values of all fields are stored in a primitive array indexed by a key table; well known
+ * fields have fixed indices (see MEM_* and SWAP_* constants), other fields get an index
+ * when first seen. Key strings are only created for fields not seen before.
+ * All values are in bytes.
+ */
 public class MemInfoReader {
-    byte[] mBuffer = new byte[1024];
+    public static final String PATH = "/proc/meminfo";
 
-    private long mTotalSize;
-    private long mFreeSize;
-    private long mCachedSize;
+    public static final int MEM_TOTAL = 0;
+    public static final int MEM_FREE = 1;
+    public static final int MEM_AVAILABLE = 2;
+    public static final int BUFFERS = 3;
+    public static final int CACHED = 4;
+    public static final int SWAP_CACHED = 5;
+    public static final int ACTIVE = 6;
+    public static final int INACTIVE = 7;
+    public static final int SHMEM = 8;
+    public static final int SLAB = 9;
+    public static final int SWAP_TOTAL = 10;
+    public static final int SWAP_FREE = 11;
 
-    private boolean matchText(byte[] buffer, int index, String text) {
-        int N = text.length();
-        if ((index+N) >= buffer.length) {
-            return false;
-        }
-        for (int i=0; i<N; i++) {
-            if (buffer[index+i] != text.charAt(i)) {
-                return false;
-            }
-        }
-        return true;
+    private static final String[] KNOWN_KEYS = new String[] {
+        "MemTotal", "MemFree", "MemAvailable", "Buffers", "Cached", "SwapCached",
+        "Active", "Inactive", "Shmem", "Slab", "SwapTotal", "SwapFree"
+    };
+    private static final int MAX_KEYS = 64;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private final String mPath;
+    private RandomAccessFile mFile;
+    private FileChannel mChannel;
+    private byte[] mBuffer = new byte[4096];
+    private ByteBuffer mByteBuffer = ByteBuffer.wrap(mBuffer);
+
+    private int mKeyCount;
+    private final String[] mKeys = new String[MAX_KEYS];
+    private final long[] mValues = new long[MAX_KEYS];
+    // key index of each line as of previous parse; lines keep their order between reads
+    private final int[] mLineKeys = new int[MAX_KEYS];
+
+    public MemInfoReader() {
+        this(PATH);
     }
 
-    private long extractMemValue(byte[] buffer, int index) {
-        while (index < buffer.length && buffer[index] != '\n') {
-            if (buffer[index] >= '0' && buffer[index] <= '9') {
-                int start = index;
-                index++;
-                while (index < buffer.length && buffer[index] >= '0'
-                    && buffer[index] <= '9') {
-                    index++;
-                }
-                String str = new String(buffer, 0, start, index-start);
-                return ((long)Integer.parseInt(str)) * 1024;
-            }
-            index++;
+    public MemInfoReader(String path) {
+        mPath = path;
+        for (String key : KNOWN_KEYS) {
+            mKeys[mKeyCount++] = key;
+        }
+        for (int i = 0; i < MAX_KEYS; i++) {
+            mLineKeys[i] = -1;
         }
-        return 0;
     }
 
     public void readMemInfo() {
@@ -63,48 +88,173 @@ public class MemInfoReader {
         // /proc/ and /sys/ files perhaps?
         StrictMode.ThreadPolicy savedPolicy = StrictMode.allowThreadDiskReads();
         try {
-            mTotalSize = 0;
-            mFreeSize = 0;
-            mCachedSize = 0;
-            FileInputStream is = new FileInputStream("/proc/meminfo");
-            int len = is.read(mBuffer);
-            is.close();
-            final int BUFLEN = mBuffer.length;
-            int count = 0;
-            for (int i=0; i<len && count < 3; i++) {
-                if (matchText(mBuffer, i, "MemTotal")) {
-                    i += 8;
-                    mTotalSize = extractMemValue(mBuffer, i);
-                    count++;
-                } else if (matchText(mBuffer, i, "MemFree")) {
-                    i += 7;
-                    mFreeSize = extractMemValue(mBuffer, i);
-                    count++;
-                } else if (matchText(mBuffer, i, "Cached")) {
-                    i += 6;
-                    mCachedSize = extractMemValue(mBuffer, i);
-                    count++;
-                }
-                while (i < BUFLEN && mBuffer[i] != '\n') {
-                    i++;
+            if (mChannel == null) {
+                mFile = new RandomAccessFile(mPath, "r");
+                mChannel = mFile.getChannel();
+            }
+
+            int length = 0;
+            while (true) {
+                mByteBuffer.clear();
+                mByteBuffer.position(length);
+                final int n = mChannel.read(mByteBuffer, length);
+                if (n <= 0) break;
+                length += n;
+                if (length == mBuffer.length) {
+                    byte[] buffer = new byte[mBuffer.length * 2];
+                    System.arraycopy(mBuffer, 0, buffer, 0, length);
+                    mBuffer = buffer;
+                    mByteBuffer = ByteBuffer.wrap(mBuffer);
                 }
             }
-        } catch (java.io.FileNotFoundException e) {
-        } catch (java.io.IOException e) {
+
+            parse(mBuffer, length);
+        } catch (IOException e) {
+            close();
+            for (int i = 0; i < mKeyCount; i++) {
+                mValues[i] = 0;
+            }
         } finally {
             StrictMode.setThreadPolicy(savedPolicy);
         }
     }
 
+    /**
+     * Parses contents of /proc/meminfo. Values of fields missing in data are reset to 0.
+     */
+    public void parse(byte[] data, int length) {
+        for (int i = 0; i < mKeyCount; i++) {
+            mValues[i] = 0;
+        }
+
+        int line = 0;
+        int pos = 0;
+        while (pos < length) {
+            final int keyStart = pos;
+            while (pos < length && data[pos] != ':' && data[pos] != '\n') pos++;
+            if (pos >= length || data[pos] != ':') {
+                pos++;
+                continue;
+            }
+            final int keyEnd = pos++;
+
+            while (pos < length && data[pos] == ' ') pos++;
+            long value = 0;
+            while (pos < length && data[pos] >= '0' && data[pos] <= '9') {
+                value = value * 10 + (data[pos++] - '0');
+            }
+            while (pos < length && data[pos] == ' ') pos++;
+            // values are in kB except for page counts like HugePages_Total
+            if (pos < length && data[pos] == 'k') {
+                value *= 1024;
+            }
+            while (pos < length && data[pos] != '\n') pos++;
+            pos++;
+
+            final int key = findKey(line, data, keyStart, keyEnd);
+            if (key >= 0) {
+                mValues[key] = value;
+            }
+            if (line < MAX_KEYS) {
+                mLineKeys[line++] = key;
+            }
+        }
+    }
+
+    private int findKey(int line, byte[] data, int start, int end) {
+        if (line < MAX_KEYS && mLineKeys[line] >= 0 &&
+                keyEquals(mKeys[mLineKeys[line]], data, start, end)) {
+            return mLineKeys[line];
+        }
+        for (int i = 0; i < mKeyCount; i++) {
+            if (keyEquals(mKeys[i], data, start, end)) {
+                return i;
+            }
+        }
+        if (mKeyCount == MAX_KEYS) {
+            return -1;
+        }
+        mKeys[mKeyCount] = new String(data, start, end - start, ASCII);
+        return mKeyCount++;
+    }
+
+    private static boolean keyEquals(String key, byte[] data, int start, int end) {
+        if (key.length() != end - start) return false;
+        for (int i = start; i < end; i++) {
+            if (key.charAt(i - start) != data[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns value of given field index in bytes.
+     */
+    public long getValue(int index) {
+        return mValues[index];
+    }
+
+    /**
+     * Returns value of given field in bytes or 0 if not present.
+     */
+    public long getValue(String key) {
+        for (int i = 0; i < mKeyCount; i++) {
+            if (mKeys[i].equals(key)) {
+                return mValues[i];
+            }
+        }
+        return 0;
+    }
+
     public long getTotalSize() {
-        return mTotalSize;
+        return mValues[MEM_TOTAL];
     }
 
     public long getFreeSize() {
-        return mFreeSize;
+        return mValues[MEM_FREE];
     }
 
     public long getCachedSize() {
-        return mCachedSize;
+        return mValues[CACHED];
+    }
+
+    public long getBuffersSize() {
+        return mValues[BUFFERS];
+    }
+
+    public long getSwapCachedSize() {
+        return mValues[SWAP_CACHED];
+    }
+
+    public long getSwapTotalSize() {
+        return mValues[SWAP_TOTAL];
+    }
+
+    public long getSwapFreeSize() {
+        return mValues[SWAP_FREE];
+    }
+
+    /**
+     * Estimate of memory available for starting new applications without swapping.
+     * Uses MemAvailable where kernel provides it, otherwise free memory plus
+     * reclaimable buffers and page cache, excluding shared memory which can't be dropped.
+     */
+    public long getAvailableSize() {
+        if (mValues[MEM_AVAILABLE] > 0) {
+            return mValues[MEM_AVAILABLE];
+        }
+        return mValues[MEM_FREE] + mValues[BUFFERS] +
+                Math.max(mValues[CACHED] - mValues[SHMEM], 0);
+    }
+
+    public void close() {
+        if (mFile != null) {
+            try {
+                mFile.close();
+            } catch (IOException e) {
+                //
+            }
+        }
+        mFile = null;
+        mChannel = null;
     }
 }
@@ -82,7 +82,7 @@ public class ModAudio {
                 initMusicStream();
             }
 
-            XposedBridge.hookAllConstructors(classAudioService, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(classAudioService, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -90,9 +90,9 @@ public class ModAudio {
                     if (context == null) return;
 
                     mHandleChangeVolume = new HandleChangeVolume(context);
-                    XposedHelpers.findAndHookMethod(classAudioService, "adjustMasterVolume", 
+                    HookProfiler.findAndHookMethod(classAudioService, "adjustMasterVolume", 
                             int.class, int.class, mHandleChangeVolume);
-                    XposedHelpers.findAndHookMethod(classAudioService, "adjustSuggestedStreamVolume", 
+                    HookProfiler.findAndHookMethod(classAudioService, "adjustSuggestedStreamVolume", 
                             int.class, int.class, int.class, mHandleChangeVolume);
 
                     IntentFilter intentFilter = new IntentFilter();
@@ -108,7 +108,7 @@ public class ModAudio {
                 XResources.setSystemWideReplacement("android", "bool", "config_safe_media_volume_enabled", true);
                 mSafeMediaVolumeEnabled = prefs.getBoolean(GravityBoxSettings.PREF_KEY_SAFE_MEDIA_VOLUME, false);
                 if (DEBUG) log("Safe headset media volume set to: " + mSafeMediaVolumeEnabled);
-                XposedHelpers.findAndHookMethod(classAudioService, "enforceSafeMediaVolume", new XC_MethodHook() {
+                HookProfiler.findAndHookMethod(classAudioService, "enforceSafeMediaVolume", new XC_MethodHook() {
 
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -119,7 +119,7 @@ public class ModAudio {
                     }
                 });
 
-                XposedHelpers.findAndHookMethod(classAudioService, "checkSafeMediaVolume", 
+                HookProfiler.findAndHookMethod(classAudioService, "checkSafeMediaVolume", 
                         int.class, int.class, int.class, new XC_MethodHook() {
         
                     @Override
@@ -134,7 +134,7 @@ public class ModAudio {
 
             mVolForceMusicControl = prefs.getBoolean(
                     GravityBoxSettings.PREF_KEY_VOL_FORCE_MUSIC_CONTROL, false);
-            XposedHelpers.findAndHookMethod(classAudioService, "getActiveStreamType",
+            HookProfiler.findAndHookMethod(classAudioService, "getActiveStreamType",
                     int.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -176,7 +176,7 @@ public class ModAudio {
                     CLASS_VOLUME_STREAM_STATE, null);
             final Class<?> classAudioSystem = XposedHelpers.findClass(CLASS_AUDIO_SYSTEM, null);
 
-            XposedBridge.hookAllConstructors(classRemotePlaybackState, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(classRemotePlaybackState, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -186,7 +186,7 @@ public class ModAudio {
                 }
             });
 
-            XposedBridge.hookAllConstructors(classVolumeStreamState, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(classVolumeStreamState, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     int streamType = XposedHelpers.getIntField(param.thisObject, "mStreamType");
@@ -50,7 +50,7 @@ public class ModAudioSettings {
                 return;
             }
 
-            XposedHelpers.findAndHookMethod(classVolumePref, "onBindDialogView", View.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classVolumePref, "onBindDialogView", View.class, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -84,7 +84,7 @@ public class ModAudioSettings {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classVolumizer, 
+            HookProfiler.findAndHookMethod(classVolumizer, 
                     "setVolume", int.class, int.class, boolean.class, new XC_MethodHook() {
 
                 @Override
@@ -100,7 +100,7 @@ public class ModAudioSettings {
                     final Object audioManager = XposedHelpers.getObjectField(
                             XposedHelpers.getSurroundingThis(param.thisObject), "mAudioManager");
 
-                    mSetVolumeHook = XposedHelpers.findAndHookMethod(audioManager.getClass(), 
+                    mSetVolumeHook = HookProfiler.findAndHookMethod(audioManager.getClass(), 
                             "setAudioProfileStreamVolume", int.class, int.class, int.class, new XC_MethodHook() {
 
                         @Override
@@ -126,7 +126,7 @@ public class ModAudioSettings {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classVolumizer, "revertVolume", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classVolumizer, "revertVolume", new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -137,7 +137,7 @@ public class ModAudioSettings {
                     final Object profileManager = XposedHelpers.getObjectField(
                             XposedHelpers.getSurroundingThis(param.thisObject), "mProfileManager");
 
-                    mRevertVolumeHook = XposedHelpers.findAndHookMethod(
+                    mRevertVolumeHook = HookProfiler.findAndHookMethod(
                             profileManager.getClass(), "setStreamVolume", 
                             String.class, int.class, int.class, new XC_MethodHook() {
                                 @Override
@@ -160,7 +160,7 @@ public class ModAudioSettings {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classVolumizer, "saveVolume", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classVolumizer, "saveVolume", new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -171,7 +171,7 @@ public class ModAudioSettings {
                     final Object profileManager = XposedHelpers.getObjectField(
                             XposedHelpers.getSurroundingThis(param.thisObject), "mProfileManager");
 
-                    mSaveVolumeHook = XposedHelpers.findAndHookMethod(
+                    mSaveVolumeHook = HookProfiler.findAndHookMethod(
                             profileManager.getClass(), "setStreamVolume", 
                             String.class, int.class, int.class, new XC_MethodHook() {
                                 @Override
@@ -229,7 +229,7 @@ public class ModBatteryStyle {
         try {
             Class<?> batteryControllerClass = XposedHelpers.findClass(CLASS_BATTERY_CONTROLLER, classLoader);
 
-            XposedBridge.hookAllConstructors(batteryControllerClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(batteryControllerClass, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -255,7 +255,7 @@ public class ModBatteryStyle {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(batteryControllerClass, "onReceive", 
+            HookProfiler.findAndHookMethod(batteryControllerClass, "onReceive", 
                     Context.class, Intent.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -64,7 +64,7 @@ public class ModCallCard {
             final Class<?> callCardClass = XposedHelpers.findClass(CLASS_CALLCARD, classLoader);
             final Class<?> inCallTouchUiClass = XposedHelpers.findClass(CLASS_IN_CALL_TOUCH_UI, classLoader);
 
-            XposedHelpers.findAndHookMethod(callCardClass, "updateCallInfoLayout", phoneConstStateClass,
+            HookProfiler.findAndHookMethod(callCardClass, "updateCallInfoLayout", phoneConstStateClass,
                     new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -83,7 +83,7 @@ public class ModCallCard {
             });
 
             if (Utils.isMtkDevice()) {
-                XposedHelpers.findAndHookMethod(callCardClass, "updateCallBannerBackground", 
+                HookProfiler.findAndHookMethod(callCardClass, "updateCallBannerBackground", 
                         callClass, ViewGroup.class, new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -113,7 +113,7 @@ public class ModCallCard {
                 });
             }
 
-            XposedHelpers.findAndHookMethod(inCallTouchUiClass, "showIncomingCallWidget",
+            HookProfiler.findAndHookMethod(inCallTouchUiClass, "showIncomingCallWidget",
                     callClass, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -134,7 +134,7 @@ public class ModCallCard {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(callCardClass, "showImage",
+            HookProfiler.findAndHookMethod(callCardClass, "showImage",
                     ImageView.class, int.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
@@ -36,7 +36,7 @@ public class ModCellConnService {
         try {
             final Class<?> classConfirmDlg = XposedHelpers.findClass(CLASS_CONFIRM_DLG, classLoader);
 
-            XposedHelpers.findAndHookMethod(classConfirmDlg, "onNewIntent", Intent.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classConfirmDlg, "onNewIntent", Intent.class, new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -23,7 +23,10 @@ import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.os.Build;
+import android.os.Debug;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
 import android.text.format.Formatter;
 import android.util.TypedValue;
 import android.view.Gravity;
@@ -37,6 +40,7 @@ import android.widget.LinearLayout;
 import android.widget.ImageView.ScaleType;
 import android.widget.ScrollView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
@@ -52,6 +56,10 @@ public class ModClearAllRecents {
     public static final String CLASS_RECENT_PANEL_VIEW = "com.android.systemui.recent.RecentsPanelView";
     private static final boolean DEBUG = false;
 
+    private static final int RAM_BAR_UPDATE_INTERVAL = 2000;
+    private static final int TOP_PROCESS_COUNT = 5;
+    private static final long TOP_PROCESS_CACHE_TIME = 30000;
+
     private static XSharedPreferences mPrefs;
     private static ImageView mRecentsClearButton;
     private static int mClearRecentsMode;
@@ -64,6 +72,11 @@ public class ModClearAllRecents {
     private static Context mGbContext;
     private static LinearColorBar mRamUsageBar;
     private static Handler mHandler;
+    private static Handler mSamplerHandler;
+    private static volatile RamBarSample mRamBarSample;
+    private static RamBarSample mRamBarSampleShown;
+    private static String mTopProcessText;
+    private static long mTopProcessTime;
     private static int[] mRamUsageBarPaddings;
     private static int mClearAllRecentsSizePx;
     private static int mRamUsageBarVerticalMargin;
@@ -75,6 +88,13 @@ public class ModClearAllRecents {
         XposedBridge.log(TAG + ": " + message);
     }
 
+    private static class RamBarSample {
+        long totalMem;
+        long availMem;
+        String usedText;
+        String freeText;
+    }
+
     public static void init(final XSharedPreferences prefs, ClassLoader classLoader) {
         try {
             mPrefs = prefs;
@@ -87,14 +107,14 @@ public class ModClearAllRecents {
             mMemInfoReader = new MemInfoReader();
 
             if (Build.VERSION.SDK_INT > 16) {
-                XposedHelpers.findAndHookMethod(recentPanelViewClass, "showImpl", 
+                HookProfiler.findAndHookMethod(recentPanelViewClass, "showImpl", 
                         boolean.class, recentsPanelViewShowHook);
             } else {
-                XposedHelpers.findAndHookMethod(recentPanelViewClass, "showIfReady", 
+                HookProfiler.findAndHookMethod(recentPanelViewClass, "showIfReady", 
                         recentsPanelViewShowHook);
             }
 
-            XposedBridge.hookAllConstructors(recentPanelViewClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(recentPanelViewClass, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     final View v = (View) param.thisObject;
@@ -119,7 +139,7 @@ public class ModClearAllRecents {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(recentPanelViewClass, "onFinishInflate", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(recentPanelViewClass, "onFinishInflate", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     View view = (View) param.thisObject;
@@ -186,13 +206,20 @@ public class ModClearAllRecents {
                     vg.addView(mRamUsageBar);
                     mForegroundProcessText = (TextView) mRamUsageBar.findViewById(R.id.foregroundText);
                     mBackgroundProcessText = (TextView) mRamUsageBar.findViewById(R.id.backgroundText);
+                    mRamUsageBar.setOnLongClickListener(new View.OnLongClickListener() {
+                        @Override
+                        public boolean onLongClick(View v) {
+                            showTopProcesses();
+                            return true;
+                        }
+                    });
                     mRamUsageBar.setVisibility(View.GONE);
                     if (DEBUG) log("RAM bar injected");
                 }
             });
 
             // for portrait mode
-            XposedHelpers.findAndHookMethod(recentVerticalScrollView, "dismissChild", View.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(recentVerticalScrollView, "dismissChild", View.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     handleDismissChild(param);
@@ -200,7 +227,7 @@ public class ModClearAllRecents {
             });
 
             // for landscape mode
-            XposedHelpers.findAndHookMethod(recentHorizontalScrollView, "dismissChild", View.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(recentHorizontalScrollView, "dismissChild", View.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     handleDismissChild(param);
@@ -208,12 +235,12 @@ public class ModClearAllRecents {
             });
 
             // When to update RAM bar values
-            XposedHelpers.findAndHookMethod(recentPanelViewClass, "clearRecentTasksList", 
+            HookProfiler.findAndHookMethod(recentPanelViewClass, "clearRecentTasksList", 
                     updateRambarHook);
-            XposedHelpers.findAndHookMethod(recentPanelViewClass, "handleSwipe",
+            HookProfiler.findAndHookMethod(recentPanelViewClass, "handleSwipe",
                     View.class, updateRambarHook);
             if (Build.VERSION.SDK_INT > 16) {
-                XposedHelpers.findAndHookMethod(recentPanelViewClass, "refreshViews", 
+                HookProfiler.findAndHookMethod(recentPanelViewClass, "refreshViews", 
                         updateRambarHook);
             }
         } catch (Throwable t) {
@@ -350,6 +377,7 @@ public class ModClearAllRecents {
         if (mHandler != null) {
             mHandler.post(updateRamBarTask);
         }
+        mTopProcessTime = 0;
 
         // don't call original method
         param.setResult(null);
@@ -403,6 +431,16 @@ public class ModClearAllRecents {
         if (DEBUG) log("RAM bar layout updated");
     }
 
+    private static Handler getSamplerHandler() {
+        if (mSamplerHandler == null) {
+            HandlerThread thread = new HandlerThread(TAG);
+            thread.start();
+            mSamplerHandler = new Handler(thread.getLooper());
+        }
+        return mSamplerHandler;
+    }
+
+    // requests immediate sample; sampling then continues for as long as RAM bar is shown
     private static final Runnable updateRamBarTask = new Runnable() {
         @Override
         public void run() {
@@ -410,25 +448,117 @@ public class ModClearAllRecents {
                 return;
             }
 
-            ActivityManager.MemoryInfo memInfo = new ActivityManager.MemoryInfo();
-            mAm.getMemoryInfo(memInfo);
-            long secServerMem = 0;//XposedHelpers.getLongField(memInfo, "secondaryServerThreshold");
+            final Handler handler = getSamplerHandler();
+            handler.removeCallbacks(sampleRamBarTask);
+            handler.post(sampleRamBarTask);
+        }
+    };
+
+    // runs on sampler thread; strings are only formatted when values change
+    private static final Runnable sampleRamBarTask = new Runnable() {
+        @Override
+        public void run() {
             mMemInfoReader.readMemInfo();
-            long availMem = mMemInfoReader.getFreeSize() + mMemInfoReader.getCachedSize() -
-                    secServerMem;
-            long totalMem = mMemInfoReader.getTotalSize();
-
-            String sizeStr = Formatter.formatShortFileSize(mGbContext, totalMem-availMem);
-            mForegroundProcessText.setText(mGbContext.getResources().getString(
-                    R.string.service_foreground_processes, sizeStr));
-            sizeStr = Formatter.formatShortFileSize(mGbContext, availMem);
-            mBackgroundProcessText.setText(mGbContext.getResources().getString(
-                    R.string.service_background_processes, sizeStr));
-
-            float fTotalMem = totalMem;
-            float fAvailMem = availMem;
-            mRamUsageBar.setRatios((fTotalMem - fAvailMem) / fTotalMem, 0, 0);
-            if (DEBUG) log("RAM bar values updated");
+            final long totalMem = mMemInfoReader.getTotalSize();
+            final long availMem = mMemInfoReader.getAvailableSize();
+
+            final RamBarSample last = mRamBarSample;
+            if (last == null || last.totalMem != totalMem || last.availMem != availMem) {
+                RamBarSample sample = new RamBarSample();
+                sample.totalMem = totalMem;
+                sample.availMem = availMem;
+                sample.usedText = mGbContext.getResources().getString(
+                        R.string.service_foreground_processes,
+                        Formatter.formatShortFileSize(mGbContext, totalMem - availMem));
+                sample.freeText = mGbContext.getResources().getString(
+                        R.string.service_background_processes,
+                        Formatter.formatShortFileSize(mGbContext, availMem));
+                mRamBarSample = sample;
+            }
+            mHandler.post(applyRamBarTask);
+        }
+    };
+
+    private static final Runnable applyRamBarTask = new Runnable() {
+        @Override
+        public void run() {
+            if (mRamUsageBar == null || !mRamUsageBar.isShown()) {
+                if (DEBUG) log("RAM bar hidden; sampling stopped");
+                return;
+            }
+
+            final RamBarSample sample = mRamBarSample;
+            if (sample != null && sample != mRamBarSampleShown && sample.totalMem > 0) {
+                mForegroundProcessText.setText(sample.usedText);
+                mBackgroundProcessText.setText(sample.freeText);
+                float fTotalMem = sample.totalMem;
+                float fAvailMem = sample.availMem;
+                mRamUsageBar.animateRatios((fTotalMem - fAvailMem) / fTotalMem, 0, 0);
+                mRamBarSampleShown = sample;
+                if (DEBUG) log("RAM bar values updated");
+            }
+
+            final Handler handler = getSamplerHandler();
+            handler.removeCallbacks(sampleRamBarTask);
+            handler.postDelayed(sampleRamBarTask, RAM_BAR_UPDATE_INTERVAL);
         }
     };
+
+    private static void showTopProcesses() {
+        if (mTopProcessText != null &&
+                SystemClock.elapsedRealtime() - mTopProcessTime < TOP_PROCESS_CACHE_TIME) {
+            Toast.makeText(mRamUsageBar.getContext(), mTopProcessText, Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        getSamplerHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                final String text = collectTopProcesses();
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (text == null) return;
+                        mTopProcessText = text;
+                        mTopProcessTime = SystemClock.elapsedRealtime();
+                        if (mRamUsageBar != null && mRamUsageBar.isShown()) {
+                            Toast.makeText(mRamUsageBar.getContext(), text, Toast.LENGTH_LONG).show();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    // runs on sampler thread as PSS collection is expensive
+    private static String collectTopProcesses() {
+        List<ActivityManager.RunningAppProcessInfo> procs = mAm.getRunningAppProcesses();
+        if (procs == null || procs.isEmpty()) return null;
+
+        final int count = procs.size();
+        int[] pids = new int[count];
+        for (int i = 0; i < count; i++) {
+            pids[i] = procs.get(i).pid;
+        }
+        Debug.MemoryInfo[] memInfos = mAm.getProcessMemoryInfo(pids);
+        int[] pss = new int[count];
+        for (int i = 0; i < count; i++) {
+            pss[i] = memInfos[i].getTotalPss();
+        }
+
+        StringBuilder sb = new StringBuilder(mGbContext.getString(R.string.rambar_top_processes));
+        for (int n = 0; n < TOP_PROCESS_COUNT; n++) {
+            int top = -1;
+            for (int i = 0; i < count; i++) {
+                if (pss[i] > 0 && (top < 0 || pss[i] > pss[top])) {
+                    top = i;
+                }
+            }
+            if (top < 0) break;
+            sb.append('\n').append(procs.get(top).processName).append(": ")
+                .append(Formatter.formatShortFileSize(mGbContext, pss[top] * 1024L));
+            pss[top] = 0;
+        }
+        return sb.toString();
+    }
 }
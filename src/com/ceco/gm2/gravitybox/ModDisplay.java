@@ -215,7 +215,7 @@ public class ModDisplay {
                     GravityBoxSettings.LOCKSCREEN_BG_DEFAULT).equals(GravityBoxSettings.LOCKSCREEN_BG_LAST_SCREEN);
 
             if (classDisplayPowerController != null) {
-                XposedBridge.hookAllConstructors(classDisplayPowerController, new XC_MethodHook() {
+                HookProfiler.hookAllConstructors(classDisplayPowerController, new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                         if (DEBUG) log("DisplayPowerController constructed");
@@ -279,7 +279,7 @@ public class ModDisplay {
                         "android", "integer", "config_screenBrightnessDim", screenDim);
                 if (DEBUG) log("Screen dim level set to: " + screenDim);
 
-                XposedHelpers.findAndHookMethod(classDisplayPowerController, 
+                HookProfiler.findAndHookMethod(classDisplayPowerController, 
                         "clampScreenBrightness", int.class, new XC_MethodReplacement() {
     
                             @Override
@@ -290,7 +290,7 @@ public class ModDisplay {
                 });
             }
 
-            XposedBridge.hookAllConstructors(classLightService, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(classLightService, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     Context context = (Context) XposedHelpers.getObjectField(param.thisObject, "mContext");
@@ -305,7 +305,7 @@ public class ModDisplay {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classLight, "setLightLocked",
+            HookProfiler.findAndHookMethod(classLight, "setLightLocked",
                     int.class, int.class, int.class, int.class, int.class, new XC_MethodHook() {
 
                 @Override
@@ -363,7 +363,7 @@ public class ModDisplay {
             });
 
             if (classDisplayPowerController != null) {
-                XposedHelpers.findAndHookMethod(classDisplayPowerController, "requestPowerState",
+                HookProfiler.findAndHookMethod(classDisplayPowerController, "requestPowerState",
                         CLASS_DISPLAY_POWER_REQUEST, boolean.class, new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
@@ -38,7 +38,7 @@ public class ModElectronBeam {
             final Class<?> clsDisplayPowerState = XposedHelpers.findClass(CLASS_DISPLAY_POWER_STATE, null);
             final Class<?> clsDisplayPowerController = XposedHelpers.findClass(CLASS_DISPLAY_POWER_CONTROLLER, null);
 
-            XposedHelpers.findAndHookMethod(clsDisplayPowerState, "prepareElectronBeam", int.class, 
+            HookProfiler.findAndHookMethod(clsDisplayPowerState, "prepareElectronBeam", int.class, 
                     new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
@@ -49,7 +49,7 @@ public class ModElectronBeam {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(clsDisplayPowerController, "initialize", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(clsDisplayPowerController, "initialize", new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -31,7 +31,6 @@ import android.view.Surface;
 import android.view.View;
 import android.view.WindowManager;
 import de.robv.android.xposed.XC_MethodHook;
-import de.robv.android.xposed.XC_MethodHook.Unhook;
 import de.robv.android.xposed.XC_MethodReplacement;
 import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedBridge;
@@ -52,8 +51,23 @@ public class ModExpandedDesktop {
     private static SettingsObserver mSettingsObserver;
     private static boolean mExpandedDesktop;
     private static int mExpandedDesktopMode;
-    private static Unhook mNavbarShowLwHook;
-    private static Unhook mStatusbarShowLwHook;
+    private static ScopedHook mNavbarShowLwHook = new ScopedHook() {
+        @Override
+        protected void beforeScopedMethod(final MethodHookParam param, Object navigationBar) throws Throwable {
+            if (param.thisObject == navigationBar) {
+                param.setResult(false);
+                XposedHelpers.callMethod(navigationBar, "hideLw", true);
+            }
+        }
+    };
+    private static ScopedHook mStatusbarShowLwHook = new ScopedHook() {
+        @Override
+        protected void beforeScopedMethod(final MethodHookParam param, Object statusBar) throws Throwable {
+            if (param.thisObject == statusBar) {
+                param.setResult(XposedHelpers.callMethod(param.thisObject, "hideLw", true));
+            }
+        }
+    };
     private static boolean mNavbarOverride;
     private static float mNavbarHeightScaleFactor = 1;
     private static float mNavbarHeightLandscapeScaleFactor = 1;
@@ -218,15 +232,15 @@ public class ModExpandedDesktop {
             }
 
             if (Build.VERSION.SDK_INT > 16) {
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, "init",
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, "init",
                     Context.class, CLASS_IWINDOW_MANAGER, CLASS_WINDOW_MANAGER_FUNCS, phoneWindowManagerInitHook);
             } else {
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, "init",
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, "init",
                         Context.class, CLASS_IWINDOW_MANAGER, CLASS_WINDOW_MANAGER_FUNCS, 
                         CLASS_LOCAL_POWER_MANAGER, phoneWindowManagerInitHook);
             }
 
-            XposedHelpers.findAndHookMethod(classPhoneWindowManager,
+            HookProfiler.findAndHookMethod(classPhoneWindowManager,
                     Build.VERSION.SDK_INT > 16 ? 
                             "finishPostLayoutPolicyLw" : "finishAnimationLw", new XC_MethodHook() {
                 @Override
@@ -234,36 +248,24 @@ public class ModExpandedDesktop {
                     final Object statusBar = XposedHelpers.getObjectField(param.thisObject, "mStatusBar");
                     if (statusBar == null || !expandedDesktopHidesStatusbar()) return;
 
-                    mStatusbarShowLwHook = XposedHelpers.findAndHookMethod(
-                            statusBar.getClass(), "showLw", boolean.class, new XC_MethodReplacement() {
-                                @Override
-                                protected Object replaceHookedMethod(MethodHookParam param2) throws Throwable {
-                                    if (param2.thisObject == statusBar) {
-                                        return XposedHelpers.callMethod(param2.thisObject, "hideLw", true);
-                                    } else {
-                                        return XposedBridge.invokeOriginalMethod(param2.method, param2.thisObject, param2.args);
-                                    }
-                                }
-                    });
+                    mStatusbarShowLwHook.install(statusBar.getClass(), "showLw", boolean.class);
+                    mStatusbarShowLwHook.enterScope(param, statusBar);
                 }
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
-                    if (mStatusbarShowLwHook != null) {
-                        mStatusbarShowLwHook.unhook();
-                        mStatusbarShowLwHook = null;
-                    }
+                    mStatusbarShowLwHook.exitScope(param);
                 }
             });
 
             if (Build.VERSION.SDK_INT > 16) {
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, "beginLayoutLw",
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, "beginLayoutLw",
                         boolean.class, int.class, int.class, int.class, beginLayoutLwHook);
             } else {
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, "beginLayoutLw",
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, "beginLayoutLw",
                         int.class, int.class, int.class, beginLayoutLwHook);
             }
 
-            XposedHelpers.findAndHookMethod(classPhoneWindowManager, "layoutWindowLw",
+            HookProfiler.findAndHookMethod(classPhoneWindowManager, "layoutWindowLw",
                     CLASS_POLICY_WINDOW_STATE, WindowManager.LayoutParams.class, 
                     CLASS_POLICY_WINDOW_STATE, new XC_MethodHook() {
                 @Override
@@ -363,7 +365,7 @@ public class ModExpandedDesktop {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classPhoneWindowManager, "getContentInsetHintLw",
+            HookProfiler.findAndHookMethod(classPhoneWindowManager, "getContentInsetHintLw",
                     WindowManager.LayoutParams.class, Rect.class, new XC_MethodReplacement() {
                 @Override
                 protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
@@ -474,17 +476,8 @@ public class ModExpandedDesktop {
                 final Object navigationBar = XposedHelpers.getObjectField(param.thisObject, "mNavigationBar");
                 if (navigationBar == null) return;
 
-                mNavbarShowLwHook = XposedHelpers.findAndHookMethod(navigationBar.getClass(), 
-                        "showLw", boolean.class, new XC_MethodHook() {
-                    @Override
-                    protected void beforeHookedMethod(final MethodHookParam param2) throws Throwable {
-                        if (param2.thisObject == navigationBar) {
-                            param2.setResult(false);
-                            XposedHelpers.callMethod(navigationBar, "hideLw", true);
-                            return;
-                        }
-                    }
-                });
+                mNavbarShowLwHook.install(navigationBar.getClass(), "showLw", boolean.class);
+                mNavbarShowLwHook.enterScope(param, navigationBar);
             } catch (Throwable t) {
                 XposedBridge.log(t);
             }
@@ -493,10 +486,7 @@ public class ModExpandedDesktop {
         @Override
         protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
             try {
-                if (mNavbarShowLwHook != null) {
-                    mNavbarShowLwHook.unhook();
-                    mNavbarShowLwHook = null;
-                }
+                mNavbarShowLwHook.exitScope(param);
 
                 final boolean isDefaultDisplay = Build.VERSION.SDK_INT > 16 ?
                         (Boolean) param.args[0] : true;
@@ -49,6 +49,9 @@ import android.view.KeyEvent;
 import android.view.ViewConfiguration;
 import android.widget.Toast;
 
+import com.ceco.gm2.gravitybox.reflect.Accessors;
+import com.ceco.gm2.gravitybox.reflect.Accessors.FieldAccessor;
+import com.ceco.gm2.gravitybox.reflect.Accessors.MethodInvoker;
 import com.ceco.gm2.gravitybox.shortcuts.ShortcutActivity;
 
 import de.robv.android.xposed.XC_MethodHook;
@@ -68,6 +71,12 @@ public class ModHwKeys {
     private static final String CLASS_LOCAL_POWER_MANAGER = "android.os.LocalPowerManager";
     private static final boolean DEBUG = false;
 
+    private static final FieldAccessor FIELD_HANDLER = Accessors.field("mHandler");
+    private static final MethodInvoker METHOD_KEYGUARD_ON = Accessors.method("keyguardOn");
+    private static final MethodInvoker METHOD_IS_MUSIC_ACTIVE = Accessors.method("isMusicActive");
+    private static final MethodInvoker METHOD_PERFORM_HAPTIC_FEEDBACK = Accessors.method(
+            "performHapticFeedbackLw", CLASS_WINDOW_STATE, int.class, boolean.class);
+
     private static final int FLAG_WAKE = 0x00000001;
     private static final int FLAG_WAKE_DROPPED = 0x00000002;
     public static final String ACTION_SCREENSHOT = "gravitybox.intent.action.SCREENSHOT";
@@ -399,24 +408,24 @@ public class ModHwKeys {
             classActivityManagerNative = XposedHelpers.findClass(CLASS_ACTIVITY_MANAGER_NATIVE, null);
 
             if (Build.VERSION.SDK_INT > 16) {
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, "init",
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, "init",
                     Context.class, CLASS_IWINDOW_MANAGER, CLASS_WINDOW_MANAGER_FUNCS, phoneWindowManagerInitHook);
             } else {
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, "init",
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, "init",
                         Context.class, CLASS_IWINDOW_MANAGER, CLASS_WINDOW_MANAGER_FUNCS, 
                         CLASS_LOCAL_POWER_MANAGER, phoneWindowManagerInitHook);
             }
 
-            XposedHelpers.findAndHookMethod(classPhoneWindowManager, "interceptKeyBeforeQueueing", 
+            HookProfiler.findAndHookMethod(classPhoneWindowManager, "interceptKeyBeforeQueueing", 
                     KeyEvent.class, int.class, boolean.class, new XC_MethodHook(XCallback.PRIORITY_HIGHEST) {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     KeyEvent event = (KeyEvent) param.args[0];
                     int keyCode = event.getKeyCode();
                     boolean down = event.getAction() == KeyEvent.ACTION_DOWN;
-                    boolean keyguardOn = (Boolean) XposedHelpers.callMethod(mPhoneWindowManager, "keyguardOn");
+                    boolean keyguardOn = METHOD_KEYGUARD_ON.invokeBoolean(mPhoneWindowManager);
                     boolean isFromSystem = (event.getFlags() & KeyEvent.FLAG_FROM_SYSTEM) != 0;
-                    Handler handler = (Handler) XposedHelpers.getObjectField(param.thisObject, "mHandler");
+                    Handler handler = (Handler) FIELD_HANDLER.get(param.thisObject);
                     if (DEBUG) log("interceptKeyBeforeQueueing: keyCode=" + keyCode +
                             "; action=" + event.getAction() + "; repeatCount=" + event.getRepeatCount());
 
@@ -432,7 +441,7 @@ public class ModHwKeys {
 
                     if (keyCode == KeyEvent.KEYCODE_VOLUME_DOWN && keyguardOn &&
                             mLockscreenTorch == GravityBoxSettings.HWKEY_TORCH_VOLDOWN_LONGPRESS &&
-                            !(Boolean) XposedHelpers.callMethod(param.thisObject, "isMusicActive")) {
+                            !METHOD_IS_MUSIC_ACTIVE.invokeBoolean(param.thisObject)) {
                         if (!down) {
                             handler.removeCallbacks(mLockscreenTorchRunnable);
                         } else {
@@ -514,8 +523,7 @@ public class ModHwKeys {
                                     handler.postDelayed(mCustomKeyDoubletapReset, mDoubletapSpeed);
                                 }
                                 if (isFromSystem) {
-                                    XposedHelpers.callMethod(param.thisObject, "performHapticFeedbackLw",
-                                        new Class<?> [] { Class.forName(CLASS_WINDOW_STATE), int.class, boolean.class },
+                                    METHOD_PERFORM_HAPTIC_FEEDBACK.invoke(param.thisObject,
                                         null, HapticFeedbackConstants.VIRTUAL_KEY, false);
                                 }
                             } else {
@@ -524,8 +532,7 @@ public class ModHwKeys {
                                 mIsCustomKeyLongPressed = true;
                                 if (DEBUG) log("Custom key long-press action");
                                 performAction(HwKeyTrigger.CUSTOM_LONGPRESS);
-                                XposedHelpers.callMethod(param.thisObject, "performHapticFeedbackLw",
-                                        new Class<?> [] { Class.forName(CLASS_WINDOW_STATE), int.class, boolean.class },
+                                METHOD_PERFORM_HAPTIC_FEEDBACK.invoke(param.thisObject,
                                         null, HapticFeedbackConstants.LONG_PRESS, false);
                             }
                         }
@@ -535,18 +542,18 @@ public class ModHwKeys {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classPhoneWindowManager, "interceptKeyBeforeDispatching", 
+            HookProfiler.findAndHookMethod(classPhoneWindowManager, "interceptKeyBeforeDispatching", 
                     CLASS_WINDOW_STATE, KeyEvent.class, int.class, new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                    if ((Boolean) XposedHelpers.callMethod(mPhoneWindowManager, "keyguardOn")) return;
+                    if (METHOD_KEYGUARD_ON.invokeBoolean(mPhoneWindowManager)) return;
 
                     KeyEvent event = (KeyEvent) param.args[1];
                     int keyCode = event.getKeyCode();
                     boolean down = event.getAction() == KeyEvent.ACTION_DOWN;
                     boolean isFromSystem = (event.getFlags() & KeyEvent.FLAG_FROM_SYSTEM) != 0;
-                    Handler mHandler = (Handler) XposedHelpers.getObjectField(param.thisObject, "mHandler");
+                    Handler mHandler = (Handler) FIELD_HANDLER.get(param.thisObject);
                     if (DEBUG) log("interceptKeyBeforeDispatching: keyCode=" + keyCode +
                             "; isInjected=" + (((Integer)param.args[2] & 0x01000000) != 0) +
                             "; fromSystem=" + isFromSystem);
@@ -690,7 +697,7 @@ public class ModHwKeys {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classPhoneWindowManager, "handleLongPressOnHome", new XC_MethodReplacement() {
+            HookProfiler.findAndHookMethod(classPhoneWindowManager, "handleLongPressOnHome", new XC_MethodReplacement() {
 
                 @Override
                 protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
@@ -712,7 +719,7 @@ public class ModHwKeys {
 
             if (Utils.isLenovoROW()) {
                 //Lenovo has stupid hack for their ROW firmware - HOME is "hard" linked to run launchAssistAction method
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, "launchAssistAction", new XC_MethodReplacement() {
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, "launchAssistAction", new XC_MethodReplacement() {
 
                     @Override
                     protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
@@ -736,7 +743,7 @@ public class ModHwKeys {
             }
 
             if (Build.VERSION.SDK_INT > 16) {
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, 
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, 
                         "isWakeKeyWhenScreenOff", int.class, new XC_MethodHook() {
     
                     @Override
@@ -752,7 +759,7 @@ public class ModHwKeys {
             }
 
             if (Build.VERSION.SDK_INT > 17) {
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager, 
+                HookProfiler.findAndHookMethod(classPhoneWindowManager, 
                         "readConfigurationDependentBehaviors", new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -766,7 +773,7 @@ public class ModHwKeys {
                     }
                 });
 
-                XposedHelpers.findAndHookMethod(classPhoneWindowManager,
+                HookProfiler.findAndHookMethod(classPhoneWindowManager,
                         "handleDoubleTapOnHome", new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -1088,7 +1095,7 @@ public class ModHwKeys {
     }
 
     private static void killForegroundApp() {
-        Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+        Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
         if (handler == null) return;
 
         handler.post(
@@ -1135,12 +1142,8 @@ public class ModHwKeys {
                         }
         
                         if (targetKilled != null) {
-                            Class<?>[] paramArgs = new Class<?>[3];
-                            paramArgs[0] = XposedHelpers.findClass(CLASS_WINDOW_STATE, null);
-                            paramArgs[1] = int.class;
-                            paramArgs[2] = boolean.class;
-                            XposedHelpers.callMethod(mPhoneWindowManager, "performHapticFeedbackLw",
-                                    paramArgs, null, HapticFeedbackConstants.FLAG_IGNORE_GLOBAL_SETTING, true);
+                            METHOD_PERFORM_HAPTIC_FEEDBACK.invoke(mPhoneWindowManager,
+                                    null, HapticFeedbackConstants.FLAG_IGNORE_GLOBAL_SETTING, true);
                             Toast.makeText(mContext, 
                                     String.format(mStrAppKilled, targetKilled), Toast.LENGTH_SHORT).show();
                         } else {
@@ -1155,7 +1158,7 @@ public class ModHwKeys {
     }
 
     private static void switchToLastApp() {
-        Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+        Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
         if (handler == null) return;
 
         handler.post(
@@ -1219,7 +1222,7 @@ public class ModHwKeys {
     }
 
     private static void launchCustomApp(final int action) {
-        Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+        Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
         if (handler == null) return;
         mPrefs.reload();
 
@@ -1258,7 +1261,7 @@ public class ModHwKeys {
     }
 
     private static void injectKey(final int keyCode) {
-        Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+        Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
         if (handler == null) return;
 
         handler.post(new Runnable() {
@@ -1282,7 +1285,7 @@ public class ModHwKeys {
     }
 
     private static void toggleExpandedDesktop() {
-        Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+        Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
         if (handler == null) return;
 
         handler.post(new Runnable() {
@@ -1319,7 +1322,7 @@ public class ModHwKeys {
     }
 
     private static void showAppLauncher() {
-        Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+        Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
         if (handler == null || mAppLauncher == null) return;
 
         handler.post(new Runnable() {
@@ -1332,7 +1335,7 @@ public class ModHwKeys {
 
     private static void toggleAutoRotation() {
         try {
-            Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+            Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
             handler.post(new Runnable() {
                 @Override
                 public void run() {
@@ -1356,7 +1359,7 @@ public class ModHwKeys {
     private static final Object mScreenshotLock = new Object();
     private static ServiceConnection mScreenshotConnection = null;  
     private static void takeScreenshot() {
-        final Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+        final Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
         if (handler == null) return;
 
         synchronized (mScreenshotLock) {  
@@ -1428,7 +1431,7 @@ public class ModHwKeys {
 
     private static void showGlobalActionsDialog() {
         try {
-            Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+            Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
             handler.post(new Runnable() {
                 @Override
                 public void run() {
@@ -1462,7 +1465,7 @@ public class ModHwKeys {
 
     private static void showVolumePanel() {
         try {
-            Handler handler = (Handler) XposedHelpers.getObjectField(mPhoneWindowManager, "mHandler");
+            Handler handler = (Handler) FIELD_HANDLER.get(mPhoneWindowManager);
             handler.post(new Runnable() {
                 @Override
                 public void run() {
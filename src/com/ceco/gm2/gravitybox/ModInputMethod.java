@@ -41,7 +41,7 @@ public class ModInputMethod {
         try {
             final Class<?> imeClass = XposedHelpers.findClass(CLASS_IME_SERVICE, null);
 
-            XposedHelpers.findAndHookMethod(imeClass, "onShowInputRequested", int.class, boolean.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(imeClass, "onShowInputRequested", int.class, boolean.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     prefs.reload();
@@ -56,7 +56,7 @@ public class ModInputMethod {
                 } 
             });
 
-            XposedHelpers.findAndHookMethod(imeClass, "onKeyDown", int.class, KeyEvent.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(imeClass, "onKeyDown", int.class, KeyEvent.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     InputMethodService imeService = (InputMethodService) param.thisObject; 
@@ -94,7 +94,7 @@ public class ModInputMethod {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(imeClass, "onKeyUp", int.class, KeyEvent.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(imeClass, "onKeyUp", int.class, KeyEvent.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     InputMethodService imeService = (InputMethodService) param.thisObject; 
@@ -116,7 +116,7 @@ public class ModInputMethod {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(imeClass, "onEvaluateFullscreenMode", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(imeClass, "onEvaluateFullscreenMode", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     if (mFullscreenImeDisabled) {
@@ -62,7 +62,7 @@ public class ModLauncher {
             final Class<?> classLauncher = XposedHelpers.findClass(CLASS_LAUNCHER, classLoader);
             final Class<?> classAppWidgetHostView = XposedHelpers.findClass(CLASS_APP_WIDGET_HOST_VIEW, classLoader);
 
-            XposedBridge.hookAllConstructors(classDynamicGrid, new XC_MethodHook() { 
+            HookProfiler.hookAllConstructors(classDynamicGrid, new XC_MethodHook() { 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     prefs.reload();
@@ -84,7 +84,7 @@ public class ModLauncher {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classLauncher, "onCreate", Bundle.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classLauncher, "onCreate", Bundle.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     IntentFilter intentFilter = new IntentFilter(ACTION_SHOW_APP_DRAWER);
@@ -93,7 +93,7 @@ public class ModLauncher {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classLauncher, "onDestroy", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classLauncher, "onDestroy", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     if (mReceiverRegistered) {
@@ -103,7 +103,7 @@ public class ModLauncher {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classLauncher, "onNewIntent", Intent.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classLauncher, "onNewIntent", Intent.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     Intent i = (Intent) param.args[0];
@@ -111,7 +111,7 @@ public class ModLauncher {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classLauncher, "onResume", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classLauncher, "onResume", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     if (mShouldShowAppDrawer) {
@@ -122,7 +122,7 @@ public class ModLauncher {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classAppWidgetHostView, "getAppWidgetInfo", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classAppWidgetHostView, "getAppWidgetInfo", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     if (prefs.getBoolean(
@@ -113,7 +113,7 @@ public class ModLockscreen {
             "ch.bitspin.timely"
     ));
 
-    private static XSharedPreferences mPrefs;
+    private static MappedPreferences mPrefs;
     private static Class<?>[] mLaunchActivityArgs = new Class<?>[] 
             { Intent.class, boolean.class, boolean.class, Handler.class, Runnable.class };
     private static Object mKeyguardHostView;
@@ -145,7 +145,7 @@ public class ModLockscreen {
 
     public static void initZygote(final XSharedPreferences prefs) {
         try {
-            mPrefs = prefs;
+            mPrefs = MappedPreferences.getInstance(prefs);
             mFirstRun = true;
 
             final Class<?> kgViewManagerClass = XposedHelpers.findClass(CLASS_KGVIEW_MANAGER, null);
@@ -162,11 +162,11 @@ public class ModLockscreen {
             final Class<? extends Enum> kgSecurityModeEnum = 
                     (Class<? extends Enum>) XposedHelpers.findClass(ENUM_SECURITY_MODE, null);
 
-            boolean enableMenuKey = prefs.getBoolean(
+            boolean enableMenuKey = mPrefs.getBoolean(
                     GravityBoxSettings.PREF_KEY_LOCKSCREEN_MENU_KEY, false);
             XResources.setSystemWideReplacement("android", "bool", "config_disableMenuKeyInLockScreen", !enableMenuKey);
 
-            XposedHelpers.findAndHookMethod(kgViewManagerClass, "maybeCreateKeyguardLocked", 
+            HookProfiler.findAndHookMethod(kgViewManagerClass, "maybeCreateKeyguardLocked", 
                     boolean.class, boolean.class, Bundle.class, new XC_MethodHook() {
 
                 @Override
@@ -186,7 +186,7 @@ public class ModLockscreen {
                         mGbContext = context.createPackageContext(GravityBox.PACKAGE_NAME, 0);
                     }
 
-                    final String bgType = prefs.getString(
+                    final String bgType = mPrefs.getString(
                             GravityBoxSettings.PREF_KEY_LOCKSCREEN_BACKGROUND,
                             GravityBoxSettings.LOCKSCREEN_BG_DEFAULT);
 
@@ -256,7 +256,7 @@ public class ModLockscreen {
                             flayout.addView(mLockScreenWallpaperImage, -1, -1);
                             if (DEBUG) log("maybeCreateKeyguardLocked: custom background set");
                         }
-                        final float opacity = prefs.getInt(
+                        final float opacity = mPrefs.getInt(
                                 GravityBoxSettings.PREF_KEY_LOCKSCREEN_BACKGROUND_OPACITY, 50) / 100f;
                         flayout.setAlpha(opacity);
                         keyguardView.addView(flayout,0);
@@ -270,17 +270,17 @@ public class ModLockscreen {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(kgViewManagerClass, 
+            HookProfiler.findAndHookMethod(kgViewManagerClass, 
                     "shouldEnableScreenRotation", new XC_MethodReplacement() {
 
                         @Override
                         protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
-                            prefs.reload();
-                            return prefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_ROTATION, false);
+                            mPrefs.reload();
+                            return mPrefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_ROTATION, false);
                         }
             });
 
-            XposedHelpers.findAndHookMethod(kgHostViewClass, "onFinishInflate", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(kgHostViewClass, "onFinishInflate", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     mKeyguardHostView = param.thisObject; 
@@ -310,7 +310,7 @@ public class ModLockscreen {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(kgHostViewClass, "onScreenTurnedOn", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(kgHostViewClass, "onScreenTurnedOn", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     Object slidingChallenge = XposedHelpers.getObjectField(
@@ -319,23 +319,23 @@ public class ModLockscreen {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(kgSelectorViewClass, "onFinishInflate", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(kgSelectorViewClass, "onFinishInflate", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     if (DEBUG) log("KeyGuardSelectorView onFinishInflate()");
-                    prefs.reload();
+                    mPrefs.reload();
 
                     final Context context = (Context) XposedHelpers.getObjectField(param.thisObject, "mContext");
                     final Resources res = context.getResources();
                     mGlowPadView = (View) XposedHelpers.getObjectField(param.thisObject, "mGlowPadView");
                     mGlowPadViewClass = mGlowPadView.getClass();
-                    XposedHelpers.findAndHookMethod(mGlowPadViewClass, "showTargets",
+                    HookProfiler.findAndHookMethod(mGlowPadViewClass, "showTargets",
                             boolean.class, glowPadViewShowTargetsHook);
-                    XposedHelpers.findAndHookMethod(mGlowPadViewClass, "hideTargets",
+                    HookProfiler.findAndHookMethod(mGlowPadViewClass, "hideTargets",
                             boolean.class, boolean.class, glowPadViewHideTargetsHook);
-                    XposedHelpers.findAndHookMethod(mGlowPadViewClass, "switchToState", 
+                    HookProfiler.findAndHookMethod(mGlowPadViewClass, "switchToState", 
                             int.class, float.class, float.class, glowPadViewSwitchToStateHook);
-                    XposedHelpers.findAndHookMethod(mGlowPadViewClass, "onTouchEvent",
+                    HookProfiler.findAndHookMethod(mGlowPadViewClass, "onTouchEvent",
                             MotionEvent.class, glowPadViewOnTouchEventHook);
                     mHandler = new Handler();
 
@@ -355,10 +355,10 @@ public class ModLockscreen {
                     try {
                         final FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) mGlowPadView.getLayoutParams();
                         final int bottomMarginOffsetPx = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 
-                                prefs.getInt(GravityBoxSettings.PREF_KEY_LOCKSCREEN_TARGETS_VERTICAL_OFFSET, 0),
+                                mPrefs.getInt(GravityBoxSettings.PREF_KEY_LOCKSCREEN_TARGETS_VERTICAL_OFFSET, 0),
                                 res.getDisplayMetrics());
                         final int rightMarginOffsetPx = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 
-                                prefs.getInt(GravityBoxSettings.PREF_KEY_LOCKSCREEN_TARGETS_HORIZONTAL_OFFSET, 0),
+                                mPrefs.getInt(GravityBoxSettings.PREF_KEY_LOCKSCREEN_TARGETS_HORIZONTAL_OFFSET, 0),
                                 res.getDisplayMetrics());
                         lp.setMargins(lp.leftMargin, lp.topMargin, lp.rightMargin - rightMarginOffsetPx, 
                                 lp.bottomMargin - bottomMarginOffsetPx);
@@ -367,9 +367,9 @@ public class ModLockscreen {
                         log("Lockscreen targets: error while trying to modify GlowPadView layout" + t.getMessage());
                     }
 
-                    mTorchEnabled = prefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_RING_TORCH, false);
+                    mTorchEnabled = mPrefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_RING_TORCH, false);
 
-                    mArcEnabled = prefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_BATTERY_ARC, false);
+                    mArcEnabled = mPrefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_BATTERY_ARC, false);
                     // prepare Battery Arc
                     if (mArcEnabled) {
                         mArcVisible = true;
@@ -385,7 +385,7 @@ public class ModLockscreen {
                                     mHandleDrawable.getPositionX() + mHandleDrawable.getWidth()/2, 
                                     mHandleDrawable.getPositionY() + mHandleDrawable.getHeight()/2);
 
-                            XposedHelpers.findAndHookMethod(
+                            HookProfiler.findAndHookMethod(
                                     mGlowPadViewClass, "onDraw", Canvas.class, glowPadViewOnDrawHook);
                             if (DEBUG_ARC) log("Battery Arc initialized");
                         }
@@ -393,7 +393,7 @@ public class ModLockscreen {
                     }
 
                     // finish if lockscreen targets disabled
-                    if (!prefs.getBoolean(
+                    if (!mPrefs.getBoolean(
                             GravityBoxSettings.PREF_KEY_LOCKSCREEN_TARGETS_ENABLE, false)) return;
 
                     @SuppressWarnings("unchecked")
@@ -410,7 +410,7 @@ public class ModLockscreen {
 
                     // fill appInfoList helper with apps from preferences
                     for (int i=0; i<=4; i++) {
-                        String app = prefs.getString(
+                        String app = mPrefs.getString(
                                 GravityBoxSettings.PREF_KEY_LOCKSCREEN_TARGETS_APP[i], null);
                         if (app != null) {
                             AppInfo appInfo = GlowPadHelper.getAppInfo(context, app);
@@ -490,13 +490,13 @@ public class ModLockscreen {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(triggerListenerClass, "onTrigger", 
+            HookProfiler.findAndHookMethod(triggerListenerClass, "onTrigger", 
                     View.class, int.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     if (DEBUG) log("GlowPadView.OnTriggerListener; index=" + ((Integer) param.args[1]));
-                    prefs.reload();
-                    if (!prefs.getBoolean(
+                    mPrefs.reload();
+                    if (!mPrefs.getBoolean(
                             GravityBoxSettings.PREF_KEY_LOCKSCREEN_TARGETS_ENABLE, false)) return;
 
                     final int index = (Integer) param.args[1];
@@ -524,7 +524,7 @@ public class ModLockscreen {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(kgAbsKeyInputViewClass, "onFinishInflate", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(kgAbsKeyInputViewClass, "onFinishInflate", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     final TextView passwordEntry = 
@@ -563,12 +563,12 @@ public class ModLockscreen {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(kgViewMediatorClass, "adjustStatusBarLocked", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(kgViewMediatorClass, "adjustStatusBarLocked", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     int policy = GravityBoxSettings.SBL_POLICY_DEFAULT;
                     try {
-                        policy = Integer.valueOf(prefs.getString(
+                        policy = Integer.valueOf(mPrefs.getString(
                             GravityBoxSettings.PREF_KEY_STATUSBAR_LOCK_POLICY, "0"));
                     } catch (NumberFormatException nfe) {
                         //
@@ -607,17 +607,17 @@ public class ModLockscreen {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(kgHostViewClass, "numWidgets", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(kgHostViewClass, "numWidgets", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
-                    if (prefs.getBoolean(
+                    if (mPrefs.getBoolean(
                             GravityBoxSettings.PREF_KEY_LOCKSCREEN_WIDGET_LIMIT_DISABLE, false)) {
                         param.setResult(0);
                     }
                 }
             });
 
-            XposedHelpers.findAndHookMethod(kgUpdateMonitorClass, "handleBatteryUpdate",
+            HookProfiler.findAndHookMethod(kgUpdateMonitorClass, "handleBatteryUpdate",
                     CLASS_KG_UPDATE_MONITOR_BATTERY_STATUS, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -628,7 +628,7 @@ public class ModLockscreen {
             });
 
             try {
-                XposedHelpers.findAndHookMethod(kgViewBaseClass, "resetBackground", new XC_MethodHook() {
+                HookProfiler.findAndHookMethod(kgViewBaseClass, "resetBackground", new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                         if (mPrefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_SHADE_DISABLE, false)) {
@@ -641,7 +641,7 @@ public class ModLockscreen {
                 log("resetBackground: No such method");
             }
 
-            XposedHelpers.findAndHookMethod(kgWidgetPagerClass, "onPageSwitched",
+            HookProfiler.findAndHookMethod(kgWidgetPagerClass, "onPageSwitched",
                     View.class, int.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -668,14 +668,14 @@ public class ModLockscreen {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(kgActivityLauncherClass, "launchActivity",
+            HookProfiler.findAndHookMethod(kgActivityLauncherClass, "launchActivity",
                     Intent.class, boolean.class, boolean.class, Handler.class, Runnable.class, new XC_MethodHook() {
                 @SuppressLint("InlinedApi")
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     Intent intent = (Intent) param.args[0];
                     if ("android.appwidget.action.KEYGUARD_APPWIDGET_PICK".equals(intent.getAction()) &&
-                            prefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_ALLOW_ANY_WIDGET, false)) {
+                            mPrefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_ALLOW_ANY_WIDGET, false)) {
                         intent.removeExtra("categoryFilter");
                         intent.putExtra("categoryFilter", AppWidgetProviderInfo.WIDGET_CATEGORY_HOME_SCREEN);
                         Bundle options = new Bundle();
@@ -689,14 +689,14 @@ public class ModLockscreen {
 
             if (Utils.isMtkDevice()) {
                 if (Utils.hasGeminiSupport()) {
-                    XposedHelpers.findAndHookMethod(carrierTextClass, "showOrHideCarrier", new XC_MethodHook() {
+                    HookProfiler.findAndHookMethod(carrierTextClass, "showOrHideCarrier", new XC_MethodHook() {
                         @Override
                         protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                             TextView carrierDivider = (TextView) XposedHelpers.getObjectField(
                                     param.thisObject, "mCarrierDivider");
                             mCarrierText = new String[] {
-                                    prefs.getString(GravityBoxSettings.PREF_KEY_LOCKSCREEN_CARRIER_TEXT, ""),
-                                    prefs.getString(GravityBoxSettings.PREF_KEY_LOCKSCREEN_CARRIER2_TEXT, "")};
+                                    mPrefs.getString(GravityBoxSettings.PREF_KEY_LOCKSCREEN_CARRIER_TEXT, ""),
+                                    mPrefs.getString(GravityBoxSettings.PREF_KEY_LOCKSCREEN_CARRIER2_TEXT, "")};
 
                             if (carrierDivider != null) {
                                 if ((!mCarrierText[0].isEmpty() && mCarrierText[0].trim().isEmpty()) ||
@@ -706,7 +706,7 @@ public class ModLockscreen {
                         }
                     });
 
-                    XposedHelpers.findAndHookMethod(carrierTextClass, "updateCarrierTextGemini",
+                    HookProfiler.findAndHookMethod(carrierTextClass, "updateCarrierTextGemini",
                             "com.android.internal.telephony.IccCardConstants$State", CharSequence.class, CharSequence.class,
                             int.class, new XC_MethodHook() {
                         @Override
@@ -753,13 +753,13 @@ public class ModLockscreen {
                         }
                     });
                 } else {
-                    XposedHelpers.findAndHookMethod(carrierTextClass, "updateCarrierText",
+                    HookProfiler.findAndHookMethod(carrierTextClass, "updateCarrierText",
                             "com.android.internal.telephony.IccCardConstants$State", CharSequence.class, CharSequence.class,
                             new XC_MethodHook() {
                         @Override
                         protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                             TextView carrierTextView = (TextView) XposedHelpers.getObjectField(param.thisObject, "mCarrierView");
-                            String carrierText = prefs.getString(GravityBoxSettings.PREF_KEY_LOCKSCREEN_CARRIER_TEXT, null);
+                            String carrierText = mPrefs.getString(GravityBoxSettings.PREF_KEY_LOCKSCREEN_CARRIER_TEXT, null);
                             if (carrierText != null && !carrierText.isEmpty()) {
                                 carrierTextView.setText(carrierText.trim());
                             }
@@ -767,10 +767,10 @@ public class ModLockscreen {
                     });
                 }
             } else {
-                XposedBridge.hookAllMethods(carrierTextClass, "getCarrierTextForSimState", new XC_MethodHook() {
+                HookProfiler.hookAllMethods(carrierTextClass, "getCarrierTextForSimState", new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
-                        String carrierText = prefs.getString(GravityBoxSettings.PREF_KEY_LOCKSCREEN_CARRIER_TEXT, null);
+                        String carrierText = mPrefs.getString(GravityBoxSettings.PREF_KEY_LOCKSCREEN_CARRIER_TEXT, null);
                         if (carrierText != null && !carrierText.isEmpty()) {
                             param.setResult(carrierText.trim());
                         }
@@ -778,12 +778,12 @@ public class ModLockscreen {
                 });
             }
 
-            XposedHelpers.findAndHookMethod(kgHostViewClass, "showPrimarySecurityScreen",
+            HookProfiler.findAndHookMethod(kgHostViewClass, "showPrimarySecurityScreen",
                     boolean.class, new XC_MethodHook() {
                 @SuppressWarnings("unchecked")
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
-                    if (!prefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_SLIDE_BEFORE_UNLOCK, false)) return;
+                    if (!mPrefs.getBoolean(GravityBoxSettings.PREF_KEY_LOCKSCREEN_SLIDE_BEFORE_UNLOCK, false)) return;
 
                     final Object currentSecuritySelection = 
                             XposedHelpers.getObjectField(param.thisObject, "mCurrentSecuritySelection");
@@ -15,7 +15,6 @@
 
 package com.ceco.gm2.gravitybox;
 
-import static de.robv.android.xposed.XposedHelpers.findAndHookMethod;
 import static de.robv.android.xposed.XposedHelpers.findClass;
 
 import com.ceco.gm2.gravitybox.Utils.MethodState;
@@ -47,7 +46,7 @@ public class ModLowBatteryWarning {
             mUpdateLightsMethodState = new ThreadLocal<MethodState>();
             mUpdateLightsMethodState.set(MethodState.UNKNOWN);
 
-            XposedHelpers.findAndHookMethod(batteryServiceClass, "updateLightsLocked", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(batteryServiceClass, "updateLightsLocked", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     mUpdateLightsMethodState.set(MethodState.METHOD_ENTERED);
@@ -67,7 +66,7 @@ public class ModLowBatteryWarning {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(lightServiceClass, "setFlashing", 
+            HookProfiler.findAndHookMethod(lightServiceClass, "setFlashing", 
                     int.class, int.class, int.class, int.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -85,7 +84,7 @@ public class ModLowBatteryWarning {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(lightServiceClass, "setColor", int.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(lightServiceClass, "setColor", int.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     if (mUpdateLightsMethodState.get() != null &&
@@ -114,7 +113,7 @@ public class ModLowBatteryWarning {
 
             // for debugging purposes - simulate low battery even if it's not
             if (DEBUG) {
-                findAndHookMethod(classPowerUI, "findBatteryLevelBucket", int.class, new XC_MethodHook() {
+                HookProfiler.findAndHookMethod(classPowerUI, "findBatteryLevelBucket", int.class, new XC_MethodHook() {
 
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -124,7 +123,7 @@ public class ModLowBatteryWarning {
                 });
             }
 
-            findAndHookMethod(classPowerUI, "playLowBatterySound", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classPowerUI, "playLowBatterySound", new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -141,7 +140,7 @@ public class ModLowBatteryWarning {
 
             });
 
-            findAndHookMethod(classPowerUI, "showLowBatteryWarning", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classPowerUI, "showLowBatteryWarning", new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -46,23 +46,23 @@ public class ModMms {
             final Class<?> workingMessageClass = 
                     XposedHelpers.findClass(CLASS_WORKING_MESSAGE, classLoader);
 
-            XposedHelpers.findAndHookMethod(composeMsgActivityClass, 
+            HookProfiler.findAndHookMethod(composeMsgActivityClass, 
                     "onCreate", Bundle.class, activityOnCreateHook);
 
             if (Utils.isMtkDevice()) {
-                XposedHelpers.findAndHookMethod(workingMessageClass, "send",
+                HookProfiler.findAndHookMethod(workingMessageClass, "send",
                         String.class, int.class, workingMessageSendHook);
                 try {
                     if (DEBUG) log ("Trying to hook on Dialog Mode activity (quickmessage)");
                     final Class<?> dialogModeActivityClass = XposedHelpers.findClass(
                             CLASS_DIALOG_MODE_ACTIVITY, classLoader);
-                    XposedHelpers.findAndHookMethod(dialogModeActivityClass, "onCreate",
+                    HookProfiler.findAndHookMethod(dialogModeActivityClass, "onCreate",
                             Bundle.class, activityOnCreateHook);
                 } catch (Throwable t) {
                     XposedBridge.log("Error hooking to quick message dialog. Ignoring.");
                 }
             } else {
-                XposedHelpers.findAndHookMethod(workingMessageClass, "send",
+                HookProfiler.findAndHookMethod(workingMessageClass, "send",
                         String.class, workingMessageSendHook);
             }
 
@@ -82,7 +82,7 @@ public class ModMms {
                 final TextWatcher textEditorWatcher = (TextWatcher) XposedHelpers.getObjectField(
                         param.thisObject, "mTextEditorWatcher");
                 if (textEditorWatcher != null) {
-                    XposedHelpers.findAndHookMethod(textEditorWatcher.getClass(), "onTextChanged", 
+                    HookProfiler.findAndHookMethod(textEditorWatcher.getClass(), "onTextChanged", 
                             CharSequence.class, int.class, int.class, int.class, new XC_MethodHook() {
                         @Override
                         protected void beforeHookedMethod(MethodHookParam param2) throws Throwable {
@@ -55,7 +55,7 @@ public class ModMtkToolbar {
             final Class<?> wifiStateTrackerClass = 
                     XposedHelpers.findClass(CLASS_WIFI_STATE_TRACKER, classLoader);
 
-            XposedHelpers.findAndHookMethod(mobileStateTrackerClass, "dataSwitchConfirmDlgMsg", 
+            HookProfiler.findAndHookMethod(mobileStateTrackerClass, "dataSwitchConfirmDlgMsg", 
                     long.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -80,7 +80,7 @@ public class ModMtkToolbar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(wifiStateTrackerClass, "isClickable",
+            HookProfiler.findAndHookMethod(wifiStateTrackerClass, "isClickable",
                     XC_MethodReplacement.returnConstant(true));
 
         } catch (Throwable t) {
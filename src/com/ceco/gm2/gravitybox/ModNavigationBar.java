@@ -214,7 +214,7 @@ public class ModNavigationBar {
             if (prefs.getBoolean(GravityBoxSettings.PREF_KEY_NAVBAR_ALWAYS_ON_BOTTOM, false)) {
                 final Class<?> phoneWindowManagerClass = XposedHelpers.findClass(CLASS_PHONE_WINDOW_MANAGER, null);
 
-                XposedHelpers.findAndHookMethod(phoneWindowManagerClass, "setInitialDisplaySize",
+                HookProfiler.findAndHookMethod(phoneWindowManagerClass, "setInitialDisplaySize",
                         Display.class, int.class, int.class, int.class, new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -222,7 +222,7 @@ public class ModNavigationBar {
                     }
                 });
 
-                XposedHelpers.findAndHookMethod(Resources.class, "loadXmlResourceParser",
+                HookProfiler.findAndHookMethod(Resources.class, "loadXmlResourceParser",
                         String.class, int.class, int.class, String.class, new XC_MethodReplacement() {
                     @Override
                     protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
@@ -279,7 +279,7 @@ public class ModNavigationBar {
             mCustomKeySwapEnabled = prefs.getBoolean(
                     GravityBoxSettings.PREF_KEY_NAVBAR_CUSTOM_KEY_SWAP, false);
 
-            XposedBridge.hookAllConstructors(navbarViewClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(navbarViewClass, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     Context context = (Context) param.args[0];
@@ -316,7 +316,7 @@ public class ModNavigationBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(navbarViewClass, "setMenuVisibility",
+            HookProfiler.findAndHookMethod(navbarViewClass, "setMenuVisibility",
                     boolean.class, boolean.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -324,7 +324,7 @@ public class ModNavigationBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(navbarViewClass, "onFinishInflate", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(navbarViewClass, "onFinishInflate", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     final Context context = ((View) param.thisObject).getContext();
@@ -434,7 +434,7 @@ public class ModNavigationBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusbarClass, 
+            HookProfiler.findAndHookMethod(phoneStatusbarClass, 
                     "shouldDisableNavbarGestures", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -445,7 +445,7 @@ public class ModNavigationBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(navbarViewClass, "setDisabledFlags",
+            HookProfiler.findAndHookMethod(navbarViewClass, "setDisabledFlags",
                     int.class, boolean.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -454,7 +454,7 @@ public class ModNavigationBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(navbarViewClass, "setNavigationIconHints",
+            HookProfiler.findAndHookMethod(navbarViewClass, "setNavigationIconHints",
                     int.class, boolean.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -479,7 +479,7 @@ public class ModNavigationBar {
                 mRingHapticFeedback = RingHapticFeedback.valueOf(
                         prefs.getString(GravityBoxSettings.PREF_KEY_NAVBAR_RING_HAPTIC_FEEDBACK, "DEFAULT"));
 
-                XposedHelpers.findAndHookMethod(searchPanelViewClass, "onFinishInflate", new XC_MethodHook() {
+                HookProfiler.findAndHookMethod(searchPanelViewClass, "onFinishInflate", new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                         prefs.reload();
@@ -490,7 +490,7 @@ public class ModNavigationBar {
                     }
                 });
 
-                XposedHelpers.findAndHookMethod(glowPasViewClass, "showTargets", boolean.class, new XC_MethodHook() {
+                HookProfiler.findAndHookMethod(glowPasViewClass, "showTargets", boolean.class, new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                         if (param.thisObject == mGlowPadView) {
@@ -501,7 +501,7 @@ public class ModNavigationBar {
                     }
                 });
 
-                XposedHelpers.findAndHookMethod(navbarViewClass, "reorient", new XC_MethodHook() {
+                HookProfiler.findAndHookMethod(navbarViewClass, "reorient", new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                         if (DEBUG) log("Navigation bar view reorient");
@@ -514,7 +514,7 @@ public class ModNavigationBar {
                     }
                 });
 
-                XposedHelpers.findAndHookMethod(glowPadTriggerListenerClass, "onTrigger",
+                HookProfiler.findAndHookMethod(glowPadTriggerListenerClass, "onTrigger",
                         View.class, int.class, new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -133,13 +133,14 @@ public class ModPhone {
             if (Utils.hasGeminiSupport()) {
                 final Class<?> classServiceStateExt = XposedHelpers.findClass(CLASS_SERVICE_STATE_EXT, null);
 
-                XposedHelpers.findAndHookMethod(classServiceStateExt, "ignoreDomesticRoaming", 
+                HookProfiler.findAndHookMethod(classServiceStateExt, "ignoreDomesticRoaming", 
                         new XC_MethodReplacement() {
 
                     @Override
                     protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
-                        prefs.reload();
-                        boolean mvno = prefs.getBoolean(GravityBoxSettings.PREF_KEY_NATIONAL_ROAMING, false);
+                        final MappedPreferences mappedPrefs = MappedPreferences.getInstance(prefs);
+                        mappedPrefs.reload();
+                        boolean mvno = mappedPrefs.getBoolean(GravityBoxSettings.PREF_KEY_NATIONAL_ROAMING, false);
                         if (DEBUG) log("ignoreDomesticRoaming: " + mvno);
                         return mvno;
                     }
@@ -148,13 +149,14 @@ public class ModPhone {
                 final Class<?> classGsmServiceStateTracker = XposedHelpers.findClass(
                         CLASS_GSM_SERVICE_STATE_TRACKER, null);
 
-                XposedHelpers.findAndHookMethod(classGsmServiceStateTracker, "isRoamingBetweenOperators", 
+                HookProfiler.findAndHookMethod(classGsmServiceStateTracker, "isRoamingBetweenOperators", 
                         boolean.class, "android.telephony.ServiceState", new XC_MethodHook() {
 
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
-                        prefs.reload();
-                        boolean mvno = prefs.getBoolean(GravityBoxSettings.PREF_KEY_NATIONAL_ROAMING, false);
+                        final MappedPreferences mappedPrefs = MappedPreferences.getInstance(prefs);
+                        mappedPrefs.reload();
+                        boolean mvno = mappedPrefs.getBoolean(GravityBoxSettings.PREF_KEY_NATIONAL_ROAMING, false);
                         final Class<?> classSystemProperties = 
                                 XposedHelpers.findClass("android.os.SystemProperties", null);
                         String simNumeric = (String) XposedHelpers.callStaticMethod(
@@ -190,7 +192,7 @@ public class ModPhone {
             final Class<? extends Enum> enumCallState = (Class<? extends Enum>) Class.forName(ENUM_CALL_STATE);
             mPhoneUtilsClass = XposedHelpers.findClass(CLASS_PHONE_UTILS, classLoader);
 
-            XposedHelpers.findAndHookMethod(classInCallScreen, "onCreate", Bundle.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classInCallScreen, "onCreate", Bundle.class, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -205,7 +207,7 @@ public class ModPhone {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classInCallScreen, 
+            HookProfiler.findAndHookMethod(classInCallScreen, 
                     "onPhoneStateChanged", CLASS_ASYNC_RESULT, new XC_MethodHook() {
 
                 @Override
@@ -224,7 +226,7 @@ public class ModPhone {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classInCallScreen, "internalSilenceRinger", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classInCallScreen, "internalSilenceRinger", new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -233,7 +235,7 @@ public class ModPhone {
                 }
             });
 
-            XposedBridge.hookAllConstructors(classCallNotifier, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(classCallNotifier, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     mCallNotifier = (Handler) param.thisObject;
@@ -247,7 +249,7 @@ public class ModPhone {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classCallNotifier, 
+            HookProfiler.findAndHookMethod(classCallNotifier, 
                     "onPhoneStateChanged", CLASS_ASYNC_RESULT, new XC_MethodHook() {
 
                 @Override
@@ -256,7 +258,7 @@ public class ModPhone {
                     if (mVibrator == null) return;
 
                     if (DEBUG ) log("CallNotifier: onPhoneStateChanged ENTERED");
-                    mVibrateHook = XposedHelpers.findAndHookMethod(
+                    mVibrateHook = HookProfiler.findAndHookMethod(
                             mVibrator.getClass(), "vibrate", long.class, new XC_MethodHook() {
                         @Override
                         protected void beforeHookedMethod(MethodHookParam param2) throws Throwable {
@@ -311,7 +313,7 @@ public class ModPhone {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classCallNotifier, "handleMessage",
+            HookProfiler.findAndHookMethod(classCallNotifier, "handleMessage",
                     Message.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -330,17 +332,17 @@ public class ModPhone {
             });
 
             if (Utils.hasGeminiSupport()) {
-                XposedHelpers.findAndHookMethod(classCallNotifier, "onDisconnect",
+                HookProfiler.findAndHookMethod(classCallNotifier, "onDisconnect",
                         CLASS_ASYNC_RESULT, int.class, onDisconnectHook);
             } else {
-                XposedHelpers.findAndHookMethod(classCallNotifier, "onDisconnect",
+                HookProfiler.findAndHookMethod(classCallNotifier, "onDisconnect",
                         CLASS_ASYNC_RESULT, onDisconnectHook);
             }
             if (Utils.hasGeminiSupport() && !(Utils.isMt6572Device() || Utils.isMt6582Device())) {
-                XposedHelpers.findAndHookMethod(classCallNotifier, "onNewRingingConnection",
+                HookProfiler.findAndHookMethod(classCallNotifier, "onNewRingingConnection",
                         CLASS_ASYNC_RESULT, int.class, onNewRingingConnectionHook);
             } else {
-                XposedHelpers.findAndHookMethod(classCallNotifier, "onNewRingingConnection",
+                HookProfiler.findAndHookMethod(classCallNotifier, "onNewRingingConnection",
                         CLASS_ASYNC_RESULT, onNewRingingConnectionHook);
             }
         } catch (Throwable t) {
@@ -283,7 +283,7 @@ public class ModPieControls {
                 log("Invalid value for PREF_KEY_EXPANDED_DESKTOP preference");
             }
 
-            XposedHelpers.findAndHookMethod(baseStatusBarClass, "start", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(baseStatusBarClass, "start", new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -315,7 +315,7 @@ public class ModPieControls {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(systemUiClass, 
+            HookProfiler.findAndHookMethod(systemUiClass, 
                     "onConfigurationChanged", Configuration.class, new XC_MethodHook() {
 
                 @Override
@@ -324,7 +324,7 @@ public class ModPieControls {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, "disable", int.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, "disable", int.class, new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -342,7 +342,7 @@ public class ModPieControls {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, 
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, 
                     "setNavigationIconHints", int.class, new XC_MethodHook() {
 
                 @Override
@@ -353,7 +353,7 @@ public class ModPieControls {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass,
+            HookProfiler.findAndHookMethod(phoneStatusBarClass,
                     "topAppWindowChanged", boolean.class, new XC_MethodHook() {
 
                 @Override
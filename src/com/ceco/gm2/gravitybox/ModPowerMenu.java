@@ -94,7 +94,7 @@ public class ModPowerMenu {
             final Class<?> globalActionsClass = XposedHelpers.findClass(CLASS_GLOBAL_ACTIONS, classLoader);
             final Class<?> actionClass = XposedHelpers.findClass(CLASS_ACTION, classLoader);
 
-            XposedBridge.hookAllConstructors(globalActionsClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(globalActionsClass, new XC_MethodHook() {
                @Override
                protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                    mContext = (Context) param.args[0];
@@ -142,7 +142,7 @@ public class ModPowerMenu {
                }
             });
 
-            XposedHelpers.findAndHookMethod(globalActionsClass, "createDialog", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(globalActionsClass, "createDialog", new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
@@ -226,7 +226,7 @@ public class ModPowerMenu {
                     // Add/hook reboot action if enabled
                     if (prefs.getBoolean(GravityBoxSettings.PREF_KEY_POWEROFF_ADVANCED, false)) {
                         if (mRebootActionItemStockExists) {
-                            mRebootActionHook = XposedHelpers.findAndHookMethod(mRebootActionItem.getClass(), 
+                            mRebootActionHook = HookProfiler.findAndHookMethod(mRebootActionItem.getClass(), 
                                     "onPress", new XC_MethodReplacement () {
                                 @Override
                                 protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
@@ -268,12 +268,13 @@ public class ModPowerMenu {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(globalActionsClass, "showDialog", 
+            HookProfiler.findAndHookMethod(globalActionsClass, "showDialog", 
                     boolean.class, boolean.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
-                    prefs.reload();
-                    if ((Boolean) param.args[0] && prefs.getBoolean(
+                    final MappedPreferences mappedPrefs = MappedPreferences.getInstance(prefs);
+                    mappedPrefs.reload();
+                    if ((Boolean) param.args[0] && mappedPrefs.getBoolean(
                             GravityBoxSettings.PREF_KEY_POWERMENU_DISABLE_ON_LOCKSCREEN, false)) {
                         Dialog d = (Dialog) XposedHelpers.getObjectField(param.thisObject, "mDialog");
                         if (d == null) {
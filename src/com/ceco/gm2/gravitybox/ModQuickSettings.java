@@ -22,9 +22,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import com.ceco.gm2.gravitybox.Utils.MethodState;
 import com.ceco.gm2.gravitybox.quicksettings.AQuickSettingsTile;
@@ -41,6 +43,7 @@ import com.ceco.gm2.gravitybox.quicksettings.SleepTile;
 import com.ceco.gm2.gravitybox.quicksettings.SmartRadioTile;
 import com.ceco.gm2.gravitybox.quicksettings.StayAwakeTile;
 import com.ceco.gm2.gravitybox.quicksettings.TileOrderActivity;
+import com.ceco.gm2.gravitybox.quicksettings.TileUpdatePipeline;
 import com.ceco.gm2.gravitybox.quicksettings.TorchTile;
 import com.ceco.gm2.gravitybox.quicksettings.GravityBoxTile;
 import com.ceco.gm2.gravitybox.quicksettings.SyncTile;
@@ -53,16 +56,13 @@ import android.annotation.SuppressLint;
 
 import android.animation.Animator;
 import android.bluetooth.BluetoothAdapter;
-import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.PointF;
-import android.media.AudioManager;
 import android.net.ConnectivityManager;
 import android.os.Build;
 import android.os.IBinder;
@@ -135,10 +135,16 @@ public class ModQuickSettings {
     private static boolean mSwipeTriggered;
     private static PointF mQuickPulldownSize = new PointF(0.85f, 0.15f);
 
-    private static ArrayList<AQuickSettingsTile> mTiles;
+    private static Map<String, AQuickSettingsTile> mTiles;
+    private static Map<String, TileFactory> mTileFactories;
+    private static LayoutInflater mTileInflater;
     private static Map<String, View> mAllTileViews;
-
-    private static List<BroadcastSubReceiver> mBroadcastSubReceivers;
+    // tile key of each view seen so far (null for unknown tiles); views of recreated tiles get collected
+    private static Map<View, String> mTileKeyIndex;
+    // resolved resource ids of mCustomSystemTileKeys
+    private static int[] mCustomSystemTileIds;
+    // resource entry names of mCustomGbTileKeys
+    private static String[] mCustomGbTileNames;
 
     static {
         mCustomSystemTileKeys = new ArrayList<String>(Arrays.asList(
@@ -195,16 +201,17 @@ public class ModQuickSettings {
         mAospTileTags = Collections.unmodifiableMap(tmpMap);
 
         mAllTileViews = new HashMap<String, View>();
+        mTileKeyIndex = new WeakHashMap<View, String>();
     }
 
     private static void log(String message) {
         XposedBridge.log(TAG + ": " + message);
     }
 
-    private static BroadcastReceiver mBroadcastReceiver = new BroadcastReceiver() {
+    private static BroadcastSubReceiver mBroadcastReceiver = new BroadcastSubReceiver() {
 
         @Override
-        public void onReceive(Context context, Intent intent) {
+        public void onBroadcastReceived(Context context, Intent intent) {
             if (DEBUG) log("received broadcast: " + intent.toString());
             if (intent.getAction().equals(GravityBoxSettings.ACTION_PREF_QUICKSETTINGS_CHANGED)) {
                 if (intent.hasExtra(GravityBoxSettings.EXTRA_QS_PREFS)) {
@@ -241,76 +248,169 @@ public class ModQuickSettings {
                     if (DEBUG) log("mQuickPulldownSize=" + mQuickPulldownSize);
                 }
             }
-
-            if (mBroadcastSubReceivers != null) {
-                for (BroadcastSubReceiver bsr : mBroadcastSubReceivers) {
-                    bsr.onBroadcastReceived(context, intent);
-                }
-            }
         }
     };
 
     private static String getTileKey(View view) {
         if (view == null) return null;
 
-        Resources res = mContext.getResources();
-        for (String key : mCustomSystemTileKeys) {
-            int resId = res.getIdentifier(key, "id", PACKAGE_NAME);
-            if (view.findViewById(resId) != null || 
+        if (mTileKeyIndex.containsKey(view)) {
+            return mTileKeyIndex.get(view);
+        }
+        final String key = resolveTileKey(view);
+        mTileKeyIndex.put(view, key);
+        if (DEBUG) log("getTileKey: resolved key " + key + " for " + view);
+        return key;
+    }
+
+    private static void tagAospTileView(View view, String key) {
+        view.setTag(mAospTileTags.get(key));
+        mTileKeyIndex.put(view, key);
+    }
+
+    private static String resolveTileKey(View view) {
+        if (mCustomSystemTileIds == null) {
+            final Resources res = mContext.getResources();
+            final int[] ids = new int[mCustomSystemTileKeys.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = res.getIdentifier(mCustomSystemTileKeys.get(i), "id", PACKAGE_NAME);
+            }
+            mCustomSystemTileIds = ids;
+        }
+        for (int i = 0; i < mCustomSystemTileIds.length; i++) {
+            final String key = mCustomSystemTileKeys.get(i);
+            if ((mCustomSystemTileIds[i] != 0 && view.findViewById(mCustomSystemTileIds[i]) != null) ||
                     view.findViewWithTag(mAospTileTags.get(key)) != null) {
                 return key;
             }
         }
 
-        res = mGbContext.getResources();
-        for (Integer key : mCustomGbTileKeys) {
-            if (view.findViewById(key) != null) {
-                return res.getResourceEntryName(key);
+        if (mCustomGbTileNames == null) {
+            final Resources res = mGbContext.getResources();
+            final String[] names = new String[mCustomGbTileKeys.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = res.getResourceEntryName(mCustomGbTileKeys.get(i));
+            }
+            mCustomGbTileNames = names;
+        }
+        for (int i = 0; i < mCustomGbTileNames.length; i++) {
+            if (view.findViewById(mCustomGbTileKeys.get(i)) != null) {
+                return mCustomGbTileNames[i];
             }
         }
 
         return null;
     }
 
+    private interface TileFactory {
+        AQuickSettingsTile createTile();
+    }
+
+    /**
+     * @return true if any tile was created or destroyed
+     */
+    private static boolean updateActiveTiles() {
+        if (mTileFactories == null) return false;
+
+        boolean changed = false;
+
+        final BroadcastDispatcher dispatcher = BroadcastDispatcher.getInstance(mContext);
+
+        final Iterator<Map.Entry<String, AQuickSettingsTile>> it = mTiles.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, AQuickSettingsTile> e = it.next();
+            if (!mActiveTileKeys.contains(e.getKey())) {
+                destroyTile(e.getKey(), e.getValue());
+                it.remove();
+                changed = true;
+            }
+        }
+
+        boolean prefsReloaded = false;
+        for (String key : mActiveTileKeys) {
+            final TileFactory factory = mTileFactories.get(key);
+            if (factory == null || mTiles.containsKey(key)) continue;
+
+            try {
+                // preferences might have changed since the tile was last active
+                if (!prefsReloaded) {
+                    mPrefs.reload();
+                    prefsReloaded = true;
+                }
+                final AQuickSettingsTile tile = factory.createTile();
+                tile.setupQuickSettingsTile(mContainerView, mTileInflater, mPrefs, mQuickSettings);
+                final List<String> actions = tile.getBroadcastActions();
+                dispatcher.register(tile, actions.toArray(new String[actions.size()]));
+                mTiles.put(key, tile);
+                mAllTileViews.put(key, tile.getTileView());
+                mTileKeyIndex.put(tile.getTileView(), key);
+                changed = true;
+                if (DEBUG) log("Tile created: " + key);
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+            }
+        }
+        return changed;
+    }
+
+    private static void destroyTile(String key, AQuickSettingsTile tile) {
+        BroadcastDispatcher.getInstance(mContext).unregister(tile);
+        if (mAllTileViews.get(key) == tile.getTileView()) {
+            mAllTileViews.remove(key);
+        }
+        try {
+            tile.destroy();
+        } catch (Throwable t) {
+            XposedBridge.log(t);
+        }
+        if (DEBUG) log("Tile destroyed: " + key);
+    }
+
     private static void updateTileOrderAndVisibility() {
         if (mActiveTileKeys == null) {
             if (DEBUG) log("updateTileOrderAndVisibility: mActiveTileKeys is null - skipping");
             return;
         }
 
+        // tiles are added to and removed from container outside of reconcile
+        final boolean tilesChanged = updateActiveTiles();
+
         final List<View> dynamicTiles = new ArrayList<View>();
 
         final int tileCount = mContainerView.getChildCount();
-        for(int i = tileCount - 1; i >= 0; i--) {
+        for (int i = 0; i < tileCount; i++) {
             View view = mContainerView.getChildAt(i);
             final String key = getTileKey(view);
             if (key != null) {
                 if (!mAllTileViews.containsKey(key)) {
                     mAllTileViews.put(key, view);
                 }
-                mContainerView.removeView(view);
             } else if (view != null) {
                 // found tile that's not in our custom list
                 // might be dynamic tile (e.g. alarm) or some ROM specific tile?
-                // remove it and store it so it could be added in the end
+                // store it so it could be kept in the end
                 dynamicTiles.add(view);
-                mContainerView.removeView(view);
             }
         }
 
+        final List<View> targetTiles = new ArrayList<View>(mActiveTileKeys.size() + dynamicTiles.size());
         for (String key : mActiveTileKeys) {
             if (mAllTileViews.containsKey(key)) {
-                mContainerView.addView(mAllTileViews.get(key));
+                targetTiles.add(mAllTileViews.get(key));
             }
         }
 
-        // add tiles from dynamic list as last (e.g. alarm tile we previously removed)
-        for (View v : dynamicTiles) {
-            mContainerView.addView(v);
-        }
+        // tiles from dynamic list go last (e.g. alarm tile)
+        targetTiles.addAll(dynamicTiles);
+
+        // move only tiles that are out of place
+        final int ops = ViewOrderReconciler.reconcile(mContainerView, targetTiles);
+        if (DEBUG) log("updateTileOrderAndVisibility: " + ops + " view operations");
 
         // trigger layout refresh
-        updateResources();
+        if (tilesChanged || ops > 0) {
+            updateResources();
+        }
     }
 
     private static void updateResources() {
@@ -489,30 +589,44 @@ public class ModQuickSettings {
             final Class<?> notifPanelViewClass = XposedHelpers.findClass(CLASS_NOTIF_PANELVIEW, classLoader);
             final Class<?> quickSettingsContainerViewClass = XposedHelpers.findClass(CLASS_QS_CONTAINER_VIEW, classLoader);
 
-            XposedBridge.hookAllConstructors(quickSettingsClass, quickSettingsConstructHook);
-            XposedHelpers.findAndHookMethod(quickSettingsClass, "setBar", 
+            HookProfiler.hookAllConstructors(quickSettingsClass, quickSettingsConstructHook);
+            HookProfiler.findAndHookMethod(quickSettingsClass, "setBar", 
                     panelBarClass, quickSettingsSetBarHook);
-            XposedHelpers.findAndHookMethod(quickSettingsClass, "setService", 
+            HookProfiler.findAndHookMethod(quickSettingsClass, "setService", 
                     phoneStatusBarClass, quickSettingsSetServiceHook);
-            XposedHelpers.findAndHookMethod(quickSettingsClass, "addSystemTiles", 
+            HookProfiler.findAndHookMethod(quickSettingsClass, "addSystemTiles", 
                     ViewGroup.class, LayoutInflater.class, quickSettingsAddSystemTilesHook);
-            XposedHelpers.findAndHookMethod(quickSettingsClass, "updateResources",
+            HookProfiler.findAndHookMethod(quickSettingsClass, "updateResources",
                     quickSettingsUpdateResourcesHook);
-            XposedHelpers.findAndHookMethod(notifPanelViewClass, "onTouchEvent", 
+            HookProfiler.findAndHookMethod(notifPanelViewClass, "onTouchEvent", 
                     MotionEvent.class, notificationPanelViewOnTouchEvent);
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, "makeStatusBarView", 
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, "makeStatusBarView", 
                     makeStatusBarViewHook);
-            XposedHelpers.findAndHookMethod(quickSettingsContainerViewClass, "updateResources", 
+            HookProfiler.findAndHookMethod(quickSettingsContainerViewClass, "updateResources", 
                     qsContainerViewUpdateResources);
-            XposedHelpers.findAndHookMethod(quickSettingsContainerViewClass, "onMeasure",
+            HookProfiler.findAndHookMethod(quickSettingsContainerViewClass, "onMeasure",
                     int.class, int.class, qsContainerViewOnMeasure);
 
+            // tile views are updated only while panel is visible
+            try {
+                if (HookProfiler.hookAllMethods(phoneStatusBarClass, "makeExpandedVisible",
+                            makeExpandedVisibleHook).isEmpty() ||
+                        HookProfiler.hookAllMethods(phoneStatusBarClass, "makeExpandedInvisible",
+                            makeExpandedInvisibleHook).isEmpty()) {
+                    throw new NoSuchMethodError("makeExpandedVisible/makeExpandedInvisible");
+                }
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+                // can't tell panel visibility so treat it as always visible
+                TileUpdatePipeline.getInstance().setPanelVisible(true);
+            }
+
             // tag AOSP QS views for future identification
             if (!Utils.isMtkDevice()) {
                 tagAospTileViews(classLoader);
             }
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, "removeNotification", IBinder.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, "removeNotification", IBinder.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     if (DEBUG) log("removeNotification method ENTER");
@@ -526,7 +640,7 @@ public class ModQuickSettings {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, "animateCollapsePanels", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, "animateCollapsePanels", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     if (removeNotificationState.get().equals(MethodState.METHOD_ENTERED)) {
@@ -551,7 +665,7 @@ public class ModQuickSettings {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(mQuickSettingsTileViewClass, "setColumnSpan",
+            HookProfiler.findAndHookMethod(mQuickSettingsTileViewClass, "setColumnSpan",
                     int.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
@@ -577,16 +691,8 @@ public class ModQuickSettings {
             mContainerView = (ViewGroup) XposedHelpers.getObjectField(param.thisObject, "mContainerView");
             mWifiManager = new WifiManagerWrapper(mContext);
 
-            IntentFilter intentFilter = new IntentFilter(GravityBoxSettings.ACTION_PREF_QUICKSETTINGS_CHANGED);
-            intentFilter.addAction(GravityBoxSettings.ACTION_PREF_QUICKAPP_CHANGED);
-            intentFilter.addAction(GravityBoxSettings.ACTION_PREF_QUICKAPP_CHANGED_2);
-            intentFilter.addAction(GravityBoxSettings.ACTION_PREF_EXPANDED_DESKTOP_MODE_CHANGED);
-            intentFilter.addAction(AudioManager.RINGER_MODE_CHANGED_ACTION);
-            intentFilter.addAction(UsbTetherTile.ACTION_TETHER_STATE_CHANGED);
-            intentFilter.addAction(UsbTetherTile.ACTION_USB_STATE);
-            intentFilter.addAction(Intent.ACTION_MEDIA_SHARED);
-            intentFilter.addAction(UsbTetherTile.ACTION_MEDIA_UNSHARED);
-            mContext.registerReceiver(mBroadcastReceiver, intentFilter);
+            BroadcastDispatcher.getInstance(mContext).register(mBroadcastReceiver,
+                    GravityBoxSettings.ACTION_PREF_QUICKSETTINGS_CHANGED);
         }
     };
 
@@ -612,105 +718,167 @@ public class ModQuickSettings {
             if (DEBUG) log("about to add tiles");
 
             try {
-                LayoutInflater inflater = (LayoutInflater) param.args[1];
+                mTileInflater = (LayoutInflater) param.args[1];
 
-                mTiles = new ArrayList<AQuickSettingsTile>();
+                if (mTiles != null) {
+                    for (Map.Entry<String, AQuickSettingsTile> e : mTiles.entrySet()) {
+                        destroyTile(e.getKey(), e.getValue());
+                    }
+                }
+                mTiles = new HashMap<String, AQuickSettingsTile>();
 
+                // tiles are constructed only once they become active (see updateActiveTiles)
+                mTileFactories = new HashMap<String, TileFactory>();
                 if (Utils.isMtkDevice()) {
-                    WifiTile wt = new WifiTile(mContext, mGbContext, mStatusBar, mPanelBar, mWifiManager);
-                    wt.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                    mTiles.add(wt);
+                    mTileFactories.put("wifi_tileview", new TileFactory() {
+                        @Override
+                        public AQuickSettingsTile createTile() {
+                            return new WifiTile(mContext, mGbContext, mStatusBar, mPanelBar, mWifiManager);
+                        }
+                    });
                 }
 
                 if (Utils.hasNfc(mContext)) {
-                    NfcTile nfcTile = new NfcTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                    nfcTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                    mTiles.add(nfcTile);
+                    mTileFactories.put("nfc_tileview", new TileFactory() {
+                        @Override
+                        public AQuickSettingsTile createTile() {
+                            return new NfcTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                        }
+                    });
                 }
 
                 if (Utils.hasGPS(mContext)) {
-                    GpsTile gpsTile = new GpsTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                    gpsTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                    mTiles.add(gpsTile);
+                    mTileFactories.put("gps_tileview", new TileFactory() {
+                        @Override
+                        public AQuickSettingsTile createTile() {
+                            return new GpsTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                        }
+                    });
                 }
 
-                RingerModeTile rmTile = new RingerModeTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                rmTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(rmTile);
+                mTileFactories.put("ringer_mode_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new RingerModeTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                VolumeTile volTile = new VolumeTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                volTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(volTile);
+                mTileFactories.put("volume_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new VolumeTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
                 if (!Utils.isWifiOnly(mContext)) {
-                    NetworkModeTile nmTile = new NetworkModeTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                    nmTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                    mTiles.add(nmTile);
+                    mTileFactories.put("network_mode_tileview", new TileFactory() {
+                        @Override
+                        public AQuickSettingsTile createTile() {
+                            return new NetworkModeTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                        }
+                    });
                 }
 
-                SyncTile syncTile = new SyncTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                syncTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(syncTile);
+                mTileFactories.put("sync_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new SyncTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                WifiApTile wifiApTile = new WifiApTile(mContext, mGbContext, mStatusBar, mPanelBar, mWifiManager);
-                wifiApTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(wifiApTile);
+                mTileFactories.put("wifi_ap_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new WifiApTile(mContext, mGbContext, mStatusBar, mPanelBar, mWifiManager);
+                    }
+                });
 
                 if (Utils.hasFlash(mContext)) {
-                    TorchTile torchTile = new TorchTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                    torchTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                    mTiles.add(torchTile);
+                    mTileFactories.put("torch_tileview", new TileFactory() {
+                        @Override
+                        public AQuickSettingsTile createTile() {
+                            return new TorchTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                        }
+                    });
                 }
 
-                SleepTile sleepTile = new SleepTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                sleepTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(sleepTile);
+                mTileFactories.put("sleep_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new SleepTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                StayAwakeTile swTile = new StayAwakeTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                swTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(swTile);
+                mTileFactories.put("stay_awake_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new StayAwakeTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                QuickRecordTile qrTile = new QuickRecordTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                qrTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(qrTile);
+                mTileFactories.put("quickrecord_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new QuickRecordTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                QuickAppTile qAppTile = new QuickAppTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                qAppTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(qAppTile);
+                mTileFactories.put("quickapp_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new QuickAppTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                QuickAppTile qAppTile2 = new QuickAppTile(mContext, mGbContext, mStatusBar, mPanelBar, 2);
-                qAppTile2.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(qAppTile2);
+                mTileFactories.put("quickapp_tileview_2", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new QuickAppTile(mContext, mGbContext, mStatusBar, mPanelBar, 2);
+                    }
+                });
 
-                ExpandedDesktopTile edTile = new ExpandedDesktopTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                edTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(edTile);
+                mTileFactories.put("expanded_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new ExpandedDesktopTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                ScreenshotTile ssTile = new ScreenshotTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                ssTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(ssTile);
+                mTileFactories.put("screenshot_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new ScreenshotTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                GravityBoxTile gbTile = new GravityBoxTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                gbTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(gbTile);
+                mTileFactories.put("gravitybox_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new GravityBoxTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                CameraTile camTile = new CameraTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                camTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(camTile);
+                mTileFactories.put("camera_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new CameraTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
-                UsbTetherTile utTile = new UsbTetherTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                utTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                mTiles.add(utTile);
+                mTileFactories.put("usb_tether_tileview", new TileFactory() {
+                    @Override
+                    public AQuickSettingsTile createTile() {
+                        return new UsbTetherTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                    }
+                });
 
                 if (mPrefs.getBoolean(GravityBoxSettings.PREF_KEY_SMART_RADIO_ENABLE, false)) {
-                    SmartRadioTile srTile = new SmartRadioTile(mContext, mGbContext, mStatusBar, mPanelBar);
-                    srTile.setupQuickSettingsTile(mContainerView, inflater, mPrefs, mQuickSettings);
-                    mTiles.add(srTile);
-                }
-
-                mBroadcastSubReceivers = new ArrayList<BroadcastSubReceiver>();
-                for (AQuickSettingsTile t : mTiles) {
-                    mBroadcastSubReceivers.add(t);
+                    mTileFactories.put("smart_radio_tileview", new TileFactory() {
+                        @Override
+                        public AQuickSettingsTile createTile() {
+                            return new SmartRadioTile(mContext, mGbContext, mStatusBar, mPanelBar);
+                        }
+                    });
                 }
 
                 updateTileOrderAndVisibility();
@@ -720,12 +888,26 @@ public class ModQuickSettings {
         }
     };
 
+    private static XC_MethodHook makeExpandedVisibleHook = new XC_MethodHook() {
+        @Override
+        protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
+            TileUpdatePipeline.getInstance().setPanelVisible(true);
+        }
+    };
+
+    private static XC_MethodHook makeExpandedInvisibleHook = new XC_MethodHook() {
+        @Override
+        protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
+            TileUpdatePipeline.getInstance().setPanelVisible(false);
+        }
+    };
+
     private static XC_MethodHook quickSettingsUpdateResourcesHook = new XC_MethodHook() {
         @Override
         protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
             if (DEBUG) log("updateResources - updating all tiles");
 
-            for (AQuickSettingsTile t : mTiles) {
+            for (AQuickSettingsTile t : mTiles.values()) {
                 t.updateResources();
             }
         }
@@ -1131,11 +1313,11 @@ public class ModQuickSettings {
         final Class<?> classQsModel = XposedHelpers.findClass(CLASS_QS_MODEL, classLoader);
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addUserTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addUserTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
-                    ((View)param.args[0]).setTag(mAospTileTags.get("user_textview"));
+                    tagAospTileView((View)param.args[0], "user_textview");
                 }
             });
         } catch (Throwable t) {
@@ -1143,11 +1325,11 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addBrightnessTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addBrightnessTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
-                    ((View)param.args[0]).setTag(mAospTileTags.get("brightness_textview"));
+                    tagAospTileView((View)param.args[0], "brightness_textview");
                 }
             });
         } catch (Throwable t) {
@@ -1155,11 +1337,11 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addSettingsTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addSettingsTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
-                    ((View)param.args[0]).setTag(mAospTileTags.get("settings"));
+                    tagAospTileView((View)param.args[0], "settings");
                 }
             });
         } catch (Throwable t) {
@@ -1167,12 +1349,12 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addWifiTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addWifiTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     final View tile = (View) param.args[0];
-                    tile.setTag(mAospTileTags.get("wifi_textview"));
+                    tagAospTileView(tile, "wifi_textview");
                     if (mOverrideTileKeys.contains("wifi_textview")) {
                         tile.setOnClickListener(new View.OnClickListener() {
                             @Override
@@ -1200,12 +1382,12 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addRSSITile",
+            HookProfiler.findAndHookMethod(classQsModel, "addRSSITile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     final View tile = (View) param.args[0];
-                    tile.setTag(mAospTileTags.get("rssi_textview"));
+                    tagAospTileView(tile, "rssi_textview");
                     if (mOverrideTileKeys.contains("rssi_textview")) {
                         tile.setOnClickListener(new View.OnClickListener() {
                             @Override
@@ -1241,7 +1423,7 @@ public class ModQuickSettings {
                                 return true;
                             }
                         });
-                        XposedHelpers.findAndHookMethod(param.args[1].getClass(), "refreshView",
+                        HookProfiler.findAndHookMethod(param.args[1].getClass(), "refreshView",
                                 CLASS_QS_TILEVIEW, CLASS_QS_MODEL_STATE, new XC_MethodHook() {
                             @Override
                             protected void afterHookedMethod(final MethodHookParam param2) throws Throwable {
@@ -1267,12 +1449,12 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addRotationLockTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addRotationLockTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     final View tile = (View) param.args[0];
-                    tile.setTag(mAospTileTags.get("auto_rotate_textview"));
+                    tagAospTileView(tile, "auto_rotate_textview");
                     if (mOverrideTileKeys.contains("auto_rotate_textview")) {
                         tile.setOnClickListener(new View.OnClickListener() {
                             @Override
@@ -1295,11 +1477,11 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addBatteryTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addBatteryTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
-                    ((View)param.args[0]).setTag(mAospTileTags.get("battery_textview"));
+                    tagAospTileView((View)param.args[0], "battery_textview");
                 }
             });
         } catch (Throwable t) {
@@ -1307,12 +1489,12 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addAirplaneModeTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addAirplaneModeTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     final View tile = (View) param.args[0];
-                    tile.setTag(mAospTileTags.get("airplane_mode_textview"));
+                    tagAospTileView(tile, "airplane_mode_textview");
                     if (mOverrideTileKeys.contains("airplane_mode_textview")) {
                         tile.setOnClickListener(new View.OnClickListener() {
                             @SuppressLint("NewApi")
@@ -1344,12 +1526,12 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addBluetoothTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addBluetoothTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     final View tile = (View) param.args[0];
-                    tile.setTag(mAospTileTags.get("bluetooth_textview"));
+                    tagAospTileView(tile, "bluetooth_textview");
                     if (mOverrideTileKeys.contains("bluetooth_textview")) {
                         tile.setOnClickListener(new View.OnClickListener() {
                             @Override
@@ -1382,12 +1564,12 @@ public class ModQuickSettings {
         }
 
         try {
-            XposedHelpers.findAndHookMethod(classQsModel, "addLocationTile",
+            HookProfiler.findAndHookMethod(classQsModel, "addLocationTile",
                     CLASS_QS_TILEVIEW, CLASS_QS_MODEL_RCB, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     final View tile = (View) param.args[0];
-                    tile.setTag(mAospTileTags.get("gps_textview"));
+                    tagAospTileView(tile, "gps_textview");
                     if (mOverrideTileKeys.contains("gps_textview")) {
                         tile.setOnClickListener(new View.OnClickListener() {
                             @Override
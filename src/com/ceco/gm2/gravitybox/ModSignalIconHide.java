@@ -60,7 +60,7 @@ public class ModSignalIconHide {
 
             Class<?> signalClusterViewClass = XposedHelpers.findClass(CLASS_SIGNAL_CLUSTER_VIEW, classLoader);
 
-            XposedBridge.hookAllConstructors(signalClusterViewClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(signalClusterViewClass, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -91,7 +91,7 @@ public class ModSignalIconHide {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(signalClusterViewClass, "apply", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(signalClusterViewClass, "apply", new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -126,7 +126,7 @@ public class ModSignalIconHide {
         try {
             Class<?> uiccControllerClass = findClass(CLASS_UICC_CONTROLLER, null);
     
-            XposedHelpers.findAndHookMethod(uiccControllerClass, "setNotification", int.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(uiccControllerClass, "setNotification", int.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                     if (DEBUG) log("UiccController.setNotification(" + param.args[0] + ")");
@@ -383,7 +383,7 @@ public class ModSmartRadio {
             mModeChangeDelay = prefs.getInt(GravityBoxSettings.PREF_KEY_SMART_RADIO_MODE_CHANGE_DELAY, 5);
             mScreenOffDelay = prefs.getInt(GravityBoxSettings.PREF_KEY_SMART_RADIO_SCREEN_OFF_DELAY, 0);
 
-            XposedHelpers.findAndHookMethod(classSystemUIService, "onCreate", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classSystemUIService, "onCreate", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     mContext = (Context) param.thisObject;
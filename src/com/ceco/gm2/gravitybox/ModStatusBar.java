@@ -30,11 +30,9 @@ import de.robv.android.xposed.callbacks.XC_InitPackageResources.InitPackageResou
 import de.robv.android.xposed.callbacks.XC_LayoutInflated.LayoutInflatedParam;
 import android.app.Notification;
 import android.content.ActivityNotFoundException;
-import android.content.BroadcastReceiver;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.res.Resources;
 import android.database.ContentObserver;
 import android.graphics.Paint;
@@ -145,10 +143,10 @@ public class ModStatusBar {
         XposedBridge.log(TAG + ": " + message);
     }
 
-    private static BroadcastReceiver mBroadcastReceiver = new BroadcastReceiver() {
+    private static BroadcastSubReceiver mBroadcastReceiver = new BroadcastSubReceiver() {
 
         @Override
-        public void onReceive(Context context, Intent intent) {
+        public void onBroadcastReceived(Context context, Intent intent) {
             if (DEBUG) log("Broadcast received: " + intent.toString());
             if (intent.getAction().equals(GravityBoxSettings.ACTION_PREF_CLOCK_CHANGED)) {
                 if (intent.hasExtra(GravityBoxSettings.EXTRA_CENTER_CLOCK)) {
@@ -236,6 +234,10 @@ public class ModStatusBar {
                     mTrafficMeter.setInactivityMode(intent.getIntExtra(
                             GravityBoxSettings.EXTRA_DT_INACTIVITY_MODE, 0));
                 }
+                if (intent.hasExtra(GravityBoxSettings.EXTRA_DT_DISPLAY_MODE)) {
+                    mTrafficMeter.setDisplayMode(intent.getIntExtra(
+                            GravityBoxSettings.EXTRA_DT_DISPLAY_MODE, 0));
+                }
             } else if (intent.getAction().equals(ACTION_START_SEARCH_ASSIST)) {
                 startSearchAssist();
             } else if (intent.getAction().equals(GravityBoxSettings.ACTION_NOTIF_CARRIER_TEXT_CHANGED) ||
@@ -288,16 +290,17 @@ public class ModStatusBar {
 
                 @Override
                 public void handleLayoutInflated(LayoutInflatedParam liparam) throws Throwable {
-                    prefs.reload();
+                    final MappedPreferences mappedPrefs = MappedPreferences.getInstance(prefs);
+                    mappedPrefs.reload();
                     mClockShowDow = Integer.valueOf(
-                            prefs.getString(GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_DOW, "0"));
-                    mAmPmHide = prefs.getBoolean(GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_AMPM_HIDE, false);
-                    mClockHide = prefs.getBoolean(GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_HIDE, false);
-                    mClockLink = prefs.getString(GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_LINK, null);
-                    mClockLongpressLink = prefs.getString(
+                            mappedPrefs.getString(GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_DOW, "0"));
+                    mAmPmHide = mappedPrefs.getBoolean(GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_AMPM_HIDE, false);
+                    mClockHide = mappedPrefs.getBoolean(GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_HIDE, false);
+                    mClockLink = mappedPrefs.getString(GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_LINK, null);
+                    mClockLongpressLink = mappedPrefs.getString(
                             GravityBoxSettings.PREF_KEY_STATUSBAR_CLOCK_LONGPRESS_LINK, null);
-                    mAlarmHide = prefs.getBoolean(GravityBoxSettings.PREF_KEY_ALARM_ICON_HIDE, false);
-                    mDisableDataNetworkTypeIcons = prefs.getBoolean(GravityBoxSettings.PREF_KEY_DISABLE_DATA_NETWORK_TYPE_ICONS, false);
+                    mAlarmHide = mappedPrefs.getBoolean(GravityBoxSettings.PREF_KEY_ALARM_ICON_HIDE, false);
+                    mDisableDataNetworkTypeIcons = mappedPrefs.getBoolean(GravityBoxSettings.PREF_KEY_DISABLE_DATA_NETWORK_TYPE_ICONS, false);
 
                     String iconAreaId = Build.VERSION.SDK_INT > 16 ?
                             "system_icon_area" : "icons";
@@ -367,7 +370,7 @@ public class ModStatusBar {
                     if (DEBUG) log("mLayoutClock injected");
 
                     if (mClock != null) {
-                        XposedHelpers.findAndHookMethod(mClock.getView().getClass(), "getSmallTime", new XC_MethodHook() {
+                        HookProfiler.findAndHookMethod(mClock.getView().getClass(), "getSmallTime", new XC_MethodHook() {
                             @Override
                             protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                                 // is this a status bar Clock instance?
@@ -417,7 +420,7 @@ public class ModStatusBar {
                             }
                         });
     
-                        setClockPosition(prefs.getBoolean(
+                        setClockPosition(mappedPrefs.getBoolean(
                                 GravityBoxSettings.PREF_KEY_STATUSBAR_CENTER_CLOCK, false));
                     }
 
@@ -432,7 +435,7 @@ public class ModStatusBar {
                             "TextAppearance.StatusBar.Clock", "style", PACKAGE_NAME));
                     int position = GravityBoxSettings.DT_POSITION_AUTO;
                     try {
-                        position = Integer.valueOf(prefs.getString(
+                        position = Integer.valueOf(mappedPrefs.getString(
                                 GravityBoxSettings.PREF_KEY_DATA_TRAFFIC_POSITION, "0"));
                     } catch (NumberFormatException nfe) {
                         log("Invalid preference value for PREF_KEY_DATA_TRAFFIC_POSITION");
@@ -440,7 +443,7 @@ public class ModStatusBar {
                     mTrafficMeter.setTrafficMeterPosition(position);
                     int size = 14;
                     try {
-                        size = Integer.valueOf(prefs.getString(
+                        size = Integer.valueOf(mappedPrefs.getString(
                                 GravityBoxSettings.PREF_KEY_DATA_TRAFFIC_SIZE, "14"));
                     } catch (NumberFormatException nfe) {
                         log("Invalid preference value for PREF_KEY_DATA_TRAFFIC_SIZE");
@@ -448,14 +451,22 @@ public class ModStatusBar {
                     mTrafficMeter.setTextSize(1, size);
                     int inactivityMode = 0;
                     try {
-                        inactivityMode = Integer.valueOf(prefs.getString(
+                        inactivityMode = Integer.valueOf(mappedPrefs.getString(
                                 GravityBoxSettings.PREF_KEY_DATA_TRAFFIC_INACTIVITY_MODE, "0"));
                     } catch (NumberFormatException nfe) {
                         log("Invalid preference value for PREF_KEY_DATA_TRAFFIC_INACTIVITY_MODE");
                     }
                     mTrafficMeter.setInactivityMode(inactivityMode);
+                    int displayMode = TrafficMeter.DISPLAY_MODE_DOWNLOAD;
+                    try {
+                        displayMode = Integer.valueOf(mappedPrefs.getString(
+                                GravityBoxSettings.PREF_KEY_DATA_TRAFFIC_DISPLAY_MODE, "0"));
+                    } catch (NumberFormatException nfe) {
+                        log("Invalid preference value for PREF_KEY_DATA_TRAFFIC_DISPLAY_MODE");
+                    }
+                    mTrafficMeter.setDisplayMode(displayMode);
                     ModStatusbarColor.registerIconManagerListener(mTrafficMeter);
-                    mTrafficMeter.setTrafficMeterEnabled(prefs.getBoolean(
+                    mTrafficMeter.setTrafficMeterEnabled(mappedPrefs.getBoolean(
                             GravityBoxSettings.PREF_KEY_DATA_TRAFFIC_ENABLE, false));
                     updateTrafficMeterPosition();
 
@@ -520,14 +531,14 @@ public class ModStatusBar {
                     prefs.getString(GravityBoxSettings.PREF_KEY_NOTIF_CARRIER2_TEXT, "")};
             mDt2sEnabled = prefs.getBoolean(GravityBoxSettings.PREF_KEY_STATUSBAR_DT2S, false);
 
-            XposedBridge.hookAllConstructors(phoneStatusBarPolicyClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(phoneStatusBarPolicyClass, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     mPhoneStatusBarPolicy = param.thisObject;
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarPolicyClass, 
+            HookProfiler.findAndHookMethod(phoneStatusBarPolicyClass, 
                     "updateAlarm", Intent.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -540,7 +551,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, "makeStatusBarView", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, "makeStatusBarView", new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -586,17 +597,16 @@ public class ModStatusBar {
                             "config_screenBrightnessDim", "integer", "android"));
                     BRIGHTNESS_ON = XposedHelpers.getStaticIntField(powerManagerClass, "BRIGHTNESS_ON");
 
-                    IntentFilter intentFilter = new IntentFilter();
-                    intentFilter.addAction(GravityBoxSettings.ACTION_PREF_CLOCK_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_PREF_STATUSBAR_BRIGHTNESS_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_PREF_ONGOING_NOTIFICATIONS_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_PREF_DATA_TRAFFIC_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_DISABLE_DATA_NETWORK_TYPE_ICONS_CHANGED);
-                    intentFilter.addAction(ACTION_START_SEARCH_ASSIST);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_NOTIF_CARRIER_TEXT_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_NOTIF_CARRIER2_TEXT_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_PREF_STATUSBAR_DT2S_CHANGED);
-                    mContext.registerReceiver(mBroadcastReceiver, intentFilter);
+                    BroadcastDispatcher.getInstance(mContext).register(mBroadcastReceiver,
+                            GravityBoxSettings.ACTION_PREF_CLOCK_CHANGED,
+                            GravityBoxSettings.ACTION_PREF_STATUSBAR_BRIGHTNESS_CHANGED,
+                            GravityBoxSettings.ACTION_PREF_ONGOING_NOTIFICATIONS_CHANGED,
+                            GravityBoxSettings.ACTION_PREF_DATA_TRAFFIC_CHANGED,
+                            GravityBoxSettings.ACTION_DISABLE_DATA_NETWORK_TYPE_ICONS_CHANGED,
+                            ACTION_START_SEARCH_ASSIST,
+                            GravityBoxSettings.ACTION_NOTIF_CARRIER_TEXT_CHANGED,
+                            GravityBoxSettings.ACTION_NOTIF_CARRIER2_TEXT_CHANGED,
+                            GravityBoxSettings.ACTION_PREF_STATUSBAR_DT2S_CHANGED);
 
                     mSettingsObserver = new SettingsObserver(
                             (Handler) XposedHelpers.getObjectField(mPhoneStatusBar, "mHandler"));
@@ -604,7 +614,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, "showClock", boolean.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, "showClock", boolean.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     if (mClock == null) return;
@@ -615,7 +625,7 @@ public class ModStatusBar {
             });
 
             if (Build.VERSION.SDK_INT > 16) {
-                XposedHelpers.findAndHookMethod(phoneStatusBarClass, "startActivityDismissingKeyguard", 
+                HookProfiler.findAndHookMethod(phoneStatusBarClass, "startActivityDismissingKeyguard", 
                         Intent.class, boolean.class, new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -632,7 +642,7 @@ public class ModStatusBar {
                 });
             }
 
-            XposedHelpers.findAndHookMethod(tickerClass, "tickerStarting", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(tickerClass, "tickerStarting", new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -645,7 +655,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(tickerClass, "tickerDone", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(tickerClass, "tickerDone", new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -658,7 +668,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(tickerClass, "tickerHalting", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(tickerClass, "tickerHalting", new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -671,7 +681,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, 
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, 
                     "interceptTouchEvent", MotionEvent.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -685,7 +695,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusBarClass, "addNotification", 
+            HookProfiler.findAndHookMethod(phoneStatusBarClass, "addNotification", 
                     IBinder.class, CLASS_STATUSBAR_NOTIF, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -722,7 +732,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(networkControllerClass, "refreshViews", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(networkControllerClass, "refreshViews", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     if (mCarrierTextView == null || mCarrierText == null) return;
@@ -796,7 +806,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedBridge.hookAllConstructors(phoneStatusbarViewClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(phoneStatusbarViewClass, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     final Context context = (Context) param.args[0];
@@ -814,7 +824,7 @@ public class ModStatusBar {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusbarViewClass, "onTouchEvent",
+            HookProfiler.findAndHookMethod(phoneStatusbarViewClass, "onTouchEvent",
                     MotionEvent.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -828,7 +838,7 @@ public class ModStatusBar {
             try {
                 final Class<?> classIconMerger = XposedHelpers.findClass(CLASS_ICON_MERGER, classLoader);
 
-                XposedHelpers.findAndHookMethod(classIconMerger, "onMeasure", 
+                HookProfiler.findAndHookMethod(classIconMerger, "onMeasure", 
                         int.class, int.class, new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -877,7 +887,7 @@ public class ModStatusBar {
                     }
                 });
 
-                XposedHelpers.findAndHookMethod(classIconMerger, "checkOverflow",
+                HookProfiler.findAndHookMethod(classIconMerger, "checkOverflow",
                         int.class, new XC_MethodReplacement() {
                     @Override
                     protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
@@ -933,14 +943,14 @@ public class ModStatusBar {
         try {
             final Class<?> pluginFactoryClass = XposedHelpers.findClass(CLASS_PLUGINFACTORY, classLoader);
 
-            XposedHelpers.findAndHookMethod(pluginFactoryClass, "getStatusBarPlugin",
+            HookProfiler.findAndHookMethod(pluginFactoryClass, "getStatusBarPlugin",
                     "android.content.Context", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                     mStatusBarPlugin = XposedHelpers.getStaticObjectField(pluginFactoryClass, "mStatusBarPlugin");
 
                     if (mGetDataNetworkTypeIconGeminiHook == null) {
-                        mGetDataNetworkTypeIconGeminiHook = XposedHelpers.findAndHookMethod(mStatusBarPlugin.getClass(),
+                        mGetDataNetworkTypeIconGeminiHook = HookProfiler.findAndHookMethod(mStatusBarPlugin.getClass(),
                                 "getDataNetworkTypeIconGemini", CLASS_NETWORKTYPE, int.class, new XC_MethodHook() {
                             @Override
                             protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -15,11 +15,11 @@
 
 package com.ceco.gm2.gravitybox;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import com.ceco.gm2.gravitybox.StatusBarIconManager.ColorInfo;
 import com.ceco.gm2.gravitybox.StatusBarIconManager.IconManagerListener;
+import com.ceco.gm2.gravitybox.reflect.Accessors;
+import com.ceco.gm2.gravitybox.reflect.Accessors.FieldAccessor;
+import com.ceco.gm2.gravitybox.reflect.Accessors.MethodInvoker;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -39,7 +39,6 @@ import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import de.robv.android.xposed.XC_MethodHook;
-import de.robv.android.xposed.XC_MethodHook.Unhook;
 import de.robv.android.xposed.XC_MethodReplacement;
 import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedBridge;
@@ -60,10 +59,16 @@ public class ModStatusbarColor {
     private static final String CLASS_POLICY_WINDOW_STATE = "android.view.WindowManagerPolicy$WindowState";
     private static final String CLASS_WINDOW_STATE = "com.android.server.wm.WindowState";
     private static final String CLASS_WINDOW_MANAGER_SERVICE = "com.android.server.wm.WindowManagerService";
+    private static final String CLASS_DISPLAY_CONTENT = "com.android.server.wm.DisplayContent";
     private static final String CLASS_STATUSBAR_ICON_VIEW = "com.android.systemui.statusbar.StatusBarIconView";
     private static final String CLASS_STATUSBAR_ICON = "com.android.internal.statusbar.StatusBarIcon";
     private static final boolean DEBUG = false;
 
+    private static final FieldAccessor FIELD_IS_WALLPAPER = Accessors.field("mIsWallpaper");
+    private static final FieldAccessor FIELD_SERVICE = Accessors.field("mService");
+    private static final MethodInvoker METHOD_UPDATE_WALLPAPER_OFFSET = Accessors.method(
+            "updateWallpaperOffsetLocked", CLASS_WINDOW_STATE, int.class, int.class, boolean.class);
+
     public static final String ACTION_PHONE_STATUSBAR_VIEW_MADE = "gravitybox.intent.action.PHONE_STATUSBAR_VIEW_MADE";
 
     private static View mPanelBar;
@@ -76,8 +81,21 @@ public class ModStatusbarColor {
     private static Context mContextPwm;
     private static int[] mTransparencyValuesPwm = new int[] { 0, 0, 0, 0};
     private static int mTransparencyModePwm = TransparencyManager.MODE_FULL;
-    private static List<BroadcastSubReceiver> mBroadcastSubReceivers;
-    private static Unhook mDisplayContentHook;
+    private static ScopedHook mDisplayInfoHook = new ScopedHook() {
+        @Override
+        protected void beforeScopedMethod(final MethodHookParam param, Object outerParam) throws Throwable {
+            Object di = XposedHelpers.getObjectField(param.thisObject, "mDisplayInfo");
+            final int width = getWallpaperWidth();
+            final int height = getWallpaperHeight();
+            if (width > 0 && height > 0) {
+                XposedHelpers.setIntField(di, "appWidth", width);
+                XposedHelpers.setIntField(di, "appHeight", height);
+                ((MethodHookParam) outerParam).setResult(di);
+                if (DEBUG) log("adjustWallpaperWindowsLocked: getDisplayInfo appWidth=" + width 
+                        + "; appHeight=" + height);
+            }
+        }
+    };
     private static Object mPhoneWindowManager;
     private static Object mPhoneStatusBar;
     private static StatusbarSignalCluster mSignalCluster;
@@ -122,20 +140,14 @@ public class ModStatusbarColor {
         }
     };
 
-    private static BroadcastReceiver mBroadcastReceiver = new BroadcastReceiver() {
+    private static BroadcastSubReceiver mBroadcastReceiver = new BroadcastSubReceiver() {
 
         @Override
-        public void onReceive(Context context, Intent intent) {
+        public void onBroadcastReceived(Context context, Intent intent) {
             if (DEBUG) log("received broadcast: " + intent.toString());
-            if (intent.getAction().equals(GravityBoxSettings.ACTION_PREF_STATUSBAR_COLOR_CHANGED)) {
-                if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_BG_COLOR)) {
-                    int bgColor = intent.getIntExtra(GravityBoxSettings.EXTRA_SB_BG_COLOR, Color.BLACK);
-                    setStatusbarBgColor(bgColor);
-                }
-            }
-
-            for (BroadcastSubReceiver bsr : mBroadcastSubReceivers) {
-                bsr.onBroadcastReceived(context, intent);
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_BG_COLOR)) {
+                int bgColor = intent.getIntExtra(GravityBoxSettings.EXTRA_SB_BG_COLOR, Color.BLACK);
+                setStatusbarBgColor(bgColor);
             }
         }
     };
@@ -155,7 +167,7 @@ public class ModStatusbarColor {
 
             if (mTransparencyModePwm != TransparencyManager.MODE_DISABLED) {
                 if (DEBUG) log("replacing getSystemDecorRectLw method");
-                XposedHelpers.findAndHookMethod(phoneWindowManagerClass,
+                HookProfiler.findAndHookMethod(phoneWindowManagerClass,
                         "getSystemDecorRectLw", Rect.class, new XC_MethodReplacement() {
     
                     @Override
@@ -188,7 +200,7 @@ public class ModStatusbarColor {
                     }
                 });
     
-                XposedHelpers.findAndHookMethod(phoneWindowManagerClass, "layoutWindowLw",
+                HookProfiler.findAndHookMethod(phoneWindowManagerClass, "layoutWindowLw",
                         CLASS_POLICY_WINDOW_STATE, WindowManager.LayoutParams.class, 
                         CLASS_POLICY_WINDOW_STATE, new XC_MethodHook(XC_MethodHook.PRIORITY_LOWEST) {
                     @Override
@@ -231,18 +243,23 @@ public class ModStatusbarColor {
                 });
     
                 if (Build.VERSION.SDK_INT > 17) {
-                    XposedHelpers.findAndHookMethod(windowStateClass, "computeFrameLw",
+                    HookProfiler.findAndHookMethod(windowStateClass, "computeFrameLw",
                             Rect.class, Rect.class, Rect.class, Rect.class, Rect.class, windowStateComputeFrameLw);
                 } else {
-                    XposedHelpers.findAndHookMethod(windowStateClass, "computeFrameLw",
+                    HookProfiler.findAndHookMethod(windowStateClass, "computeFrameLw",
                             Rect.class, Rect.class, Rect.class, Rect.class, windowStateComputeFrameLw);
                 }
     
-                XposedHelpers.findAndHookMethod(windowManagerServiceClass, "adjustWallpaperWindowsLocked",
+                HookProfiler.findAndHookMethod(windowManagerServiceClass, "adjustWallpaperWindowsLocked",
                         adjustWallpaperHook);
     
-                XposedHelpers.findAndHookMethod(windowManagerServiceClass, "updateWallpaperOffsetLocked",
+                HookProfiler.findAndHookMethod(windowManagerServiceClass, "updateWallpaperOffsetLocked",
                         CLASS_WINDOW_STATE, boolean.class, adjustWallpaperHook);
+
+                if (Build.VERSION.SDK_INT > 16) {
+                    mDisplayInfoHook.install(XposedHelpers.findClass(CLASS_DISPLAY_CONTENT, null),
+                            "getDisplayInfo");
+                }
             }
 
         } catch (Throwable t) {
@@ -254,14 +271,13 @@ public class ModStatusbarColor {
         @Override
         protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
             if (isNavbarTransparencyEnabled() && 
-                    XposedHelpers.getBooleanField(param.thisObject, "mIsWallpaper")) {
+                    FIELD_IS_WALLPAPER.getBoolean(param.thisObject)) {
                 try {
                     final int width = getWallpaperWidth();
                     final int height = getWallpaperHeight();
                     if (width > 0 && height > 0) {
-                        XposedHelpers.callMethod(
-                                XposedHelpers.getObjectField(param.thisObject, "mService"),
-                                "updateWallpaperOffsetLocked",
+                        METHOD_UPDATE_WALLPAPER_OFFSET.invoke(
+                                FIELD_SERVICE.get(param.thisObject),
                                 param.thisObject, width, height, false);
                         if (DEBUG) log("updateWallpaperOffsetLocked: width=" + width +
                                 "; height=" + height);
@@ -280,25 +296,7 @@ public class ModStatusbarColor {
 
             try {
                 if (Build.VERSION.SDK_INT > 16) {
-                    final Class<?> displayContentClass = 
-                            XposedHelpers.findClass("com.android.server.wm.DisplayContent", null);
-                    if (DEBUG) log ("adjustWallpaperWindowsLocked: hooking getDisplayInfo");
-                    mDisplayContentHook = XposedHelpers.findAndHookMethod(displayContentClass, "getDisplayInfo",
-                            new XC_MethodHook() {
-                        @Override
-                        protected void beforeHookedMethod(final MethodHookParam param2) throws Throwable {
-                            Object di = XposedHelpers.getObjectField(param2.thisObject, "mDisplayInfo");
-                            final int width = getWallpaperWidth();
-                            final int height = getWallpaperHeight();
-                            if (width > 0 && height > 0) {
-                                XposedHelpers.setIntField(di, "appWidth", width);
-                                XposedHelpers.setIntField(di, "appHeight", height);
-                                param.setResult(di);
-                                if (DEBUG) log("adjustWallpaperWindowsLocked: getDisplayInfo appWidth=" + width 
-                                        + "; appHeight=" + height);
-                            }
-                        }
-                    });
+                    mDisplayInfoHook.enterScope(param, param);
                 } else {
                     final int width = getWallpaperWidth();
                     final int height = getWallpaperHeight();
@@ -317,16 +315,11 @@ public class ModStatusbarColor {
         }
         @Override
         protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
+            mDisplayInfoHook.exitScope(param);
             if (!isNavbarTransparencyEnabled()) return;
 
             try {
-                if (Build.VERSION.SDK_INT > 16) {
-                    if (mDisplayContentHook != null) {
-                        mDisplayContentHook.unhook();
-                        mDisplayContentHook = null;
-                        if (DEBUG) log ("adjustWallpaperWindowsLocked: unhooking getDisplayInfo");
-                    }
-                } else {
+                if (Build.VERSION.SDK_INT <= 16) {
                     Integer appWidth = (Integer) XposedHelpers.getAdditionalInstanceField(
                             param.thisObject, "mAppDisplayWidthOrig");
                     Integer appHeight = (Integer) XposedHelpers.getAdditionalInstanceField(
@@ -386,21 +379,14 @@ public class ModStatusbarColor {
                     XposedHelpers.findClass(CLASS_NOTIF_PANEL_VIEW, classLoader) : null;
             final Class<?> statusbarIconViewClass = XposedHelpers.findClass(CLASS_STATUSBAR_ICON_VIEW, classLoader);
 
-            mBroadcastSubReceivers = new ArrayList<BroadcastSubReceiver>();
-
-            XposedBridge.hookAllConstructors(phoneStatusbarViewClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(phoneStatusbarViewClass, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     mPanelBar = (View) param.thisObject;
 
-                    IntentFilter intentFilter = new IntentFilter();
-                    intentFilter.addAction(GravityBoxSettings.ACTION_PREF_STATUSBAR_COLOR_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_NOTIF_BACKGROUND_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_DISABLE_ROAMING_INDICATORS_CHANGED);
-                    intentFilter.addAction(Intent.ACTION_BATTERY_CHANGED);
-                    intentFilter.addAction(GravityBoxSettings.ACTION_PREF_BATTERY_CHARGED_SOUND_CHANGED);
-                    mPanelBar.getContext().registerReceiver(mBroadcastReceiver, intentFilter);
+                    BroadcastDispatcher.getInstance(mPanelBar.getContext()).register(mBroadcastReceiver,
+                            GravityBoxSettings.ACTION_PREF_STATUSBAR_COLOR_CHANGED);
 
                     Context gbContext = mPanelBar.getContext().createPackageContext(GravityBox.PACKAGE_NAME,
                             Context.CONTEXT_IGNORE_SECURITY);
@@ -441,34 +427,39 @@ public class ModStatusbarColor {
                             GravityBoxSettings.PREF_KEY_BATTERY_CHARGED_SOUND, false));
                     mIconManager.getBatteryInfoManager().setPluggedSoundEnabled(prefs.getBoolean(
                             GravityBoxSettings.PREF_KEY_CHARGER_PLUGGED_SOUND, false));
-                    mBroadcastSubReceivers.add(mIconManager);
+                    BroadcastDispatcher.getInstance(mPanelBar.getContext()).register(mIconManager,
+                            GravityBoxSettings.ACTION_PREF_STATUSBAR_COLOR_CHANGED,
+                            Intent.ACTION_BATTERY_CHANGED,
+                            GravityBoxSettings.ACTION_PREF_BATTERY_CHARGED_SOUND_CHANGED);
                 }
             });
 
-            XposedBridge.hookAllConstructors(signalClusterViewClass, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(signalClusterViewClass, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     LinearLayout view = (LinearLayout) param.thisObject;
                     mSignalCluster = StatusbarSignalCluster.create(view, mIconManager);
                     mSignalCluster.initPreferences(prefs);
-                    mBroadcastSubReceivers.add(mSignalCluster);
+                    BroadcastDispatcher.getInstance(view.getContext()).register(mSignalCluster,
+                            GravityBoxSettings.ACTION_DISABLE_ROAMING_INDICATORS_CHANGED);
                     if (DEBUG) log("SignalClusterView constructed - mSignalClusterView set");
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusbarClass, 
+            HookProfiler.findAndHookMethod(phoneStatusbarClass, 
                     "makeStatusBarView", new XC_MethodHook(XCallback.PRIORITY_LOWEST) {
 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
-                    prefs.reload();
+                    final MappedPreferences mappedPrefs = MappedPreferences.getInstance(prefs);
+                    mappedPrefs.reload();
                     mPhoneStatusBar = param.thisObject;
                     Context context = (Context) XposedHelpers.getObjectField(param.thisObject, "mContext");
 
                     int tmMode = TransparencyManager.MODE_FULL;
                     try {
-                        tmMode = Integer.valueOf(prefs.getString(GravityBoxSettings.PREF_KEY_TM_MODE, "3"));
+                        tmMode = Integer.valueOf(mappedPrefs.getString(GravityBoxSettings.PREF_KEY_TM_MODE, "3"));
                     } catch (NumberFormatException nfe) {
                         log("Invalid value for PREF_KEY_TM_MODE preference");
                     }
@@ -476,12 +467,13 @@ public class ModStatusbarColor {
                         mTransparencyManager = new TransparencyManager(context, tmMode);
                         mTransparencyManager.setStatusbar(XposedHelpers.getObjectField(param.thisObject, "mStatusBarView"));
                         mTransparencyManager.setNavbar(XposedHelpers.getObjectField(param.thisObject, "mNavigationBarView"));
-                        mTransparencyManager.initPreferences(prefs);
-                        mBroadcastSubReceivers.add(mTransparencyManager);
+                        mTransparencyManager.initPreferences(mappedPrefs);
+                        BroadcastDispatcher.getInstance(context).register(mTransparencyManager,
+                                GravityBoxSettings.ACTION_PREF_STATUSBAR_COLOR_CHANGED);
                     }
 
                     mBatteryController = XposedHelpers.getObjectField(param.thisObject, "mBatteryController");
-                    int bgColor = prefs.getInt(GravityBoxSettings.PREF_KEY_STATUSBAR_BGCOLOR, Color.BLACK);
+                    int bgColor = mappedPrefs.getInt(GravityBoxSettings.PREF_KEY_STATUSBAR_BGCOLOR, Color.BLACK);
                     setStatusbarBgColor(bgColor);
                     if (mIconManager != null) {
                         mIconManager.registerListener(mIconManagerListener);
@@ -493,7 +485,7 @@ public class ModStatusbarColor {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusbarClass, "getNavigationBarLayoutParams", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(phoneStatusbarClass, "getNavigationBarLayoutParams", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     WindowManager.LayoutParams lp = (WindowManager.LayoutParams) param.getResult();
@@ -504,7 +496,7 @@ public class ModStatusbarColor {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusbarClass, "disable", int.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(phoneStatusbarClass, "disable", int.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     if (mTransparencyManager != null) {
@@ -513,7 +505,7 @@ public class ModStatusbarColor {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusbarClass, "topAppWindowChanged",
+            HookProfiler.findAndHookMethod(phoneStatusbarClass, "topAppWindowChanged",
                     boolean.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -523,7 +515,7 @@ public class ModStatusbarColor {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(phoneStatusbarClass, "setStatusBarLowProfile",
+            HookProfiler.findAndHookMethod(phoneStatusbarClass, "setStatusBarLowProfile",
                     boolean.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -534,7 +526,7 @@ public class ModStatusbarColor {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(batteryControllerClass, "onReceive",
+            HookProfiler.findAndHookMethod(batteryControllerClass, "onReceive",
                     Context.class, Intent.class, new XC_MethodHook(XCallback.PRIORITY_HIGHEST) {
 
                 @Override
@@ -563,7 +555,7 @@ public class ModStatusbarColor {
             });
 
             if (notifPanelViewClass != null) {
-                XposedHelpers.findAndHookMethod(notifPanelViewClass, "onFinishInflate", new XC_MethodHook() {
+                HookProfiler.findAndHookMethod(notifPanelViewClass, "onFinishInflate", new XC_MethodHook() {
     
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
@@ -573,12 +565,13 @@ public class ModStatusbarColor {
 
                         NotificationWallpaper nw = 
                                 new NotificationWallpaper((resId == 0) ? vg : ech, prefs);
-                        mBroadcastSubReceivers.add(nw);
+                        BroadcastDispatcher.getInstance(vg.getContext()).register(nw,
+                                GravityBoxSettings.ACTION_NOTIF_BACKGROUND_CHANGED);
                     }
                 });
             }
 
-            XposedHelpers.findAndHookMethod(statusbarIconViewClass, "getIcon",
+            HookProfiler.findAndHookMethod(statusbarIconViewClass, "getIcon",
                     CLASS_STATUSBAR_ICON, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -19,7 +19,6 @@ import android.view.ViewConfiguration;
 import de.robv.android.xposed.XC_MethodReplacement;
 import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedBridge;
-import de.robv.android.xposed.XposedHelpers;
 
 public class ModViewConfig {
 
@@ -27,7 +26,7 @@ public class ModViewConfig {
         try {
             final String mode = prefs.getString(GravityBoxSettings.PREF_KEY_FORCE_OVERFLOW_MENU_BUTTON, "default");
             if (!"default".equals(mode)) {
-                XposedHelpers.findAndHookMethod(ViewConfiguration.class, "hasPermanentMenuKey",
+                HookProfiler.findAndHookMethod(ViewConfiguration.class, "hasPermanentMenuKey",
                         XC_MethodReplacement.returnConstant(!"enabled".equals(mode)));
             }
         } catch (Throwable t) {
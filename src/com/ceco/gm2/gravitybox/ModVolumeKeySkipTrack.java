@@ -17,7 +17,6 @@
 package com.ceco.gm2.gravitybox;
 
 import static de.robv.android.xposed.XposedHelpers.callMethod;
-import static de.robv.android.xposed.XposedHelpers.findAndHookMethod;
 import static de.robv.android.xposed.XposedHelpers.findClass;
 import static de.robv.android.xposed.XposedHelpers.getAdditionalInstanceField;
 import static de.robv.android.xposed.XposedHelpers.getObjectField;
@@ -51,10 +50,10 @@ public class ModVolumeKeySkipTrack {
             updatePreference(prefs);
 
             Class<?> classPhoneWindowManager = findClass("com.android.internal.policy.impl.PhoneWindowManager", null);
-            XposedBridge.hookAllConstructors(classPhoneWindowManager, handleConstructPhoneWindowManager);
+            HookProfiler.hookAllConstructors(classPhoneWindowManager, handleConstructPhoneWindowManager);
 
             // take advantage of screenTurnedOff method for refreshing state of allowSkipTrack preference
-            findAndHookMethod(classPhoneWindowManager, "screenTurnedOff", int.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classPhoneWindowManager, "screenTurnedOff", int.class, new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -63,7 +62,7 @@ public class ModVolumeKeySkipTrack {
                 }
             });
 
-            findAndHookMethod(classPhoneWindowManager, "interceptKeyBeforeQueueing",
+            HookProfiler.findAndHookMethod(classPhoneWindowManager, "interceptKeyBeforeQueueing",
                     KeyEvent.class, int.class, boolean.class, handleInterceptKeyBeforeQueueing);
         } catch (Throwable t) { XposedBridge.log(t); }
     }
@@ -29,7 +29,6 @@ import android.view.ViewGroup;
 import android.view.View.OnClickListener;
 import android.widget.TextView;
 import de.robv.android.xposed.XC_MethodHook;
-import de.robv.android.xposed.XC_MethodHook.Unhook;
 import de.robv.android.xposed.XC_MethodReplacement;
 import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedBridge;
@@ -41,7 +40,6 @@ public class ModVolumePanel {
     private static final String CLASS_VOLUME_PANEL = "android.view.VolumePanel";
     private static final String CLASS_STREAM_CONTROL = "android.view.VolumePanel$StreamControl";
     private static final String CLASS_AUDIO_SERVICE = "android.media.AudioService";
-    private static final String CLASS_VIEW_GROUP = "android.view.ViewGroup";
     private static final boolean DEBUG = false;
 
     private static final int STREAM_RING = 2;
@@ -51,7 +49,6 @@ public class ModVolumePanel {
     private static Object mVolumePanel;
     private static Object mAudioService;
     private static boolean mVolumesLinked;
-    private static Unhook mViewGroupAddViewHook;
     private static boolean mVolumeAdjustMuted;
     private static boolean mVoiceCapable;
     private static boolean mExpandable;
@@ -100,11 +97,10 @@ public class ModVolumePanel {
             final Class<?> classVolumePanel = XposedHelpers.findClass(CLASS_VOLUME_PANEL, classLoader);
             final Class<?> classStreamControl = XposedHelpers.findClass(CLASS_STREAM_CONTROL, classLoader);
             final Class<?> classAudioService = XposedHelpers.findClass(CLASS_AUDIO_SERVICE, classLoader);
-            final Class<?> classViewGroup = XposedHelpers.findClass(CLASS_VIEW_GROUP, classLoader);
 
             mVolumeAdjustMuted = prefs.getBoolean(GravityBoxSettings.PREF_KEY_VOLUME_ADJUST_MUTE, false);
 
-            XposedBridge.hookAllConstructors(classVolumePanel, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(classVolumePanel, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -145,7 +141,7 @@ public class ModVolumePanel {
             
             if (Utils.isXperiaDevice()) {
                 try {
-                    XposedHelpers.findAndHookMethod(classVolumePanel, "inflateUi", new XC_MethodHook() {
+                    HookProfiler.findAndHookMethod(classVolumePanel, "inflateUi", new XC_MethodHook() {
                         @Override
                         protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                             mVoiceCapable = XposedHelpers.getBooleanField(param.thisObject, "mVoiceCapable");
@@ -157,7 +153,7 @@ public class ModVolumePanel {
                 }
             }
 
-            XposedHelpers.findAndHookMethod(classVolumePanel, "createSliders", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classVolumePanel, "createSliders", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
                     final boolean voiceCapableOrig = XposedHelpers.getBooleanField(param.thisObject, "mVoiceCapable");
@@ -176,7 +172,7 @@ public class ModVolumePanel {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classVolumePanel, "expand", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classVolumePanel, "expand", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     hideNotificationSliderIfLinked();
@@ -199,7 +195,7 @@ public class ModVolumePanel {
             try {
                 final Field fldVolTitle = XposedHelpers.findField(classStreamControl, "volTitle");
                 if (DEBUG) log("Hooking StreamControl constructor for volTitle field initialization");
-                XposedBridge.hookAllConstructors(classStreamControl, new XC_MethodHook() {
+                HookProfiler.hookAllConstructors(classStreamControl, new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                         Context context = (Context) XposedHelpers.getObjectField(
@@ -216,37 +212,14 @@ public class ModVolumePanel {
             }
 
             // Samsung bug workaround
-            XposedHelpers.findAndHookMethod(classVolumePanel, "addOtherVolumes", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classVolumePanel, "addOtherVolumes", new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
-                    if (DEBUG) log("addOtherVolumes: hooking ViewGroup.addViewInner");
-
-                    mViewGroupAddViewHook = XposedHelpers.findAndHookMethod(classViewGroup, "addViewInner", 
-                            View.class, int.class, ViewGroup.LayoutParams.class, 
-                            boolean.class, new XC_MethodHook() {
-                        @Override
-                        protected void beforeHookedMethod(final MethodHookParam param2) throws Throwable {
-                            if (DEBUG) log("ViewGroup.addViewInner called from VolumePanel.addOtherVolumes()");
-                            View child = (View) param2.args[0];
-                            if (child.getParent() != null) {
-                                if (DEBUG) log("Ignoring addView for child: " + child.toString());
-                                param2.setResult(null);
-                                return;
-                            }
-                        }
-                    });
-                }
-                @Override
-                protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
-                    if (mViewGroupAddViewHook != null) {
-                        if (DEBUG) log("addOtherVolumes: unhooking ViewGroup.addViewInner");
-                        mViewGroupAddViewHook.unhook();
-                        mViewGroupAddViewHook = null;
-                    }
+                    detachOtherVolumes(param.thisObject);
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classVolumePanel, "onPlaySound",
+            HookProfiler.findAndHookMethod(classVolumePanel, "onPlaySound",
                     int.class, int.class, new XC_MethodHook() {
                 @Override
                 protected void beforeHookedMethod(final MethodHookParam param) throws Throwable {
@@ -256,7 +229,7 @@ public class ModVolumePanel {
                 }
             });
 
-            XposedBridge.hookAllConstructors(classAudioService, new XC_MethodHook() {
+            HookProfiler.hookAllConstructors(classAudioService, new XC_MethodHook() {
 
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -267,7 +240,7 @@ public class ModVolumePanel {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classVolumePanel, "onShowVolumeChanged", 
+            HookProfiler.findAndHookMethod(classVolumePanel, "onShowVolumeChanged", 
                     int.class, int.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
@@ -281,7 +254,7 @@ public class ModVolumePanel {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(classVolumePanel, "resetTimeout", new XC_MethodReplacement() {
+            HookProfiler.findAndHookMethod(classVolumePanel, "resetTimeout", new XC_MethodReplacement() {
                 @Override
                 protected Object replaceHookedMethod(MethodHookParam param) throws Throwable {
                     try {
@@ -322,6 +295,25 @@ public class ModVolumePanel {
         if (DEBUG) log("VolumePanel mode changed to: " + ((mExpandable) ? "EXPANDABLE" : "SIMPLE"));
     }
 
+    // addOtherVolumes() adds sliders of inactive streams without checking whether
+    // they are still attached, which throws on Samsung
+    private static void detachOtherVolumes(Object volumePanel) {
+        @SuppressWarnings("unchecked")
+        Map<Integer, Object> streamControls = 
+                (Map<Integer, Object>) XposedHelpers.getObjectField(volumePanel, "mStreamControls");
+        if (streamControls == null) return;
+
+        final int activeStreamType = XposedHelpers.getIntField(volumePanel, "mActiveStreamType");
+        for (Object o : streamControls.values()) {
+            if (XposedHelpers.getIntField(o, "streamType") == activeStreamType) continue;
+            View v = (View) XposedHelpers.getObjectField(o, "group");
+            if (v != null && v.getParent() instanceof ViewGroup) {
+                ((ViewGroup) v.getParent()).removeView(v);
+                if (DEBUG) log("addOtherVolumes: detached slider " + v);
+            }
+        }
+    }
+
     private static boolean shouldLinkVolumes() {
         return mVolumesLinked && mVoiceCapable;
     }
@@ -40,7 +40,6 @@ import java.util.zip.ZipFile;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XposedBridge;
-import de.robv.android.xposed.XposedHelpers;
 
 import libcore.io.BufferIterator;
 import libcore.io.HeapBufferIterator;
@@ -129,7 +128,7 @@ public class PatchMasterKey {
         try {
             log("Patching MasterKey vulnerabilities");
 
-            XposedHelpers.findAndHookMethod(ZipFile.class, "getInputStream", ZipEntry.class, new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(ZipFile.class, "getInputStream", ZipEntry.class, new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -141,7 +140,7 @@ public class PatchMasterKey {
                 }
             });
 
-            XposedHelpers.findAndHookMethod(ZipFile.class, "readCentralDir", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(ZipFile.class, "readCentralDir", new XC_MethodHook() {
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
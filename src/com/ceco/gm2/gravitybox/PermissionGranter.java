@@ -40,7 +40,7 @@ public class PermissionGranter {
         try {
             final Class<?> pmServiceClass = XposedHelpers.findClass(CLASS_PACKAGE_MANAGER_SERVICE, null);
 
-            XposedHelpers.findAndHookMethod(pmServiceClass, "grantPermissionsLPw",
+            HookProfiler.findAndHookMethod(pmServiceClass, "grantPermissionsLPw",
                     CLASS_PACKAGE_PARSER_PACKAGE, boolean.class, new XC_MethodHook() {
                 @SuppressWarnings("unchecked")
                 @Override
@@ -111,7 +111,7 @@ public class PhoneWrapper {
             if (DEBUG) log("mSimSlot = " + mSimSlot);
 
             String methodName = Utils.isMtkDevice() ? "makeDefaultPhones" : "makeDefaultPhone";
-            XposedHelpers.findAndHookMethod(mClsPhoneFactory, methodName, 
+            HookProfiler.findAndHookMethod(mClsPhoneFactory, methodName, 
                     Context.class, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
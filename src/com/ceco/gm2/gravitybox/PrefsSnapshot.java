@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+/**
+ * Writes a compact binary snapshot of GravityBox preferences that hooked processes
+ * memory-map using {@link MappedPreferences} instead of re-parsing preferences XML.
+ *
+ * File layout (big endian):
+ *   header:  int magic, int version, long generation, int entryCount, int tableSize,
+ *            int dataOffset, int reserved
+ *   table:   tableSize slots of (int keyHash, int keyOffset, int type, int value);
+ *            open addressing with linear probing, keyOffset -1 marks an empty slot
+ *   data:    keys and strings as (int length, char[length]), longs as 8 bytes,
+ *            string sets as (int count, string[count])
+ * For boolean, int and float the value is stored inline in the slot,
+ * for other types the slot value holds an offset into data section.
+ *
+ * A separate 8-byte generation file is updated in place after the snapshot
+ * is replaced so readers can detect changes without touching the snapshot itself.
+ */
+public class PrefsSnapshot {
+    private static final String TAG = "GB:PrefsSnapshot";
+
+    public static final String FILE_SNAPSHOT = "prefs_snapshot";
+    public static final String FILE_GENERATION = "prefs_snapshot_gen";
+
+    static final int MAGIC = 0x47425053;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int SLOT_SIZE = 16;
+
+    static final int TYPE_BOOLEAN = 1;
+    static final int TYPE_INT = 2;
+    static final int TYPE_LONG = 3;
+    static final int TYPE_FLOAT = 4;
+    static final int TYPE_STRING = 5;
+    static final int TYPE_STRING_SET = 6;
+
+    private static final int WRITE_DELAY = 100;
+
+    private static Context mContext;
+    private static SharedPreferences mPrefs;
+    private static Handler mHandler;
+
+    private PrefsSnapshot() { }
+
+    private static OnSharedPreferenceChangeListener mPrefsListener = new OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+            scheduleWrite();
+        }
+    };
+
+    private static Runnable mWriteRunnable = new Runnable() {
+        @Override
+        public void run() {
+            write(mContext.getFilesDir(), mPrefs.getAll());
+        }
+    };
+
+    /**
+     * Starts keeping snapshot in sync with preferences of this process.
+     * Listener is held statically so it stays registered regardless of activity lifecycle.
+     */
+    public static synchronized void attach(Context context) {
+        if (mPrefs != null) return;
+
+        mContext = context.getApplicationContext();
+        mPrefs = mContext.getSharedPreferences(
+                mContext.getPackageName() + "_preferences", Context.MODE_WORLD_READABLE);
+        HandlerThread thread = new HandlerThread(TAG);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+        mPrefs.registerOnSharedPreferenceChangeListener(mPrefsListener);
+        scheduleWrite();
+    }
+
+    /**
+     * Drops current snapshot so that readers fall back to preferences XML.
+     * Used when preferences file is replaced underneath us (e.g. restore from backup).
+     */
+    public static synchronized void invalidate(Context context) {
+        if (mPrefs != null) {
+            mPrefs.unregisterOnSharedPreferenceChangeListener(mPrefsListener);
+            mHandler.removeCallbacks(mWriteRunnable);
+            mHandler.getLooper().quit();
+            mPrefs = null;
+            mHandler = null;
+        }
+
+        File filesDir = context.getFilesDir();
+        new File(filesDir, FILE_SNAPSHOT).delete();
+        try {
+            bumpGeneration(filesDir);
+        } catch (IOException e) {
+            Log.e(TAG, "Error updating snapshot generation", e);
+        }
+    }
+
+    private static synchronized void scheduleWrite() {
+        if (mHandler == null) return;
+        mHandler.removeCallbacks(mWriteRunnable);
+        mHandler.postDelayed(mWriteRunnable, WRITE_DELAY);
+    }
+
+    private static void write(File filesDir, Map<String, ?> map) {
+        try {
+            // hooked processes need to be able to traverse files dir
+            filesDir.setExecutable(true, false);
+            filesDir.setReadable(true, false);
+
+            long generation = readGeneration(filesDir) + 1;
+            byte[] data = build(map, generation);
+
+            File tmpFile = new File(filesDir, FILE_SNAPSHOT + ".tmp");
+            FileOutputStream out = new FileOutputStream(tmpFile);
+            try {
+                out.write(data);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            tmpFile.setReadable(true, false);
+            if (!tmpFile.renameTo(new File(filesDir, FILE_SNAPSHOT))) {
+                throw new IOException("Unable to rename " + tmpFile);
+            }
+
+            writeGeneration(filesDir, generation);
+        } catch (Throwable t) {
+            Log.e(TAG, "Error writing preference snapshot", t);
+        }
+    }
+
+    private static long readGeneration(File filesDir) throws IOException {
+        File genFile = new File(filesDir, FILE_GENERATION);
+        if (!genFile.exists() || genFile.length() < 8) return 0;
+
+        RandomAccessFile raf = new RandomAccessFile(genFile, "r");
+        try {
+            return raf.readLong();
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void bumpGeneration(File filesDir) throws IOException {
+        writeGeneration(filesDir, readGeneration(filesDir) + 1);
+    }
+
+    // generation file is never replaced, only overwritten in place,
+    // so readers that keep it mapped see the update
+    private static void writeGeneration(File filesDir, long generation) throws IOException {
+        File genFile = new File(filesDir, FILE_GENERATION);
+        RandomAccessFile raf = new RandomAccessFile(genFile, "rw");
+        try {
+            raf.seek(0);
+            raf.writeLong(generation);
+        } finally {
+            raf.close();
+        }
+        genFile.setReadable(true, false);
+    }
+
+    static int slotFor(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    static byte[] build(Map<String, ?> map, long generation) {
+        int count = 0;
+        int dataSize = 0;
+        for (Map.Entry<String, ?> e : map.entrySet()) {
+            Object value = e.getValue();
+            if (typeOf(value) == 0) continue;
+            count++;
+            dataSize += sizeOf(e.getKey());
+            if (value instanceof Long) {
+                dataSize += 8;
+            } else if (value instanceof String) {
+                dataSize += sizeOf((String) value);
+            } else if (value instanceof Set) {
+                dataSize += 4;
+                for (Object s : (Set<?>) value) {
+                    dataSize += sizeOf((String) s);
+                }
+            }
+        }
+
+        int tableSize = 16;
+        while (tableSize < count * 2) tableSize <<= 1;
+        final int mask = tableSize - 1;
+        final int dataOffset = HEADER_SIZE + tableSize * SLOT_SIZE;
+
+        ByteBuffer buf = ByteBuffer.allocate(dataOffset + dataSize);
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, VERSION);
+        buf.putLong(8, generation);
+        buf.putInt(16, count);
+        buf.putInt(20, tableSize);
+        buf.putInt(24, dataOffset);
+        for (int i = 0; i < tableSize; i++) {
+            buf.putInt(HEADER_SIZE + i * SLOT_SIZE + 4, -1);
+        }
+
+        buf.position(dataOffset);
+        for (Map.Entry<String, ?> e : map.entrySet()) {
+            final Object value = e.getValue();
+            final int type = typeOf(value);
+            if (type == 0) continue;
+
+            final String key = e.getKey();
+            int slot = slotFor(key.hashCode(), mask);
+            while (buf.getInt(HEADER_SIZE + slot * SLOT_SIZE + 4) != -1) {
+                slot = (slot + 1) & mask;
+            }
+            final int slotPos = HEADER_SIZE + slot * SLOT_SIZE;
+
+            buf.putInt(slotPos, key.hashCode());
+            buf.putInt(slotPos + 4, buf.position());
+            buf.putInt(slotPos + 8, type);
+            putString(buf, key);
+
+            switch (type) {
+                case TYPE_BOOLEAN:
+                    buf.putInt(slotPos + 12, ((Boolean) value) ? 1 : 0);
+                    break;
+                case TYPE_INT:
+                    buf.putInt(slotPos + 12, (Integer) value);
+                    break;
+                case TYPE_FLOAT:
+                    buf.putInt(slotPos + 12, Float.floatToIntBits((Float) value));
+                    break;
+                case TYPE_LONG:
+                    buf.putInt(slotPos + 12, buf.position());
+                    buf.putLong((Long) value);
+                    break;
+                case TYPE_STRING:
+                    buf.putInt(slotPos + 12, buf.position());
+                    putString(buf, (String) value);
+                    break;
+                case TYPE_STRING_SET:
+                    buf.putInt(slotPos + 12, buf.position());
+                    Set<?> set = (Set<?>) value;
+                    buf.putInt(set.size());
+                    for (Object s : set) {
+                        putString(buf, (String) s);
+                    }
+                    break;
+            }
+        }
+
+        return buf.array();
+    }
+
+    private static int typeOf(Object value) {
+        if (value instanceof Boolean) return TYPE_BOOLEAN;
+        if (value instanceof Integer) return TYPE_INT;
+        if (value instanceof Long) return TYPE_LONG;
+        if (value instanceof Float) return TYPE_FLOAT;
+        if (value instanceof String) return TYPE_STRING;
+        if (value instanceof Set) return TYPE_STRING_SET;
+        return 0;
+    }
+
+    private static int sizeOf(String s) {
+        return 4 + s.length() * 2;
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        final int length = s.length();
+        buf.putInt(length);
+        for (int i = 0; i < length; i++) {
+            buf.putChar(s.charAt(i));
+        }
+    }
+}
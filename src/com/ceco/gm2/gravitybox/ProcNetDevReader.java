@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Allocation-free reader of per-interface byte counters from /proc/net/dev.
+ *
+ * The file is kept open and re-read from offset 0 into a retained buffer on each
+ * {@link #read()}. RX and TX byte counters are parsed directly from the bytes into
+ * a primitive array; interface name strings are only created when an interface
+ * appears or changes position. Depends on plain Java only so it can be fed
+ * with fixture files or byte arrays outside of Android.
+ */
+public class ProcNetDevReader {
+    public static final String PATH = "/proc/net/dev";
+    public static final int MAX_INTERFACES = 32;
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    // transmitted bytes follow 8 receive columns
+    private static final int FIELD_TX_BYTES = 8;
+
+    private final String mPath;
+    private RandomAccessFile mFile;
+    private FileChannel mChannel;
+    private byte[] mBuffer = new byte[4096];
+    private ByteBuffer mByteBuffer = ByteBuffer.wrap(mBuffer);
+
+    private int mCount;
+    // rx and tx bytes interleaved per interface
+    private final long[] mCounters = new long[MAX_INTERFACES * 2];
+    private final String[] mNames = new String[MAX_INTERFACES];
+    private final boolean[] mLoopback = new boolean[MAX_INTERFACES];
+
+    public ProcNetDevReader() {
+        this(PATH);
+    }
+
+    public ProcNetDevReader(String path) {
+        mPath = path;
+    }
+
+    /**
+     * Reads and parses current counters.
+     * @return false if file couldn't be read; previously parsed values are kept in that case
+     */
+    public boolean read() {
+        try {
+            if (mChannel == null) {
+                mFile = new RandomAccessFile(mPath, "r");
+                mChannel = mFile.getChannel();
+            }
+
+            int length = 0;
+            while (true) {
+                mByteBuffer.clear();
+                mByteBuffer.position(length);
+                final int n = mChannel.read(mByteBuffer, length);
+                if (n <= 0) break;
+                length += n;
+                if (length == mBuffer.length) {
+                    byte[] buffer = new byte[mBuffer.length * 2];
+                    System.arraycopy(mBuffer, 0, buffer, 0, length);
+                    mBuffer = buffer;
+                    mByteBuffer = ByteBuffer.wrap(mBuffer);
+                }
+            }
+
+            parse(mBuffer, length);
+            return true;
+        } catch (IOException e) {
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Parses contents of /proc/net/dev. Lines without interface name (headers) are skipped,
+     * as is a last line cut off before its TX bytes column ended.
+     * @return number of interfaces parsed
+     */
+    public int parse(byte[] data, int length) {
+        int count = 0;
+        int pos = 0;
+        while (pos < length && count < MAX_INTERFACES) {
+            while (pos < length && data[pos] == ' ') pos++;
+            final int nameStart = pos;
+            while (pos < length && data[pos] != ':' && data[pos] != '\n') pos++;
+            if (pos >= length || data[pos] != ':') {
+                pos = skipLine(data, pos, length);
+                continue;
+            }
+            final int nameEnd = pos++;
+
+            long rx = 0;
+            long tx = 0;
+            for (int field = 0; field <= FIELD_TX_BYTES; field++) {
+                while (pos < length && data[pos] == ' ') pos++;
+                long value = 0;
+                while (pos < length && data[pos] >= '0' && data[pos] <= '9') {
+                    value = value * 10 + (data[pos++] - '0');
+                }
+                if (field == 0) {
+                    rx = value;
+                } else if (field == FIELD_TX_BYTES) {
+                    tx = value;
+                }
+            }
+            if (pos >= length) {
+                // truncated; partial counters would look like a reset
+                break;
+            }
+
+            setName(count, data, nameStart, nameEnd);
+            mCounters[count * 2] = rx;
+            mCounters[count * 2 + 1] = tx;
+            count++;
+            pos = skipLine(data, pos, length);
+        }
+        mCount = count;
+        return count;
+    }
+
+    private static int skipLine(byte[] data, int pos, int length) {
+        while (pos < length && data[pos] != '\n') pos++;
+        return pos + 1;
+    }
+
+    private void setName(int index, byte[] data, int start, int end) {
+        final String name = mNames[index];
+        if (name != null && name.length() == end - start) {
+            boolean equal = true;
+            for (int i = start; i < end; i++) {
+                if (name.charAt(i - start) != data[i]) {
+                    equal = false;
+                    break;
+                }
+            }
+            if (equal) return;
+        }
+        mNames[index] = new String(data, start, end - start, ASCII);
+        mLoopback[index] = mNames[index].startsWith("lo");
+    }
+
+    public int getInterfaceCount() {
+        return mCount;
+    }
+
+    public String getInterfaceName(int index) {
+        return mNames[index];
+    }
+
+    public boolean isLoopback(int index) {
+        return mLoopback[index];
+    }
+
+    public long getRxBytes(int index) {
+        return mCounters[index * 2];
+    }
+
+    public long getTxBytes(int index) {
+        return mCounters[index * 2 + 1];
+    }
+
+    /**
+     * Sum of received bytes of all interfaces except loopback.
+     */
+    public long getTotalRxBytes() {
+        long total = 0;
+        for (int i = 0; i < mCount; i++) {
+            if (!mLoopback[i]) {
+                total += mCounters[i * 2];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sum of transmitted bytes of all interfaces except loopback.
+     */
+    public long getTotalTxBytes() {
+        long total = 0;
+        for (int i = 0; i < mCount; i++) {
+            if (!mLoopback[i]) {
+                total += mCounters[i * 2 + 1];
+            }
+        }
+        return total;
+    }
+
+    public void close() {
+        if (mFile != null) {
+            try {
+                mFile.close();
+            } catch (IOException e) {
+                //
+            }
+        }
+        mFile = null;
+        mChannel = null;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2013 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.robv.android.xposed.XC_MethodHook;
+
+/**
+ * Method hook that is installed once and stays in place, but only acts while
+ * the current thread is inside a scope opened by an outer hook.
+ *
+ * Replaces the pattern of hooking a method in outer before() and unhooking it
+ * in outer after() which takes the global hook lock on every call.
+ * Outer hook calls {@link #enterScope} from its before() and {@link #exitScope}
+ * from its after(). exitScope() should be called unconditionally - it's a no-op
+ * when the scope was not entered for given param.
+ * Scopes may nest, the innermost context is the one passed to the callbacks.
+ */
+public abstract class ScopedHook extends XC_MethodHook {
+    private final ThreadLocal<Scope> mScope = new ThreadLocal<Scope>();
+    private final AtomicInteger mActiveScopes = new AtomicInteger(0);
+    private Unhook mUnhook;
+
+    private static final class Scope {
+        final MethodHookParam owner;
+        final Object context;
+        final Scope parent;
+
+        Scope(MethodHookParam owner, Object context, Scope parent) {
+            this.owner = owner;
+            this.context = context;
+            this.parent = parent;
+        }
+    }
+
+    public ScopedHook() {
+        super();
+    }
+
+    public ScopedHook(int priority) {
+        super(priority);
+    }
+
+    public synchronized void install(Class<?> clazz, String methodName, Object... parameterTypes) {
+        if (mUnhook != null) return;
+
+        Object[] parameterTypesAndCallback = Arrays.copyOf(parameterTypes, parameterTypes.length + 1);
+        parameterTypesAndCallback[parameterTypes.length] = this;
+        mUnhook = HookProfiler.findAndHookMethod(clazz, methodName, parameterTypesAndCallback);
+    }
+
+    public synchronized boolean isInstalled() {
+        return (mUnhook != null);
+    }
+
+    public synchronized void uninstall() {
+        if (mUnhook != null) {
+            mUnhook.unhook();
+            mUnhook = null;
+        }
+    }
+
+    public void enterScope(MethodHookParam owner, Object context) {
+        mScope.set(new Scope(owner, context, mScope.get()));
+        mActiveScopes.incrementAndGet();
+    }
+
+    public void exitScope(MethodHookParam owner) {
+        Scope scope = mScope.get();
+        for (Scope s = scope; s != null; s = s.parent) {
+            if (s.owner == owner) {
+                // drop this scope together with any inner scope left open by mistake
+                int closed = 0;
+                for (Scope c = scope; c != s.parent; c = c.parent) closed++;
+                if (s.parent == null) {
+                    mScope.remove();
+                } else {
+                    mScope.set(s.parent);
+                }
+                mActiveScopes.addAndGet(-closed);
+                return;
+            }
+        }
+    }
+
+    public boolean isInScope() {
+        return (mActiveScopes.get() > 0 && mScope.get() != null);
+    }
+
+    @Override
+    protected final void beforeHookedMethod(MethodHookParam param) throws Throwable {
+        if (mActiveScopes.get() == 0) return;
+        Scope scope = mScope.get();
+        if (scope != null) {
+            beforeScopedMethod(param, scope.context);
+        }
+    }
+
+    @Override
+    protected final void afterHookedMethod(MethodHookParam param) throws Throwable {
+        if (mActiveScopes.get() == 0) return;
+        Scope scope = mScope.get();
+        if (scope != null) {
+            afterScopedMethod(param, scope.context);
+        }
+    }
+
+    protected void beforeScopedMethod(MethodHookParam param, Object context) throws Throwable { }
+
+    protected void afterScopedMethod(MethodHookParam param, Object context) throws Throwable { }
+}
@@ -161,6 +161,7 @@ public class SettingsManager {
             try {
                 Utils.copyFile(prefsFile, prefsDestFile);
                 prefsDestFile.setReadable(true, false);
+                PrefsSnapshot.invalidate(mContext);
             } catch (IOException e) {
                 e.printStackTrace();
                 Toast.makeText(mContext, R.string.settings_restore_failed, Toast.LENGTH_LONG).show();
@@ -183,7 +184,7 @@ public class SettingsManager {
         File[] fileList = new File(BACKUP_PATH + "/files").listFiles();
         if (fileList != null) {
             for (File f : fileList) {
-                if (f.isFile()) {
+                if (f.isFile() && !f.getName().startsWith(PrefsSnapshot.FILE_SNAPSHOT)) {
                     File outFile = new File(targetFilesDirPath + "/" + f.getName());
                     try {
                         Utils.copyFile(f, outFile);
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.media.SoundPool;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Plays short sound cues from GravityBox raw resources with low latency.
+ *
+ * Cues are decoded once into a {@link SoundPool} (see {@link #preload(int...)}) and played
+ * from memory. The pool is released under memory pressure and cues are loaded again lazily
+ * when next played; a cue played before it's loaded starts as soon as decoding completes.
+ * Must be used from a thread with a looper, normally main thread.
+ */
+public class SoundCuePlayer implements ComponentCallbacks2 {
+    private static final String TAG = "GB:SoundCuePlayer";
+    private static final boolean DEBUG = false;
+
+    private static final int MAX_STREAMS = 2;
+
+    private final Context mGbContext;
+    private final int mStreamType;
+    private SoundPool mPool;
+    // resource id -> sound id
+    private final SparseIntArray mSoundIds = new SparseIntArray();
+    // sound ids decoded and ready to play
+    private final SparseBooleanArray mLoaded = new SparseBooleanArray();
+    // sound ids to be played once decoded
+    private final SparseBooleanArray mPendingPlay = new SparseBooleanArray();
+
+    private static void log(String message) {
+        XposedBridge.log(TAG + ": " + message);
+    }
+
+    /**
+     * @param context context of hosting process used to observe memory pressure
+     * @param gbContext GravityBox context the cues are loaded from
+     * @param streamType audio stream cues are played on
+     */
+    public SoundCuePlayer(Context context, Context gbContext, int streamType) {
+        mGbContext = gbContext;
+        mStreamType = streamType;
+        context.registerComponentCallbacks(this);
+    }
+
+    private final SoundPool.OnLoadCompleteListener mLoadCompleteListener =
+            new SoundPool.OnLoadCompleteListener() {
+        @Override
+        public void onLoadComplete(SoundPool soundPool, int sampleId, int status) {
+            if (soundPool != mPool) return;
+            if (status != 0) {
+                log("Error loading sound id " + sampleId + "; status=" + status);
+                mPendingPlay.delete(sampleId);
+                return;
+            }
+            mLoaded.put(sampleId, true);
+            if (DEBUG) log("Sound id " + sampleId + " loaded");
+            if (mPendingPlay.get(sampleId)) {
+                mPendingPlay.delete(sampleId);
+                mPool.play(sampleId, 1f, 1f, 0, 0, 1f);
+            }
+        }
+    };
+
+    private int load(int resId) {
+        if (mPool == null) {
+            mPool = new SoundPool(MAX_STREAMS, mStreamType, 0);
+            mPool.setOnLoadCompleteListener(mLoadCompleteListener);
+        }
+        int soundId = mSoundIds.get(resId);
+        if (soundId == 0) {
+            soundId = mPool.load(mGbContext, resId, 1);
+            mSoundIds.put(resId, soundId);
+            if (DEBUG) log("Loading resource " + resId + " as sound id " + soundId);
+        }
+        return soundId;
+    }
+
+    /**
+     * Starts decoding of given cues in background unless already loaded.
+     */
+    public void preload(int... resIds) {
+        try {
+            for (int resId : resIds) {
+                load(resId);
+            }
+        } catch (Throwable t) {
+            XposedBridge.log(t);
+        }
+    }
+
+    public void play(int resId) {
+        try {
+            final int soundId = load(resId);
+            if (mLoaded.get(soundId)) {
+                mPool.play(soundId, 1f, 1f, 0, 0, 1f);
+            } else {
+                mPendingPlay.put(soundId, true);
+            }
+        } catch (Throwable t) {
+            XposedBridge.log(t);
+        }
+    }
+
+    /**
+     * Frees all decoded cues. Cues will be loaded again when needed.
+     */
+    public void release() {
+        if (mPool == null) return;
+
+        mPool.release();
+        mPool = null;
+        mSoundIds.clear();
+        mLoaded.clear();
+        mPendingPlay.clear();
+        if (DEBUG) log("Sound pool released");
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            release();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        release();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) { }
+}
@@ -15,12 +15,8 @@
 
 package com.ceco.gm2.gravitybox;
 
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import com.ceco.gm2.gravitybox.BatteryInfoManager.BatteryStatusListener;
 import de.robv.android.xposed.XposedBridge;
@@ -33,6 +29,12 @@ import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.graphics.PorterDuff;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.LongSparseArray;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 
 public class StatusBarIconManager implements BroadcastSubReceiver {
     private static final String TAG = "GB:StatusBarIconManager";
@@ -57,23 +59,62 @@ public class StatusBarIconManager implements BroadcastSubReceiver {
     public static final int FLAG_ICON_STYLE_CHANGED = 1 << 8;
     private static final int FLAG_ALL = 0x1FF;
 
+    private static final int ICON_CACHE_SIZE = 64;
+    // upper bounds of battery level ranges covered by battery icons
+    private static final int[] BATTERY_LEVELS = new int[] { 4, 15, 35, 49, 60, 75, 90, 100 };
+
     private Context mContext;
     private Resources mGbResources;
     private Resources mSystemUiRes;
-    private Map<String, Integer> mWifiIconIds;
-    private Map<String, Integer> mMobileIconIds;
-    private Map<String, Integer> mBatteryIconIds;
-    private Map<String, Integer[]> mBasicIconIds;
-    private Map<String, SoftReference<Drawable>> mIconCache;
+    // SystemUI resource id -> GravityBox resource id
+    private SparseIntArray mWifiIconIds;
+    private SparseIntArray mMobileIconIds;
+    private SparseArray<int[]> mBasicIconIds;
+    // GravityBox resource ids per battery level range; [0] discharging, [1] charging
+    private int[][] mBatteryIconIds;
+    // SystemUI resource id -> whether it's a colored MTK signal icon
+    private SparseBooleanArray mMtkColoredSignalIcons;
+    private DrawableCache mIconCache;
+    private IconSet mIconSet;
+    // read on prerender thread to abandon superseded sets early
+    private volatile int mIconSetGeneration;
+    private boolean mIconSetPending;
+    private int mDeferredFlags;
+    private Handler mHandler;
+    private Handler mPrerenderHandler;
+    private FrameCoalescer mNotifier;
     private boolean[] mAllowMobileIconChange;
     private ColorInfo mColorInfo;
     private List<IconManagerListener> mListeners;
     private BatteryInfoManager mBatteryInfo;
+    private int mUpdateDepth;
+    private int mPendingFlags;
+    private boolean mPendingClearCache;
 
     public interface IconManagerListener {
         void onIconManagerStatusChanged(int flags, ColorInfo colorInfo);
     }
 
+    /**
+     * Immutable set of tinted icons rendered for one color configuration.
+     * Built on prerender thread and only read on main thread once published.
+     */
+    private static final class IconSet {
+        private final LongSparseArray<Drawable> mIcons;
+
+        IconSet(LongSparseArray<Drawable> icons) {
+            mIcons = icons;
+        }
+
+        Drawable get(long key) {
+            return mIcons.get(key);
+        }
+
+        int size() {
+            return mIcons.size();
+        }
+    }
+
     static class ColorInfo {
         boolean coloringEnabled;
         int defaultIconColor;
@@ -98,88 +139,102 @@ public class StatusBarIconManager implements BroadcastSubReceiver {
         mGbResources = gbContext.getResources();
         mAllowMobileIconChange = new boolean[] { true, true };
 
-        Map<String, Integer> tmpMap = new HashMap<String, Integer>();
-        tmpMap.put("stat_sys_wifi_signal_0", R.drawable.stat_sys_wifi_signal_0);
-        tmpMap.put("stat_sys_wifi_signal_1", R.drawable.stat_sys_wifi_signal_1);
-        tmpMap.put("stat_sys_wifi_signal_1_fully", R.drawable.stat_sys_wifi_signal_1_fully);
-        tmpMap.put("stat_sys_wifi_signal_2", R.drawable.stat_sys_wifi_signal_2);
-        tmpMap.put("stat_sys_wifi_signal_2_fully", R.drawable.stat_sys_wifi_signal_2_fully);
-        tmpMap.put("stat_sys_wifi_signal_3", R.drawable.stat_sys_wifi_signal_3);
-        tmpMap.put("stat_sys_wifi_signal_3_fully", R.drawable.stat_sys_wifi_signal_3_fully);
-        tmpMap.put("stat_sys_wifi_signal_4", R.drawable.stat_sys_wifi_signal_4);
-        tmpMap.put("stat_sys_wifi_signal_4_fully", R.drawable.stat_sys_wifi_signal_4_fully);
-        tmpMap.put("stat_sys_wifi_signal_null", R.drawable.stat_sys_wifi_signal_null);
-        mWifiIconIds = Collections.unmodifiableMap(tmpMap);
-
+        mWifiIconIds = new SparseIntArray();
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_0", R.drawable.stat_sys_wifi_signal_0);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_1", R.drawable.stat_sys_wifi_signal_1);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_1_fully", R.drawable.stat_sys_wifi_signal_1_fully);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_2", R.drawable.stat_sys_wifi_signal_2);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_2_fully", R.drawable.stat_sys_wifi_signal_2_fully);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_3", R.drawable.stat_sys_wifi_signal_3);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_3_fully", R.drawable.stat_sys_wifi_signal_3_fully);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_4", R.drawable.stat_sys_wifi_signal_4);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_4_fully", R.drawable.stat_sys_wifi_signal_4_fully);
+        putIconId(mWifiIconIds, "stat_sys_wifi_signal_null", R.drawable.stat_sys_wifi_signal_null);
+
+        mMobileIconIds = new SparseIntArray();
         if (Utils.isMtkDevice()) {
-            tmpMap = new HashMap<String, Integer>();
-            tmpMap.put("stat_sys_gemini_signal_1_blue", R.drawable.stat_sys_signal_1_fully);
-            tmpMap.put("stat_sys_gemini_signal_2_blue", R.drawable.stat_sys_signal_2_fully);
-            tmpMap.put("stat_sys_gemini_signal_3_blue", R.drawable.stat_sys_signal_3_fully);
-            tmpMap.put("stat_sys_gemini_signal_4_blue", R.drawable.stat_sys_signal_4_fully);
-            tmpMap.put("stat_sys_gemini_signal_1_orange", R.drawable.stat_sys_signal_1_fully);
-            tmpMap.put("stat_sys_gemini_signal_2_orange", R.drawable.stat_sys_signal_2_fully);
-            tmpMap.put("stat_sys_gemini_signal_3_orange", R.drawable.stat_sys_signal_3_fully);
-            tmpMap.put("stat_sys_gemini_signal_4_orange", R.drawable.stat_sys_signal_4_fully);
-            mMobileIconIds = Collections.unmodifiableMap(tmpMap);
+            mMtkColoredSignalIcons = new SparseBooleanArray();
+            putIconId(mMobileIconIds, "stat_sys_gemini_signal_1_blue", R.drawable.stat_sys_signal_1_fully);
+            putIconId(mMobileIconIds, "stat_sys_gemini_signal_2_blue", R.drawable.stat_sys_signal_2_fully);
+            putIconId(mMobileIconIds, "stat_sys_gemini_signal_3_blue", R.drawable.stat_sys_signal_3_fully);
+            putIconId(mMobileIconIds, "stat_sys_gemini_signal_4_blue", R.drawable.stat_sys_signal_4_fully);
+            putIconId(mMobileIconIds, "stat_sys_gemini_signal_1_orange", R.drawable.stat_sys_signal_1_fully);
+            putIconId(mMobileIconIds, "stat_sys_gemini_signal_2_orange", R.drawable.stat_sys_signal_2_fully);
+            putIconId(mMobileIconIds, "stat_sys_gemini_signal_3_orange", R.drawable.stat_sys_signal_3_fully);
+            putIconId(mMobileIconIds, "stat_sys_gemini_signal_4_orange", R.drawable.stat_sys_signal_4_fully);
         } else {
-            tmpMap = new HashMap<String, Integer>();
-            tmpMap.put("stat_sys_signal_0", R.drawable.stat_sys_signal_0);
-            tmpMap.put("stat_sys_signal_0_fully", R.drawable.stat_sys_signal_0_fully);
-            tmpMap.put("stat_sys_signal_1", R.drawable.stat_sys_signal_1);
-            tmpMap.put("stat_sys_signal_1_fully", R.drawable.stat_sys_signal_1_fully);
-            tmpMap.put("stat_sys_signal_2", R.drawable.stat_sys_signal_2);
-            tmpMap.put("stat_sys_signal_2_fully", R.drawable.stat_sys_signal_2_fully);
-            tmpMap.put("stat_sys_signal_3", R.drawable.stat_sys_signal_3);
-            tmpMap.put("stat_sys_signal_3_fully", R.drawable.stat_sys_signal_3_fully);
-            tmpMap.put("stat_sys_signal_4", R.drawable.stat_sys_signal_4);
-            tmpMap.put("stat_sys_signal_4_fully", R.drawable.stat_sys_signal_4_fully);
-            mMobileIconIds = Collections.unmodifiableMap(tmpMap);
-        }
-
-        tmpMap = new HashMap<String, Integer>();
-        tmpMap.put("stat_sys_battery_0", R.drawable.stat_sys_battery_0);
-        tmpMap.put("stat_sys_battery_15", R.drawable.stat_sys_battery_15);
-        tmpMap.put("stat_sys_battery_35", R.drawable.stat_sys_battery_28);
-        tmpMap.put("stat_sys_battery_49", R.drawable.stat_sys_battery_43);
-        tmpMap.put("stat_sys_battery_60", R.drawable.stat_sys_battery_57);
-        tmpMap.put("stat_sys_battery_75", R.drawable.stat_sys_battery_71);
-        tmpMap.put("stat_sys_battery_90", R.drawable.stat_sys_battery_85);
-        tmpMap.put("stat_sys_battery_100", R.drawable.stat_sys_battery_100);
-        tmpMap.put("stat_sys_battery_charge_anim0", R.drawable.stat_sys_battery_charge_anim0);
-        tmpMap.put("stat_sys_battery_charge_anim15", R.drawable.stat_sys_battery_charge_anim15);
-        tmpMap.put("stat_sys_battery_charge_anim35", R.drawable.stat_sys_battery_charge_anim28);
-        tmpMap.put("stat_sys_battery_charge_anim49", R.drawable.stat_sys_battery_charge_anim43);
-        tmpMap.put("stat_sys_battery_charge_anim60", R.drawable.stat_sys_battery_charge_anim57);
-        tmpMap.put("stat_sys_battery_charge_anim75", R.drawable.stat_sys_battery_charge_anim71);
-        tmpMap.put("stat_sys_battery_charge_anim90", R.drawable.stat_sys_battery_charge_anim85);
-        tmpMap.put("stat_sys_battery_charge_anim100", R.drawable.stat_sys_battery_charge_anim100);
-        mBatteryIconIds = Collections.unmodifiableMap(tmpMap);
-
-        Map<String, Integer[]> basicIconMap = new HashMap<String, Integer[]>();
-        basicIconMap.put("stat_sys_data_bluetooth", new Integer[] 
+            putIconId(mMobileIconIds, "stat_sys_signal_0", R.drawable.stat_sys_signal_0);
+            putIconId(mMobileIconIds, "stat_sys_signal_0_fully", R.drawable.stat_sys_signal_0_fully);
+            putIconId(mMobileIconIds, "stat_sys_signal_1", R.drawable.stat_sys_signal_1);
+            putIconId(mMobileIconIds, "stat_sys_signal_1_fully", R.drawable.stat_sys_signal_1_fully);
+            putIconId(mMobileIconIds, "stat_sys_signal_2", R.drawable.stat_sys_signal_2);
+            putIconId(mMobileIconIds, "stat_sys_signal_2_fully", R.drawable.stat_sys_signal_2_fully);
+            putIconId(mMobileIconIds, "stat_sys_signal_3", R.drawable.stat_sys_signal_3);
+            putIconId(mMobileIconIds, "stat_sys_signal_3_fully", R.drawable.stat_sys_signal_3_fully);
+            putIconId(mMobileIconIds, "stat_sys_signal_4", R.drawable.stat_sys_signal_4);
+            putIconId(mMobileIconIds, "stat_sys_signal_4_fully", R.drawable.stat_sys_signal_4_fully);
+        }
+
+        mBatteryIconIds = new int[][] {
+            new int[] {
+                R.drawable.stat_sys_battery_0, R.drawable.stat_sys_battery_15,
+                R.drawable.stat_sys_battery_28, R.drawable.stat_sys_battery_43,
+                R.drawable.stat_sys_battery_57, R.drawable.stat_sys_battery_71,
+                R.drawable.stat_sys_battery_85, R.drawable.stat_sys_battery_100 },
+            new int[] {
+                R.drawable.stat_sys_battery_charge_anim0, R.drawable.stat_sys_battery_charge_anim15,
+                R.drawable.stat_sys_battery_charge_anim28, R.drawable.stat_sys_battery_charge_anim43,
+                R.drawable.stat_sys_battery_charge_anim57, R.drawable.stat_sys_battery_charge_anim71,
+                R.drawable.stat_sys_battery_charge_anim85, R.drawable.stat_sys_battery_charge_anim100 }
+        };
+
+        mBasicIconIds = new SparseArray<int[]>();
+        putIconIds("stat_sys_data_bluetooth", new int[] 
                 { R.drawable.stat_sys_data_bluetooth, R.drawable.stat_sys_data_bluetooth });
-        basicIconMap.put("stat_sys_data_bluetooth_connected", new Integer[] {
+        putIconIds("stat_sys_data_bluetooth_connected", new int[] {
                 R.drawable.stat_sys_data_bluetooth_connected, 
                 R.drawable.stat_sys_data_bluetooth_connected });
-        basicIconMap.put("stat_sys_alarm", new Integer[] {
-                null, R.drawable.stat_sys_alarm_kk });
-        basicIconMap.put("stat_sys_ringer_vibrate", new Integer[] { 
-                null, R.drawable.stat_sys_ringer_vibrate_kk });
-        basicIconMap.put("stat_sys_ringer_silent", new Integer[] {
+        putIconIds("stat_sys_alarm", new int[] {
+                0, R.drawable.stat_sys_alarm_kk });
+        putIconIds("stat_sys_ringer_vibrate", new int[] { 
+                0, R.drawable.stat_sys_ringer_vibrate_kk });
+        putIconIds("stat_sys_ringer_silent", new int[] {
                 R.drawable.stat_sys_ringer_silent_jb, R.drawable.stat_sys_ringer_silent_kk });
-        basicIconMap.put("stat_sys_headset_with_mic", new Integer[] {
-                R.drawable.stat_sys_headset_with_mic_jb, null });
-        basicIconMap.put("stat_sys_headset_without_mic", new Integer[] {
-                R.drawable.stat_sys_headset_without_mic_jb, null });
-        mBasicIconIds = Collections.unmodifiableMap(basicIconMap);
+        putIconIds("stat_sys_headset_with_mic", new int[] {
+                R.drawable.stat_sys_headset_with_mic_jb, 0 });
+        putIconIds("stat_sys_headset_without_mic", new int[] {
+                R.drawable.stat_sys_headset_without_mic_jb, 0 });
 
-        mIconCache = new HashMap<String, SoftReference<Drawable>>();
+        mIconCache = new DrawableCache(ICON_CACHE_SIZE);
+        mHandler = new Handler();
 
         initColorInfo();
-        mBatteryInfo = new BatteryInfoManager(gbContext);
+        mBatteryInfo = new BatteryInfoManager(mContext, gbContext);
 
         mListeners = new ArrayList<IconManagerListener>();
+        mNotifier = new FrameCoalescer(new FrameCoalescer.Target() {
+            @Override
+            public void onFlags(int flags) {
+                for (IconManagerListener listener : mListeners) {
+                    listener.onIconManagerStatusChanged(flags, mColorInfo);
+                }
+            }
+        });
+    }
+
+    private void putIconId(SparseIntArray map, String name, int gbResId) {
+        final int resId = mSystemUiRes.getIdentifier(name, "drawable", ModStatusBar.PACKAGE_NAME);
+        if (resId != 0) {
+            map.put(resId, gbResId);
+        }
+    }
+
+    // gbResIds indexed by icon style; 0 where there's no GravityBox drawable for the style
+    private void putIconIds(String name, int[] gbResIds) {
+        final int resId = mSystemUiRes.getIdentifier(name, "drawable", ModStatusBar.PACKAGE_NAME);
+        if (resId != 0) {
+            mBasicIconIds.put(resId, gbResIds);
+        }
     }
 
     private void initColorInfo() {
@@ -217,38 +272,49 @@ public class StatusBarIconManager implements BroadcastSubReceiver {
     @Override
     public void onBroadcastReceived(Context context, Intent intent) {
         if (intent.getAction().equals(GravityBoxSettings.ACTION_PREF_STATUSBAR_COLOR_CHANGED)) {
+            // intent may carry several changes at once; apply them all with one notification
+            beginUpdate();
             if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_ICON_COLOR)) {
                 setIconColor(intent.getIntExtra(
                         GravityBoxSettings.EXTRA_SB_ICON_COLOR, getDefaultIconColor()));
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_ICON_STYLE)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_ICON_STYLE)) {
                 setIconStyle(intent.getIntExtra(GravityBoxSettings.EXTRA_SB_ICON_STYLE, 0));
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_ICON_COLOR_SECONDARY)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_ICON_COLOR_SECONDARY)) {
                 setIconColor(1, intent.getIntExtra(
                         GravityBoxSettings.EXTRA_SB_ICON_COLOR_SECONDARY, 
                         getDefaultIconColor()));
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_DATA_ACTIVITY_COLOR)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_DATA_ACTIVITY_COLOR)) {
                 setDataActivityColor(intent.getIntExtra(
                         GravityBoxSettings.EXTRA_SB_DATA_ACTIVITY_COLOR, 
                         StatusBarIconManager.DEFAULT_DATA_ACTIVITY_COLOR));
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_DATA_ACTIVITY_COLOR_SECONDARY)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_DATA_ACTIVITY_COLOR_SECONDARY)) {
                 setDataActivityColor(1, intent.getIntExtra(
                         GravityBoxSettings.EXTRA_SB_DATA_ACTIVITY_COLOR_SECONDARY, 
                         StatusBarIconManager.DEFAULT_DATA_ACTIVITY_COLOR));
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_ICON_COLOR_ENABLE)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_ICON_COLOR_ENABLE)) {
                 setColoringEnabled(intent.getBooleanExtra(
                         GravityBoxSettings.EXTRA_SB_ICON_COLOR_ENABLE, false));
                 if (DEBUG) log("Icon colors master switch set to: " + isColoringEnabled());
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_COLOR_FOLLOW)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_COLOR_FOLLOW)) {
                 setFollowStockBatteryColor(intent.getBooleanExtra(
                         GravityBoxSettings.EXTRA_SB_COLOR_FOLLOW, false));
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_COLOR_SKIP_BATTERY)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_COLOR_SKIP_BATTERY)) {
                 setSkipBatteryIcon(intent.getBooleanExtra(
                         GravityBoxSettings.EXTRA_SB_COLOR_SKIP_BATTERY, false));
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_SIGNAL_COLOR_MODE)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_SB_SIGNAL_COLOR_MODE)) {
                 setSignalIconMode(intent.getIntExtra(
                         GravityBoxSettings.EXTRA_SB_SIGNAL_COLOR_MODE,
                         StatusBarIconManager.SI_MODE_GB));
             }
+            endUpdate();
         } else if (intent.getAction().equals(Intent.ACTION_BATTERY_CHANGED)) {
             mBatteryInfo.updateBatteryInfo(intent);
         } else if (intent.getAction().equals(GravityBoxSettings.ACTION_PREF_BATTERY_CHARGED_SOUND_CHANGED)) {
@@ -276,14 +342,47 @@ public class StatusBarIconManager implements BroadcastSubReceiver {
         }
     }
 
+    /**
+     * Defers cache clearing and listener notifications until matching {@link #endUpdate()}
+     * so that multiple changes result in a single notification with combined flags.
+     */
+    public void beginUpdate() {
+        mUpdateDepth++;
+    }
+
+    public void endUpdate() {
+        if (mUpdateDepth == 0 || --mUpdateDepth > 0) return;
+
+        if (mPendingClearCache) {
+            mPendingClearCache = false;
+            clearCache();
+        }
+        if (mPendingFlags != 0) {
+            final int flags = mPendingFlags;
+            mPendingFlags = 0;
+            notifyListeners(flags);
+        }
+    }
+
     private void notifyListeners(int flags) {
-        for (IconManagerListener listener : mListeners) {
-            listener.onIconManagerStatusChanged(flags, mColorInfo);
+        if (mUpdateDepth > 0) {
+            mPendingFlags |= flags;
+            return;
+        }
+        if (mIconSetPending) {
+            // listeners will be notified once new icons are ready
+            mDeferredFlags |= flags;
+            return;
         }
+        // changes arriving within one frame are delivered together on next vsync
+        mNotifier.post(flags);
     }
 
+    /**
+     * Notifies listeners about complete state right away, e.g. when their views were just created.
+     */
     public void refreshState() {
-        notifyListeners(FLAG_ALL);
+        mNotifier.postImmediate(FLAG_ALL);
     }
 
     public void setColoringEnabled(boolean enabled) {
@@ -422,53 +521,186 @@ public class StatusBarIconManager implements BroadcastSubReceiver {
     }
 
     public void clearCache() {
+        if (mUpdateDepth > 0) {
+            mPendingClearCache = true;
+            return;
+        }
+        if (DEBUG) log("Cache cleared; size=" + mIconCache.size() + "; hits=" +
+                mIconCache.getHitCount() + "; misses=" + mIconCache.getMissCount());
         mIconCache.clear();
-        if (DEBUG) log("Cache cleared");
+        mIconSet = null;
+        prerenderIconSet();
+    }
+
+    /**
+     * Renders icons for current color configuration on background thread.
+     * Listener notifications are held back until the new set is published so that
+     * listeners refreshing their icons don't have to render them on main thread.
+     */
+    private void prerenderIconSet() {
+        if (mPrerenderHandler == null) {
+            HandlerThread thread = new HandlerThread(TAG);
+            thread.start();
+            mPrerenderHandler = new Handler(thread.getLooper());
+        }
+
+        final int generation = ++mIconSetGeneration;
+        final int[] iconColor = mColorInfo.iconColor.clone();
+        final int signalIconMode = mColorInfo.signalIconMode;
+        final int iconStyle = mColorInfo.iconStyle;
+        final boolean coloringEnabled = mColorInfo.coloringEnabled;
+        mIconSetPending = true;
+
+        mPrerenderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mIconSetGeneration) return;
+
+                IconSet iconSet = null;
+                try {
+                    iconSet = buildIconSet(generation, iconColor, signalIconMode, iconStyle,
+                            coloringEnabled);
+                } catch (Throwable t) {
+                    log("Error prerendering icons: " + t.getMessage());
+                }
+                if (generation != mIconSetGeneration) return;
+
+                final IconSet result = iconSet;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // superseded by newer color change
+                        if (generation != mIconSetGeneration) return;
+
+                        mIconSet = result;
+                        mIconSetPending = false;
+                        if (DEBUG) log("Icon set published: " +
+                                (result == null ? 0 : result.size()) + " icons");
+                        if (mDeferredFlags != 0) {
+                            final int flags = mDeferredFlags;
+                            mDeferredFlags = 0;
+                            notifyListeners(flags);
+                        }
+                    }
+                });
+            }
+        });
     }
 
-    private Drawable getCachedDrawable(String key) {
-        if (mIconCache.containsKey(key)) {
-            if (DEBUG) log("getCachedDrawable('" + key + "') - cached drawable found");
-            return mIconCache.get(key).get();
+    // runs on prerender thread; keys must match those used by getGbDrawable and getStockDrawable
+    // returns null as soon as a newer set has been requested
+    private IconSet buildIconSet(int generation, int[] iconColor, int signalIconMode,
+            int iconStyle, boolean coloringEnabled) {
+        LongSparseArray<Drawable> icons = new LongSparseArray<Drawable>();
+        final int mobileSlots = Utils.isMtkDevice() ? iconColor.length : 1;
+
+        if (signalIconMode == SI_MODE_GB) {
+            for (int i = 0; i < mWifiIconIds.size(); i++) {
+                renderGbIcon(icons, mWifiIconIds.valueAt(i), iconColor, 0, 0);
+            }
+            for (int slot = 0; slot < mobileSlots; slot++) {
+                for (int i = 0; i < mMobileIconIds.size(); i++) {
+                    renderGbIcon(icons, mMobileIconIds.valueAt(i), iconColor, slot, 0);
+                }
+            }
+        } else if (signalIconMode == SI_MODE_STOCK) {
+            for (int i = 0; i < mWifiIconIds.size(); i++) {
+                renderStockIcon(icons, mWifiIconIds.keyAt(i), iconColor, 0, 0,
+                        PorterDuff.Mode.SRC_IN);
+            }
+            for (int slot = 0; slot < mobileSlots; slot++) {
+                for (int i = 0; i < mMobileIconIds.size(); i++) {
+                    renderStockIcon(icons, mMobileIconIds.keyAt(i), iconColor, slot, 0,
+                            PorterDuff.Mode.SRC_IN);
+                }
+            }
         }
-        return null;
-    }
+        if (generation != mIconSetGeneration) return null;
 
-    private void setCachedDrawable(String key, Drawable d) {
-        mIconCache.put(key, new SoftReference<Drawable>(d));
-        if (DEBUG) log("setCachedDrawable('" + key + "') - storing to cache");
-    }
+        for (int[] levels : mBatteryIconIds) {
+            for (int gbResId : levels) {
+                renderGbIcon(icons, gbResId, iconColor, 0, 0);
+            }
+        }
+        if (generation != mIconSetGeneration) return null;
 
-    public Drawable getWifiIcon(int resId) {
-        Drawable cd;
-        String key;
+        if (coloringEnabled) {
+            for (int i = 0; i < mBasicIconIds.size(); i++) {
+                final int gbResId = mBasicIconIds.valueAt(i)[iconStyle];
+                if (gbResId != 0) {
+                    renderGbIcon(icons, gbResId, iconColor, 0, iconStyle);
+                } else {
+                    renderStockIcon(icons, mBasicIconIds.keyAt(i), iconColor, 0, iconStyle,
+                            PorterDuff.Mode.SRC_ATOP);
+                }
+            }
+        }
 
-        try {
-            key = mSystemUiRes.getResourceEntryName(resId);
-        } catch (Resources.NotFoundException nfe) {
-            return null;
+        return new IconSet(icons);
+    }
+
+    private void renderGbIcon(LongSparseArray<Drawable> icons, int gbResId,
+            int[] iconColor, int slot, int style) {
+        final long key = DrawableCache.key(gbResId, slot, style, SI_MODE_GB);
+        if (icons.get(key) != null) return;
+        Drawable d = mGbResources.getDrawable(gbResId).mutate();
+        d.setColorFilter(iconColor[slot], PorterDuff.Mode.SRC_IN);
+        icons.put(key, d);
+    }
+
+    private void renderStockIcon(LongSparseArray<Drawable> icons, int resId,
+            int[] iconColor, int slot, int style, PorterDuff.Mode mode) {
+        final long key = DrawableCache.key(resId, slot, style, SI_MODE_STOCK);
+        if (icons.get(key) != null) return;
+        Drawable d = mSystemUiRes.getDrawable(resId).mutate();
+        d.setColorFilter(iconColor[slot], mode);
+        icons.put(key, d);
+    }
+
+    // drawable from GravityBox resources colored with given color slot, cached
+    private Drawable getGbDrawable(int gbResId, int slot, int style) {
+        final long key = DrawableCache.key(gbResId, slot, style, SI_MODE_GB);
+        Drawable d = mIconSet == null ? null : mIconSet.get(key);
+        if (d != null) return d;
+        d = mIconCache.get(key);
+        if (d == null) {
+            d = mGbResources.getDrawable(gbResId).mutate();
+            d = applyColorFilter(slot, d);
+            mIconCache.put(key, d);
+        }
+        return d;
+    }
+
+    // drawable from SystemUI resources colored with given color slot, cached
+    private Drawable getStockDrawable(int resId, int slot, int style, PorterDuff.Mode mode) {
+        final long key = DrawableCache.key(resId, slot, style, SI_MODE_STOCK);
+        Drawable d = mIconSet == null ? null : mIconSet.get(key);
+        if (d != null) return d;
+        d = mIconCache.get(key);
+        if (d == null) {
+            try {
+                d = mSystemUiRes.getDrawable(resId).mutate();
+            } catch (Resources.NotFoundException nfe) {
+                return null;
+            }
+            d = applyColorFilter(slot, d, mode);
+            mIconCache.put(key, d);
         }
+        return d;
+    }
 
+    public Drawable getWifiIcon(int resId) {
         switch(mColorInfo.signalIconMode) {
             case SI_MODE_GB:
-                cd = getCachedDrawable(key);
-                if (cd != null) return cd;
-                if (mWifiIconIds.containsKey(key)) {
-                    Drawable d = mGbResources.getDrawable(mWifiIconIds.get(key)).mutate();
-                    d = applyColorFilter(d);
-                    setCachedDrawable(key, d);
-                    return d;
+                final int gbResId = mWifiIconIds.get(resId);
+                if (gbResId != 0) {
+                    return getGbDrawable(gbResId, 0, 0);
                 }
-                if (DEBUG) log("getWifiIcon: no drawable for key: " + key);
+                if (DEBUG) log("getWifiIcon: no drawable for resId: " + resId);
                 return null;
 
             case SI_MODE_STOCK:
-                cd = getCachedDrawable(key);
-                if (cd != null) return cd;
-                Drawable d = mSystemUiRes.getDrawable(resId).mutate();
-                d = applyColorFilter(d);
-                setCachedDrawable(key, d);
-                return d;
+                return getStockDrawable(resId, 0, 0, PorterDuff.Mode.SRC_IN);
 
             case SI_MODE_DISABLED:
             default:
@@ -477,41 +709,35 @@ public class StatusBarIconManager implements BroadcastSubReceiver {
     }
 
     public Drawable getMobileIcon(int index, int resId) {
-        Drawable cd;
-        String key;
-
-        try {
-            key = mSystemUiRes.getResourceEntryName(resId);
-        } catch (Resources.NotFoundException nfe) {
-            return null;
-        }
-
-        mAllowMobileIconChange[index] = !Utils.isMtkDevice() ||
-                key.contains("blue") || key.contains("orange");
-        if (!mAllowMobileIconChange[index]) {
-            return null;
+        if (mMtkColoredSignalIcons != null) {
+            int i = mMtkColoredSignalIcons.indexOfKey(resId);
+            if (i < 0) {
+                String name;
+                try {
+                    name = mSystemUiRes.getResourceEntryName(resId);
+                } catch (Resources.NotFoundException nfe) {
+                    return null;
+                }
+                mMtkColoredSignalIcons.put(resId, name.contains("blue") || name.contains("orange"));
+                i = mMtkColoredSignalIcons.indexOfKey(resId);
+            }
+            mAllowMobileIconChange[index] = mMtkColoredSignalIcons.valueAt(i);
+            if (!mAllowMobileIconChange[index]) {
+                return null;
+            }
         }
 
         switch(mColorInfo.signalIconMode) {
             case SI_MODE_GB:
-                cd = getCachedDrawable(key);
-                if (cd != null) return cd;
-                if (mMobileIconIds.containsKey(key)) {
-                    Drawable d = mGbResources.getDrawable(mMobileIconIds.get(key)).mutate();
-                    d = applyColorFilter(index, d);
-                    setCachedDrawable(key, d);
-                    return d;
+                final int gbResId = mMobileIconIds.get(resId);
+                if (gbResId != 0) {
+                    return getGbDrawable(gbResId, index, 0);
                 }
-                if (DEBUG) log("getMobileIcon: no drawable for key: " + key);
+                if (DEBUG) log("getMobileIcon: no drawable for resId: " + resId);
                 return null;
 
             case SI_MODE_STOCK:
-                cd = getCachedDrawable(key);
-                if (cd != null) return cd;
-                Drawable d = mSystemUiRes.getDrawable(resId).mutate();
-                d = applyColorFilter(index, d);
-                setCachedDrawable(key, d);
-                return d;
+                return getStockDrawable(resId, index, 0, PorterDuff.Mode.SRC_IN);
 
             case SI_MODE_DISABLED:
             default:
@@ -532,69 +758,33 @@ public class StatusBarIconManager implements BroadcastSubReceiver {
     }
 
     public Drawable getBatteryIcon(int level, boolean plugged) {
-        String key = getKeyForBatteryStatus(level, plugged);
-
-        Drawable cd = getCachedDrawable(key);
-        if (cd != null) return cd;
-
-        if (mBatteryIconIds.containsKey(key)) {
-            Drawable d = mGbResources.getDrawable(mBatteryIconIds.get(key)).mutate();
-            d = applyColorFilter(d);
-            setCachedDrawable(key, d);
-            return d;
+        for (int i = 0; i < BATTERY_LEVELS.length; i++) {
+            if (level <= BATTERY_LEVELS[i]) {
+                return getGbDrawable(mBatteryIconIds[plugged ? 1 : 0][i], 0, 0);
+            }
         }
 
-        if (DEBUG) log("getBatteryIcon: no drawable for key: " + key);
+        if (DEBUG) log("getBatteryIcon: no drawable for level: " + level);
         return null;
     }
 
-    private String getKeyForBatteryStatus(int level, boolean plugged) {
-        String key = plugged ? "stat_sys_battery_charge_anim" : "stat_sys_battery_";
-
-        if (level <= 4) {
-            key += "0";
-        } else if (level <= 15) {
-            key += "15";
-        } else if (level <= 35) {
-            key += "35";
-        } else if (level <= 49) {
-            key += "49";
-        } else if (level <= 60) {
-            key += "60";
-        } else if (level <= 75) {
-            key += "75";
-        } else if (level <= 90) {
-            key += "90";
-        } else if (level <= 100) {
-            key += "100";
-        }
-
-        return key;
-    }
-
     public Drawable getBasicIcon(int resId) {
         if (resId == 0) return null;
 
         try {
-            String key = mSystemUiRes.getResourceEntryName(resId);
-            if (!mBasicIconIds.containsKey(key)) {
-                if (DEBUG) log("getBasicIcon: no record for key: " + key);
+            final int[] gbResIds = mBasicIconIds.get(resId);
+            if (gbResIds == null) {
+                if (DEBUG) log("getBasicIcon: no record for resId: " + resId);
                 return null;
             }
 
             if (mColorInfo.coloringEnabled) {
-                Drawable d = getCachedDrawable(key);
-                if (d != null) return d;
-                if (mBasicIconIds.get(key)[mColorInfo.iconStyle] != null) {
-                    d = mGbResources.getDrawable(mBasicIconIds.get(key)[mColorInfo.iconStyle]).mutate();
-                    d = applyColorFilter(d);
+                final int style = mColorInfo.iconStyle;
+                if (gbResIds[style] != 0) {
+                    return getGbDrawable(gbResIds[style], 0, style);
                 } else {
-                    d = mSystemUiRes.getDrawable(resId).mutate();
-                    d = applyColorFilter(d, PorterDuff.Mode.SRC_ATOP);
+                    return getStockDrawable(resId, 0, style, PorterDuff.Mode.SRC_ATOP);
                 }
-                setCachedDrawable(key, d);
-                if (DEBUG) log("getBasicIcon: returning drawable for key: " + key);
-                return d;
             } else {
                 return mSystemUiRes.getDrawable(resId);
             }
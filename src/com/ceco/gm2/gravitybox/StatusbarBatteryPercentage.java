@@ -20,22 +20,24 @@ import com.ceco.gm2.gravitybox.BatteryInfoManager.BatteryStatusListener;
 import com.ceco.gm2.gravitybox.StatusBarIconManager.ColorInfo;
 import com.ceco.gm2.gravitybox.StatusBarIconManager.IconManagerListener;
 
-import android.animation.Animator;
-import android.animation.Animator.AnimatorListener;
-import android.animation.ArgbEvaluator;
-import android.animation.ValueAnimator;
-import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.graphics.Color;
 import android.util.TypedValue;
+import android.view.View;
 import android.widget.TextView;
 
-public class StatusbarBatteryPercentage implements IconManagerListener, BatteryStatusListener {
+public class StatusbarBatteryPercentage implements IconManagerListener, BatteryStatusListener,
+                                                   ChargeAnimationDriver.Client {
+    private static final long CHARGE_ANIM_DURATION = 1000;
+    private static final long CHARGE_ANIM_FRAME_INTERVAL = 33;
+
     private TextView mPercentage;
     private int mDefaultColor;
     private int mIconColor;
     private String mPercentSign;
     private BatteryData mBatteryData;
-    private ValueAnimator mChargeAnim;
+    private ChargeAnimationDriver mAnimDriver;
+    private boolean mChargeAnimRunning;
+    private long mChargeAnimTime;
     private int mChargingStyle;
 
     public static final int CHARGING_STYLE_NONE = 0;
@@ -47,57 +49,68 @@ public class StatusbarBatteryPercentage implements IconManagerListener, BatteryS
         mDefaultColor = mIconColor = mPercentage.getCurrentTextColor();
         mPercentSign = "";
         mChargingStyle = CHARGING_STYLE_NONE;
+        mAnimDriver = ChargeAnimationDriver.getInstance(clockView.getContext());
+        mPercentage.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
+                updateChargingAnimationState();
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+                updateChargingAnimationState();
+            }
+        });
     }
 
     private boolean startChargingAnimation() {
-        if (mChargeAnim == null || !mChargeAnim.isRunning()) {
-            mChargeAnim = ValueAnimator.ofObject(new ArgbEvaluator(),
-                    mIconColor, Color.GREEN);
-
-            mChargeAnim.addUpdateListener(new AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator va) {
-                    mPercentage.setTextColor((Integer)va.getAnimatedValue());
-                }
-            });
-            mChargeAnim.addListener(new AnimatorListener() {
-                @Override
-                public void onAnimationCancel(Animator animation) {
-                    mPercentage.setTextColor(mIconColor);
-                }
-
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    mPercentage.setTextColor(mIconColor);
-                }
-
-                @Override
-                public void onAnimationRepeat(Animator animation) { }
-
-                @Override
-                public void onAnimationStart(Animator animation) { }
-            });
-
-            mChargeAnim.setDuration(1000);
-            mChargeAnim.setRepeatMode(ValueAnimator.REVERSE);
-            mChargeAnim.setRepeatCount(ValueAnimator.INFINITE);
-            mChargeAnim.start();
+        if (!mChargeAnimRunning) {
+            mChargeAnimRunning = true;
+            mChargeAnimTime = 0;
+            updateChargingAnimationState();
             return true;
         }
         return false;
     }
 
     private boolean stopChargingAnimation() {
-        if (mChargeAnim != null && mChargeAnim.isRunning()) {
-            mChargeAnim.end();
-            mChargeAnim.removeAllUpdateListeners();
-            mChargeAnim.removeAllListeners();
-            mChargeAnim = null;
+        if (mChargeAnimRunning) {
+            mChargeAnimRunning = false;
+            updateChargingAnimationState();
+            mPercentage.setTextColor(mIconColor);
             return true;
         }
         return false;
     }
 
+    // frames are only requested while text can actually be seen
+    private void updateChargingAnimationState() {
+        if (mChargeAnimRunning && mPercentage.getWindowToken() != null &&
+                mPercentage.getVisibility() == View.VISIBLE) {
+            mAnimDriver.start(this, CHARGE_ANIM_FRAME_INTERVAL);
+        } else {
+            mAnimDriver.stop(this);
+        }
+    }
+
+    @Override
+    public void onAnimationFrame(long elapsed) {
+        // pulses from icon color to green and back
+        mChargeAnimTime = (mChargeAnimTime + elapsed) % (2 * CHARGE_ANIM_DURATION);
+        final float fraction = mChargeAnimTime < CHARGE_ANIM_DURATION ?
+                (float) mChargeAnimTime / CHARGE_ANIM_DURATION :
+                2f - (float) mChargeAnimTime / CHARGE_ANIM_DURATION;
+        mPercentage.setTextColor(blendColors(mIconColor, Color.GREEN, fraction));
+    }
+
+    private static int blendColors(int from, int to, float fraction) {
+        final int a = (int) (Color.alpha(from) + (Color.alpha(to) - Color.alpha(from)) * fraction);
+        final int r = (int) (Color.red(from) + (Color.red(to) - Color.red(from)) * fraction);
+        final int g = (int) (Color.green(from) + (Color.green(to) - Color.green(from)) * fraction);
+        final int b = (int) (Color.blue(from) + (Color.blue(to) - Color.blue(from)) * fraction);
+        return Color.argb(a, r, g, b);
+    }
+
     public TextView getView() {
         return mPercentage;
     }
@@ -145,6 +158,7 @@ public class StatusbarBatteryPercentage implements IconManagerListener, BatteryS
 
     public void setVisibility(int visibility) {
         mPercentage.setVisibility(visibility);
+        updateChargingAnimationState();
     }
 
     @Override
@@ -17,11 +17,13 @@ package com.ceco.gm2.gravitybox;
 
 import com.ceco.gm2.gravitybox.StatusBarIconManager.ColorInfo;
 import com.ceco.gm2.gravitybox.StatusBarIconManager.IconManagerListener;
+import com.ceco.gm2.gravitybox.reflect.Accessors;
+import com.ceco.gm2.gravitybox.reflect.Accessors.FieldAccessor;
+import com.ceco.gm2.gravitybox.reflect.Accessors.MethodInvoker;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedBridge;
-import de.robv.android.xposed.XposedHelpers;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
@@ -32,6 +34,23 @@ import android.widget.LinearLayout;
 public class StatusbarSignalCluster implements BroadcastSubReceiver, IconManagerListener {
     public static final String TAG = "GB:StatusbarSignalCluster";
 
+    protected static final FieldAccessor FIELD_WIFI_GROUP = Accessors.field("mWifiGroup");
+    protected static final FieldAccessor FIELD_IS_AIRPLANE_MODE = Accessors.field("mIsAirplaneMode");
+    protected static final FieldAccessor FIELD_WIFI_VISIBLE = Accessors.field("mWifiVisible");
+    protected static final FieldAccessor FIELD_WIFI = Accessors.field("mWifi");
+    protected static final FieldAccessor FIELD_WIFI_STRENGTH_ID = Accessors.field("mWifiStrengthId");
+    protected static final FieldAccessor FIELD_WIFI_ACTIVITY = Accessors.field("mWifiActivity");
+    protected static final FieldAccessor FIELD_WIFI_ACTIVITY_ID = Accessors.field("mWifiActivityId");
+    protected static final FieldAccessor FIELD_MOBILE_VISIBLE = Accessors.field("mMobileVisible");
+    protected static final FieldAccessor FIELD_MOBILE = Accessors.field("mMobile");
+    protected static final FieldAccessor FIELD_MOBILE_STRENGTH_ID = Accessors.field("mMobileStrengthId");
+    protected static final FieldAccessor FIELD_MOBILE_ACTIVITY = Accessors.field("mMobileActivity");
+    protected static final FieldAccessor FIELD_MOBILE_ACTIVITY_ID = Accessors.field("mMobileActivityId");
+    protected static final FieldAccessor FIELD_MOBILE_TYPE = Accessors.field("mMobileType");
+    protected static final FieldAccessor FIELD_MOBILE_TYPE_ID = Accessors.field("mMobileTypeId");
+    protected static final FieldAccessor FIELD_AIRPLANE = Accessors.field("mAirplane");
+    protected static final MethodInvoker METHOD_APPLY = Accessors.method("apply");
+
     protected LinearLayout mView;
     protected StatusBarIconManager mIconManager;
     protected Resources mResources;
@@ -57,7 +76,7 @@ public class StatusbarSignalCluster implements BroadcastSubReceiver, IconManager
 
         if (mView != null) {
             try {
-                XposedHelpers.findAndHookMethod(mView.getClass(), "apply", new XC_MethodHook() {
+                HookProfiler.findAndHookMethod(mView.getClass(), "apply", new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                         apply();
@@ -79,7 +98,7 @@ public class StatusbarSignalCluster implements BroadcastSubReceiver, IconManager
     private void update() {
         if (mView != null) {
             try {
-                XposedHelpers.callMethod(mView, "apply");
+                METHOD_APPLY.invoke(mView);
             } catch (Throwable t) {
                 log("Error invoking apply() method: " + t.getMessage());
             }
@@ -88,10 +107,10 @@ public class StatusbarSignalCluster implements BroadcastSubReceiver, IconManager
 
     protected void apply() {
         try {
-            if (XposedHelpers.getObjectField(mView, "mWifiGroup") != null) {
+            if (FIELD_WIFI_GROUP.get(mView) != null) {
                 if (mIconManager.isColoringEnabled()) {
                     updateWiFiIcon();
-                    if (!XposedHelpers.getBooleanField(mView, "mIsAirplaneMode")) {
+                    if (!FIELD_IS_AIRPLANE_MODE.getBoolean(mView)) {
                         updateMobileIcon();
                     }
                 }
@@ -104,18 +123,18 @@ public class StatusbarSignalCluster implements BroadcastSubReceiver, IconManager
 
     protected void updateWiFiIcon() {
         try {
-            if (XposedHelpers.getBooleanField(mView, "mWifiVisible") &&
+            if (FIELD_WIFI_VISIBLE.getBoolean(mView) &&
                     mIconManager.getSignalIconMode() != StatusBarIconManager.SI_MODE_DISABLED) {
-                ImageView wifiIcon = (ImageView) XposedHelpers.getObjectField(mView, "mWifi");
+                ImageView wifiIcon = (ImageView) FIELD_WIFI.get(mView);
                 if (wifiIcon != null) {
-                    int resId = XposedHelpers.getIntField(mView, "mWifiStrengthId");
+                    int resId = FIELD_WIFI_STRENGTH_ID.getInt(mView);
                     Drawable d = mIconManager.getWifiIcon(resId);
                     if (d != null) wifiIcon.setImageDrawable(d);
                 }
-                ImageView wifiActivity = (ImageView) XposedHelpers.getObjectField(mView, "mWifiActivity");
+                ImageView wifiActivity = (ImageView) FIELD_WIFI_ACTIVITY.get(mView);
                 if (wifiActivity != null) {
                     try {
-                        int resId = XposedHelpers.getIntField(mView, "mWifiActivityId");
+                        int resId = FIELD_WIFI_ACTIVITY_ID.getInt(mView);
                         Drawable d = mResources.getDrawable(resId).mutate();
                         d = mIconManager.applyDataActivityColorFilter(d);
                         wifiActivity.setImageDrawable(d);
@@ -131,20 +150,20 @@ public class StatusbarSignalCluster implements BroadcastSubReceiver, IconManager
 
     protected void updateMobileIcon() {
         try {
-            if (XposedHelpers.getBooleanField(mView, "mMobileVisible") &&
+            if (FIELD_MOBILE_VISIBLE.getBoolean(mView) &&
                     mIconManager.getSignalIconMode() != StatusBarIconManager.SI_MODE_DISABLED) {
-                ImageView mobile = (ImageView) XposedHelpers.getObjectField(mView, "mMobile");
+                ImageView mobile = (ImageView) FIELD_MOBILE.get(mView);
                 if (mobile != null) {
-                    int resId = XposedHelpers.getIntField(mView, "mMobileStrengthId");
+                    int resId = FIELD_MOBILE_STRENGTH_ID.getInt(mView);
                     Drawable d = mIconManager.getMobileIcon(resId);
                     if (d != null) mobile.setImageDrawable(d);
                 }
                 if (mIconManager.isMobileIconChangeAllowed()) {
                     ImageView mobileActivity = 
-                            (ImageView) XposedHelpers.getObjectField(mView, "mMobileActivity");
+                            (ImageView) FIELD_MOBILE_ACTIVITY.get(mView);
                     if (mobileActivity != null) {
                         try {
-                            int resId = XposedHelpers.getIntField(mView, "mMobileActivityId");
+                            int resId = FIELD_MOBILE_ACTIVITY_ID.getInt(mView);
                             Drawable d = mResources.getDrawable(resId).mutate();
                             d = mIconManager.applyDataActivityColorFilter(d);
                             mobileActivity.setImageDrawable(d);
@@ -152,10 +171,10 @@ public class StatusbarSignalCluster implements BroadcastSubReceiver, IconManager
                             mobileActivity.setImageDrawable(null);
                         }
                     }
-                    ImageView mobileType = (ImageView) XposedHelpers.getObjectField(mView, "mMobileType");
+                    ImageView mobileType = (ImageView) FIELD_MOBILE_TYPE.get(mView);
                     if (mobileType != null) {
                         try {
-                            int resId = XposedHelpers.getIntField(mView, "mMobileTypeId");
+                            int resId = FIELD_MOBILE_TYPE_ID.getInt(mView);
                             Drawable d = mResources.getDrawable(resId).mutate();
                             d = mIconManager.applyColorFilter(d);
                             mobileType.setImageDrawable(d);
@@ -172,7 +191,7 @@ public class StatusbarSignalCluster implements BroadcastSubReceiver, IconManager
 
     protected void updateAirplaneModeIcon() {
         try {
-            ImageView airplaneModeIcon = (ImageView) XposedHelpers.getObjectField(mView, "mAirplane");
+            ImageView airplaneModeIcon = (ImageView) FIELD_AIRPLANE.get(mView);
             if (airplaneModeIcon != null) {
                 Drawable d = airplaneModeIcon.getDrawable();
                 if (mIconManager.isColoringEnabled()) {
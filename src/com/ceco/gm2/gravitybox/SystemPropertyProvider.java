@@ -60,7 +60,7 @@ public class SystemPropertyProvider {
         try {
             final Class<?> classSystemUIService = XposedHelpers.findClass(
                     "com.android.systemui.SystemUIService", classLoader);
-            XposedHelpers.findAndHookMethod(classSystemUIService, "onCreate", new XC_MethodHook() {
+            HookProfiler.findAndHookMethod(classSystemUIService, "onCreate", new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(final MethodHookParam param) throws Throwable {
                     Context context = (Context) param.thisObject;
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recent RX/TX traffic per network interface kept in fixed-capacity ring buffers.
+ *
+ * Each sample stores bytes transferred since previous sample for every known interface
+ * together with totals (excluding loopback) and the time span it covers, so rates stay
+ * correct regardless of sampling interval. All storage is allocated up front as primitive
+ * arrays; adding a sample doesn't allocate.
+ * Not thread-safe; meant to be used from the thread that samples counters.
+ */
+public class TrafficHistory {
+    // 5 minutes when sampled every second
+    public static final int DEFAULT_CAPACITY = 300;
+
+    private static final int MAX_INTERFACES = ProcNetDevReader.MAX_INTERFACES;
+
+    private final int mCapacity;
+    private int mHead;
+    private int mSize;
+    private long mLastTimestamp = -1;
+
+    // per sample
+    private final long[] mDurations;
+    private final long[] mTotalRx;
+    private final long[] mTotalTx;
+    // per interface slot and sample: [slot * capacity + sample]
+    private final long[] mRx;
+    private final long[] mTx;
+
+    // per interface slot
+    private final String[] mNames = new String[MAX_INTERFACES];
+    private final boolean[] mLoopback = new boolean[MAX_INTERFACES];
+    private final long[] mLastRx = new long[MAX_INTERFACES];
+    private final long[] mLastTx = new long[MAX_INTERFACES];
+
+    public TrafficHistory(int capacity) {
+        mCapacity = capacity;
+        mDurations = new long[capacity];
+        mTotalRx = new long[capacity];
+        mTotalTx = new long[capacity];
+        mRx = new long[MAX_INTERFACES * capacity];
+        mTx = new long[MAX_INTERFACES * capacity];
+    }
+
+    /**
+     * Records counters just read by reader. First call only establishes a baseline.
+     * @param timestamp elapsed realtime in ms
+     */
+    public void addSample(long timestamp, ProcNetDevReader reader) {
+        final int index = mHead;
+        for (int slot = 0; slot < MAX_INTERFACES; slot++) {
+            mRx[slot * mCapacity + index] = 0;
+            mTx[slot * mCapacity + index] = 0;
+        }
+
+        long totalRx = 0;
+        long totalTx = 0;
+        final int count = reader.getInterfaceCount();
+        for (int i = 0; i < count; i++) {
+            final String name = reader.getInterfaceName(i);
+            int slot = findSlot(name);
+            final boolean isNew = (slot < 0);
+            if (isNew) {
+                slot = assignSlot(name, reader.isLoopback(i));
+                if (slot < 0) continue;
+            }
+
+            final long rx = reader.getRxBytes(i);
+            final long tx = reader.getTxBytes(i);
+            // counters restart when interface is brought down and up again
+            final long deltaRx = isNew || rx < mLastRx[slot] ? 0 : rx - mLastRx[slot];
+            final long deltaTx = isNew || tx < mLastTx[slot] ? 0 : tx - mLastTx[slot];
+            mLastRx[slot] = rx;
+            mLastTx[slot] = tx;
+            mRx[slot * mCapacity + index] = deltaRx;
+            mTx[slot * mCapacity + index] = deltaTx;
+            if (!mLoopback[slot]) {
+                totalRx += deltaRx;
+                totalTx += deltaTx;
+            }
+        }
+
+        if (mLastTimestamp < 0) {
+            mLastTimestamp = timestamp;
+            return;
+        }
+
+        mDurations[index] = Math.max(timestamp - mLastTimestamp, 1);
+        mTotalRx[index] = totalRx;
+        mTotalTx[index] = totalTx;
+        mLastTimestamp = timestamp;
+        mHead = (index + 1) % mCapacity;
+        if (mSize < mCapacity) {
+            mSize++;
+        }
+    }
+
+    private int findSlot(String name) {
+        for (int slot = 0; slot < MAX_INTERFACES; slot++) {
+            final String slotName = mNames[slot];
+            if (slotName == null) return -1;
+            if (slotName == name || slotName.equals(name)) return slot;
+        }
+        return -1;
+    }
+
+    private int assignSlot(String name, boolean loopback) {
+        for (int slot = 0; slot < MAX_INTERFACES; slot++) {
+            if (mNames[slot] == null) {
+                mNames[slot] = name;
+                mLoopback[slot] = loopback;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Starts over, e.g. when sampling was suspended for a while.
+     * Known interfaces are kept.
+     */
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+        mLastTimestamp = -1;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public List<String> getInterfaceNames() {
+        List<String> names = new ArrayList<String>();
+        for (int slot = 0; slot < MAX_INTERFACES && mNames[slot] != null; slot++) {
+            names.add(mNames[slot]);
+        }
+        return names;
+    }
+
+    private int indexOf(int age) {
+        return (mHead - 1 - age + mCapacity) % mCapacity;
+    }
+
+    /**
+     * Sums bytes over samples taken within given period.
+     * @param iface interface name or null for all interfaces except loopback
+     * @param tx true for transmitted, false for received bytes
+     * @param period period in ms counted back from the latest sample
+     * @param out receives { bytes, covered time in ms }
+     */
+    private void sum(String iface, boolean tx, long period, long[] out) {
+        out[0] = out[1] = 0;
+        int slot = -1;
+        if (iface != null) {
+            slot = findSlot(iface);
+            if (slot < 0) return;
+        }
+
+        for (int age = 0; age < mSize && out[1] < period; age++) {
+            final int index = indexOf(age);
+            if (slot < 0) {
+                out[0] += tx ? mTotalTx[index] : mTotalRx[index];
+            } else {
+                out[0] += tx ? mTx[slot * mCapacity + index] : mRx[slot * mCapacity + index];
+            }
+            out[1] += mDurations[index];
+        }
+    }
+
+    public long getRxBytes(String iface, long period) {
+        long[] result = new long[2];
+        sum(iface, false, period, result);
+        return result[0];
+    }
+
+    public long getTxBytes(String iface, long period) {
+        long[] result = new long[2];
+        sum(iface, true, period, result);
+        return result[0];
+    }
+
+    /**
+     * Average receive rate in bytes per second over given period.
+     */
+    public long getRxRate(String iface, long period) {
+        long[] result = new long[2];
+        sum(iface, false, period, result);
+        return result[1] == 0 ? 0 : result[0] * 1000 / result[1];
+    }
+
+    /**
+     * Average transmit rate in bytes per second over given period.
+     */
+    public long getTxRate(String iface, long period) {
+        long[] result = new long[2];
+        sum(iface, true, period, result);
+        return result[1] == 0 ? 0 : result[0] * 1000 / result[1];
+    }
+
+    /**
+     * Copies combined RX + TX rates in bytes per second of up to out.length most
+     * recent samples into out, oldest first.
+     * @return number of samples copied
+     */
+    public int copyTotalRates(long[] out) {
+        final int count = Math.min(out.length, mSize);
+        for (int i = 0; i < count; i++) {
+            final int index = indexOf(count - 1 - i);
+            out[i] = (mTotalRx[index] + mTotalTx[index]) * 1000 / mDurations[index];
+        }
+        return count;
+    }
+}
@@ -21,6 +21,8 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.net.ConnectivityManager;
 import android.net.TrafficStats;
 import android.os.SystemClock;
@@ -30,9 +32,6 @@ import android.widget.TextView;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.File;
 
 import com.ceco.gm2.gravitybox.StatusBarIconManager.ColorInfo;
@@ -48,17 +47,33 @@ public class TrafficMeter extends TextView implements IconManagerListener {
     public static final int INACTIVITY_MODE_HIDDEN = 1;
     public static final int INACTIVITY_MODE_SUMMARY = 2;
 
+    public static final int DISPLAY_MODE_DOWNLOAD = 0;
+    public static final int DISPLAY_MODE_DOWNLOAD_UPLOAD = 1;
+    public static final int DISPLAY_MODE_DOWNLOAD_UPLOAD_GRAPH = 2;
+
+    private static final int GRAPH_SAMPLES = 30;
+
+    // sampling backs off exponentially while there's no traffic
+    private static final int MIN_SAMPLE_INTERVAL = 1000;
+    private static final int MAX_SAMPLE_INTERVAL = 16000;
+
     Context mContext;
     boolean mAttached;
     boolean mTrafficMeterEnable;
     boolean mTrafficMeterHide = false;
     boolean mCanReadFromFile = true;
+    ProcNetDevReader mNetDevReader;
+    TrafficHistory mHistory;
+    TrafficUsageStore mUsageStore;
+    int mDisplayMode = DISPLAY_MODE_DOWNLOAD;
     int mTrafficMeterSummaryTime = 0;
     long mTotalRxBytes;
+    long mTotalTxBytes;
     long mLastUpdateTime;
     long mTrafficBurstStartTime;
     long mTrafficBurstStartBytes;
     long mKeepOnUntil = Long.MIN_VALUE;
+    int mSampleInterval = MIN_SAMPLE_INTERVAL;
     int mPosition = GravityBoxSettings.DT_POSITION_AUTO;
     String mB = "B";
     String mKB = "KB";
@@ -68,6 +83,10 @@ public class TrafficMeter extends TextView implements IconManagerListener {
     NumberFormat mDecimalFormat = new DecimalFormat("##0.0");
     NumberFormat mIntegerFormat = NumberFormat.getIntegerInstance();
 
+    Paint mGraphPaint;
+    long[] mGraphRates = new long[GRAPH_SAMPLES];
+    float[] mGraphPoints = new float[(GRAPH_SAMPLES - 1) * 4];
+
     private static void log(String message) {
         XposedBridge.log(TAG + ": " + message);
     }
@@ -84,6 +103,15 @@ public class TrafficMeter extends TextView implements IconManagerListener {
         super(context, attrs, defStyle);
         mContext = context;
         mCanReadFromFile = canReadFromFile();
+        if (mCanReadFromFile) {
+            mNetDevReader = new ProcNetDevReader();
+            mHistory = new TrafficHistory(TrafficHistory.DEFAULT_CAPACITY);
+            mUsageStore = new TrafficUsageStore(context);
+        }
+
+        mGraphPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mGraphPaint.setStyle(Paint.Style.STROKE);
+        mGraphPaint.setStrokeWidth(context.getResources().getDisplayMetrics().density);
 
         try {
             Context gbContext = mContext.createPackageContext(
@@ -108,6 +136,9 @@ public class TrafficMeter extends TextView implements IconManagerListener {
             filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
             getContext().registerReceiver(mIntentReceiver, filter, null,
                     getHandler());
+            if (mUsageStore != null) {
+                mUsageStore.registerRequestReceiver(getContext());
+            }
             if (DEBUG) log("attached to window");
         }
     }
@@ -118,6 +149,12 @@ public class TrafficMeter extends TextView implements IconManagerListener {
         if (mAttached) {
             stopTrafficUpdates();
             getContext().unregisterReceiver(mIntentReceiver);
+            if (mUsageStore != null) {
+                mUsageStore.unregisterRequestReceiver(getContext());
+            }
+            if (mNetDevReader != null) {
+                mNetDevReader.close();
+            }
             mAttached = false;
             if (DEBUG) log("detached from window");
         }
@@ -146,6 +183,9 @@ public class TrafficMeter extends TextView implements IconManagerListener {
     private void stopTrafficUpdates() {
         if (mAttached) {
             getHandler().removeCallbacks(mRunnable);
+            if (mUsageStore != null) {
+                mUsageStore.flush();
+            }
             setText("");
             if (DEBUG) log("traffic updates stopped");
         }
@@ -153,9 +193,16 @@ public class TrafficMeter extends TextView implements IconManagerListener {
 
     public void startTrafficUpdates() {
         if (mAttached && getConnectAvailable()) {
-            mTotalRxBytes = getTotalReceivedBytes();
+            mTotalRxBytes = mCanReadFromFile ? getTotalReceivedBytes() : TrafficStats.getTotalRxBytes();
+            mTotalTxBytes = getTotalTransmittedBytes();
             mLastUpdateTime = SystemClock.elapsedRealtime();
+            if (mHistory != null) {
+                mHistory.clear();
+                mHistory.addSample(mLastUpdateTime, mNetDevReader);
+                mUsageStore.addSample(mNetDevReader);
+            }
             mTrafficBurstStartTime = Long.MIN_VALUE;
+            mSampleInterval = MIN_SAMPLE_INTERVAL;
 
             getHandler().removeCallbacks(mRunnable);
             getHandler().post(mRunnable);
@@ -164,26 +211,20 @@ public class TrafficMeter extends TextView implements IconManagerListener {
     }
 
     private String formatTraffic(long bytes, boolean speed) {
+        return speed ? formatBytes(bytes, "/" + mS) : "(" + formatBytes(bytes, "") + ")";
+    }
+
+    private String formatBytes(long bytes, String suffix) {
         if (bytes > 10485760) { // 1024 * 1024 * 10
-            return (speed ? "" : "(")
-                    + mIntegerFormat.format(bytes / 1048576)
-                    + (speed ? mMB + "/" + mS : mMB + ")");
+            return mIntegerFormat.format(bytes / 1048576) + mMB + suffix;
         } else if (bytes > 1048576) { // 1024 * 1024
-            return (speed ? "" : "(")
-                    + mDecimalFormat.format(((float) bytes) / 1048576f)
-                    + (speed ? mMB + "/" + mS : mMB + ")");
+            return mDecimalFormat.format(((float) bytes) / 1048576f) + mMB + suffix;
         } else if (bytes > 10240) { // 1024 * 10
-            return (speed ? "" : "(")
-                    + mIntegerFormat.format(bytes / 1024)
-                    + (speed ? mKB + "/" + mS : mKB + ")");
+            return mIntegerFormat.format(bytes / 1024) + mKB + suffix;
         } else if (bytes > 1024) { // 1024
-            return (speed ? "" : "(")
-                    + mDecimalFormat.format(((float) bytes) / 1024f)
-                    + (speed ? mKB + "/" + mS : mKB + ")");
+            return mDecimalFormat.format(((float) bytes) / 1024f) + mKB + suffix;
         } else {
-            return (speed ? "" : "(")
-                    + mIntegerFormat.format(bytes)
-                    + (speed ? mB + "/" + mS : mB + ")");
+            return mIntegerFormat.format(bytes) + mB + suffix;
         }
     }
 
@@ -209,6 +250,12 @@ public class TrafficMeter extends TextView implements IconManagerListener {
 
             long currentRxBytes = mCanReadFromFile ? getTotalReceivedBytes() : TrafficStats.getTotalRxBytes();
             long newBytes = currentRxBytes - mTotalRxBytes;
+            long currentTxBytes = getTotalTransmittedBytes();
+            long newTxBytes = Math.max(currentTxBytes - mTotalTxBytes, 0);
+            if (mHistory != null && currentRxBytes >= 0) {
+                mHistory.addSample(SystemClock.elapsedRealtime(), mNetDevReader);
+                mUsageStore.addSample(mNetDevReader);
+            }
 
             boolean disconnected = false;
             if (mCanReadFromFile && newBytes < 0) {
@@ -218,11 +265,20 @@ public class TrafficMeter extends TextView implements IconManagerListener {
                 disconnected = true;
             }
 
-            if (mTrafficMeterHide && newBytes == 0) {
+            // upload counts as activity only when it's displayed
+            final boolean idle = newBytes == 0 &&
+                    (mDisplayMode == DISPLAY_MODE_DOWNLOAD || newTxBytes == 0);
+
+            if (mTrafficMeterHide && idle) {
                 long trafficBurstBytes = (mCanReadFromFile && disconnected) ? mTotalRxBytes - mTrafficBurstStartBytes : currentRxBytes - mTrafficBurstStartBytes;
 
                 if (trafficBurstBytes != 0 && mTrafficMeterSummaryTime != 0) {
-                    setText(formatTraffic(trafficBurstBytes, false));
+                    if (mUsageStore != null) {
+                        setText(formatTraffic(trafficBurstBytes, false) + " \u03A3" +
+                                formatBytes(mUsageStore.getTodayBytes(), ""));
+                    } else {
+                        setText(formatTraffic(trafficBurstBytes, false));
+                    }
 
                     if (DEBUG) log("Traffic burst ended: " + trafficBurstBytes + "B in "
                                     + (SystemClock.elapsedRealtime() - mTrafficBurstStartTime)
@@ -237,12 +293,17 @@ public class TrafficMeter extends TextView implements IconManagerListener {
                     mTrafficBurstStartBytes = mTotalRxBytes;
                 }
                 if (td > 0) {
-                    setText(formatTraffic(newBytes * 1000 / td, true));
+                    if (mDisplayMode == DISPLAY_MODE_DOWNLOAD) {
+                        setText(formatTraffic(newBytes * 1000 / td, true));
+                    } else {
+                        setText("\u2193" + formatTraffic(newBytes * 1000 / td, true) +
+                                " \u2191" + formatTraffic(newTxBytes * 1000 / td, true));
+                    }
                 }
             }
 
             // Hide if there is no traffic
-            if (mTrafficMeterHide && newBytes == 0) {
+            if (mTrafficMeterHide && idle) {
                 if (getVisibility() != GONE
                         && mKeepOnUntil < SystemClock.elapsedRealtime()) {
                     setText("");
@@ -255,8 +316,22 @@ public class TrafficMeter extends TextView implements IconManagerListener {
             }
 
             mTotalRxBytes = (mCanReadFromFile && disconnected) ? mTotalRxBytes : currentRxBytes;
+            mTotalTxBytes = currentTxBytes;
+            if (mDisplayMode == DISPLAY_MODE_DOWNLOAD_UPLOAD_GRAPH) {
+                invalidate();
+            }
             mLastUpdateTime = SystemClock.elapsedRealtime();
-            getHandler().postDelayed(mRunnable, 1000);
+
+            final int interval = (newBytes == 0 && newTxBytes == 0) ?
+                    Math.min(mSampleInterval * 2, MAX_SAMPLE_INTERVAL) : MIN_SAMPLE_INTERVAL;
+            if (DEBUG && interval != mSampleInterval) log("Sample interval changed to " + interval + "ms");
+            mSampleInterval = interval;
+            long delay = mSampleInterval;
+            // don't keep traffic summary on screen longer than requested
+            if (mTrafficMeterHide && getVisibility() == VISIBLE && mKeepOnUntil > mLastUpdateTime) {
+                delay = Math.min(delay, mKeepOnUntil - mLastUpdateTime + 1);
+            }
+            getHandler().postDelayed(mRunnable, delay);
         }
     };
 
@@ -274,42 +349,56 @@ public class TrafficMeter extends TextView implements IconManagerListener {
     }
 
     private boolean canReadFromFile() {
-        return new File("/proc/net/dev").exists();
+        return new File(ProcNetDevReader.PATH).exists();
     }
 
     private long getTotalReceivedBytes() {
-        String line;
-        String[] segs;
-        long received = 0;
-        int i;
-        long tmp = 0;
-        boolean isNum;
-        try {
-            FileReader fr = new FileReader("/proc/net/dev");
-            BufferedReader in = new BufferedReader(fr);
-            while ((line = in.readLine()) != null) {
-                line = line.trim();
-                if (line.contains(":") && !line.startsWith("lo")) {
-                    segs = line.split(":")[1].split(" ");
-                    for (i = 0; i < segs.length; i++) {
-                        isNum = true;
-                        try {
-                            tmp = Long.parseLong(segs[i]);
-                        } catch (Exception e) {
-                            isNum = false;
-                        }
-                        if (isNum == true) {
-                            received = received + tmp;
-                            break;
-                        }
-                    }
-                }
-            }
-            in.close();
-        } catch (IOException e) {
-            return -1;
+        return mNetDevReader.read() ? mNetDevReader.getTotalRxBytes() : -1;
+    }
+
+    // uses counters of the last read in case of reading from file
+    private long getTotalTransmittedBytes() {
+        return mCanReadFromFile ? mNetDevReader.getTotalTxBytes() : TrafficStats.getTotalTxBytes();
+    }
+
+    /**
+     * Returns traffic history since updates were last started (screen on or connectivity change)
+     * or null if per-interface counters are not available.
+     */
+    public TrafficHistory getTrafficHistory() {
+        return mHistory;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        if (mDisplayMode != DISPLAY_MODE_DOWNLOAD_UPLOAD_GRAPH || mHistory == null ||
+                getText().length() == 0) return;
+
+        final int count = mHistory.copyTotalRates(mGraphRates);
+        if (count < 2) return;
+
+        long max = 1;
+        for (int i = 0; i < count; i++) {
+            if (mGraphRates[i] > max) max = mGraphRates[i];
         }
-        return received;
+
+        // sparkline in the bottom quarter, newest sample at the right edge
+        final float width = getWidth() - getPaddingLeft() - getPaddingRight();
+        final float bottom = getHeight() - getPaddingBottom() - mGraphPaint.getStrokeWidth();
+        final float height = (getHeight() - getPaddingTop() - getPaddingBottom()) / 4f;
+        final float step = width / (GRAPH_SAMPLES - 1);
+        final float left = getPaddingLeft() + (GRAPH_SAMPLES - count) * step;
+        for (int i = 0; i < count - 1; i++) {
+            mGraphPoints[i * 4] = left + i * step;
+            mGraphPoints[i * 4 + 1] = bottom - height * mGraphRates[i] / max;
+            mGraphPoints[i * 4 + 2] = left + (i + 1) * step;
+            mGraphPoints[i * 4 + 3] = bottom - height * mGraphRates[i + 1] / max;
+        }
+        mGraphPaint.setColor(getCurrentTextColor());
+        mGraphPaint.setAlpha(0x99);
+        canvas.drawLines(mGraphPoints, 0, (count - 1) * 4, mGraphPaint);
     }
 
     public void setTrafficMeterEnabled(boolean enabled) {
@@ -347,6 +436,11 @@ public class TrafficMeter extends TextView implements IconManagerListener {
         }
     }
 
+    public void setDisplayMode(int mode) {
+        mDisplayMode = mode;
+        invalidate();
+    }
+
     @Override
     public void onIconManagerStatusChanged(int flags, ColorInfo colorInfo) {
         if ((flags & StatusBarIconManager.FLAG_ICON_COLOR_CHANGED) != 0) {
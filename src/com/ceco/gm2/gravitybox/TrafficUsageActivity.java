@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.app.ListActivity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+import android.text.format.Formatter;
+import android.view.ViewGroup;
+import android.widget.SimpleAdapter;
+import android.widget.TextView;
+
+/**
+ * Shows data usage per network interface recorded by traffic meter in SystemUI.
+ * Usage is requested from SystemUI on resume and shown once it arrives.
+ */
+public class TrafficUsageActivity extends ListActivity {
+    private static final String KEY_NAME = "name";
+    private static final String KEY_USAGE = "usage";
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        TextView emptyView = new TextView(this);
+        emptyView.setText(R.string.traffic_usage_no_data);
+        final int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        emptyView.setPadding(padding, padding, padding, padding);
+        ((ViewGroup) getListView().getParent()).addView(emptyView);
+        getListView().setEmptyView(emptyView);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        registerReceiver(mUsageReceiver, new IntentFilter(TrafficUsageStore.ACTION_TRAFFIC_USAGE));
+
+        final int now = (int) (System.currentTimeMillis() / 60000);
+        final int today = TrafficUsageStore.getDayStart(now);
+        Intent intent = new Intent(TrafficUsageStore.ACTION_GET_TRAFFIC_USAGE);
+        intent.putExtra(TrafficUsageStore.EXTRA_FROM, new int[] {
+                today,
+                today - 6 * TrafficUsageStore.MINUTES_PER_DAY,
+                today - 29 * TrafficUsageStore.MINUTES_PER_DAY });
+        sendBroadcast(intent);
+    }
+
+    @Override
+    protected void onPause() {
+        unregisterReceiver(mUsageReceiver);
+        super.onPause();
+    }
+
+    private final BroadcastReceiver mUsageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final int[] from = intent.getIntArrayExtra(TrafficUsageStore.EXTRA_FROM);
+            final String[] names = intent.getStringArrayExtra(TrafficUsageStore.EXTRA_NAMES);
+            final long[] rx = intent.getLongArrayExtra(TrafficUsageStore.EXTRA_RX);
+            final long[] tx = intent.getLongArrayExtra(TrafficUsageStore.EXTRA_TX);
+            if (from == null || from.length != 3 || names == null || rx == null || tx == null ||
+                    rx.length != names.length * 3 || tx.length != rx.length) return;
+
+            List<Map<String, String>> items = new ArrayList<Map<String, String>>();
+            for (int i = 0; i < names.length; i++) {
+                Map<String, String> item = new HashMap<String, String>();
+                item.put(KEY_NAME, names[i]);
+                item.put(KEY_USAGE, getString(R.string.traffic_usage_summary,
+                        formatUsage(rx[i * 3], tx[i * 3]),
+                        formatUsage(rx[i * 3 + 1], tx[i * 3 + 1]),
+                        formatUsage(rx[i * 3 + 2], tx[i * 3 + 2])));
+                items.add(item);
+            }
+
+            setListAdapter(new SimpleAdapter(TrafficUsageActivity.this, items,
+                    android.R.layout.simple_list_item_2,
+                    new String[] { KEY_NAME, KEY_USAGE },
+                    new int[] { android.R.id.text1, android.R.id.text2 }));
+        }
+    };
+
+    private String formatUsage(long rx, long tx) {
+        return "\u2193" + Formatter.formatShortFileSize(this, rx) +
+                " \u2191" + Formatter.formatShortFileSize(this, tx);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of data usage files written by {@link TrafficUsageStore}.
+ *
+ * All tiers are memory-mapped and summed record by record; since tiers cover disjoint
+ * periods their records can simply be added up. Ranges are matched by period start
+ * so they are as precise as the tier granularity.
+ */
+public class TrafficUsageReader {
+    private static final String[] FILES = new String[] {
+        TrafficUsageStore.FILE_MINUTES, TrafficUsageStore.FILE_HOURS, TrafficUsageStore.FILE_DAYS
+    };
+
+    private final File mDir;
+    private final MappedByteBuffer[] mBuffers = new MappedByteBuffer[FILES.length];
+
+    public TrafficUsageReader(File dir) {
+        mDir = dir;
+        refresh();
+    }
+
+    /**
+     * Maps current files. Rolled up tiers are replaced, not modified in place,
+     * so this has to be called to see changes.
+     */
+    public synchronized void refresh() {
+        for (int i = 0; i < FILES.length; i++) {
+            mBuffers[i] = map(new File(mDir, FILES[i]));
+        }
+    }
+
+    private static MappedByteBuffer map(File file) {
+        if (!file.exists()) return null;
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                FileChannel channel = in.getChannel();
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buf.capacity() < TrafficUsageStore.HEADER_SIZE ||
+                        buf.getInt(0) != TrafficUsageStore.MAGIC ||
+                        buf.getInt(4) != TrafficUsageStore.VERSION) {
+                    return null;
+                }
+                return buf;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static int recordCount(MappedByteBuffer buf) {
+        return (buf.capacity() - TrafficUsageStore.HEADER_SIZE) / TrafficUsageStore.RECORD_SIZE;
+    }
+
+    /**
+     * Sum of received and transmitted bytes of all interfaces for periods starting
+     * within given range of epoch minutes (inclusive start, exclusive end).
+     */
+    public synchronized long getTotalBytes(int fromMinute, int toMinute) {
+        long total = 0;
+        for (MappedByteBuffer buf : mBuffers) {
+            if (buf == null) continue;
+            final int count = recordCount(buf);
+            for (int i = 0; i < count; i++) {
+                final int pos = TrafficUsageStore.HEADER_SIZE + i * TrafficUsageStore.RECORD_SIZE;
+                final int minute = buf.getInt(pos);
+                if (minute >= fromMinute && minute < toMinute) {
+                    total += buf.getLong(pos + 4 + TrafficUsageStore.NAME_LENGTH) +
+                            buf.getLong(pos + 4 + TrafficUsageStore.NAME_LENGTH + 8);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns { rx, tx } bytes per interface for periods starting within given range
+     * of epoch minutes (inclusive start, exclusive end).
+     */
+    public synchronized Map<String, long[]> getUsage(int fromMinute, int toMinute) {
+        Map<String, long[]> usage = new LinkedHashMap<String, long[]>();
+        for (MappedByteBuffer buf : mBuffers) {
+            if (buf == null) continue;
+            final int count = recordCount(buf);
+            for (int i = 0; i < count; i++) {
+                final int pos = TrafficUsageStore.HEADER_SIZE + i * TrafficUsageStore.RECORD_SIZE;
+                final int minute = buf.getInt(pos);
+                if (minute < fromMinute || minute >= toMinute) continue;
+
+                final String name = TrafficUsageStore.getRecordName(buf, pos);
+                long[] sums = usage.get(name);
+                if (sums == null) {
+                    sums = new long[2];
+                    usage.put(name, sums);
+                }
+                sums[0] += buf.getLong(pos + 4 + TrafficUsageStore.NAME_LENGTH);
+                sums[1] += buf.getLong(pos + 4 + TrafficUsageStore.NAME_LENGTH + 8);
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Drops mappings. They are released by GC as there's no explicit unmap.
+     */
+    public synchronized void close() {
+        for (int i = 0; i < mBuffers.length; i++) {
+            mBuffers[i] = null;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.HandlerThread;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Persistent per-interface data usage built from counters sampled by {@link TrafficMeter}.
+ *
+ * Usage is kept in three append-only files of fixed-width records, each tier holding
+ * periods not covered by the finer one:
+ *   minutes: current hour
+ *   hours:   completed hours not yet rolled into days
+ *   days:    completed days (local time), kept for {@link #DAYS_RETAINED} days
+ * Record layout (big endian, {@link #RECORD_SIZE} bytes): int period start in epoch minutes,
+ * interface name as {@link #NAME_LENGTH} zero-padded ASCII bytes, long rx bytes, long tx bytes.
+ * Each file starts with {@link #HEADER_SIZE} bytes of int magic and int version.
+ *
+ * Sampling thread only accumulates deltas in memory; records are appended once a minute
+ * and rolled up on an hour change by a background thread. Files live in a private
+ * subdirectory of files dir of the process that records them (SystemUI). GravityBox gets
+ * the usage by sending {@link #ACTION_GET_TRAFFIC_USAGE}; the answer is broadcast as
+ * {@link #ACTION_TRAFFIC_USAGE} to GravityBox package only.
+ */
+public class TrafficUsageStore {
+    private static final String TAG = "GB:TrafficUsageStore";
+    private static final boolean DEBUG = false;
+
+    public static final String FILE_MINUTES = "traffic_minutes";
+    public static final String FILE_HOURS = "traffic_hours";
+    public static final String FILE_DAYS = "traffic_days";
+
+    public static final String ACTION_GET_TRAFFIC_USAGE = "gravitybox.intent.action.GET_TRAFFIC_USAGE";
+    public static final String ACTION_TRAFFIC_USAGE = "gravitybox.intent.action.TRAFFIC_USAGE";
+    // int[] of range starts in epoch minutes; all ranges end now
+    public static final String EXTRA_FROM = "from";
+    public static final String EXTRA_NAMES = "names";
+    // long[] of names.length rows, each holding one value per range
+    public static final String EXTRA_RX = "rx";
+    public static final String EXTRA_TX = "tx";
+
+    private static final String DIR_NAME = "traffic_usage";
+
+    static final int MAGIC = 0x47425455;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int NAME_LENGTH = 12;
+    static final int RECORD_SIZE = 4 + NAME_LENGTH + 8 + 8;
+
+    static final int MINUTES_PER_HOUR = 60;
+    static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int DAYS_RETAINED = 400;
+
+    private static final int MAX_INTERFACES = ProcNetDevReader.MAX_INTERFACES;
+
+    private final File mDir;
+    private Handler mHandler;
+
+    private int mCurrentMinute = -1;
+    private final String[] mNames = new String[MAX_INTERFACES];
+    private final long[] mLastRx = new long[MAX_INTERFACES];
+    private final long[] mLastTx = new long[MAX_INTERFACES];
+    private final long[] mPendingRx = new long[MAX_INTERFACES];
+    private final long[] mPendingTx = new long[MAX_INTERFACES];
+    private volatile long mTodayBytesStored;
+    // accessed from background thread only
+    private int mLastRollUpHour = -1;
+
+    private static void log(String message) {
+        XposedBridge.log(TAG + ": " + message);
+    }
+
+    public TrafficUsageStore(Context context) {
+        mDir = new File(context.getFilesDir(), DIR_NAME);
+    }
+
+    private final BroadcastReceiver mRequestReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(final Context context, Intent intent) {
+            final int[] from = intent.getIntArrayExtra(EXTRA_FROM);
+            if (from == null) return;
+
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    sendUsage(context, from);
+                }
+            });
+        }
+    };
+
+    /**
+     * Starts answering usage requests. Called from main thread.
+     */
+    public void registerRequestReceiver(Context context) {
+        context.registerReceiver(mRequestReceiver, new IntentFilter(ACTION_GET_TRAFFIC_USAGE));
+    }
+
+    public void unregisterRequestReceiver(Context context) {
+        context.unregisterReceiver(mRequestReceiver);
+    }
+
+    private void sendUsage(Context context, int[] from) {
+        @SuppressWarnings("unchecked")
+        final Map<String, long[]>[] usage = new Map[from.length];
+        final TrafficUsageReader reader = new TrafficUsageReader(mDir);
+        try {
+            for (int i = 0; i < from.length; i++) {
+                usage[i] = reader.getUsage(from[i], Integer.MAX_VALUE);
+            }
+        } finally {
+            reader.close();
+        }
+
+        final Set<String> names = new LinkedHashSet<String>();
+        for (Map<String, long[]> u : usage) {
+            names.addAll(u.keySet());
+        }
+        final long[] rx = new long[names.size() * from.length];
+        final long[] tx = new long[rx.length];
+        int row = 0;
+        for (String name : names) {
+            for (int i = 0; i < from.length; i++) {
+                final long[] sums = usage[i].get(name);
+                if (sums == null) continue;
+                rx[row * from.length + i] = sums[0];
+                tx[row * from.length + i] = sums[1];
+            }
+            row++;
+        }
+
+        Intent intent = new Intent(ACTION_TRAFFIC_USAGE);
+        intent.setPackage(GravityBox.PACKAGE_NAME);
+        intent.putExtra(EXTRA_FROM, from);
+        intent.putExtra(EXTRA_NAMES, names.toArray(new String[names.size()]));
+        intent.putExtra(EXTRA_RX, rx);
+        intent.putExtra(EXTRA_TX, tx);
+        context.sendBroadcast(intent);
+    }
+
+    /**
+     * Returns start of the local day containing given time, in epoch minutes.
+     */
+    static int getDayStart(int minute) {
+        final long millis = minute * 60000L;
+        final long offset = TimeZone.getDefault().getOffset(millis) / 60000;
+        return (int) (((minute + offset) / MINUTES_PER_DAY) * MINUTES_PER_DAY - offset);
+    }
+
+    /**
+     * Accounts counters just read by reader. Called from sampling thread.
+     */
+    public void addSample(ProcNetDevReader reader) {
+        final int minute = (int) (System.currentTimeMillis() / 60000);
+        if (mCurrentMinute != minute) {
+            if (mCurrentMinute != -1) {
+                flush();
+            } else {
+                // catch up with rollups missed while not running
+                getHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            rollUp(minute);
+                        } catch (IOException e) {
+                            log("Error rolling up traffic usage: " + e.getMessage());
+                        }
+                        mTodayBytesStored = queryTodayBytes(minute);
+                    }
+                });
+            }
+            mCurrentMinute = minute;
+        }
+
+        final int count = reader.getInterfaceCount();
+        for (int i = 0; i < count; i++) {
+            if (reader.isLoopback(i)) continue;
+            final String name = reader.getInterfaceName(i);
+            int slot = 0;
+            while (slot < MAX_INTERFACES && mNames[slot] != null &&
+                    mNames[slot] != name && !mNames[slot].equals(name)) {
+                slot++;
+            }
+            if (slot == MAX_INTERFACES) continue;
+
+            final long rx = reader.getRxBytes(i);
+            final long tx = reader.getTxBytes(i);
+            if (mNames[slot] == null) {
+                // first time seen; only take baseline
+                mNames[slot] = name;
+            } else {
+                if (rx >= mLastRx[slot]) mPendingRx[slot] += rx - mLastRx[slot];
+                if (tx >= mLastTx[slot]) mPendingTx[slot] += tx - mLastTx[slot];
+            }
+            mLastRx[slot] = rx;
+            mLastTx[slot] = tx;
+        }
+    }
+
+    /**
+     * Writes traffic accumulated in current minute. Called from sampling thread
+     * on minute change and when sampling stops.
+     */
+    public void flush() {
+        int count = 0;
+        for (int slot = 0; slot < MAX_INTERFACES && mNames[slot] != null; slot++) {
+            if (mPendingRx[slot] != 0 || mPendingTx[slot] != 0) count++;
+        }
+        if (count == 0) return;
+
+        final ByteBuffer buf = ByteBuffer.allocate(count * RECORD_SIZE);
+        for (int slot = 0; slot < MAX_INTERFACES && mNames[slot] != null; slot++) {
+            if (mPendingRx[slot] == 0 && mPendingTx[slot] == 0) continue;
+            putRecord(buf, mCurrentMinute, mNames[slot], mPendingRx[slot], mPendingTx[slot]);
+            mPendingRx[slot] = 0;
+            mPendingTx[slot] = 0;
+        }
+
+        final int minute = mCurrentMinute;
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    append(FILE_MINUTES, buf.array());
+                    rollUp(minute);
+                    mTodayBytesStored = queryTodayBytes(minute);
+                } catch (IOException e) {
+                    log("Error storing traffic usage: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Total of received and transmitted bytes of today including not yet stored traffic.
+     */
+    public long getTodayBytes() {
+        long total = mTodayBytesStored;
+        for (int slot = 0; slot < MAX_INTERFACES && mNames[slot] != null; slot++) {
+            total += mPendingRx[slot] + mPendingTx[slot];
+        }
+        return total;
+    }
+
+    private synchronized Handler getHandler() {
+        if (mHandler == null) {
+            HandlerThread thread = new HandlerThread(TAG);
+            thread.start();
+            mHandler = new Handler(thread.getLooper());
+        }
+        return mHandler;
+    }
+
+    static void putRecord(ByteBuffer buf, int minute, String name, long rx, long tx) {
+        buf.putInt(minute);
+        final int length = Math.min(name.length(), NAME_LENGTH);
+        for (int i = 0; i < NAME_LENGTH; i++) {
+            buf.put(i < length ? (byte) name.charAt(i) : 0);
+        }
+        buf.putLong(rx);
+        buf.putLong(tx);
+    }
+
+    static String getRecordName(ByteBuffer buf, int pos) {
+        int length = 0;
+        while (length < NAME_LENGTH && buf.get(pos + 4 + length) != 0) length++;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) buf.get(pos + 4 + i);
+        }
+        return new String(chars);
+    }
+
+    private File prepareFile(String name) throws IOException {
+        File file = new File(mDir, name);
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            if (!mDir.exists() && !mDir.mkdirs()) {
+                throw new IOException("Unable to create " + mDir);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            write(file, header.array(), false);
+        }
+        return file;
+    }
+
+    private static void write(File file, byte[] data, boolean append) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, append);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void append(String name, byte[] records) throws IOException {
+        write(prepareFile(name), records, true);
+    }
+
+    private ByteBuffer readRecords(String name) throws IOException {
+        File file = prepareFile(name);
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final int length = (int) ((raf.length() - HEADER_SIZE) / RECORD_SIZE) * RECORD_SIZE;
+            byte[] data = new byte[length];
+            raf.seek(HEADER_SIZE);
+            raf.readFully(data);
+            return ByteBuffer.wrap(data);
+        } finally {
+            raf.close();
+        }
+    }
+
+    // replaces records of a tier with those that should stay in it
+    private void rewrite(String name, ByteBuffer kept) throws IOException {
+        File tmpFile = new File(mDir, name + ".tmp");
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + kept.position());
+        data.putInt(MAGIC);
+        data.putInt(VERSION);
+        data.put(kept.array(), 0, kept.position());
+        write(tmpFile, data.array(), false);
+        if (!tmpFile.renameTo(new File(mDir, name))) {
+            throw new IOException("Unable to rename " + tmpFile);
+        }
+    }
+
+    /**
+     * Moves records of periods older than the one containing given minute into coarser tier.
+     * Coarser records are appended before finer ones are removed so an interruption
+     * can only cause double counting of one period, never a loss.
+     */
+    private boolean rollUp(String fromName, String toName, int periodStart, boolean daily)
+            throws IOException {
+        ByteBuffer records = readRecords(fromName);
+        final int count = records.capacity() / RECORD_SIZE;
+        Map<String, long[]> rolled = new LinkedHashMap<String, long[]>();
+        ByteBuffer kept = ByteBuffer.allocate(records.capacity());
+
+        for (int i = 0; i < count; i++) {
+            final int pos = i * RECORD_SIZE;
+            final int minute = records.getInt(pos);
+            if (minute >= periodStart) {
+                kept.put(records.array(), pos, RECORD_SIZE);
+                continue;
+            }
+            final int start = daily ? getDayStart(minute) :
+                minute - (minute % MINUTES_PER_HOUR);
+            final String key = start + ":" + getRecordName(records, pos);
+            long[] sums = rolled.get(key);
+            if (sums == null) {
+                sums = new long[] { start, 0, 0 };
+                rolled.put(key, sums);
+            }
+            sums[1] += records.getLong(pos + 4 + NAME_LENGTH);
+            sums[2] += records.getLong(pos + 4 + NAME_LENGTH + 8);
+        }
+        if (rolled.isEmpty()) return false;
+
+        ByteBuffer out = ByteBuffer.allocate(rolled.size() * RECORD_SIZE);
+        for (Map.Entry<String, long[]> e : rolled.entrySet()) {
+            final String key = e.getKey();
+            final long[] sums = e.getValue();
+            putRecord(out, (int) sums[0], key.substring(key.indexOf(':') + 1), sums[1], sums[2]);
+        }
+        append(toName, out.array());
+        rewrite(fromName, kept);
+        if (DEBUG) log("Rolled " + (count - kept.position() / RECORD_SIZE) + " record(s) of " +
+                fromName + " into " + rolled.size() + " record(s) of " + toName);
+        return true;
+    }
+
+    private void rollUp(int minute) throws IOException {
+        final int hourStart = minute - (minute % MINUTES_PER_HOUR);
+        if (hourStart == mLastRollUpHour) return;
+        mLastRollUpHour = hourStart;
+
+        rollUp(FILE_MINUTES, FILE_HOURS, hourStart, false);
+
+        final int dayStart = getDayStart(minute);
+        if (rollUp(FILE_HOURS, FILE_DAYS, dayStart, true)) {
+            trimDays(dayStart - DAYS_RETAINED * MINUTES_PER_DAY);
+        }
+    }
+
+    private void trimDays(int oldest) throws IOException {
+        ByteBuffer records = readRecords(FILE_DAYS);
+        final int count = records.capacity() / RECORD_SIZE;
+        ByteBuffer kept = ByteBuffer.allocate(records.capacity());
+        for (int i = 0; i < count; i++) {
+            if (records.getInt(i * RECORD_SIZE) >= oldest) {
+                kept.put(records.array(), i * RECORD_SIZE, RECORD_SIZE);
+            }
+        }
+        if (kept.position() < records.capacity()) {
+            rewrite(FILE_DAYS, kept);
+        }
+    }
+
+    private long queryTodayBytes(int minute) {
+        TrafficUsageReader reader = new TrafficUsageReader(mDir);
+        try {
+            return reader.getTotalBytes(getDayStart(minute), Integer.MAX_VALUE);
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -18,7 +18,6 @@ package com.ceco.gm2.gravitybox;
 
 import java.util.List;
 
-import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedBridge;
 
 import android.animation.Animator;
@@ -34,6 +33,7 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.pm.ActivityInfo;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
@@ -263,7 +263,7 @@ public class TransparencyManager implements BroadcastSubReceiver {
                 && homeInfo.name.equals(component.getClassName());
     }
     
-    public void initPreferences(XSharedPreferences prefs) {
+    public void initPreferences(SharedPreferences prefs) {
         int value;
 
         value = prefs.getInt(GravityBoxSettings.PREF_KEY_TM_STATUSBAR_LAUNCHER, 0);
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Brings children of a ViewGroup into given order with as few view operations as possible.
+ *
+ * Children not in target list are removed. Of the remaining ones, the longest subsequence
+ * already in target order stays in place; only the others are moved and views not yet
+ * in the group are inserted. Untouched children are neither detached nor re-attached.
+ */
+public class ViewOrderReconciler {
+
+    /**
+     * @return number of view operations performed; 0 if children were already in order
+     */
+    public static int reconcile(ViewGroup group, List<View> target) {
+        final Map<View, Integer> targetIndex = new IdentityHashMap<View, Integer>(target.size());
+        for (int i = 0; i < target.size(); i++) {
+            targetIndex.put(target.get(i), i);
+        }
+
+        int ops = 0;
+        for (int i = group.getChildCount() - 1; i >= 0; i--) {
+            if (!targetIndex.containsKey(group.getChildAt(i))) {
+                group.removeViewAt(i);
+                ops++;
+            }
+        }
+
+        final int count = group.getChildCount();
+        final int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = targetIndex.get(group.getChildAt(i));
+        }
+        final boolean[] keep = longestIncreasingSubsequence(positions);
+        for (int i = count - 1; i >= 0; i--) {
+            if (!keep[i]) {
+                group.removeViewAt(i);
+                ops++;
+            }
+        }
+
+        // kept children are in target order so inserting missing ones at their index completes it
+        for (int i = 0; i < target.size(); i++) {
+            final View view = target.get(i);
+            if (group.getChildAt(i) != view) {
+                group.addView(view, i);
+                ops++;
+            }
+        }
+
+        return ops;
+    }
+
+    /**
+     * Marks elements of a longest strictly increasing subsequence of values.
+     */
+    public static boolean[] longestIncreasingSubsequence(int[] values) {
+        final int n = values.length;
+        // tails[k] = index of smallest tail value of an increasing subsequence of length k+1
+        final int[] tails = new int[n];
+        final int[] prev = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int lo = 0, hi = length;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            prev[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+
+        final boolean[] result = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = prev[i]) {
+            result[i] = true;
+        }
+        return result;
+    }
+}
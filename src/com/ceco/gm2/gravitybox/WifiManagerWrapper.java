@@ -78,12 +78,28 @@ public class WifiManagerWrapper {
         registerApStateChangeReceiver();
     }
 
+    public void removeWifiApStateChangeListener(WifiApStateChangeListener listener) {
+        if (listener == null || mApStateChangeListener != listener) return;
+
+        mApStateChangeListener = null;
+        if (mApStateChangeReceiver != null) {
+            mContext.unregisterReceiver(mApStateChangeReceiver);
+            mApStateChangeReceiver = null;
+        }
+    }
+
     public void setWifiStateChangeListener(WifiStateChangeListener listener) {
         if (listener != null) {
             mWifiStateChangeListener = listener;
         }
     }
 
+    public void removeWifiStateChangeListener(WifiStateChangeListener listener) {
+        if (listener != null && mWifiStateChangeListener == listener) {
+            mWifiStateChangeListener = null;
+        }
+    }
+
     private void registerApStateChangeReceiver() {
         if (mContext == null || mApStateChangeReceiver != null)
             return;
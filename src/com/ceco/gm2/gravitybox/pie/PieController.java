@@ -52,6 +52,7 @@ import android.view.ViewGroup.LayoutParams;
 import android.widget.ImageView;
 
 import com.ceco.gm2.gravitybox.AppLauncher;
+import com.ceco.gm2.gravitybox.BatteryDrainEstimator;
 import com.ceco.gm2.gravitybox.GravityBox;
 import com.ceco.gm2.gravitybox.GravityBoxSettings;
 import com.ceco.gm2.gravitybox.ModPieControls;
@@ -107,6 +108,7 @@ public class PieController implements PieLayout.OnSnapListener, PieItem.PieOnCli
     private Vibrator mVibrator;
     private int mBatteryLevel;
     private int mBatteryStatus;
+    private BatteryDrainEstimator mBatteryEstimator = new BatteryDrainEstimator();
     private boolean mHasTelephony;
     private ServiceState mServiceState;
 
@@ -276,6 +278,8 @@ public class PieController implements PieLayout.OnSnapListener, PieItem.PieOnCli
             mBatteryLevel = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0);
             mBatteryStatus = intent.getIntExtra(BatteryManager.EXTRA_STATUS,
                     BatteryManager.BATTERY_STATUS_UNKNOWN);
+            mBatteryEstimator.addSample(SystemClock.elapsedRealtime(), mBatteryLevel,
+                    intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0);
         }
     };
 
@@ -669,9 +673,25 @@ public class PieController implements PieLayout.OnSnapListener, PieItem.PieOnCli
             return mGbResources.getString(R.string.pie_battery_status_full);
         }
         if (mBatteryStatus == BatteryManager.BATTERY_STATUS_CHARGING) {
-            return mGbResources.getString(R.string.pie_battery_status_charging, mBatteryLevel);
-        }
-        return mGbResources.getString(R.string.pie_battery_status_discharging, mBatteryLevel);
+            final String status = mGbResources.getString(
+                    R.string.pie_battery_status_charging, mBatteryLevel);
+            final long timeToFull = mBatteryEstimator.getTimeToFull();
+            return timeToFull == BatteryDrainEstimator.UNKNOWN ? status :
+                mGbResources.getString(R.string.pie_battery_time_to_full,
+                        status, formatBatteryTime(timeToFull));
+        }
+        final String status = mGbResources.getString(
+                R.string.pie_battery_status_discharging, mBatteryLevel);
+        final long timeToEmpty = mBatteryEstimator.getTimeToEmpty();
+        return timeToEmpty == BatteryDrainEstimator.UNKNOWN ? status :
+            mGbResources.getString(R.string.pie_battery_time_to_empty,
+                    status, formatBatteryTime(timeToEmpty));
+    }
+
+    private String formatBatteryTime(long time) {
+        final long minutes = time / 60000;
+        return mGbResources.getString(R.string.pie_battery_time_format,
+                minutes / 60, minutes % 60);
     }
 
     public ColorInfo getColorInfo() {
@@ -15,6 +15,9 @@
 
 package com.ceco.gm2.gravitybox.quicksettings;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.ceco.gm2.gravitybox.BroadcastSubReceiver;
 import com.ceco.gm2.gravitybox.GravityBoxSettings;
 
@@ -84,10 +87,35 @@ public abstract class AQuickSettingsTile implements OnClickListener, BroadcastSu
         onTilePostCreate();
     }
 
+    /**
+     * Removes tile from its container and releases resources held by the tile.
+     * Tile can't be used afterwards.
+     */
+    public void destroy() {
+        if (mTile == null) return;
+
+        if (mContainer != null) {
+            mContainer.removeView(mTile);
+        }
+        TileUpdatePipeline.getInstance().cancelUpdate(this);
+        onTileDestroy();
+        mTile = null;
+    }
+
+    public View getTileView() {
+        return mTile;
+    }
+
     protected abstract void onTileCreate();
 
     protected void onTilePostCreate() { };
 
+    /**
+     * Called when tile is destroyed. Tiles registering receivers, observers or listeners
+     * on their own should unregister them here.
+     */
+    protected void onTileDestroy() { };
+
     protected abstract void updateTile();
 
     protected void onPreferenceInitialize(XSharedPreferences prefs) {
@@ -100,19 +128,40 @@ public abstract class AQuickSettingsTile implements OnClickListener, BroadcastSu
         mHideOnChange = prefs.getBoolean(GravityBoxSettings.PREF_KEY_QUICK_SETTINGS_HIDE_ON_CHANGE, false);
     }
 
+    /**
+     * Broadcast actions this tile is interested in.
+     * Subclasses handling other actions should add them to the list returned by super.
+     */
+    public List<String> getBroadcastActions() {
+        List<String> actions = new ArrayList<String>();
+        actions.add(GravityBoxSettings.ACTION_PREF_QUICKSETTINGS_CHANGED);
+        return actions;
+    }
+
     @Override
     public void onBroadcastReceived(Context context, Intent intent) {
         if (intent.getAction().equals(GravityBoxSettings.ACTION_PREF_QUICKSETTINGS_CHANGED)) {
             if (intent.hasExtra(GravityBoxSettings.EXTRA_QS_TILE_STYLE)) {
                 mTileStyle = intent.getIntExtra(GravityBoxSettings.EXTRA_QS_TILE_STYLE, JELLYBEAN);
                 updateResources();
-            } else if (intent.hasExtra(GravityBoxSettings.EXTRA_QS_HIDE_ON_CHANGE)) {
+            }
+            if (intent.hasExtra(GravityBoxSettings.EXTRA_QS_HIDE_ON_CHANGE)) {
                 mHideOnChange = intent.getBooleanExtra(GravityBoxSettings.EXTRA_QS_HIDE_ON_CHANGE, false);
             }
         }
     }
 
+    /**
+     * Requests tile views to be updated with current state.
+     * Update is deferred while panel isn't visible (see {@link TileUpdatePipeline}).
+     */
     public void updateResources() {
+        if (mTile != null) {
+            TileUpdatePipeline.getInstance().requestUpdate(this);
+        }
+    }
+
+    void applyUpdate() {
         if (mTile != null) {
             updateTile();
         }
@@ -142,6 +142,14 @@ public class CameraTile extends BasicTile {
         super.onTilePostCreate();
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mHandler.removeCallbacksAndMessages(null);
+        mReleaseCameraRunnable.run();
+
+        super.onTileDestroy();
+    }
+
     private Runnable mStartRunnable = new Runnable() {
         @Override
         public void run() {
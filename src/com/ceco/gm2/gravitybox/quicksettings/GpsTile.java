@@ -36,6 +36,7 @@ public class GpsTile extends BasicTile {
 
     private boolean mGpsEnabled;
     private boolean mGpsFixed;
+    private TileStateProvider<Boolean> mGpsEnabledProvider;
 
     private static void log(String message) {
         XposedBridge.log(TAG + ": " + message);
@@ -49,8 +50,7 @@ public class GpsTile extends BasicTile {
             final String action = intent.getAction();
 
             if (action.equals(LocationManager.PROVIDERS_CHANGED_ACTION)) {
-                mGpsEnabled = Settings.Secure.isLocationProviderEnabled(
-                        mContext.getContentResolver(), LocationManager.GPS_PROVIDER);
+                mGpsEnabledProvider.refresh();
                 mGpsFixed = false;
             } else if (action.equals(GPS_FIX_CHANGE_ACTION)) {
                 mGpsFixed = intent.getBooleanExtra(EXTRA_GPS_ENABLED, false);
@@ -70,8 +70,15 @@ public class GpsTile extends BasicTile {
 
             @Override
             public void onClick(View v) {
-                Settings.Secure.setLocationProviderEnabled(
-                        mContext.getContentResolver(), LocationManager.GPS_PROVIDER, !mGpsEnabled);
+                final boolean enable = !mGpsEnabled;
+                mGpsEnabledProvider.setOptimisticState(enable);
+                mGpsEnabledProvider.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Settings.Secure.setLocationProviderEnabled(
+                                mContext.getContentResolver(), LocationManager.GPS_PROVIDER, enable);
+                    }
+                });
             }
         };
 
@@ -84,9 +91,23 @@ public class GpsTile extends BasicTile {
             }
         };
 
-        mGpsEnabled = Settings.Secure.isLocationProviderEnabled(
-                mContext.getContentResolver(), LocationManager.GPS_PROVIDER);
+        mGpsEnabledProvider = new TileStateProvider<Boolean>() {
+            @Override
+            protected Boolean loadState() {
+                return Settings.Secure.isLocationProviderEnabled(
+                        mContext.getContentResolver(), LocationManager.GPS_PROVIDER);
+            }
+
+            @Override
+            protected void onStateChanged(Boolean enabled) {
+                mGpsEnabled = enabled;
+                if (DEBUG) log("mGpsEnabled = " + mGpsEnabled);
+                updateResources();
+            }
+        };
+        mGpsEnabled = false;
         mGpsFixed = false;
+        mGpsEnabledProvider.refresh();
     }
 
     @Override
@@ -105,6 +126,14 @@ public class GpsTile extends BasicTile {
         super.onTilePostCreate();
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mContext.unregisterReceiver(mLocationManagerReceiver);
+        mGpsEnabledProvider.release();
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected synchronized void updateTile() {
         if (mGpsEnabled) {
@@ -34,6 +34,7 @@ import android.view.View;
 public class NetworkModeTile extends BasicTile {
     private static final String TAG = "GB:NetworkModeTile";
     private static final boolean DEBUG = false;
+    private static final long STATE_VERIFY_DELAY = 5000;
 
     private int mNetworkType;
     private int mDefaultNetworkType;
@@ -41,6 +42,8 @@ public class NetworkModeTile extends BasicTile {
     private boolean mAllow2g3g;
     private boolean mAllowLte;
     private boolean mUseCdma;
+    private SettingsObserver mSettingsObserver;
+    private TileStateProvider<Integer> mNetworkTypeProvider;
 
     private static void log(String message) {
         XposedBridge.log(TAG + ": " + message);
@@ -59,16 +62,10 @@ public class NetworkModeTile extends BasicTile {
                     Settings.Global.getUriFor(PhoneWrapper.PREFERRED_NETWORK_MODE), false, this);
         }
 
-        @SuppressLint("NewApi")
         @Override
         public void onChange(boolean selfChange) {
-            ContentResolver cr = mContext.getContentResolver();
-            mNetworkType = Settings.Global.getInt(cr, 
-                    PhoneWrapper.PREFERRED_NETWORK_MODE, PhoneWrapper.NT_WCDMA_PREFERRED);
-
-            if (DEBUG) log("SettingsObserver onChange; mNetworkType = " + mNetworkType);
-
-            updateResources();
+            if (DEBUG) log("SettingsObserver onChange");
+            mNetworkTypeProvider.refresh();
         }
     }
 
@@ -116,7 +113,11 @@ public class NetworkModeTile extends BasicTile {
                         break;
                 }
                 if (i.hasExtra(PhoneWrapper.EXTRA_NETWORK_TYPE)) {
+                    mNetworkTypeProvider.setOptimisticState(
+                            i.getIntExtra(PhoneWrapper.EXTRA_NETWORK_TYPE, mNetworkType));
                     mContext.sendBroadcast(i);
+                    // phone process may fail to apply the mode without touching the setting
+                    mNetworkTypeProvider.refreshDelayed(STATE_VERIFY_DELAY);
                 }
             }
         };
@@ -134,10 +135,26 @@ public class NetworkModeTile extends BasicTile {
         mLabel = mGbResources.getString(R.string.qs_tile_network_mode);
         mTileColor = KK_COLOR_ON;
         mDefaultNetworkType = PhoneWrapper.getDefaultNetworkType();
-        ContentResolver cr = mContext.getContentResolver();
-        mNetworkType = Settings.Global.getInt(cr, 
-                PhoneWrapper.PREFERRED_NETWORK_MODE, mDefaultNetworkType);
-        if (DEBUG) log("mNetworkType=" + mNetworkType + "; mDefaultNetworkType=" + mDefaultNetworkType);
+        mNetworkType = mDefaultNetworkType;
+        if (DEBUG) log("mDefaultNetworkType=" + mDefaultNetworkType);
+
+        mNetworkTypeProvider = new TileStateProvider<Integer>() {
+            @SuppressLint("NewApi")
+            @Override
+            protected Integer loadState() {
+                ContentResolver cr = mContext.getContentResolver();
+                return Settings.Global.getInt(cr, 
+                        PhoneWrapper.PREFERRED_NETWORK_MODE, mDefaultNetworkType);
+            }
+
+            @Override
+            protected void onStateChanged(Integer networkType) {
+                mNetworkType = networkType;
+                if (DEBUG) log("mNetworkType = " + mNetworkType);
+                updateResources();
+            }
+        };
+        mNetworkTypeProvider.refresh();
     }
 
     @Override
@@ -147,12 +164,20 @@ public class NetworkModeTile extends BasicTile {
 
     @Override
     protected void onTilePostCreate() {
-        SettingsObserver observer = new SettingsObserver(new Handler());
-        observer.observe();
+        mSettingsObserver = new SettingsObserver(new Handler());
+        mSettingsObserver.observe();
 
         super.onTilePostCreate();
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mContext.getContentResolver().unregisterContentObserver(mSettingsObserver);
+        mNetworkTypeProvider.release();
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected void onPreferenceInitialize(XSharedPreferences prefs) {
         int value = 0;
@@ -44,6 +44,8 @@ public class NfcTile extends BasicTile {
 
     private int mNfcState = NFC_ADAPTER_UNKNOWN;
     private BroadcastReceiver mStateChangeReceiver;
+    private TileStateProvider<Integer> mStateProvider;
+    private boolean mRetry = true;
 
     private static void log(String message) {
         XposedBridge.log(TAG + ": " + message);
@@ -56,7 +58,6 @@ public class NfcTile extends BasicTile {
             @Override
             public void onClick(View v) {
                 toggleState();
-                updateResources();
             }
         };
 
@@ -68,8 +69,31 @@ public class NfcTile extends BasicTile {
             }
         };
 
-        // get state with retry flag set as NFC Adapter needs some time for initialization
-        getNfcState(true);
+        mStateProvider = new TileStateProvider<Integer>() {
+            @Override
+            protected Integer loadState() {
+                return getNfcState();
+            }
+
+            @Override
+            protected void onStateChanged(Integer state) {
+                mNfcState = state;
+                if (DEBUG) log("mNfcState = " + mNfcState);
+                // NFC Adapter needs some time for initialization so we will ask again after 6 seconds
+                if (mNfcState == NFC_ADAPTER_UNKNOWN && mRetry) {
+                    mRetry = false;
+                    new Handler().postDelayed(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (DEBUG) log("Retrying to get NfcAdapter state");
+                            mStateProvider.refresh();
+                        }
+                    }, 6000);
+                }
+                updateResources();
+            }
+        };
+        mStateProvider.refresh();
     }
 
     @Override
@@ -82,8 +106,7 @@ public class NfcTile extends BasicTile {
         mStateChangeReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context arg0, Intent arg1) {
-                getNfcState();
-                updateResources();
+                mStateProvider.refresh();
             }
         };
         IntentFilter intentFilter = new IntentFilter(ACTION_ADAPTER_STATE_CHANGED);
@@ -92,6 +115,14 @@ public class NfcTile extends BasicTile {
         super.onTilePostCreate();
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mContext.unregisterReceiver(mStateChangeReceiver);
+        mStateProvider.release();
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected synchronized void updateTile() {
         switch (mNfcState) {
@@ -114,54 +145,51 @@ public class NfcTile extends BasicTile {
     }
 
     protected void toggleState() {
-        getNfcState();
         switch (mNfcState) {
             case STATE_TURNING_ON:
             case STATE_ON:
-                try {
-                    XposedHelpers.callMethod(mNfcAdapter, "disable");
-                } catch (Throwable t) {
-                    log("Error calling disable() on NFC adapter: " + t.getMessage());
-                }
+                mStateProvider.setOptimisticState(STATE_TURNING_OFF);
+                mStateProvider.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            XposedHelpers.callMethod(mNfcAdapter, "disable");
+                        } catch (Throwable t) {
+                            log("Error calling disable() on NFC adapter: " + t.getMessage());
+                        }
+                    }
+                });
                 break;
             case STATE_TURNING_OFF:
             case STATE_OFF:
-                try {
-                    XposedHelpers.callMethod(mNfcAdapter, "enable");
-                } catch (Throwable t) {
-                    log("Error calling enable() on NFC adapter: " + t.getMessage());
-                }
+                mStateProvider.setOptimisticState(STATE_TURNING_ON);
+                mStateProvider.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            XposedHelpers.callMethod(mNfcAdapter, "enable");
+                        } catch (Throwable t) {
+                            log("Error calling enable() on NFC adapter: " + t.getMessage());
+                        }
+                    }
+                });
                 break;
         }
     }
 
-    private void getNfcState() {
-        getNfcState(false);
-    }
-
-    private void getNfcState(boolean retry) {
+    // called on background thread
+    private int getNfcState() {
         try {
             if (mNfcAdapter == null) {
                 mNfcAdapter = (NfcAdapter) XposedHelpers.callStaticMethod(
                         NfcAdapter.class, "getNfcAdapter", mContext);
             }
-            mNfcState = (Integer) XposedHelpers.callMethod(mNfcAdapter, "getAdapterState");
+            return (Integer) XposedHelpers.callMethod(mNfcAdapter, "getAdapterState");
         } catch (Throwable t) {
-            mNfcState = NFC_ADAPTER_UNKNOWN;
-            // if attempt failed and retry flag set, we will ask again after 6 seconds
-            if (retry) {
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (DEBUG) log("Retrying to get NfcAdapter state");
-                        getNfcState();
-                        updateResources();
-                    }
-                }, 6000);
-            } else {
+            if (!mRetry) {
                 log("Error getting state of NfcAdapter: " + t.getMessage());
             }
+            return NFC_ADAPTER_UNKNOWN;
         }
-        if (DEBUG) log("getNfcState: mNfcState = " + mNfcState);
     }
 }
@@ -298,6 +298,14 @@ public class QuickAppTile extends BasicTile {
         return LAYOUT_ID[mId-1];
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mHandler.removeCallbacks(mDismissDialogRunnable);
+        mDismissDialogRunnable.run();
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected synchronized void updateTile() {
         mLabel = mMainApp.getAppName();
@@ -329,6 +337,13 @@ public class QuickAppTile extends BasicTile {
         updateSubApp(3, prefs.getString(KEY_QUICKAPP_SLOT4, null));
     }
 
+    @Override
+    public List<String> getBroadcastActions() {
+        List<String> actions = super.getBroadcastActions();
+        actions.add(ACTION_PREF_QUICKAPP_CHANGED);
+        return actions;
+    }
+
     @Override
     public void onBroadcastReceived(Context context, Intent intent) {
         super.onBroadcastReceived(context, intent);
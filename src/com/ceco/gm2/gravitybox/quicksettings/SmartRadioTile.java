@@ -56,6 +56,13 @@ public class SmartRadioTile extends BasicTile {
         super.onTilePostCreate();
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mContext.getContentResolver().unregisterContentObserver(mSettingsObserver);
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected synchronized void updateTile() {
         mSmartRadioEnabled = Settings.System.getInt(mContext.getContentResolver(),
@@ -117,6 +117,13 @@ public class StayAwakeTile extends BasicTile {
         super.onTilePostCreate();
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mContext.getContentResolver().unregisterContentObserver(mSettingsObserver);
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected synchronized void updateTile() {
         if (mCurrentTimeoutIndex == -1) {
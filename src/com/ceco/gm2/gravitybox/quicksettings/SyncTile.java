@@ -43,6 +43,9 @@ public class SyncTile extends BasicTile {
             
             @Override
             public void onClick(View v) {
+                // show expected state right away; actual one comes with sync status change
+                mSyncState = !mSyncState;
+                updateResources();
                 toggleState();
             }
         };
@@ -85,6 +88,16 @@ public class SyncTile extends BasicTile {
         super.onTilePostCreate();
     }
 
+    @Override
+    protected void onTileDestroy() {
+        if (mSyncObserverHandle != null) {
+            ContentResolver.removeStatusChangeListener(mSyncObserverHandle);
+            mSyncObserverHandle = null;
+        }
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected void updateTile() {
         if (mSyncState) {
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.ceco.gm2.gravitybox.GravityBoxSettings;
+import com.ceco.gm2.gravitybox.PrefsSnapshot;
 import com.ceco.gm2.gravitybox.R;
 import com.ceco.gm2.gravitybox.TouchInterceptor;
 import com.ceco.gm2.gravitybox.Utils;
@@ -66,6 +67,7 @@ public class TileOrderActivity extends ListActivity {
         setContentView(R.layout.order_tile_list_activity);
 
         mContext = getApplicationContext();
+        PrefsSnapshot.attach(mContext);
         mResources = mContext.getResources();
         final String prefsName = mContext.getPackageName() + "_preferences";
         mPrefs = mContext.getSharedPreferences(prefsName, Context.MODE_WORLD_READABLE);
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox.quicksettings;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Fetches tile state off the SystemUI main thread.
+ *
+ * State is loaded by {@link #loadState()} on a background thread shared by all tiles,
+ * cached as an immutable object and delivered to {@link #onStateChanged(Object)} on main
+ * thread whenever it differs from the cached one. Actions with slow system service calls
+ * (e.g. toggling) run on the same thread via {@link #execute(Runnable)} so they are ordered
+ * with state loads; loads running while an action is pending are discarded. Tiles can show
+ * expected outcome of an action right away with {@link #setOptimisticState(Object)}.
+ */
+public abstract class TileStateProvider<T> {
+    private static final String TAG = "GB:TileStateProvider";
+
+    private static Handler sBackgroundHandler;
+
+    private final Handler mMainHandler;
+    private final AtomicBoolean mRefreshPending = new AtomicBoolean();
+    // bumped by optimistic updates; loads last requested with an older generation are stale
+    private volatile int mGeneration;
+    private volatile int mPendingGeneration;
+    private final AtomicInteger mPendingActions = new AtomicInteger();
+    private volatile boolean mReleased;
+    private T mState;
+
+    private static synchronized Handler getBackgroundHandler() {
+        if (sBackgroundHandler == null) {
+            HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            sBackgroundHandler = new Handler(thread.getLooper());
+        }
+        return sBackgroundHandler;
+    }
+
+    public TileStateProvider() {
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Loads current state. Called on background thread.
+     */
+    protected abstract T loadState();
+
+    /**
+     * Delivers state different from the previous one. Called on main thread.
+     */
+    protected abstract void onStateChanged(T state);
+
+    private final Runnable mRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+
+    private final Runnable mLoadRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final int generation = mPendingGeneration;
+            mRefreshPending.set(false);
+            // state is about to change; action refreshes once it completes
+            if (mReleased || mPendingActions.get() > 0) return;
+
+            final T state;
+            try {
+                state = loadState();
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+                return;
+            }
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == mGeneration) {
+                        publish(state);
+                    }
+                }
+            });
+        }
+    };
+
+    private void publish(T state) {
+        if (mReleased) return;
+        if (mState == null ? state == null : mState.equals(state)) return;
+
+        mState = state;
+        onStateChanged(state);
+    }
+
+    /**
+     * Schedules state load. Requests made while a load is pending are merged into it.
+     */
+    public void refresh() {
+        // pending load hasn't read state yet so it serves the latest request
+        mPendingGeneration = mGeneration;
+        if (mRefreshPending.compareAndSet(false, true)) {
+            getBackgroundHandler().post(mLoadRunnable);
+        }
+    }
+
+    /**
+     * Schedules state load after given delay, replacing the one scheduled before.
+     * Lets optimistic state of actions completing asynchronously in another process
+     * be replaced by the real one even when no change notification ever comes.
+     */
+    public void refreshDelayed(long delayMs) {
+        mMainHandler.removeCallbacks(mRefreshRunnable);
+        mMainHandler.postDelayed(mRefreshRunnable, delayMs);
+    }
+
+    /**
+     * Runs action on background thread; state is refreshed once it completes.
+     */
+    public void execute(final Runnable action) {
+        mPendingActions.incrementAndGet();
+        getBackgroundHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (mReleased) return;
+                    action.run();
+                } catch (Throwable t) {
+                    XposedBridge.log(t);
+                } finally {
+                    mPendingActions.decrementAndGet();
+                }
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Sets expected state right away. Must be called from main thread.
+     */
+    public void setOptimisticState(T state) {
+        mGeneration++;
+        publish(state);
+    }
+
+    /**
+     * Forgets cached state, e.g. when it no longer applies. Loads requested before are
+     * discarded and the next load is delivered even if equal to the forgotten state.
+     * Must be called from main thread.
+     */
+    public void clearState() {
+        mGeneration++;
+        mState = null;
+    }
+
+    /**
+     * Last known state or null if not loaded yet. Must be called from main thread.
+     */
+    public T getState() {
+        return mState;
+    }
+
+    /**
+     * Stops delivering state. Provider can't be used afterwards.
+     */
+    public void release() {
+        mReleased = true;
+        mMainHandler.removeCallbacks(mRefreshRunnable);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox.quicksettings;
+
+import java.util.ArrayList;
+
+import com.ceco.gm2.gravitybox.FrameCoalescer;
+
+import android.os.Handler;
+import android.os.Looper;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Applies tile state changes to tile views only when somebody can see them.
+ *
+ * While notification panel is collapsed, tiles requesting an update are just marked dirty;
+ * all pending updates are applied in one batch when panel starts expanding.
+ * While panel is visible, updates are applied at most once per frame per tile so bursts
+ * of state changes (e.g. signal strength churn) cost a single view update.
+ */
+public class TileUpdatePipeline {
+    private static final String TAG = "GB:TileUpdatePipeline";
+    private static final boolean DEBUG = false;
+
+    private static TileUpdatePipeline sInstance;
+
+    private final Handler mHandler;
+    private final FrameCoalescer.FrameScheduler mScheduler;
+    private final ArrayList<AQuickSettingsTile> mDirtyTiles = new ArrayList<AQuickSettingsTile>();
+    private boolean mPanelVisible;
+    private boolean mFrameScheduled;
+
+    private static void log(String message) {
+        XposedBridge.log(TAG + ": " + message);
+    }
+
+    public static synchronized TileUpdatePipeline getInstance() {
+        if (sInstance == null) {
+            sInstance = new TileUpdatePipeline();
+        }
+        return sInstance;
+    }
+
+    private TileUpdatePipeline() {
+        mHandler = new Handler(Looper.getMainLooper());
+        mScheduler = new FrameCoalescer.ChoreographerScheduler();
+    }
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFrameScheduled = false;
+            flush();
+        }
+    };
+
+    /**
+     * Marks tile for update. Can be called from any thread.
+     */
+    public void requestUpdate(final AQuickSettingsTile tile) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    requestUpdate(tile);
+                }
+            });
+            return;
+        }
+
+        if (!mDirtyTiles.contains(tile)) {
+            mDirtyTiles.add(tile);
+        }
+        if (mPanelVisible && !mFrameScheduled) {
+            mFrameScheduled = true;
+            mScheduler.scheduleFrame(mFrameRunnable);
+        }
+    }
+
+    /**
+     * Drops pending update of tile, e.g. when it's being destroyed.
+     */
+    public void cancelUpdate(AQuickSettingsTile tile) {
+        mDirtyTiles.remove(tile);
+    }
+
+    /**
+     * Panel is considered visible from the moment it starts expanding until it's fully collapsed.
+     * Becoming visible applies all pending updates right away.
+     */
+    public void setPanelVisible(boolean visible) {
+        if (mPanelVisible == visible) return;
+
+        mPanelVisible = visible;
+        if (visible) {
+            flush();
+        } else if (mFrameScheduled) {
+            mFrameScheduled = false;
+            mScheduler.cancelFrame(mFrameRunnable);
+        }
+        if (DEBUG) log("Panel visible: " + visible);
+    }
+
+    public boolean isPanelVisible() {
+        return mPanelVisible;
+    }
+
+    /**
+     * Applies all pending updates right away.
+     */
+    public void flush() {
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            mScheduler.cancelFrame(mFrameRunnable);
+        }
+        if (mDirtyTiles.isEmpty()) return;
+
+        final AQuickSettingsTile[] tiles = mDirtyTiles.toArray(new AQuickSettingsTile[mDirtyTiles.size()]);
+        mDirtyTiles.clear();
+        for (AQuickSettingsTile tile : tiles) {
+            try {
+                tile.applyUpdate();
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+            }
+        }
+        if (DEBUG) log("Applied updates of " + tiles.length + " tile(s)");
+    }
+}
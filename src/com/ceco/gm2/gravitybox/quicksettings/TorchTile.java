@@ -67,6 +67,13 @@ public class TorchTile extends BasicTile {
         super.onTilePostCreate();
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mContext.unregisterReceiver(mBroadcastReceiver);
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected void updateTile() {
         if (mTorchStatus == TorchService.TORCH_STATUS_ON) {
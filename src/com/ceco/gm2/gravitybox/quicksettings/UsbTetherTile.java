@@ -16,6 +16,8 @@
 
 package com.ceco.gm2.gravitybox.quicksettings;
 
+import java.util.List;
+
 import com.ceco.gm2.gravitybox.R;
 
 import de.robv.android.xposed.XposedBridge;
@@ -36,6 +38,7 @@ public class UsbTetherTile extends BasicTile {
     private boolean mUsbConnected = false;
     private boolean mMassStorageActive = false;
     private String[] mUsbRegexs;
+    private TileStateProvider<Boolean> mTetheredProvider;
 
     public UsbTetherTile(Context context, Context gbContext, Object statusBar, Object panelBar) {
         super(context, gbContext, statusBar, panelBar);
@@ -44,7 +47,14 @@ public class UsbTetherTile extends BasicTile {
             @Override
             public void onClick(View v) {
                 if (mUsbConnected) {
-                    setUsbTethering(!mUsbTethered);
+                    final boolean enable = !mUsbTethered;
+                    mTetheredProvider.setOptimisticState(enable);
+                    mTetheredProvider.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            setUsbTethering(enable);
+                        }
+                    });
                 }
             }
         };
@@ -58,6 +68,27 @@ public class UsbTetherTile extends BasicTile {
                 return true;
             }
         };
+
+        mTetheredProvider = new TileStateProvider<Boolean>() {
+            @Override
+            protected Boolean loadState() {
+                return isUsbTethered();
+            }
+
+            @Override
+            protected void onStateChanged(Boolean tethered) {
+                mUsbTethered = tethered;
+                updateResources();
+            }
+        };
+        mTetheredProvider.refresh();
+    }
+
+    @Override
+    protected void onTileDestroy() {
+        mTetheredProvider.release();
+
+        super.onTileDestroy();
     }
 
     @Override
@@ -65,12 +96,22 @@ public class UsbTetherTile extends BasicTile {
         return R.layout.quick_settings_tile_usb_tether;
     }
 
+    @Override
+    public List<String> getBroadcastActions() {
+        List<String> actions = super.getBroadcastActions();
+        actions.add(ACTION_TETHER_STATE_CHANGED);
+        actions.add(ACTION_USB_STATE);
+        actions.add(Intent.ACTION_MEDIA_SHARED);
+        actions.add(ACTION_MEDIA_UNSHARED);
+        return actions;
+    }
+
     @Override
     public void onBroadcastReceived(Context context, Intent intent) {
         super.onBroadcastReceived(context, intent);
 
         if (intent.getAction().equals(ACTION_TETHER_STATE_CHANGED)) {
-            updateResources();
+            mTetheredProvider.refresh();
         }
 
         if (intent.getAction().equals(ACTION_USB_STATE)) {
@@ -92,7 +133,6 @@ public class UsbTetherTile extends BasicTile {
 
     @Override
     protected void updateTile() {
-        updateState();
         if (mUsbConnected && !mMassStorageActive) {
             if (mUsbTethered) {
                 mDrawableId = R.drawable.ic_qs_usb_tether_on;
@@ -113,34 +153,24 @@ public class UsbTetherTile extends BasicTile {
         super.updateTile();
     }
 
-    private void updateState() {
+    // called on background thread
+    private boolean isUsbTethered() {
         try {
             ConnectivityManager cm = 
                     (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
-            mUsbRegexs = (String[]) XposedHelpers.callMethod(cm, "getTetherableUsbRegexs");
-            String[] available = (String[]) XposedHelpers.callMethod(cm, "getTetherableIfaces");
+            if (mUsbRegexs == null) {
+                mUsbRegexs = (String[]) XposedHelpers.callMethod(cm, "getTetherableUsbRegexs");
+            }
             String[] tethered = (String[]) XposedHelpers.callMethod(cm, "getTetheredIfaces");
-            String[] errored = (String[]) XposedHelpers.callMethod(cm, "getTetheringErroredIfaces");
-            updateState(available, tethered, errored);
+            for (String s : tethered) {
+                for (String regex : mUsbRegexs) {
+                    if (s.matches(regex)) return true;
+                }
+            }
         } catch (Throwable t) {
             XposedBridge.log(t);
         }
-    }
-
-    private void updateState(String[] available, String[] tethered,
-            String[] errored) {
-        updateUsbState(available, tethered, errored);
-    }
-
-    private void updateUsbState(String[] available, String[] tethered,
-            String[] errored) {
-
-        mUsbTethered = false;
-        for (String s : tethered) {
-            for (String regex : mUsbRegexs) {
-                if (s.matches(regex)) mUsbTethered = true;
-            }
-        }
+        return false;
     }
 
     private void setUsbTethering(boolean enabled) {
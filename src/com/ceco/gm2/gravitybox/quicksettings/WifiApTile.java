@@ -66,6 +66,13 @@ public class WifiApTile extends BasicTile implements WifiApStateChangeListener {
         return R.layout.quick_settings_tile_wifi_ap;
     }
 
+    @Override
+    protected void onTileDestroy() {
+        mWifiManager.removeWifiApStateChangeListener(this);
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected synchronized void updateTile() {
         switch(mWifiApState) {
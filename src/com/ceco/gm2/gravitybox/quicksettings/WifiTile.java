@@ -19,6 +19,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -46,6 +47,9 @@ public class WifiTile extends BasicTile implements WifiStateChangeListener {
     private WifiManagerWrapper mWifiManager;
     private Map<String,Integer> mDrawableMap;
     private boolean mTurningOn = false;
+    private Object mSignalCluster;
+    private boolean mConnected;
+    private TileStateProvider<String> mSsidProvider;
 
     private static void log(String message) {
         XposedBridge.log(TAG + ": " + message);
@@ -60,6 +64,22 @@ public class WifiTile extends BasicTile implements WifiStateChangeListener {
         mWifiManager = wifiManager;
         mWifiManager.setWifiStateChangeListener(this);
 
+        mSsidProvider = new TileStateProvider<String>() {
+            @Override
+            protected String loadState() {
+                String ssid = mWifiManager.getWifiSsid();
+                return (ssid == null ? null : ssid.substring(1, ssid.length()-1));
+            }
+
+            @Override
+            protected void onStateChanged(String ssid) {
+                if (mConnected) {
+                    mLabel = getWifiSsid();
+                    updateResources();
+                }
+            }
+        };
+
         prepareDrawableMap();
 
         mOnClick = new View.OnClickListener() {
@@ -96,8 +116,9 @@ public class WifiTile extends BasicTile implements WifiStateChangeListener {
                             "mNetworkControllerGemini" : "mNetworkController");
             final List<Object> signalClusters = 
                     (List<Object>) XposedHelpers.getObjectField(networkController, "mSignalClusters");
-            signalClusters.add(Proxy.newProxyInstance(mContext.getClassLoader(),
-                            new Class<?>[] { signalClusterClass }, new WifiSignalCluster()));
+            mSignalCluster = Proxy.newProxyInstance(mContext.getClassLoader(),
+                            new Class<?>[] { signalClusterClass }, new WifiSignalCluster());
+            signalClusters.add(mSignalCluster);
         } catch(Throwable t) {
             XposedBridge.log(t);
         }
@@ -105,6 +126,35 @@ public class WifiTile extends BasicTile implements WifiStateChangeListener {
         super.onTilePostCreate();
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void onTileDestroy() {
+        mWifiManager.removeWifiStateChangeListener(this);
+        mSsidProvider.release();
+        if (mSignalCluster != null) {
+            try {
+                final Object networkController = 
+                        XposedHelpers.getObjectField(mStatusBar, Utils.hasGeminiSupport() ? 
+                                "mNetworkControllerGemini" : "mNetworkController");
+                final List<Object> signalClusters = 
+                        (List<Object>) XposedHelpers.getObjectField(networkController, "mSignalClusters");
+                // proxy must be matched by identity; equals() would be dispatched to the proxy
+                final Iterator<Object> it = signalClusters.iterator();
+                while (it.hasNext()) {
+                    if (it.next() == mSignalCluster) {
+                        it.remove();
+                        break;
+                    }
+                }
+            } catch(Throwable t) {
+                XposedBridge.log(t);
+            }
+            mSignalCluster = null;
+        }
+
+        super.onTileDestroy();
+    }
+
     @Override
     protected synchronized void updateTile() {
         mTextView.setText(mLabel);
@@ -135,6 +185,11 @@ public class WifiTile extends BasicTile implements WifiStateChangeListener {
     }
 
     private void updateResources(boolean connected, int iconId) {
+        if (mConnected && !connected) {
+            // SSID of the network just left must not show up when connecting to another one
+            mSsidProvider.clearState();
+        }
+        mConnected = connected;
         if (!connected && iconId == 0) {
             if (!mTurningOn) {
                 mDrawableId = R.drawable.ic_qs_wifi_off;
@@ -153,21 +208,35 @@ public class WifiTile extends BasicTile implements WifiStateChangeListener {
             }
             mLabel = connected ? getWifiSsid() : 
                 mGbResources.getString(R.string.quick_settings_wifi_not_connected);
+            if (connected) {
+                // SSID is fetched in background and label updated once known
+                mSsidProvider.refresh();
+            }
         }
 
         updateResources();
     }
 
     private String getWifiSsid() {
-        String ssid = mWifiManager.getWifiSsid();
+        String ssid = mSsidProvider.getState();
         return (ssid == null ? 
-                mGbResources.getString(R.string.quick_settings_wifi) :
-                    ssid.substring(1, ssid.length()-1));
+                mGbResources.getString(R.string.quick_settings_wifi) : ssid);
     }
 
     class WifiSignalCluster implements InvocationHandler {
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                } else if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (method.getName().equals("toString")) {
+                    return WifiSignalCluster.class.getName() + "@" +
+                            Integer.toHexString(System.identityHashCode(proxy));
+                }
+                return null;
+            }
             if (method.getName().equals("setWifiIndicators")) {
                 try {
                     if (DEBUG) {
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2013 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox.reflect;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import de.robv.android.xposed.XposedBridge;
+import de.robv.android.xposed.XposedHelpers;
+import de.robv.android.xposed.XposedHelpers.InvocationTargetError;
+
+/**
+ * Pre-bound field and method accessors for use in hot hook paths.
+ *
+ * An accessor is created once (typically as a static final constant next to the hook)
+ * and resolves its {@link Field} or {@link Method} on first use against the class of
+ * the receiver object. The resolved member is kept together with the class it was
+ * resolved for, so subsequent calls on objects of the same class skip the name based
+ * lookup (and the string key building) done by {@link XposedHelpers} entirely.
+ * If an object of a different class comes along, the member is simply re-resolved.
+ *
+ * Error semantics mirror {@link XposedHelpers}: missing members throw
+ * {@link NoSuchFieldError}/{@link NoSuchMethodError} and exceptions thrown by invoked
+ * methods are wrapped in {@link InvocationTargetError}.
+ */
+public final class Accessors {
+
+    private Accessors() { }
+
+    public static FieldAccessor field(String fieldName) {
+        return new FieldAccessor(fieldName);
+    }
+
+    /**
+     * Parameter types may either be specified as <code>Class</code> or <code>String</code>
+     * objects. In the latter case, the class is looked up using the class loader
+     * of the receiver class. Lookup follows {@link XposedHelpers#callMethod} semantics,
+     * i.e. the closest match is taken if there is no exact one.
+     */
+    public static MethodInvoker method(String methodName, Object... parameterTypes) {
+        return new MethodInvoker(methodName, parameterTypes);
+    }
+
+    private static final class Binding<T> {
+        final Class<?> clazz;
+        final T member;
+
+        Binding(Class<?> clazz, T member) {
+            this.clazz = clazz;
+            this.member = member;
+        }
+    }
+
+    public static final class FieldAccessor {
+        private final String mFieldName;
+        private volatile Binding<Field> mBinding;
+
+        private FieldAccessor(String fieldName) {
+            mFieldName = fieldName;
+        }
+
+        public String getName() {
+            return mFieldName;
+        }
+
+        private Field resolve(Object obj) {
+            final Class<?> clazz = obj.getClass();
+            Binding<Field> b = mBinding;
+            if (b == null || b.clazz != clazz) {
+                b = new Binding<Field>(clazz, XposedHelpers.findField(clazz, mFieldName));
+                mBinding = b;
+            }
+            return b.member;
+        }
+
+        public Object get(Object obj) {
+            try {
+                return resolve(obj).get(obj);
+            } catch (IllegalAccessException e) {
+                // should not happen
+                XposedBridge.log(e);
+                throw new IllegalAccessError(e.getMessage());
+            }
+        }
+
+        public boolean getBoolean(Object obj) {
+            try {
+                return resolve(obj).getBoolean(obj);
+            } catch (IllegalAccessException e) {
+                XposedBridge.log(e);
+                throw new IllegalAccessError(e.getMessage());
+            }
+        }
+
+        public int getInt(Object obj) {
+            try {
+                return resolve(obj).getInt(obj);
+            } catch (IllegalAccessException e) {
+                XposedBridge.log(e);
+                throw new IllegalAccessError(e.getMessage());
+            }
+        }
+
+        public void set(Object obj, Object value) {
+            try {
+                resolve(obj).set(obj, value);
+            } catch (IllegalAccessException e) {
+                XposedBridge.log(e);
+                throw new IllegalAccessError(e.getMessage());
+            }
+        }
+
+        public void setBoolean(Object obj, boolean value) {
+            try {
+                resolve(obj).setBoolean(obj, value);
+            } catch (IllegalAccessException e) {
+                XposedBridge.log(e);
+                throw new IllegalAccessError(e.getMessage());
+            }
+        }
+
+        public void setInt(Object obj, int value) {
+            try {
+                resolve(obj).setInt(obj, value);
+            } catch (IllegalAccessException e) {
+                XposedBridge.log(e);
+                throw new IllegalAccessError(e.getMessage());
+            }
+        }
+    }
+
+    public static final class MethodInvoker {
+        private final String mMethodName;
+        private final Object[] mParameterTypes;
+        private volatile Binding<Method> mBinding;
+
+        private MethodInvoker(String methodName, Object[] parameterTypes) {
+            mMethodName = methodName;
+            mParameterTypes = parameterTypes;
+        }
+
+        public String getName() {
+            return mMethodName;
+        }
+
+        private Method resolve(Object obj) {
+            final Class<?> clazz = obj.getClass();
+            Binding<Method> b = mBinding;
+            if (b == null || b.clazz != clazz) {
+                b = new Binding<Method>(clazz, XposedHelpers.findMethodBestMatch(
+                        clazz, mMethodName, getParameterClasses(clazz)));
+                mBinding = b;
+            }
+            return b.member;
+        }
+
+        private Class<?>[] getParameterClasses(Class<?> clazz) {
+            Class<?>[] classes = new Class<?>[mParameterTypes.length];
+            for (int i = 0; i < mParameterTypes.length; i++) {
+                Object type = mParameterTypes[i];
+                if (type instanceof Class) {
+                    classes[i] = (Class<?>) type;
+                } else {
+                    classes[i] = XposedHelpers.findClass((String) type, clazz.getClassLoader());
+                }
+            }
+            return classes;
+        }
+
+        public Object invoke(Object obj, Object... args) {
+            try {
+                return resolve(obj).invoke(obj, args);
+            } catch (IllegalAccessException e) {
+                // should not happen
+                XposedBridge.log(e);
+                throw new IllegalAccessError(e.getMessage());
+            } catch (InvocationTargetException e) {
+                throw new InvocationTargetError(e.getCause());
+            }
+        }
+
+        public boolean invokeBoolean(Object obj, Object... args) {
+            return (Boolean) invoke(obj, args);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import junit.framework.TestCase;
+
+/**
+ * JVM tests of {@link BatteryDrainEstimator} replaying recorded battery traces.
+ * Trace lines hold elapsed realtime in ms, level and 1 if charging; # starts a comment.
+ * Fixtures are loaded from classpath, i.e. tests/resources has to be on it.
+ */
+public class BatteryDrainEstimatorTest extends TestCase {
+    // EWMA of identical steps may be off by float rounding
+    private static final float DELTA = 1f;
+
+    private static BatteryDrainEstimator replay(String trace) throws IOException {
+        InputStream in = BatteryDrainEstimatorTest.class.getResourceAsStream(trace);
+        if (in == null) throw new IOException("Fixture not found: " + trace);
+        BatteryDrainEstimator estimator = new BatteryDrainEstimator();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "US-ASCII"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) continue;
+                String[] fields = line.split("\\s+");
+                estimator.addSample(Long.parseLong(fields[0]), Integer.parseInt(fields[1]),
+                        Integer.parseInt(fields[2]) != 0);
+            }
+        } finally {
+            reader.close();
+        }
+        return estimator;
+    }
+
+    public void testFirstStepSkipped() throws IOException {
+        // first step takes 45 s of the 60 s per level; learning it would lower the rate
+        BatteryDrainEstimator estimator = replay("battery_discharge_steady.txt");
+        assertEquals(60000f, estimator.getDrainRate(), DELTA);
+        assertEquals(0f, estimator.getChargeRate(), 0f);
+    }
+
+    public void testTimeToEmpty() throws IOException {
+        BatteryDrainEstimator estimator = replay("battery_discharge_steady.txt");
+        assertEquals(80 * 60000L, estimator.getTimeToEmpty(), 80);
+        assertEquals(BatteryDrainEstimator.UNKNOWN, estimator.getTimeToFull());
+    }
+
+    public void testEwmaConvergence() throws IOException {
+        BatteryDrainEstimator estimator = replay("battery_discharge_slowdown.txt");
+        // 10 steps at new rate leave 0.7^10 of the old difference
+        final double expected = 120000 - 60000 * Math.pow(0.7, 10);
+        assertEquals(expected, estimator.getDrainRate(), 10);
+        assertTrue(estimator.getDrainRate() > 0.95 * 120000);
+    }
+
+    public void testPlugCycle() throws IOException {
+        BatteryDrainEstimator estimator = replay("battery_plug_cycle.txt");
+        // neither partial first charging step, drop under load nor recovery step are learned
+        assertEquals(30000f, estimator.getChargeRate(), DELTA);
+        assertEquals(60000f, estimator.getDrainRate(), DELTA);
+        assertEquals(40 * 30000L, estimator.getTimeToFull(), 40);
+        assertEquals(BatteryDrainEstimator.UNKNOWN, estimator.getTimeToEmpty());
+    }
+
+    public void testUnknownWithoutSteps() {
+        BatteryDrainEstimator estimator = new BatteryDrainEstimator();
+        assertEquals(BatteryDrainEstimator.UNKNOWN, estimator.getTimeToEmpty());
+        estimator.addSample(0, 50, false);
+        estimator.addSample(60000, 49, false);
+        assertEquals(BatteryDrainEstimator.UNKNOWN, estimator.getTimeToEmpty());
+        assertEquals(1, estimator.getHistorySize());
+        assertEquals(49, estimator.getHistoryLevel(0));
+        assertEquals(60000, estimator.getHistoryTime(0));
+    }
+}
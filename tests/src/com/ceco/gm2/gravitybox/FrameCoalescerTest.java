@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * JVM tests of {@link FrameCoalescer} driven by a manual frame scheduler.
+ */
+public class FrameCoalescerTest extends TestCase {
+
+    private static class ManualScheduler implements FrameCoalescer.FrameScheduler {
+        Runnable mCallback;
+        int mScheduleCount;
+        int mCancelCount;
+
+        @Override
+        public void scheduleFrame(Runnable callback) {
+            assertNull("frame already scheduled", mCallback);
+            mCallback = callback;
+            mScheduleCount++;
+        }
+
+        @Override
+        public void cancelFrame(Runnable callback) {
+            if (mCallback == callback) {
+                mCallback = null;
+            }
+            mCancelCount++;
+        }
+
+        void runFrame() {
+            final Runnable callback = mCallback;
+            mCallback = null;
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    private final List<Integer> mDelivered = new ArrayList<Integer>();
+    private ManualScheduler mScheduler;
+    private FrameCoalescer mCoalescer;
+
+    @Override
+    protected void setUp() {
+        mScheduler = new ManualScheduler();
+        mCoalescer = new FrameCoalescer(new FrameCoalescer.Target() {
+            @Override
+            public void onFlags(int flags) {
+                mDelivered.add(flags);
+            }
+        }, mScheduler);
+    }
+
+    public void testFlagsOredWithinFrame() {
+        mCoalescer.post(1);
+        mCoalescer.post(4);
+        mCoalescer.post(1);
+        assertEquals(5, mCoalescer.getPendingFlags());
+        assertTrue(mDelivered.isEmpty());
+
+        mScheduler.runFrame();
+        assertEquals(1, mDelivered.size());
+        assertEquals(5, mDelivered.get(0).intValue());
+        assertEquals(0, mCoalescer.getPendingFlags());
+    }
+
+    public void testSingleDeliveryPerFrame() {
+        mCoalescer.post(1);
+        mCoalescer.post(2);
+        assertEquals(1, mScheduler.mScheduleCount);
+        mScheduler.runFrame();
+        mScheduler.runFrame();
+        assertEquals(1, mDelivered.size());
+
+        // next frame is scheduled only once something is posted again
+        mCoalescer.post(8);
+        assertEquals(2, mScheduler.mScheduleCount);
+        mScheduler.runFrame();
+        assertEquals(2, mDelivered.size());
+        assertEquals(8, mDelivered.get(1).intValue());
+    }
+
+    public void testPostZeroSchedulesNothing() {
+        mCoalescer.post(0);
+        assertEquals(0, mScheduler.mScheduleCount);
+    }
+
+    public void testPostImmediateCancelsFrame() {
+        mCoalescer.post(1);
+        mCoalescer.postImmediate(2);
+        assertEquals(1, mDelivered.size());
+        assertEquals(3, mDelivered.get(0).intValue());
+        assertEquals(1, mScheduler.mCancelCount);
+        assertNull(mScheduler.mCallback);
+
+        mScheduler.runFrame();
+        assertEquals(1, mDelivered.size());
+    }
+
+    public void testFlushWithNothingPending() {
+        mCoalescer.flush();
+        assertTrue(mDelivered.isEmpty());
+        assertEquals(0, mScheduler.mCancelCount);
+
+        mCoalescer.post(1);
+        mScheduler.runFrame();
+        mCoalescer.flush();
+        assertEquals(1, mDelivered.size());
+    }
+}
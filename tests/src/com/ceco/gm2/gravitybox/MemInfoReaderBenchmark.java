@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+/**
+ * Micro-benchmark of {@link MemInfoReader#parse(byte[], int)} on JVM.
+ * Run as a plain Java program with tests/resources on classpath; prints time per parse
+ * of each fixture after a warm-up.
+ */
+public class MemInfoReaderBenchmark {
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 200000;
+
+    public static void main(String[] args) throws Exception {
+        for (String fixture : new String[] { "meminfo_3.4.txt", "meminfo_large.txt" }) {
+            final byte[] data = MemInfoReaderTest.loadFixture(fixture);
+            final MemInfoReader reader = new MemInfoReader();
+            long sink = 0;
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                reader.parse(data, data.length);
+                sink += reader.getTotalSize();
+            }
+            final long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                reader.parse(data, data.length);
+                sink += reader.getTotalSize();
+            }
+            final long elapsed = System.nanoTime() - start;
+            System.out.println(fixture + " (" + data.length + " bytes): " +
+                    (elapsed / ITERATIONS) + " ns/parse" + (sink == 0 ? " !" : ""));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * JVM tests of {@link MemInfoReader#parse(byte[], int)} against recorded /proc/meminfo files.
+ * Fixtures are loaded from classpath, i.e. tests/resources has to be on it.
+ *   meminfo_3.4.txt:   3.4 kernel without MemAvailable
+ *   meminfo_large.txt: recent kernel padded with vendor fields to over 4 kB,
+ *                      swap and slab fields being past the 4 kB mark
+ */
+public class MemInfoReaderTest extends TestCase {
+    private static final long KB = 1024;
+
+    static byte[] loadFixture(String name) throws IOException {
+        InputStream in = MemInfoReaderTest.class.getResourceAsStream(name);
+        if (in == null) throw new IOException("Fixture not found: " + name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static MemInfoReader parse(String fixture) throws IOException {
+        byte[] data = loadFixture(fixture);
+        MemInfoReader reader = new MemInfoReader();
+        reader.parse(data, data.length);
+        return reader;
+    }
+
+    public void testOldKernel() throws IOException {
+        MemInfoReader reader = parse("meminfo_3.4.txt");
+        assertEquals(857324 * KB, reader.getTotalSize());
+        assertEquals(41116 * KB, reader.getFreeSize());
+        assertEquals(0, reader.getValue(MemInfoReader.MEM_AVAILABLE));
+        assertEquals(11236 * KB, reader.getBuffersSize());
+        assertEquals(262924 * KB, reader.getCachedSize());
+        assertEquals(3052 * KB, reader.getSwapCachedSize());
+        assertEquals(413788 * KB, reader.getValue(MemInfoReader.ACTIVE));
+        assertEquals(196524 * KB, reader.getValue(MemInfoReader.INACTIVE));
+        assertEquals(10868 * KB, reader.getValue(MemInfoReader.SHMEM));
+        assertEquals(29964 * KB, reader.getValue(MemInfoReader.SLAB));
+        assertEquals(262140 * KB, reader.getSwapTotalSize());
+        assertEquals(214480 * KB, reader.getSwapFreeSize());
+        assertEquals(165636 * KB, reader.getValue("VmallocChunk"));
+        // free + buffers + cached - shmem
+        assertEquals((41116 + 11236 + 262924 - 10868) * KB, reader.getAvailableSize());
+    }
+
+    public void testLargeFile() throws IOException {
+        byte[] data = loadFixture("meminfo_large.txt");
+        assertTrue(data.length > 4096);
+
+        MemInfoReader reader = new MemInfoReader();
+        reader.parse(data, data.length);
+        assertEquals(6158152 * KB, reader.getTotalSize());
+        assertEquals(5687964 * KB, reader.getAvailableSize());
+        assertEquals(9288 * KB, reader.getValue(MemInfoReader.SHMEM));
+        assertEquals(53140 * KB, reader.getValue(MemInfoReader.SLAB));
+        assertEquals(0, reader.getSwapTotalSize());
+        assertEquals(37 * KB, reader.getValue("VendorPool1"));
+        // other fields only get an index while key table has room
+        assertEquals(0, reader.getValue("DirectMap1G"));
+    }
+
+    public void testPageCount() {
+        byte[] data = "HugePages_Total:      12\nHugepagesize:       2048 kB\n".getBytes();
+        MemInfoReader reader = new MemInfoReader();
+        reader.parse(data, data.length);
+        assertEquals(12, reader.getValue("HugePages_Total"));
+        assertEquals(2048 * KB, reader.getValue("Hugepagesize"));
+    }
+
+    public void testReparse() throws IOException {
+        MemInfoReader reader = parse("meminfo_large.txt");
+        byte[] data = loadFixture("meminfo_3.4.txt");
+        reader.parse(data, data.length);
+        assertEquals(857324 * KB, reader.getTotalSize());
+        // fields missing in new data are reset
+        assertEquals(0, reader.getValue(MemInfoReader.MEM_AVAILABLE));
+        assertEquals(0, reader.getValue("VendorPool1"));
+        assertEquals(262140 * KB, reader.getSwapTotalSize());
+    }
+
+    public void testTruncatedLine() {
+        byte[] data = "MemTotal:  1000 kB\nMemFree:   20".getBytes();
+        MemInfoReader reader = new MemInfoReader();
+        reader.parse(data, data.length);
+        assertEquals(1000 * KB, reader.getTotalSize());
+        assertEquals(20, reader.getFreeSize());
+
+        reader.parse(data, 13);
+        assertEquals(10, reader.getTotalSize());
+        assertEquals(0, reader.getFreeSize());
+    }
+}
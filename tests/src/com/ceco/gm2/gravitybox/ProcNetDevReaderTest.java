@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2014 Peter Gregus for GravityBox Project (C3C076@xda)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ceco.gm2.gravitybox;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import junit.framework.TestCase;
+
+/**
+ * JVM tests of {@link ProcNetDevReader} against recorded /proc/net/dev files.
+ * Fixtures are loaded from classpath, i.e. tests/resources has to be on it.
+ *   net_dev_basic.txt:     typical phone with loopback, mobile and Wi-Fi interfaces
+ *   net_dev_long.txt:      over 4 kB with more interfaces than are tracked; first mobile
+ *                          interface has RX bytes running into its name (iface:123 form)
+ *   net_dev_truncated.txt: last line cut off within TX bytes column
+ */
+public class ProcNetDevReaderTest extends TestCase {
+
+    private static ProcNetDevReader parse(String fixture) throws IOException {
+        byte[] data = MemInfoReaderTest.loadFixture(fixture);
+        ProcNetDevReader reader = new ProcNetDevReader();
+        reader.parse(data, data.length);
+        return reader;
+    }
+
+    private static int indexOf(ProcNetDevReader reader, String name) {
+        for (int i = 0; i < reader.getInterfaceCount(); i++) {
+            if (name.equals(reader.getInterfaceName(i))) return i;
+        }
+        return -1;
+    }
+
+    public void testBasic() throws IOException {
+        ProcNetDevReader reader = parse("net_dev_basic.txt");
+        assertEquals(5, reader.getInterfaceCount());
+        assertEquals("lo", reader.getInterfaceName(0));
+        assertTrue(reader.isLoopback(0));
+
+        final int wlan = indexOf(reader, "wlan0");
+        assertFalse(reader.isLoopback(wlan));
+        assertEquals(1293847561L, reader.getRxBytes(wlan));
+        assertEquals(84736251L, reader.getTxBytes(wlan));
+
+        final int rmnet = indexOf(reader, "rmnet0");
+        assertEquals(58213344L, reader.getRxBytes(rmnet));
+        assertEquals(4120987L, reader.getTxBytes(rmnet));
+
+        // loopback is left out of totals
+        assertEquals(58213344L + 1293847561L, reader.getTotalRxBytes());
+        assertEquals(4120987L + 84736251L, reader.getTotalTxBytes());
+    }
+
+    public void testNoSpaceAfterName() throws IOException {
+        ProcNetDevReader reader = parse("net_dev_long.txt");
+        final int rmnet = indexOf(reader, "rmnet0");
+        assertEquals(98765432109876L, reader.getRxBytes(rmnet));
+        assertEquals(1234567L, reader.getTxBytes(rmnet));
+    }
+
+    public void testLongFile() throws IOException, URISyntaxException {
+        File file = new File(ProcNetDevReaderTest.class.getResource("net_dev_long.txt").toURI());
+        assertTrue(file.length() > 4096);
+
+        // goes through retained buffer growing past its initial size
+        ProcNetDevReader reader = new ProcNetDevReader(file.getPath());
+        assertTrue(reader.read());
+        assertEquals(ProcNetDevReader.MAX_INTERFACES, reader.getInterfaceCount());
+        final int last = ProcNetDevReader.MAX_INTERFACES - 1;
+        assertEquals("rmnet" + (last - 1), reader.getInterfaceName(last));
+        assertEquals(1000L * last, reader.getRxBytes(last));
+        assertEquals(100L * last, reader.getTxBytes(last));
+
+        // re-read keeps the same result
+        assertTrue(reader.read());
+        assertEquals(ProcNetDevReader.MAX_INTERFACES, reader.getInterfaceCount());
+        assertEquals(1000L * last, reader.getRxBytes(last));
+        reader.close();
+    }
+
+    public void testTruncatedLastLine() throws IOException {
+        ProcNetDevReader reader = parse("net_dev_truncated.txt");
+        assertEquals(2, reader.getInterfaceCount());
+        assertEquals("wlan0", reader.getInterfaceName(1));
+        assertEquals(7000L, reader.getRxBytes(1));
+        assertEquals(3000L, reader.getTxBytes(1));
+        assertEquals(-1, indexOf(reader, "rmnet0"));
+    }
+
+    public void testMissingFile() {
+        ProcNetDevReader reader = new ProcNetDevReader("/nonexistent/net/dev");
+        assertFalse(reader.read());
+        assertEquals(0, reader.getInterfaceCount());
+    }
+
+    public void testNamesReused() throws IOException {
+        byte[] data = MemInfoReaderTest.loadFixture("net_dev_basic.txt");
+        ProcNetDevReader reader = new ProcNetDevReader();
+        reader.parse(data, data.length);
+        final String name = reader.getInterfaceName(2);
+        reader.parse(data, data.length);
+        assertTrue(name == reader.getInterfaceName(2));
+    }
+}